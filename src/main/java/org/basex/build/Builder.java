@@ -57,7 +57,7 @@ public abstract class Builder extends Progress {
    * @param nm name of database
    * @param parse parser
    */
-  Builder(final String nm, final Parser parse) {
+  protected Builder(final String nm, final Parser parse) {
     parser = parse;
     name = nm;
   }
@@ -79,7 +79,7 @@ public abstract class Builder extends Progress {
    * @param value document name
    * @throws IOException I/O exception
    */
-  public final void startDoc(final byte[] value) throws IOException {
+  public void startDoc(final byte[] value) throws IOException {
     path.index(0, Data.DOC, level);
     pstack.set(level++, meta.size);
     addDoc(value);
@@ -90,7 +90,7 @@ public abstract class Builder extends Progress {
    * Closes a document node.
    * @throws IOException I/O exception
    */
-  public final void endDoc() throws IOException {
+  public void endDoc() throws IOException {
     final int pre = pstack.get(--level);
     setSize(pre, meta.size - pre);
     meta.ndocs++;
@@ -102,7 +102,7 @@ public abstract class Builder extends Progress {
    * @param pref the namespace prefix
    * @param uri namespace uri
    */
-  public final void startNS(final byte[] pref, final byte[] uri) {
+  public void startNS(final byte[] pref, final byte[] uri) {
     ns.add(pref, uri, meta.size);
   }
 
@@ -113,7 +113,7 @@ public abstract class Builder extends Progress {
    * @param att attributes
    * @throws IOException I/O exception
    */
-  public final void startElem(final byte[] nm, final Atts att) throws IOException {
+  public void startElem(final byte[] nm, final Atts att) throws IOException {
     addElem(nm, att);
     ++level;
   }
@@ -124,7 +124,7 @@ public abstract class Builder extends Progress {
    * @param att attributes
    * @throws IOException I/O exception
    */
-  public final void emptyElem(final byte[] nm, final Atts att) throws IOException {
+  public void emptyElem(final byte[] nm, final Atts att) throws IOException {
     addElem(nm, att);
     final int pre = pstack.get(level);
     ns.close(pre);
@@ -135,7 +135,7 @@ public abstract class Builder extends Progress {
    * Closes an element.
    * @throws IOException I/O exception
    */
-  public final void endElem() throws IOException {
+  public void endElem() throws IOException {
     checkStop();
     --level;
     final int pre = pstack.get(level);
@@ -148,7 +148,7 @@ public abstract class Builder extends Progress {
    * @param value text value
    * @throws IOException I/O exception
    */
-  public final void text(final byte[] value) throws IOException {
+  public void text(final byte[] value) throws IOException {
     if(value.length != 0) addText(value, Data.TEXT);
   }
 
@@ -157,7 +157,7 @@ public abstract class Builder extends Progress {
    * @param value comment text
    * @throws IOException I/O exception
    */
-  public final void comment(final byte[] value) throws IOException {
+  public void comment(final byte[] value) throws IOException {
     addText(value, Data.COMM);
   }
 
@@ -166,7 +166,7 @@ public abstract class Builder extends Progress {
    * @param pi processing instruction name and value
    * @throws IOException I/O exception
    */
-  public final void pi(final byte[] pi) throws IOException {
+  public void pi(final byte[] pi) throws IOException {
     addText(pi, Data.PI);
   }
 
@@ -174,7 +174,7 @@ public abstract class Builder extends Progress {
    * Sets the document encoding.
    * @param enc encoding
    */
-  public final void encoding(final String enc) {
+  public void encoding(final String enc) {
     meta.encoding = eq(enc, UTF8, UTF82) ? UTF8 : enc;
   }
 
@@ -31,6 +31,8 @@ public class XMLParser extends SingleParser {
   private final boolean fragment;
   /** Closed root tag. */
   private boolean closed;
+  /** Indicates if parsing has been started. */
+  private boolean started;
 
   /**
    * Constructor.
@@ -61,30 +63,47 @@ public class XMLParser extends SingleParser {
   @Override
   public final void parse() throws IOException {
     // loop until all tokens have been processed
-    scanner.more();
-    while(true) {
-      if(scanner.type == Type.TEXT) {
-        final byte[] text = scanner.token.finish();
-        if(!tags.isEmpty() || fragment || !ws(text))
-          builder.text(scanner.token.finish());
-      } else if(scanner.type == Type.COMMENT) {
-        builder.comment(scanner.token.finish());
-      } else if(scanner.type == Type.PI) {
-        builder.pi(scanner.token.finish());
-      } else if(scanner.type == Type.EOF) {
-        break;
-      } else if(scanner.type != Type.DTD) {
-        // L_BR, L_BR_CLOSE
-        if(!fragment && closed) throw new BuildException(MOREROOTS, det());
-        if(!parseTag()) break;
-        continue;
-      }
-      if(!scanner.more()) break;
-    }
-    scanner.close();
-    builder.encoding(scanner.encoding);
+    while(next());
+  }
 
-    if(!tags.isEmpty()) throw new BuildException(DOCOPEN, det(), tags.pop());
+  /**
+   * Processes the next tokens and sends the resulting event to the builder.
+   * This method can be called to parse a document incrementally.
+   * @return {@code false} if all tokens have been processed
+   * @throws IOException I/O exception
+   */
+  public final boolean next() throws IOException {
+    if(!started) {
+      scanner.more();
+      started = true;
+    }
+    final boolean more;
+    if(scanner.type == Type.TEXT) {
+      final byte[] text = scanner.token.finish();
+      if(!tags.isEmpty() || fragment || !ws(text))
+        builder.text(scanner.token.finish());
+      more = scanner.more();
+    } else if(scanner.type == Type.COMMENT) {
+      builder.comment(scanner.token.finish());
+      more = scanner.more();
+    } else if(scanner.type == Type.PI) {
+      builder.pi(scanner.token.finish());
+      more = scanner.more();
+    } else if(scanner.type == Type.EOF) {
+      more = false;
+    } else if(scanner.type != Type.DTD) {
+      // L_BR, L_BR_CLOSE
+      if(!fragment && closed) throw new BuildException(MOREROOTS, det());
+      more = parseTag();
+    } else {
+      more = scanner.more();
+    }
+    if(!more) {
+      scanner.close();
+      builder.encoding(scanner.encoding);
+      if(!tags.isEmpty()) throw new BuildException(DOCOPEN, det(), tags.pop());
+    }
+    return more;
   }
 
   @Override
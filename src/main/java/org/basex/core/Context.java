@@ -2,8 +2,11 @@ package org.basex.core;
 
 import static org.basex.core.Text.*;
 
+import java.util.*;
+
 import org.basex.data.*;
 import org.basex.io.random.*;
+import org.basex.query.util.*;
 import org.basex.query.util.pkg.*;
 import org.basex.server.*;
 import org.basex.util.list.*;
@@ -39,6 +42,8 @@ public final class Context {
   public final Repo repo;
   /** Databases list. */
   public final Databases databases;
+  /** Memoized function results, shared by all queries (indexed by function names). */
+  public final Map<String, Memo> memos;
 
   /** User reference. */
   public User user;
@@ -92,6 +97,7 @@ public final class Context {
     locks = ctx.locks;
     users = ctx.users;
     repo = ctx.repo;
+    memos = ctx.memos;
     log = ctx.log;
   }
 
@@ -110,6 +116,7 @@ public final class Context {
                                                   : new ProcessLocking(this);
     users = new Users(this);
     repo = new Repo(this);
+    memos = new HashMap<String, Memo>();
     log = new Log(this);
     user = users.get(ADMIN);
     listener = null;
@@ -58,10 +58,16 @@ public final class MainProp extends AProp {
 
   /** Timeout (seconds) for processing client requests; deactivated if set to 0. */
   public static final Object[] TIMEOUT = { "TIMEOUT", 30 };
+  /** Memory limit (megabytes) for the evaluation of a single query;
+   * deactivated if set to 0. */
+  public static final Object[] MEMLIMIT = { "MEMLIMIT", 0 };
   /** Keep alive time of clients; deactivated if set to 0. */
   public static final Object[] KEEPALIVE = { "KEEPALIVE", 600 };
   /** Defines the number of parallel readers. */
   public static final Object[] PARALLEL = { "PARALLEL", 8 };
+  /** Maximum number of threads for evaluating a single query
+   * (0: number of processors). */
+  public static final Object[] MAXTHREADS = { "MAXTHREADS", 0 };
   /** Logging flag. */
   public static final Object[] LOG = { "LOG", true };
   /** Log message cut-off. */
@@ -18,7 +18,7 @@ public abstract class Progress {
   public boolean updating;
 
   /** Stopped flag. */
-  private boolean stopped;
+  private volatile boolean stopped;
   /** Timeout thread. */
   private Thread timeout;
   /** Sub progress. */
@@ -49,6 +49,15 @@ public abstract class Progress {
     return sub != null ? sub.progress() : prog();
   }
 
+  /**
+   * Returns the approximate number of bytes that are currently consumed by the
+   * process or sub process.
+   * @return number of bytes
+   */
+  public final long memory() {
+    return sub != null ? sub.memory() : mem();
+  }
+
   /**
    * Sets a new sub progress.
    * @param <P> progress type
@@ -148,4 +157,13 @@ public abstract class Progress {
   protected double prog() {
     return 0;
   }
+
+  /**
+   * Returns the approximate number of bytes that are consumed by this process.
+   * Can be overwritten to give more detailed information.
+   * @return number of bytes
+   */
+  protected long mem() {
+    return 0;
+  }
 }
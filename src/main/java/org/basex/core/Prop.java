@@ -124,6 +124,10 @@ public final class Prop extends AProp {
   public static final Object[] MAXCATS = { "MAXCATS", 100 };
   /** Flag for automatic index update. */
   public static final Object[] UPDINDEX = { "UPDINDEX", false };
+  /** Maximum number of threads for building an index (0: number of processors). */
+  public static final Object[] INDEXTHREADS = { "INDEXTHREADS", 0 };
+  /** Memory budget for building an index, in MB (0: quarter of the main memory). */
+  public static final Object[] INDEXMEM = { "INDEXMEM", 0 };
 
   // Full-Text
 
@@ -156,6 +160,14 @@ public final class Prop extends AProp {
   public static final Object[] LSERROR = { "LSERROR", 0 };
   /** Number of query executions. */
   public static final Object[] RUNS = { "RUNS", 1 };
+  /** Memory budget for order by clauses, in MB (0: quarter of the main memory). */
+  public static final Object[] ORDERMEM = { "ORDERMEM", 0 };
+  /** Memory budget for group by clauses, in MB (0: quarter of the main memory). */
+  public static final Object[] GROUPMEM = { "GROUPMEM", 0 };
+  /** Flag for streaming documents in paths on fn:doc, without creating a database. */
+  public static final Object[] STREAM = { "STREAM", false };
+  /** Maximum number of threads for evaluating FLWOR expressions (1: sequential). */
+  public static final Object[] PARALLEL = { "PARALLEL", 1 };
 
   // Serialize
 
@@ -168,6 +180,8 @@ public final class Prop extends AProp {
 
   /** Prints an XML plan. */
   public static final Object[] XMLPLAN = { "XMLPLAN", false };
+  /** Profiles the evaluation of all expressions and prints an annotated query plan. */
+  public static final Object[] PROFILE = { "PROFILE", false };
   /** Creates the query plan before or after compilation. */
   public static final Object[] COMPPLAN = { "COMPPLAN", true };
   /** Dots the query plan. */
@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -102,26 +103,45 @@ public abstract class ACreate extends Command {
   }
 
   /**
-   * Builds the specified index.
-   * @param index index to be built
+   * Builds the specified indexes. If more than one index is specified,
+   * the indexes will be built in parallel.
    * @param data data reference
-   * @param cmd calling command
+   * @param cmd calling command (can be {@code null})
+   * @param types index types
    * @throws IOException I/O exception
    */
-  protected static void create(final IndexType index, final Data data, final ACreate cmd)
-      throws IOException {
+  protected static void create(final Data data, final ACreate cmd,
+      final IndexType... types) throws IOException {
 
-    if(data.inMemory()) return;
+    if(data.inMemory() || types.length == 0) return;
 
-    final IndexBuilder ib;
-    switch(index) {
-      case TEXT:      ib = new ValueBuilder(data, true); break;
-      case ATTRIBUTE: ib = new ValueBuilder(data, false); break;
-      case FULLTEXT:  ib = new FTBuilder(data); break;
-      default:        throw Util.notexpected();
+    final IndexBuilder[] ib = new IndexBuilder[types.length];
+    for(int t = 0; t < types.length; t++) {
+      switch(types[t]) {
+        case TEXT:      ib[t] = new ValueBuilder(data, true); break;
+        case ATTRIBUTE: ib[t] = new ValueBuilder(data, false); break;
+        case FULLTEXT:  ib[t] = new FTBuilder(data); break;
+        default:        throw Util.notexpected();
+      }
     }
-    data.closeIndex(index);
-    data.setIndex(index, (cmd == null ? ib : cmd.progress(ib)).build());
+    for(final IndexType type : types) data.closeIndex(type);
+
+    final IndexBuilders ibs = new IndexBuilders(ib);
+    final Index[] index = (cmd == null ? ibs : cmd.progress(ibs)).build();
+    for(int t = 0; t < types.length; t++) data.setIndex(types[t], index[t]);
+  }
+
+  /**
+   * Returns the types of all indexes that are to be created for a database.
+   * @param md meta data
+   * @return index types
+   */
+  protected static IndexType[] indexes(final MetaData md) {
+    final ArrayList<IndexType> types = new ArrayList<IndexType>();
+    if(md.createtext) types.add(IndexType.TEXT);
+    if(md.createattr) types.add(IndexType.ATTRIBUTE);
+    if(md.createftxt) types.add(IndexType.FULLTEXT);
+    return types.toArray(new IndexType[types.size()]);
   }
 
   /**
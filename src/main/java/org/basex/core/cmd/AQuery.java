@@ -108,6 +108,8 @@ abstract class AQuery extends Command {
           }
           updates = qp.updates();
           ser.close();
+          // show profiled query plan
+          if(r == 0 && prop.is(Prop.PROFILE)) profile();
           qp.close();
           prnt += p.time();
         }
@@ -269,8 +271,8 @@ abstract class AQuery extends Command {
         if(prop.is(Prop.DOTDISPLAY))
           new ProcessBuilder(prop.get(Prop.DOTTY), dot).start();
       }
-      // show XML plan
-      if(prop.is(Prop.XMLPLAN)) {
+      // show XML plan (profiled plans will be shown after evaluation)
+      if(prop.is(Prop.XMLPLAN) && !(c && prop.is(Prop.PROFILE))) {
         info(NL + QUERY_PLAN_C);
         info(qp.plan().serialize().toString());
       }
@@ -281,6 +283,15 @@ abstract class AQuery extends Command {
     }
   }
 
+  /**
+   * Adds the query plan with the profiled expressions to the information string.
+   * @throws QueryException query exception
+   */
+  private void profile() throws QueryException {
+    info(NL + QUERY_PLAN_C);
+    info(qp.plan().serialize().toString());
+  }
+
   @Override
   public void build(final CmdBuilder cb) {
     cb.init().xquery(0);
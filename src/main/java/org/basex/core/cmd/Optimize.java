@@ -3,6 +3,7 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -118,10 +119,12 @@ public final class Optimize extends ACreate {
       md.uptodate = true;
     }
 
-    // rebuild value indexes
-    optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, c);
-    optimize(IndexType.TEXT,      data, md.createtext, md.textindex, c);
-    optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, c);
+    // drop obsolete indexes, rebuild missing indexes in parallel
+    final ArrayList<IndexType> types = new ArrayList<IndexType>();
+    optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, types);
+    optimize(IndexType.TEXT,      data, md.createtext, md.textindex, types);
+    optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, types);
+    create(data, c, types.toArray(new IndexType[types.size()]));
   }
 
   /**
@@ -130,18 +133,16 @@ public final class Optimize extends ACreate {
    * @param d data reference
    * @param create create flag
    * @param old old flag
-   * @param c calling command
-   * @throws IOException I/O exception
-   *
+   * @param types indexes to be created
    */
   private static void optimize(final IndexType type, final Data d,
-      final boolean create, final boolean old, final Optimize c) throws IOException {
+      final boolean create, final boolean old, final ArrayList<IndexType> types) {
 
     // check if flags are nothing has changed
     if(create == old) return;
 
     // create or drop index
-    if(create) create(type, d, c);
+    if(create) types.add(type);
     else drop(type, d);
   }
 }
@@ -221,6 +221,37 @@ public abstract class Data {
     }
   }
 
+  /**
+   * Checks if the atomized value of the specified node equals the specified token.
+   * Texts, comments and attribute values, and elements and documents with a single
+   * descendant text node, are compared without creating the atomized value.
+   * The stored text of a processing instruction includes its name, so its value
+   * is atomized before it is compared.
+   * @param pre pre value
+   * @param token token to be compared
+   * @return result of check
+   */
+  public final boolean atomEq(final int pre, final byte[] token) {
+    final int kind = kind(pre);
+    switch(kind) {
+      case TEXT: case COMM:
+        return textEq(pre, true, token);
+      case ATTR:
+        return textEq(pre, false, token);
+      case ELEM: case DOC:
+        int t = -1;
+        final int s = pre + size(pre, kind);
+        for(int p = pre; p != s; p += attSize(p, kind(p))) {
+          if(kind(p) != TEXT) continue;
+          if(t != -1) return eq(atom(pre), token);
+          t = p;
+        }
+        return t == -1 ? token.length == 0 : textEq(t, true, token);
+      default:
+        return eq(atom(pre), token);
+    }
+  }
+
   // RETRIEVING VALUES ========================================================
 
   /**
@@ -454,6 +485,19 @@ public abstract class Data {
    */
   public abstract int textLen(int pre, boolean text);
 
+  /**
+   * Checks if the stored text of a node (text, comment, pi) or an attribute value
+   * equals the specified token. The stored text of a processing instruction consists
+   * of its name and value.
+   * @param pre pre value
+   * @param text text/attribute flag
+   * @param token token to be compared
+   * @return result of check
+   */
+  public boolean textEq(final int pre, final boolean text, final byte[] token) {
+    return eq(text(pre, text), token);
+  }
+
   // UPDATE OPERATIONS ========================================================
 
   /**
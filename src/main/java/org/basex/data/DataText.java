@@ -16,7 +16,9 @@ public interface DataText {
   String STORAGE = "7.1";
   /** Index version; if it's modified, new indexes can't be parsed anymore
    * by older versions. */
-  String ISTORAGE = "7.1";
+  String ISTORAGE = "7.5";
+  /** Minimum index version of full-text indexes that can be parsed. */
+  String FTSTORAGE = "7.5";
 
   /** Database version. */
   String DBSTR = "STORAGE";
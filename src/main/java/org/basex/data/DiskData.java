@@ -38,6 +38,13 @@ public final class DiskData extends Data {
       return new Compress();
     }
   };
+  /** Last packed token and its stored representation. */
+  private static final ThreadLocal<byte[][]> PACKED = new ThreadLocal<byte[][]>() {
+    @Override
+    protected byte[][] initialValue() {
+      return new byte[2][];
+    }
+  };
 
   /** Texts access file. */
   private DataAccess texts;
@@ -88,7 +95,7 @@ public final class DiskData extends Data {
       if(meta.textindex) txtindex = new DiskValues(this, true);
       if(meta.attrindex) atvindex = new DiskValues(this, false);
     }
-    if(meta.ftxtindex) ftxindex = new FTIndex(this);
+    if(meta.ftxtindex) ftxindex = meta.updindex ? new UpdatableFTIndex(this) : new FTIndex(this);
     init();
   }
 
@@ -214,6 +221,7 @@ public final class DiskData extends Data {
       values.flush();
       if(txtindex != null) ((DiskValues) txtindex).flush();
       if(atvindex != null) ((DiskValues) atvindex).flush();
+      if(ftxindex != null) ((FTIndex) ftxindex).flush();
     } catch(final IOException ex) {
       Util.stack(ex);
     } finally {
@@ -257,6 +265,34 @@ public final class DiskData extends Data {
     return cpr(o) ? da.readNum() : l;
   }
 
+  @Override
+  public boolean textEq(final int pre, final boolean text, final byte[] token) {
+    // integers are always inlined, and all other texts are stored in packed form
+    // if this saves space: the stored representations of equal texts are identical
+    final long o = textOff(pre);
+    final int v = toSimpleInt(token);
+    if(num(o)) return (int) o == v;
+    if(v != Integer.MIN_VALUE) return false;
+    final byte[] packed = pack(token);
+    return cpr(o) == (packed != token) &&
+        (text ? texts : values).eqToken(o & IO.OFFCOMP - 1, packed);
+  }
+
+  /**
+   * Returns the stored representation of the specified token. The last packed token
+   * is cached, as the same token is usually compared with many texts.
+   * @param token token
+   * @return packed token, or the token itself
+   */
+  private static byte[] pack(final byte[] token) {
+    final byte[][] cache = PACKED.get();
+    if(cache[0] != token) {
+      cache[1] = COMP.get().pack(token);
+      cache[0] = token;
+    }
+    return cache[1];
+  }
+
   /**
    * Returns a text (text, comment, pi) or attribute value.
    * @param o text offset
@@ -307,6 +343,7 @@ public final class DiskData extends Data {
       final DiskValues index = (DiskValues) (text ? txtindex : atvindex);
       // don't index document names
       if(index != null && kind != DOC) index.replace(oldval, value, id);
+      if(ftxindex != null && kind == TEXT) ((UpdatableFTIndex) ftxindex).replace(id, value);
     }
 
     // reference to text store
@@ -370,6 +407,10 @@ public final class DiskData extends Data {
       m = meta.textindex && kind != DOC ? txts : null;
     }
 
+    // add text to full-text index
+    if(meta.updindex && ftxindex != null && kind == TEXT)
+      ((UpdatableFTIndex) ftxindex).index(id, value);
+
     // add text to map to index later
     if(meta.updindex && m != null && value.length <= meta.maxlen) {
       final IntList ids;
@@ -397,7 +438,8 @@ public final class DiskData extends Data {
 
   @Override
   protected void indexDelete(final int pre, final int size) {
-    if(!(meta.textindex || meta.attrindex)) return;
+    final UpdatableFTIndex ftx = (UpdatableFTIndex) ftxindex;
+    if(!(meta.textindex || meta.attrindex || ftx != null)) return;
 
     // collect all keys and ids
     txts = new TokenObjMap<IntList>();
@@ -405,6 +447,7 @@ public final class DiskData extends Data {
     final int l = pre + size;
     for(int p = pre; p < l; ++p) {
       final int k = kind(p);
+      if(ftx != null && k == TEXT) ftx.delete(id(p));
       final boolean isAttr = k == ATTR;
       // consider nodes which are attribute, text, comment, or proc. instruction
       if(meta.attrindex && isAttr ||
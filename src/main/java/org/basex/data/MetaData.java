@@ -328,6 +328,9 @@ public final class MetaData {
     corrupt = dbfile(DATAUPD).exists();
     // deactivate full-text index if obsolete trie structure was used
     if(wcindex) ftxtindex = false;
+    // deactivate full-text index if obsolete (non-blocked) id/pos lists were used
+    if(istorage.isEmpty() || new Version(istorage).compareTo(new Version(FTSTORAGE)) < 0)
+      ftxtindex = false;
   }
 
   /**
@@ -376,8 +379,8 @@ public final class MetaData {
     if(!updindex) {
       textindex = false;
       attrindex = false;
+      ftxtindex = false;
     }
-    ftxtindex = false;
   }
 
   // PRIVATE METHODS ==========================================================
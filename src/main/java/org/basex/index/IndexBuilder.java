@@ -7,35 +7,39 @@ import java.io.*;
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This interface defines the functions which are needed for building
  * new index structures.
  *
+ * <p>The pre range of the database is split into partitions, which are
+ * indexed by separate threads if the database is large enough (see
+ * {@link Prop#INDEXTHREADS}). Each partition writes sorted runs to disk
+ * whenever its in-memory structures exceed the memory budget
+ * (see {@link Prop#INDEXMEM}). The runs are finally merged by the concrete
+ * builder.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Progress {
+  /** Minimum number of nodes per partition. */
+  private static final int SPLIT = 1 << 18;
+
   /** Data reference. */
   protected final Data data;
   /** Total parsing value. */
   protected final int size;
-  /** Flag for single garbage collecting. */
-  protected final boolean singlegc;
-  /** Current parsing value. */
-  protected int pre;
   /** Merge flag. */
   protected boolean merge;
   /** Number of cached index structures. */
   protected int csize;
 
-  /** Runtime for memory consumption. */
-  private final Runtime rt = Runtime.getRuntime();
-  /** Maximum memory to consume. */
-  private final long maxMem = (long) (rt.maxMemory() * 0.8);
-
-  /** Free memory threshold. */
-  private int cc;
+  /** Memory budget of a single partition (in bytes). */
+  private long budget;
+  /** Partitions. */
+  private Partition[] parts;
 
   /**
    * Builds the index structure and returns an index instance.
@@ -45,41 +49,79 @@ public abstract class IndexBuilder extends Progress {
   public abstract Index build() throws IOException;
 
   /**
-   * Checks if the command was interrupted, and prints some debug output.
+   * Aborts index creation and deletes the index files.
    */
-  protected final void check() {
-    checkStop();
-    if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
+  @Override
+  public abstract void abort();
+
+  /**
+   * Constructor.
+   * @param d reference
+   */
+  protected IndexBuilder(final Data d) {
+    data = d;
+    size = data.meta.size;
   }
 
   /**
-   * Checks if enough memory is left to continue index building.
-   * @return result of check
-   * @throws IOException I/O exception
+   * Creates a partition for the specified pre range.
+   * @param start first pre value
+   * @param end pre value after the last node
+   * @return partition
+   * @throws IOException I/O Exception
    */
-  protected final boolean memFull() throws IOException {
-    final boolean full = rt.totalMemory() - rt.freeMemory() >= maxMem;
-    if(full) {
-      if(cc >= 0 && !singlegc) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
-      if(Prop.debug) Util.err("!");
-      merge = true;
-      cc = 30;
+  protected abstract Partition partition(final int start, final int end)
+      throws IOException;
+
+  /**
+   * Indexes all nodes of the database. If more than one partition is created,
+   * the partitions are indexed in parallel, and the {@link #merge} flag is set.
+   * @throws IOException I/O Exception
+   */
+  protected final void index() throws IOException {
+    final Runtime rt = Runtime.getRuntime();
+    int t = data.meta.prop.num(Prop.INDEXTHREADS);
+    if(t <= 0) t = rt.availableProcessors();
+    final int n = Math.max(1, Math.min(t, size / SPLIT));
+
+    // split memory budget (default: quarter of the available memory)
+    final long mem = data.meta.prop.num(Prop.INDEXMEM);
+    budget = (mem > 0 ? mem << 20 : rt.maxMemory() >> 2) / n;
+
+    final Partition[] ps = new Partition[n];
+    for(int p = 0; p < n; p++) {
+      ps[p] = partition((int) ((long) size * p / n), (int) ((long) size * (p + 1) / n));
+    }
+    parts = ps;
+
+    if(n == 1) {
+      ps[0].run();
     } else {
-      --cc;
+      merge = true;
+      for(final Partition p : ps) p.start();
+      for(final Partition p : ps) {
+        while(p.isAlive()) {
+          try {
+            p.join();
+          } catch(final InterruptedException ex) {
+            Util.debug(ex);
+          }
+        }
+      }
     }
-    return full;
+    for(final Partition p : ps) p.rethrow();
   }
 
   /**
-   * Constructor.
-   * @param d reference
+   * Returns the ids of all temporary runs, ordered by partitions.
+   * @return run ids
    */
-  protected IndexBuilder(final Data d) {
-    data = d;
-    size = data.meta.size;
-    singlegc = d.meta.prop.is(Prop.SINGLEGC);
-    if(rt.totalMemory() - rt.freeMemory() >= rt.maxMemory() >> 1 && !singlegc)
-      Performance.gc(1);
+  protected final int[] runs() {
+    final IntList il = new IntList();
+    for(final Partition p : parts) {
+      for(int r = 0; r < p.runs.size(); r++) il.add(p.runs.get(r));
+    }
+    return il.toArray();
   }
 
   @Override
@@ -89,6 +131,100 @@ public abstract class IndexBuilder extends Progress {
 
   @Override
   public final double prog() {
+    final Partition[] ps = parts;
+    if(ps == null) return 0;
+    long pre = 0;
+    for(final Partition p : ps) pre += p.pre - p.start;
     return (double) pre / (size + (merge  ? size / 50 : 0));
   }
+
+  /**
+   * A partition of the database, which indexes a range of pre values.
+   */
+  protected abstract class Partition extends Thread {
+    /** First pre value. */
+    protected final int start;
+    /** Pre value after the last node. */
+    protected final int end;
+    /** Ids of the written runs. */
+    protected final IntList runs = new IntList();
+    /** Current parsing value. */
+    protected int pre;
+
+    /** Error that occurred while indexing the partition. */
+    private Throwable error;
+
+    /**
+     * Constructor.
+     * @param s first pre value
+     * @param e pre value after the last node
+     */
+    protected Partition(final int s, final int e) {
+      start = s;
+      end = e;
+      pre = s;
+    }
+
+    /**
+     * Indexes all nodes of the partition.
+     * @throws IOException I/O Exception
+     */
+    protected abstract void index() throws IOException;
+
+    @Override
+    public final void run() {
+      try {
+        index();
+      } catch(final Throwable ex) {
+        error = ex;
+      }
+    }
+
+    /**
+     * Returns the id of a new temporary run.
+     * @return run id
+     */
+    protected final int nextRun() {
+      final int r;
+      synchronized(IndexBuilder.this) {
+        r = csize++;
+      }
+      runs.add(r);
+      return r;
+    }
+
+    /**
+     * Checks if the command was interrupted, and prints some debug output.
+     */
+    protected final void check() {
+      checkStop();
+      if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
+    }
+
+    /**
+     * Checks if the estimated size of the in-memory structures exceeds the
+     * memory budget. If yes, the {@link #merge} flag is set, and a temporary
+     * run must be written by the caller.
+     * @param mem estimated memory consumption (in bytes)
+     * @return result of check
+     */
+    protected final boolean full(final long mem) {
+      if(mem <= budget) return false;
+      if(Prop.debug) Util.err("!");
+      merge = true;
+      return true;
+    }
+
+    /**
+     * Throws the error that occurred while indexing the partition.
+     * @throws IOException I/O Exception
+     */
+    final void rethrow() throws IOException {
+      final Throwable ex = error;
+      if(ex == null) return;
+      if(ex instanceof IOException) throw (IOException) ex;
+      if(ex instanceof RuntimeException) throw (RuntimeException) ex;
+      throw (Error) ex;
+    }
+  }
 }
@@ -0,0 +1,109 @@
+package org.basex.index;
+
+import static org.basex.core.Text.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.util.*;
+
+/**
+ * This class builds several index structures at the same time.
+ * Each index is built by a separate thread.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuilders extends Progress {
+  /** Index builders. */
+  private final IndexBuilder[] builders;
+
+  /**
+   * Constructor.
+   * @param ib index builders
+   */
+  public IndexBuilders(final IndexBuilder... ib) {
+    builders = ib;
+  }
+
+  /**
+   * Builds all index structures.
+   * @return index instances, in the order of the builders
+   * @throws IOException I/O Exception
+   */
+  public Index[] build() throws IOException {
+    final int bs = builders.length;
+    final Index[] index = new Index[bs];
+    if(bs == 1) {
+      index[0] = builders[0].build();
+      return index;
+    }
+
+    final Throwable[] error = new Throwable[bs];
+    final Thread[] threads = new Thread[bs];
+    for(int b = 0; b < bs; b++) {
+      final int i = b;
+      threads[b] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            index[i] = builders[i].build();
+          } catch(final Throwable ex) {
+            error[i] = ex;
+          }
+        }
+      };
+      threads[b].start();
+    }
+
+    // wait for all builders, pass on interruptions
+    for(final Thread t : threads) {
+      while(t.isAlive()) {
+        try {
+          checkStop();
+        } catch(final ProgressException ex) {
+          for(final IndexBuilder ib : builders) ib.stop();
+        }
+        try {
+          t.join(100);
+        } catch(final InterruptedException ex) {
+          Util.debug(ex);
+        }
+      }
+    }
+    checkStop();
+
+    for(final Throwable ex : error) {
+      if(ex == null) continue;
+      if(ex instanceof IOException) throw (IOException) ex;
+      if(ex instanceof RuntimeException) throw (RuntimeException) ex;
+      throw (Error) ex;
+    }
+    return index;
+  }
+
+  @Override
+  public void abort() {
+    for(final IndexBuilder ib : builders) ib.abort();
+  }
+
+  @Override
+  public String tit() {
+    return CREATING_INDEXES;
+  }
+
+  @Override
+  public String det() {
+    for(final IndexBuilder ib : builders) {
+      if(ib.progress() < 1) return ib.detail();
+    }
+    return builders[builders.length - 1].detail();
+  }
+
+  @Override
+  public double prog() {
+    double p = 0;
+    for(final IndexBuilder ib : builders) p += ib.progress();
+    return p / builders.length;
+  }
+}
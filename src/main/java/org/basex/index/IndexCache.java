@@ -2,54 +2,71 @@ package org.basex.index;
 
 import static org.basex.util.Token.*;
 
-import java.lang.ref.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
-import org.basex.util.list.*;
-
 /**
- * This class caches sizes and pointers from index results.
+ * <p>This class caches sizes and pointers from index results.</p>
+ *
+ * <p>The number of cached entries is limited. The cache is divided into
+ * segments, which are locked independently. If a segment is full, its least
+ * recently used entry will only be replaced if the new key has been requested
+ * more often (TinyLFU admission). Access frequencies are approximated by a
+ * count-min sketch with byte counters, which are capped at 15 and halved
+ * periodically.</p>
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Dimitar Popov
  */
 public final class IndexCache {
-  /** Queue used to collect unused keys. */
-  private final ReferenceQueue<IndexEntry> queue = new ReferenceQueue<IndexEntry>();
-  /** Read-write lock. */
-  private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(true);
-  /** Hash table buckets. */
-  private BucketEntry[] buckets = new BucketEntry[ElementList.CAP];
-  /** Number of entries in the cache. */
-  private int size;
+  /** Default maximum number of entries. */
+  public static final int CAPACITY = 1 << 14;
+  /** Number of segments (must be a power of two). */
+  private static final int SEGMENTS = 16;
+  /** Seeds for the hash functions of the frequency sketch. */
+  private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+  /** Maximum value of a frequency counter. */
+  private static final int MAXFREQ = 15;
+
+  /** Segments. */
+  private final Segment[] segments = new Segment[SEGMENTS];
+  /** Frequency counters. */
+  private final byte[] sketch;
+  /** Number of recorded accesses after which the counters will be halved. */
+  private final int sample;
+  /** Number of recorded accesses since the counters were halved. */
+  private int accesses;
+
+  /**
+   * Constructor, using the default capacity.
+   */
+  public IndexCache() {
+    this(CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   * @param capacity maximum number of entries
+   */
+  public IndexCache(final int capacity) {
+    final int c = Math.max(SEGMENTS, capacity);
+    for(int s = 0; s < SEGMENTS; s++) segments[s] = new Segment(c / SEGMENTS);
+    sketch = new byte[Integer.highestOneBit(Math.min(c, 1 << 26) - 1) << 4];
+    sample = c * 5;
+  }
 
   /**
    * Gets cached entry for the specified key.
    * @param key key
-   * @return cached entry or {@code null} if the entry is stale
+   * @return cached entry or {@code null} if the entry is not cached
    */
   public IndexEntry get(final byte[] key) {
     final int hash = hash(key);
-    rwl.readLock().lock();
-
-    try {
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i];
-      while(e != null) {
-        final IndexEntry entry = e.get();
-        if(entry != null && e.hash == hash && eq(entry.key, key)) return entry;
-        e = e.next;
-      }
-    } finally {
-      rwl.readLock().unlock();
-    }
-
-    return null;
+    record(hash);
+    return segment(hash).get(hash, key);
   }
 
   /**
    * Adds a new cache entry. If an entry with the specified key already exists,
-   * it will be updated.
+   * it will be updated. If the cache is full, and if the key is requested less
+   * often than the entry that would be evicted, the new entry will not be cached.
    * @param key key
    * @param s number of index hits
    * @param p pointer to id list
@@ -57,34 +74,7 @@ public final class IndexCache {
    */
   public IndexEntry add(final byte[] key, final int s, final long p) {
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-
-      final int i = indexFor(hash, buckets.length);
-
-      BucketEntry current = buckets[i];
-      BucketEntry prev = current;
-      while(current != null) {
-        final BucketEntry next = current.next;
-        final IndexEntry entry = current.get();
-        if(entry == null) {
-          delete(i, current, prev, next);
-        } else if(current.hash == hash && eq(entry.key, key)) {
-          update(entry, s, p);
-          return entry;
-        }
-        prev = current;
-        current = next;
-      }
-
-      final IndexEntry entry = new IndexEntry(key, s, p);
-      add(i, hash, entry);
-      return entry;
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    return segment(hash).add(hash, key, s, p);
   }
 
   /**
@@ -93,148 +83,306 @@ public final class IndexCache {
    */
   public void delete(final byte[] key) {
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-
-      final int i = indexFor(hash, buckets.length);
-
-      BucketEntry e = buckets[i];
-      BucketEntry prev = e;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final IndexEntry entry = e.get();
-        if(entry == null) {
-          delete(i, e, prev, next);
-        } else if(e.hash == hash && eq(entry.key, key)) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = e;
-        e = next;
-      }
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    segment(hash).delete(hash, key);
   }
 
   /**
-   * Purges stale entries from the cache.
+   * Returns the number of cached entries.
+   * @return number of entries
    */
-  private void purge() {
-    for(Object x; (x = queue.poll()) != null;) {
-      final BucketEntry e = (BucketEntry) x;
-      final int i = indexFor(e.hash, buckets.length);
+  public int size() {
+    int s = 0;
+    for(final Segment sg : segments) s += sg.size();
+    return s;
+  }
 
-      BucketEntry prev = buckets[i];
-      BucketEntry p = prev;
-      while(p != null) {
-        final BucketEntry next = p.next;
-        if(p == e) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = p;
-        p = next;
+  /**
+   * Returns the number of successful lookups.
+   * @return number of hits
+   */
+  public long hits() {
+    long h = 0;
+    for(final Segment sg : segments) {
+      synchronized(sg) {
+        h += sg.hits;
       }
     }
+    return h;
   }
 
   /**
-   * Add a new index entry to the bucket with the specified index.
-   * @param i bucket index
-   * @param hash hash of the new index key
-   * @param entry index entry
+   * Returns the number of failed lookups.
+   * @return number of misses
    */
-  private void add(final int i, final int hash, final IndexEntry entry) {
-    buckets[i] = new BucketEntry(hash, buckets[i], entry, queue);
-    if(++size == buckets.length) rehash();
+  public long misses() {
+    long m = 0;
+    for(final Segment sg : segments) {
+      synchronized(sg) {
+        m += sg.misses;
+      }
+    }
+    return m;
   }
 
   /**
-   * Update an existing index entry.
-   * @param entry index entry to update
-   * @param sz new size
-   * @param poi new pointer
+   * Returns the ratio of successful lookups.
+   * @return hit ratio, or {@code 0} if no lookups have been performed
    */
-  private static void update(final IndexEntry entry, final int sz, final long poi) {
-    entry.size = sz;
-    entry.pointer = poi;
+  public double ratio() {
+    final long h = hits(), a = h + misses();
+    return a == 0 ? 0 : (double) h / a;
   }
 
   /**
-   * Deletes a cached entry from the buckets with the specified index.
-   * @param i buckets index
-   * @param e cached entry to delete
-   * @param p previous cache entry
-   * @param n next cache entry
+   * Returns information on the cache.
+   * @return info string
    */
-  private void delete(final int i, final BucketEntry e, final BucketEntry p,
-      final BucketEntry n) {
-    if(p == e) buckets[i] = n;
-    else p.next = n;
-    e.next = null;
-    --size;
+  public String info() {
+    final long h = hits(), a = h + misses();
+    final double r = a == 0 ? 0 : Math.round(h * 1000d / a) / 10d;
+    return size() + " entries, " + h + " of " + a + " lookups successful (" + r + "%)";
   }
 
+  // PRIVATE METHODS ==========================================================
+
   /**
-   * Resizes the hash table.
+   * Returns the segment for the specified hash code.
+   * @param hash hash code
+   * @return segment
    */
-  private void rehash() {
-    purge();
-
-    final int s = size << 1;
-    final BucketEntry[] tmp = new BucketEntry[s];
+  private Segment segment(final int hash) {
+    return segments[spread(hash) >>> 28 & SEGMENTS - 1];
+  }
 
-    final int l = buckets.length;
-    for(int i = 0; i < l; ++i) {
-      BucketEntry e = buckets[i];
-      buckets[i] = null;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final int p = indexFor(e.hash, tmp.length);
-        e.next = tmp[p];
-        tmp[p] = e;
-        e = next;
-      }
+  /**
+   * Records an access to the specified key. The counters are updated
+   * without synchronization, as they are only approximations anyway.
+   * @param hash hash code of the key
+   */
+  private void record(final int hash) {
+    final int m = sketch.length - 1;
+    for(final int seed : SEEDS) {
+      final int i = spread(hash * seed) & m;
+      if(sketch[i] < MAXFREQ) sketch[i]++;
+    }
+    if(++accesses >= sample) {
+      accesses = 0;
+      for(int i = 0; i <= m; i++) sketch[i] >>>= 1;
     }
-    buckets = tmp;
   }
 
   /**
-   * Returns buckets index for a hash code.
+   * Returns the estimated access frequency of the specified key.
+   * @param hash hash code of the key
+   * @return frequency
+   */
+  private int frequency(final int hash) {
+    final int m = sketch.length - 1;
+    int f = MAXFREQ;
+    for(final int seed : SEEDS) f = Math.min(f, sketch[spread(hash * seed) & m]);
+    return f;
+  }
+
+  /**
+   * Spreads the bits of a hash code.
    * @param h hash code
-   * @param n number of available buckets
-   * @return index of a buckets
+   * @return new hash code
+   */
+  private static int spread(final int h) {
+    final int x = (h ^ h >>> 16) * 0x45D9F3B;
+    return x ^ x >>> 16;
+  }
+
+  /**
+   * Segment of the cache: a hash table, the entries of which are additionally
+   * linked in the order of their last access.
    */
-  private static int indexFor(final int h, final int n) {
-    return h & n - 1;
+  private final class Segment {
+    /** Maximum number of entries. */
+    private final int capacity;
+    /** Sentinel of the access list: next is the most recently used node. */
+    private final Node lru = new Node(0, null);
+    /** Hash table buckets. */
+    private Node[] buckets = new Node[8];
+    /** Number of entries. */
+    private int size;
+    /** Number of successful lookups. */
+    long hits;
+    /** Number of failed lookups. */
+    long misses;
+
+    /**
+     * Constructor.
+     * @param c maximum number of entries
+     */
+    Segment(final int c) {
+      capacity = c;
+      lru.prev = lru;
+      lru.next = lru;
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return number of entries
+     */
+    synchronized int size() {
+      return size;
+    }
+
+    /**
+     * Gets the entry for the specified key.
+     * @param hash hash code
+     * @param key key
+     * @return entry or {@code null}
+     */
+    synchronized IndexEntry get(final int hash, final byte[] key) {
+      final Node n = find(hash, key);
+      if(n == null) {
+        ++misses;
+        return null;
+      }
+      ++hits;
+      unlink(n);
+      link(n);
+      return n.entry;
+    }
+
+    /**
+     * Adds or updates an entry.
+     * @param hash hash code
+     * @param key key
+     * @param s number of index hits
+     * @param p pointer to id list
+     * @return entry
+     */
+    synchronized IndexEntry add(final int hash, final byte[] key, final int s,
+        final long p) {
+
+      final Node n = find(hash, key);
+      if(n != null) {
+        n.entry.size = s;
+        n.entry.pointer = p;
+        return n.entry;
+      }
+
+      final IndexEntry entry = new IndexEntry(key, s, p);
+      if(size >= capacity) {
+        // only replace least recently used entry if new key is requested more often
+        final Node victim = lru.prev;
+        if(frequency(hash) <= frequency(victim.hash)) return entry;
+        remove(victim);
+      }
+
+      final Node nn = new Node(hash, entry);
+      final int i = hash & buckets.length - 1;
+      nn.bucket = buckets[i];
+      buckets[i] = nn;
+      link(nn);
+      if(++size > buckets.length) rehash();
+      return entry;
+    }
+
+    /**
+     * Deletes the entry with the specified key.
+     * @param hash hash code
+     * @param key key
+     */
+    synchronized void delete(final int hash, final byte[] key) {
+      final Node n = find(hash, key);
+      if(n != null) remove(n);
+    }
+
+    /**
+     * Finds the node for the specified key.
+     * @param hash hash code
+     * @param key key
+     * @return node or {@code null}
+     */
+    private Node find(final int hash, final byte[] key) {
+      for(Node n = buckets[hash & buckets.length - 1]; n != null; n = n.bucket) {
+        if(n.hash == hash && eq(n.entry.key, key)) return n;
+      }
+      return null;
+    }
+
+    /**
+     * Removes a node from the hash table and the access list.
+     * @param n node
+     */
+    private void remove(final Node n) {
+      final int i = n.hash & buckets.length - 1;
+      if(buckets[i] == n) {
+        buckets[i] = n.bucket;
+      } else {
+        Node b = buckets[i];
+        while(b.bucket != n) b = b.bucket;
+        b.bucket = n.bucket;
+      }
+      unlink(n);
+      --size;
+    }
+
+    /**
+     * Inserts a node at the head of the access list.
+     * @param n node
+     */
+    private void link(final Node n) {
+      n.prev = lru;
+      n.next = lru.next;
+      lru.next.prev = n;
+      lru.next = n;
+    }
+
+    /**
+     * Removes a node from the access list.
+     * @param n node
+     */
+    private void unlink(final Node n) {
+      n.prev.next = n.next;
+      n.next.prev = n.prev;
+    }
+
+    /**
+     * Doubles the number of hash table buckets.
+     */
+    private void rehash() {
+      final Node[] tmp = new Node[buckets.length << 1];
+      for(Node n : buckets) {
+        while(n != null) {
+          final Node next = n.bucket;
+          final int i = n.hash & tmp.length - 1;
+          n.bucket = tmp[i];
+          tmp[i] = n;
+          n = next;
+        }
+      }
+      buckets = tmp;
+    }
   }
 
   /**
-   * Cache buckets entry. Used to implement a linked list of cache entries for
-   * each buckets. It also stores the hash of the current entry for better
-   * performance.
+   * Node of a segment.
    */
-  private static class BucketEntry extends SoftReference<IndexEntry> {
-    /** Hash code of the stored cache entry key. */
+  private static final class Node {
+    /** Hash code of the key. */
     final int hash;
-    /** Next buckets entry or {@code null} if the last one for this buckets. */
-    BucketEntry next;
+    /** Cached entry. */
+    final IndexEntry entry;
+    /** Next node in the same bucket. */
+    Node bucket;
+    /** Previous node in the access list. */
+    Node prev;
+    /** Next node in the access list. */
+    Node next;
 
     /**
      * Constructor.
-     * @param h hash code of the cache entry key
-     * @param n next buckets entry or {@code null} if the last one
-     * @param v stored cache entry
-     * @param rq reference queue
+     * @param h hash code
+     * @param e cached entry
      */
-    public BucketEntry(final int h, final BucketEntry n, final IndexEntry v,
-        final ReferenceQueue<IndexEntry> rq) {
-      super(v, rq);
+    Node(final int h, final IndexEntry e) {
       hash = h;
-      next = n;
+      entry = e;
     }
   }
 }
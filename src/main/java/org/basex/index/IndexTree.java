@@ -15,6 +15,10 @@ import org.basex.util.list.*;
 public class IndexTree {
   /** Factor for resize. */
   protected static final double FACTOR = 1.2;
+  /** Estimated memory consumption of a node, excluding the key. */
+  private static final int NODE = 64;
+  /** Estimated memory consumption of an array, excluding its contents. */
+  protected static final int ARRAY = 24;
 
   /** Keys saved in the tree. */
   public final TokenList keys = new TokenList(FACTOR);
@@ -25,6 +29,10 @@ public class IndexTree {
   protected TokenIntMap maps = new TokenIntMap();
   /** Current iterator node. */
   protected int cn;
+  /** Estimated memory consumption of all nodes and keys (in bytes). */
+  protected long kmem;
+  /** Estimated memory consumption of all values (in bytes). */
+  protected long vmem;
 
   /** Tree structure [left, right, parent]. */
   private final IntList tree = new IntList(FACTOR);
@@ -66,14 +74,15 @@ public class IndexTree {
       final int c = Token.diff(key, keys.get(n));
       if(c == 0) {
         if(exist) {
-          values.set(n, Num.add(values.get(n), value));
+          add(n, value);
         } else {
           final int i = maps.value(Num.num(n));
           if(i < 0) {
             maps.add(Num.num(n), values.size());
             values.add(Num.newNum(value));
+            vmem += ARRAY * 2 + Num.length(n) + values.get(values.size() - 1).length;
           } else {
-            values.set(i, Num.add(values.get(i), value));
+            add(i, value);
           }
         }
         return n;
@@ -95,6 +104,14 @@ public class IndexTree {
     }
   }
 
+  /**
+   * Returns the estimated memory consumption of the tree.
+   * @return number of bytes
+   */
+  public final long memory() {
+    return kmem + vmem;
+  }
+
   /**
    * Returns the number of entries.
    * @return number of entries
@@ -143,6 +160,17 @@ public class IndexTree {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Adds a value to the specified value array.
+   * @param i index of the value array
+   * @param value value to be added
+   */
+  private void add(final int i, final int value) {
+    final byte[] o = values.get(i), v = Num.add(o, value);
+    vmem += v.length - o.length;
+    values.set(i, v);
+  }
+
   /**
    * Creates a new node.
    * @param key node key
@@ -159,7 +187,12 @@ public class IndexTree {
     mod.add(false);
     keys.add(key);
     values.add(Num.newNum(value));
-    if(!exist) maps.add(Num.num(keys.size() - 1), values.size() - 1);
+    kmem += NODE + key.length;
+    vmem += ARRAY + values.get(values.size() - 1).length;
+    if(!exist) {
+      maps.add(Num.num(keys.size() - 1), values.size() - 1);
+      vmem += ARRAY * 2;
+    }
     return mod.size() - 1;
   }
 
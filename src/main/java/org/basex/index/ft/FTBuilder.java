@@ -21,15 +21,6 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class FTBuilder extends IndexBuilder {
-  /** Value trees. */
-  private final FTIndexTrees tree;
-  /** Word parser. */
-  private final FTLexer lex;
-  /** Current lexer position. */
-  int pos;
-  /** Number of indexed tokens. */
-  private long ntok;
-
   /**
    * Constructor.
    * @param d data reference
@@ -37,8 +28,17 @@ public final class FTBuilder extends IndexBuilder {
    */
   public FTBuilder(final Data d) throws IOException {
     super(d);
-    tree = new FTIndexTrees(d.meta.maxlen);
+    // check if tokenizer and stemmer are available
+    lexer(d);
+  }
 
+  /**
+   * Returns a lexer with the full-text options of the specified database.
+   * @param d data reference
+   * @return lexer
+   * @throws IOException IOException
+   */
+  static FTLexer lexer(final Data d) throws IOException {
     final Prop prop = d.meta.prop;
     final FTOpt fto = new FTOpt();
     fto.set(FTFlag.DC, prop.is(Prop.DIACRITICS));
@@ -52,85 +52,88 @@ public final class FTBuilder extends IndexBuilder {
     if(prop.is(Prop.STEMMING) && !Stemmer.supportFor(fto.ln))
       throw new BaseXException(NO_STEMMER_X, fto.ln);
 
-    lex = new FTLexer(fto);
+    return new FTLexer(fto);
   }
 
-  /**
-   * Extracts and indexes words from the specified data reference.
-   * @throws IOException I/O Exception
-   */
-  private void index() throws IOException {
+  @Override
+  public FTIndex build() throws IOException {
     // delete old index
     abort();
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
-
-      final int k = data.kind(pre);
-      if(k != Data.TEXT) continue;
-
-      pos = -1;
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
-      while(lex.hasNext()) {
-        final byte[] tok = lex.nextToken();
-        ++pos;
-        // skip too long and stopword tokens
-        if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
-          // check if main memory is exhausted
-          if((ntok++ & 0xFFF) == 0 && memFull()) {
-            writeIndex(csize++);
-            Performance.gc(singlegc ? 1 : 2);
-          }
-          index(tok);
-        }
-      }
-    }
-
-    // write tokens
-    write();
+    index();
+    if(merge) merge();
 
     data.meta.ftxtindex = true;
     Util.memory(perf);
+    return data.meta.updindex ? new UpdatableFTIndex(data) : new FTIndex(data);
   }
 
   @Override
-  public FTIndex build() throws IOException {
-    index();
-    return new FTIndex(data);
-  }
-
-  /**
-   * Indexes a single token.
-   * @param tok token to be indexed
-   */
-  void index(final byte[] tok) {
-    tree.index(tok, pre, pos, csize);
+  protected Partition partition(final int start, final int end) throws IOException {
+    final FTLexer lex = lexer(data);
+    return new Partition(start, end) {
+      /** Value trees. */
+      private FTIndexTrees tree = new FTIndexTrees(data.meta.maxlen);
+      /** Number of written runs. */
+      private int cf;
+
+      @Override
+      protected void index() throws IOException {
+        final StopWords sw = lex.ftOpt().sw;
+        long ntok = 0;
+        for(pre = start; pre < end; ++pre) {
+          if((pre & 0xFFFF) == 0) check();
+
+          final int k = data.kind(pre);
+          if(k != Data.TEXT) continue;
+
+          int pos = -1;
+          final int id = data.meta.updindex ? data.id(pre) : pre;
+          lex.init(data.text(pre, true));
+          while(lex.hasNext()) {
+            final byte[] tok = lex.nextToken();
+            ++pos;
+            // skip too long and stopword tokens
+            if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
+              // write temporary run if memory budget is exceeded
+              if((ntok++ & 0xFFF) == 0 && full(tree.memory())) {
+                writeIndex(tree, DATAFTX + nextRun(), cf++);
+                // discard tokens if they take too much memory
+                if(full(tree.memory() << 1)) {
+                  tree = new FTIndexTrees(data.meta.maxlen);
+                  cf = 0;
+                }
+              }
+              tree.index(tok, id, pos, cf);
+            }
+          }
+        }
+        writeIndex(tree, DATAFTX + (merge ? nextRun() : ""), cf);
+      }
+    };
   }
 
   /**
-   * Writes the index data to disk.
+   * Merges the temporary index files.
    * @throws IOException I/O exception
    */
-  public void write() throws IOException {
-    writeIndex(csize++);
-    if(!merge) return;
-
-    // merges temporary index files
+  private void merge() throws IOException {
     final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
     final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
     final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'));
     final IntList ind = new IntList();
 
     // open all temporary sorted lists
+    final int[] runs = runs();
     final FTList[] v = new FTList[csize];
-    for(int b = 0; b < csize; ++b) v[b] = new FTList(data, b);
+    for(int b = 0; b < csize; ++b) v[b] = new FTList(data, runs[b]);
 
     final IntList il = new IntList();
     while(check(v)) {
+      checkStop();
       int m = 0;
       il.reset();
       il.add(m);
@@ -175,7 +178,7 @@ public final class FTBuilder extends IndexBuilder {
    * @param lp last offset
    * @throws IOException I/O exception
    */
-  private static void writeInd(final DataOutput outX, final IntList il,
+  static void writeInd(final DataOutput outX, final IntList il,
       final int ls, final int lp) throws IOException {
 
     final int is = il.size();
@@ -189,12 +192,14 @@ public final class FTBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index to disk.
-   * @param cs current file pointer
+   * Writes an index to disk.
+   * @param tree index trees
+   * @param s file prefix
+   * @param cf current run of the index trees
    * @throws IOException I/O exception
    */
-  protected void writeIndex(final int cs) throws IOException {
-    final String s = DATAFTX + (merge ? cs : "");
+  void writeIndex(final FTIndexTrees tree, final String s, final int cf)
+      throws IOException {
     final DataOutput outX = new DataOutput(data.meta.dbfile(s + 'x'));
     final DataOutput outY = new DataOutput(data.meta.dbfile(s + 'y'));
     final DataOutput outZ = new DataOutput(data.meta.dbfile(s + 'z'));
@@ -204,7 +209,7 @@ public final class FTBuilder extends IndexBuilder {
     int tr = 0;
     int j = 0;
     tree.init();
-    while(tree.more(cs)) {
+    while(tree.more(cf)) {
       final FTIndexTree t = tree.nextTree();
       t.next();
       final byte[] key = t.nextTok();
@@ -245,33 +250,23 @@ public final class FTBuilder extends IndexBuilder {
   private static int merge(final DataOutput out, final IntList il, final FTList[] v)
       throws IOException {
 
-    int s = 0;
-    final TokenBuilder tbp = new TokenBuilder();
-    final TokenBuilder tbo = new TokenBuilder();
-    tbp.add(new byte[4]);
-    tbo.add(new byte[4]);
+    final IntList pr = new IntList();
+    final IntList po = new IntList();
     // merge full-text data of all sorted lists with the same token
     for(int j = 0; j < il.size(); ++j) {
       final int m = il.get(j);
-      for(final int p : v[m].prv) tbp.add(Num.num(p));
-      for(final int p : v[m].pov) tbo.add(Num.num(p));
-      s += v[m].size;
+      for(final int p : v[m].prv) pr.add(p);
+      for(final int p : v[m].pov) po.add(p);
       v[m].next();
     }
-    // write compressed pre and pos arrays
-    final byte[] pr = tbp.finish();
-    Num.size(pr, pr.length);
-    final byte[] po = tbo.finish();
-    Num.size(po, po.length);
-
     // write full-text data
-    writeFTData(out, pr, po);
-    return s;
+    FTPostings.write(out, pr.toArray(), po.toArray(), pr.size());
+    return pr.size();
   }
 
   /**
-   * Writes full-text data for a single token to disk.<br/>
-   * Format: {@code score? pre1 pos1 pre2 pos2 ... (0 score)? pre...}
+   * Writes full-text data for a single token to disk.
+   * The format is described in {@link FTPostings}.
    * @param out DataOutput for disk access
    * @param vpre compressed pre values
    * @param vpos compressed pos values
@@ -280,16 +275,14 @@ public final class FTBuilder extends IndexBuilder {
   private static void writeFTData(final DataOutput out, final byte[] vpre,
                                   final byte[] vpos) throws IOException {
 
-    int np = 4, pp = 4;
+    final IntList pr = new IntList();
+    final IntList po = new IntList();
     final int ns = Num.size(vpre);
-    while(np < ns) {
-      // full-text data is stored here, with -scoreU, pre1, pos1, ...,
-      // -scoreU, preU, posU
-      for(final int l = np + Num.length(vpre, np); np < l; ++np)
-        out.write(vpre[np]);
-      for(final int l = pp + Num.length(vpos, pp); pp < l; ++pp)
-        out.write(vpos[pp]);
+    for(int np = 4, pp = 4; np < ns; np += Num.length(vpre, np), pp += Num.length(vpos, pp)) {
+      pr.add(Num.get(vpre, np));
+      po.add(Num.get(vpos, pp));
     }
+    FTPostings.write(out, pr.toArray(), po.toArray(), pr.size());
   }
 
   /**
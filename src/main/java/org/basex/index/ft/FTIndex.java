@@ -40,35 +40,39 @@ import org.basex.util.list.*;
  * </li>
  * <li>File <b>z</b> contains the {@code id/pos} references.
  *   The values are ordered, but not distinct:<br/>
- *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
+ *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...}<br/>
+ *   The values are split into bit-packed blocks, which are described in
+ *   {@link FTPostings}.<br/>
+ *   If the index is updatable, node ids are stored instead of pre values
+ *   (see {@link UpdatableFTIndex}).</li>
  * </ul>
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
-public final class FTIndex implements Index {
+public class FTIndex implements Index {
   /** Entry size. */
-  private static final int ENTRY = 9;
+  static final int ENTRY = 9;
 
-  /** Cached texts. Increases used memory, but speeds up repeated queries. */
-  private final IntMap<byte[]> ctext = new IntMap<byte[]>();
   /** Levenshtein reference. */
-  private final Levenshtein ls = new Levenshtein();
+  final Levenshtein ls = new Levenshtein();
   /** Data reference. */
-  private final Data data;
+  final Data data;
 
+  /** Cached texts. Increases used memory, but speeds up repeated queries. */
+  private IntMap<byte[]> ctext;
   /** Index storing each unique token length and pointer
    * on the first token with this length. */
-  private final DataAccess inX;
+  private DataAccess inX;
   /** Index storing each token, its data size and pointer on the data. */
-  final DataAccess inY;
+  DataAccess inY;
   /** Storing pre and pos values for each token. */
-  final DataAccess inZ;
+  DataAccess inZ;
 
   /** Cache for number of hits and data reference per token. */
-  final IndexCache cache = new IndexCache();
+  IndexCache cache;
   /** Token positions. */
-  final int[] tp;
+  int[] tp;
 
   /**
    * Constructor, initializing the index structure.
@@ -77,8 +81,17 @@ public final class FTIndex implements Index {
    */
   public FTIndex(final Data d) throws IOException {
     data = d;
+    open();
+  }
 
-    // cache token length index
+  /**
+   * Opens the index files and caches the token length index.
+   * @throws IOException I/O Exception
+   */
+  final void open() throws IOException {
+    final Data d = data;
+    ctext = new IntMap<byte[]>();
+    cache = new IndexCache();
     inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'));
     inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'));
     inX = new DataAccess(d.meta.dbfile(DATAFTX + 'x'));
@@ -101,6 +114,21 @@ public final class FTIndex implements Index {
     tp[tp.length - 1] = (int) inY.length();
   }
 
+  /**
+   * Flushes the buffered index data to disk.
+   * @throws IOException I/O Exception
+   */
+  public void flush() throws IOException { }
+
+  /**
+   * Returns the pre value for the specified index value.
+   * @param id id or pre value
+   * @return pre value, or {@code -1} if the value is obsolete
+   */
+  int pre(final int id) {
+    return id;
+  }
+
   @Override
   public synchronized void init() { }
 
@@ -230,6 +258,7 @@ public final class FTIndex implements Index {
       tb.addExt("- %: %" + NL, LANGUAGE, data.meta.language);
     final long l = inX.length() + inY.length() + inZ.length();
     tb.add(LI_SIZE + Performance.format(l, true) + NL);
+    tb.add(LI_CACHE + cache.info() + NL);
 
     final IndexStats stats = new IndexStats(data.meta.prop.num(Prop.MAXSTAT));
     addOccs(stats);
@@ -249,7 +278,7 @@ public final class FTIndex implements Index {
    * @param token token looking for
    * @return int pointer or {@code -1} if token was not found
    */
-  private int token(final byte[] token) {
+  final int token(final byte[] token) {
     final int tl = token.length;
     // left limit
     int l = tp[tl];
@@ -301,7 +330,7 @@ public final class FTIndex implements Index {
    * @param lt length of the token
    * @return int pointer on ftdata
    */
-  private long pointer(final long pt, final int lt) {
+  final long pointer(final long pt, final int lt) {
     return inY.read5(pt + lt);
   }
 
@@ -311,7 +340,7 @@ public final class FTIndex implements Index {
    * @param lt length of the token
    * @return size of the ftdata
    */
-  private int size(final long pt, final int lt) {
+  final int size(final long pt, final int lt) {
     return inY.read4(pt + lt + 5);
   }
 
@@ -369,12 +398,7 @@ public final class FTIndex implements Index {
         final byte[] t = inY.readBytes(i, ti);
         if(!startsWith(t, pref)) break;
         if(wc.match(t)) {
-          inZ.cursor(pointer(i, ti));
-          final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
-          }
+          read(pointer(i, ti), size(i, ti), pr, ps);
         }
         i += ti + ENTRY;
       }
@@ -390,14 +414,97 @@ public final class FTIndex implements Index {
    * @return iterator
    */
   private FTIndexIterator iter(final long off, final int size, final DataAccess da) {
-    da.cursor(off);
-    final IntList pr = new IntList(size);
-    final IntList ps = new IntList(size);
-    for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
+    // updatable index: ids need to be mapped to pre values and sorted
+    if(data.meta.updindex) {
+      final IntList pr = new IntList(size);
+      final IntList ps = new IntList(size);
+      read(off, size, pr, ps);
+      return iter(new FTCache(pr, ps));
+    }
+
+    // pre values are sorted: decode blocks on demand
+    return new FTIndexIterator() {
+      final FTMatches all = new FTMatches(toknum);
+      final int[] pres = new int[FTPostings.BLOCK];
+      final int[] poss = new int[FTPostings.BLOCK];
+      long o = off;
+      int pre, r, n, c;
+
+      @Override
+      public synchronized boolean more() {
+        if(!load()) return false;
+        all.reset(toknum);
+        pre = pres[c];
+        all.or(poss[c++]);
+        while(load() && pre == pres[c]) all.or(poss[c++]);
+        return true;
+      }
+
+      @Override
+      public synchronized void skip(final int p) {
+        while(c < n && pres[c] < p) ++c;
+        if(c < n) return;
+        // skip blocks without decoding them
+        while(r < size && FTPostings.last(da, o) < p) {
+          r += Math.min(FTPostings.BLOCK, size - r);
+          o = FTPostings.next(da, o);
+        }
+      }
+
+      /**
+       * Decodes the next block if all entries of the current block were returned.
+       * @return {@code true} if more entries are available
+       */
+      private boolean load() {
+        if(c < n) return true;
+        if(r == size) return false;
+        n = Math.min(FTPostings.BLOCK, size - r);
+        o = FTPostings.block(da, o, n, pres, poss);
+        r += n;
+        c = 0;
+        return true;
+      }
+
+      @Override
+      public synchronized FTMatches matches() {
+        return all;
+      }
+
+      @Override
+      public synchronized int next() {
+        return pre;
+      }
+
+      @Override
+      public synchronized int size() {
+        return size;
+      }
+
+      @Override
+      public String toString() {
+        return Integer.toString(size);
+      }
+    };
+  }
+
+  /**
+   * Reads the entries of an index entry and adds their pre values and positions
+   * to the specified lists. Obsolete values will be skipped.
+   * @param off offset on entries
+   * @param size number of id/pos entries
+   * @param pr pre values
+   * @param ps positions
+   */
+  final void read(final long off, final int size, final IntList pr, final IntList ps) {
+    final IntList ids = new IntList(size);
+    final IntList pos = new IntList(size);
+    FTPostings.read(inZ, off, size, ids, pos);
+    for(int i = 0; i < size; i++) {
+      final int p = pre(ids.get(i));
+      if(p < 0) continue;
+      pr.add(p);
+      ps.add(pos.get(i));
     }
-    return iter(new FTCache(pr, ps));
   }
 
   /**
@@ -405,7 +512,7 @@ public final class FTIndex implements Index {
    * @param ftc id cache
    * @return iterator
    */
-  private synchronized FTIndexIterator iter(final FTCache ftc) {
+  final synchronized FTIndexIterator iter(final FTCache ftc) {
     final int size = ftc.pre.size();
 
     return new FTIndexIterator() {
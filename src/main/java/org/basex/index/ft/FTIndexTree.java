@@ -39,13 +39,16 @@ final class FTIndexTree extends IndexTree {
     if(os == keys.size()) {
       final int i = cf > 0 ? maps.value(Num.num(n)) : n;
       if(poss.size() > i && poss.get(i) != null) {
-        poss.set(i, Num.add(poss.get(i), pos));
+        final byte[] o = poss.get(i), p = Num.add(o, pos);
+        vmem += p.length - o.length;
+        poss.set(i, p);
         numpre.set(i, numpre.get(i) + 1);
         return;
       }
     }
     poss.add(Num.newNum(pos));
     numpre.add(1);
+    vmem += ARRAY + 4 + poss.get(poss.size() - 1).length;
   }
 
   /**
@@ -56,6 +59,7 @@ final class FTIndexTree extends IndexTree {
     values = new TokenList(FACTOR);
     numpre = new IntList(FACTOR);
     maps = new TokenIntMap();
+    vmem = 0;
   }
 
   /**
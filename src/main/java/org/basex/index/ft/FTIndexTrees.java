@@ -42,6 +42,16 @@ final class FTIndexTrees {
     for(final FTIndexTree tree : trees) if(tree != null) tree.initFT();
   }
 
+  /**
+   * Returns the estimated memory consumption of all trees.
+   * @return number of bytes
+   */
+  long memory() {
+    long m = 0;
+    for(final FTIndexTree tree : trees) if(tree != null) m += tree.memory();
+    return m;
+  }
+
   /**
    * Initializes all trees for iterative traversal.
    */
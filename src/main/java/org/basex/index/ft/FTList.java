@@ -8,6 +8,7 @@ import java.io.*;
 import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.random.*;
+import org.basex.util.list.*;
 
 /**
  * This class provides temporary access to sorted list data.
@@ -21,6 +22,8 @@ final class FTList {
 
   /** Storing pre and pos values for each token. */
   private final DataAccess dat;
+  /** Offset to the pre and pos values of the next token. */
+  private long off;
   /** Structure file. */
   private final IOFile files;
   /** Data file. */
@@ -89,12 +92,11 @@ final class FTList {
       pov = NOINTS;
       close();
     } else {
-      prv = new int[size];
-      pov = new int[size];
-      for(int j = 0; j < size; ++j) {
-        prv[j] = dat.readNum();
-        pov[j] = dat.readNum();
-      }
+      final IntList pr = new IntList(size);
+      final IntList po = new IntList(size);
+      off = FTPostings.read(dat, off, size, pr, po);
+      prv = pr.toArray();
+      pov = po.toArray();
     }
   }
 
@@ -0,0 +1,245 @@
+package org.basex.index.ft;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class compresses and decompresses the {@code id/pos} lists of the
+ * full-text index. A list is sorted by ids and positions, and it is split into
+ * blocks with {@link #BLOCK} entries (the last block may be smaller).
+ * Each block has the following format:</p>
+ *
+ * <p>{@code [l, a, f, gb, pb, gaps, poss]}</p>
+ *
+ * <ul>
+ * <li>{@code l} is the number of remaining bytes of the block [{@link Num}].
+ *   It serves as skip pointer to the next block.</li>
+ * <li>{@code a} is the last (highest) id of the block [{@link Num}].</li>
+ * <li>{@code f} is the first id of the block [{@link Num}].</li>
+ * <li>{@code gb} and {@code pb} are the numbers of bits required for storing
+ *   id gaps and positions [byte].</li>
+ * <li>{@code gaps} contains the differences between subsequent ids,
+ *   and {@code poss} contains the positions. All values are bit-packed
+ *   with the respective number of bits (frame of reference).</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FTPostings {
+  /** Number of entries per block. */
+  public static final int BLOCK = 128;
+
+  /** Private constructor. */
+  private FTPostings() { }
+
+  /**
+   * Writes a list of ids and positions.
+   * @param out output stream
+   * @param ids ids
+   * @param poss positions
+   * @param size number of entries
+   * @throws IOException I/O exception
+   */
+  public static void write(final DataOutput out, final int[] ids, final int[] poss,
+      final int size) throws IOException {
+
+    // sort entries if necessary
+    for(int i = 1; i < size; i++) {
+      if(ids[i] < ids[i - 1] || ids[i] == ids[i - 1] && poss[i] < poss[i - 1]) {
+        sort(ids, poss, size);
+        break;
+      }
+    }
+    for(int s = 0; s < size; s += BLOCK) block(out, ids, poss, s, Math.min(size, s + BLOCK));
+  }
+
+  /**
+   * Reads a list of ids and positions.
+   * @param da data access
+   * @param off offset to the first block
+   * @param size number of entries
+   * @param ids ids
+   * @param poss positions
+   * @return offset after the last block
+   */
+  public static long read(final DataAccess da, final long off, final int size,
+      final IntList ids, final IntList poss) {
+
+    final int[] bi = new int[BLOCK], bp = new int[BLOCK];
+    long o = off;
+    for(int s = 0; s < size; s += BLOCK) {
+      final int n = Math.min(BLOCK, size - s);
+      o = block(da, o, n, bi, bp);
+      for(int i = 0; i < n; i++) {
+        ids.add(bi[i]);
+        poss.add(bp[i]);
+      }
+    }
+    return o;
+  }
+
+  /**
+   * Decodes the block at the specified offset.
+   * @param da data access
+   * @param off offset to the block
+   * @param n number of entries in the block
+   * @param ids array for ids
+   * @param poss array for positions
+   * @return offset to the next block
+   */
+  public static long block(final DataAccess da, final long off, final int n,
+      final int[] ids, final int[] poss) {
+
+    final byte[] b;
+    final long next;
+    synchronized(da) {
+      final int l = da.readNum(off);
+      final long p = da.cursor();
+      b = da.readBytes(p, l);
+      next = p + l;
+    }
+    // skip last id
+    int p = Num.length(b, 0);
+    int id = Num.get(b, p);
+    p += Num.length(b, p);
+    final int gb = b[p++], pb = b[p++];
+
+    long bp = (long) p << 3;
+    ids[0] = id;
+    for(int i = 1; i < n; i++) {
+      id += get(b, bp, gb);
+      ids[i] = id;
+      bp += gb;
+    }
+    for(int i = 0; i < n; i++) {
+      poss[i] = get(b, bp, pb);
+      bp += pb;
+    }
+    return next;
+  }
+
+  /**
+   * Returns the last id of the block at the specified offset.
+   * @param da data access
+   * @param off offset to the block
+   * @return last id
+   */
+  public static int last(final DataAccess da, final long off) {
+    synchronized(da) {
+      da.readNum(off);
+      return da.readNum();
+    }
+  }
+
+  /**
+   * Returns the offset to the block following the block at the specified offset.
+   * @param da data access
+   * @param off offset to the block
+   * @return offset to the next block
+   */
+  public static long next(final DataAccess da, final long off) {
+    synchronized(da) {
+      final int l = da.readNum(off);
+      return da.cursor() + l;
+    }
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Writes a single block.
+   * @param out output stream
+   * @param ids ids
+   * @param poss positions
+   * @param s start offset
+   * @param e end offset
+   * @throws IOException I/O exception
+   */
+  private static void block(final DataOutput out, final int[] ids, final int[] poss,
+      final int s, final int e) throws IOException {
+
+    // choose number of bits for gaps and positions
+    int g = 0, q = 0;
+    for(int i = s + 1; i < e; i++) g |= ids[i] - ids[i - 1];
+    for(int i = s; i < e; i++) q |= poss[i];
+    final int gb = bits(g), pb = bits(q);
+
+    // pack values
+    final byte[] b = new byte[(int) (((long) (e - s - 1) * gb + (long) (e - s) * pb + 7) >>> 3)];
+    long bp = 0;
+    for(int i = s + 1; i < e; i++) {
+      set(b, bp, ids[i] - ids[i - 1]);
+      bp += gb;
+    }
+    for(int i = s; i < e; i++) {
+      set(b, bp, poss[i]);
+      bp += pb;
+    }
+
+    final int last = ids[e - 1], first = ids[s];
+    out.writeNum(Num.length(last) + Num.length(first) + 2 + b.length);
+    out.writeNum(last);
+    out.writeNum(first);
+    out.write1(gb);
+    out.write1(pb);
+    out.writeBytes(b);
+  }
+
+  /**
+   * Sorts the entries by ids and positions.
+   * @param ids ids
+   * @param poss positions
+   * @param size number of entries
+   */
+  private static void sort(final int[] ids, final int[] poss, final int size) {
+    final long[] v = new long[size];
+    for(int i = 0; i < size; i++) v[i] = (long) ids[i] << 32 | poss[i] & 0xFFFFFFFFL;
+    Arrays.sort(v);
+    for(int i = 0; i < size; i++) {
+      ids[i] = (int) (v[i] >>> 32);
+      poss[i] = (int) v[i];
+    }
+  }
+
+  /**
+   * Returns the number of bits required for storing the specified value.
+   * @param v value
+   * @return number of bits
+   */
+  private static int bits(final int v) {
+    return 32 - Integer.numberOfLeadingZeros(v);
+  }
+
+  /**
+   * Stores a value at the specified bit position.
+   * @param b byte array
+   * @param bp bit position
+   * @param v value
+   */
+  private static void set(final byte[] b, final long bp, final int v) {
+    long l = (v & 0xFFFFFFFFL) << (bp & 7);
+    for(int i = (int) (bp >>> 3); l != 0; i++, l >>>= 8) b[i] |= (byte) l;
+  }
+
+  /**
+   * Returns the value at the specified bit position.
+   * @param b byte array
+   * @param bp bit position
+   * @param bits number of bits
+   * @return value
+   */
+  private static int get(final byte[] b, final long bp, final int bits) {
+    if(bits == 0) return 0;
+    final int i = (int) (bp >>> 3), sh = (int) (bp & 7);
+    final int e = Math.min(b.length, i + (sh + bits + 7 >>> 3));
+    long l = 0;
+    for(int j = e - 1; j >= i; j--) l = l << 8 | b[j] & 0xFF;
+    return (int) (l >>> sh & (1L << bits) - 1);
+  }
+}
@@ -0,0 +1,445 @@
+package org.basex.index.ft;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+import static org.basex.util.ft.FTFlag.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.ft.*;
+import org.basex.util.*;
+import org.basex.util.ft.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class provides an updatable full-text index. The index consists of
+ * the main segment, which is described in {@link FTIndex}, and a small delta
+ * segment:</p>
+ *
+ * <ul>
+ * <li>New texts are tokenized and added to the delta segment, which is kept in
+ *   main memory and written to the file {@code ftxd} when updates are flushed.
+ * </li>
+ * <li>The ids of deleted texts are stored as tombstones. Obsolete entries in the
+ *   main segment are skipped when the index is accessed.</li>
+ * <li>If the delta segment grows too large, it is merged with the main segment.
+ *   The merged segment is written in the original format.</li>
+ * </ul>
+ *
+ * <p>Both segments store node ids instead of pre values.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class UpdatableFTIndex extends FTIndex {
+  /** Minimum size ratio between the main and the delta segment. */
+  private static final int RATIO = 16;
+
+  /** Token lexer. */
+  private final FTLexer lex;
+  /** Delta segment: tokens and their ids and positions. */
+  private TokenObjMap<IntList> delta = new TokenObjMap<IntList>();
+  /** Tokens of the delta segment, referenced by their ids. */
+  private IntMap<TokenList> tokens = new IntMap<TokenList>();
+  /** Tombstones: ids of deleted texts. */
+  private IntSet deleted = new IntSet();
+  /** Number of id/pos entries in the delta segment. */
+  private int entries;
+  /** Modification flag. */
+  private boolean dirty;
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param d data reference
+   * @throws IOException I/O Exception
+   */
+  public UpdatableFTIndex(final Data d) throws IOException {
+    super(d);
+    lex = FTBuilder.lexer(d);
+    read();
+  }
+
+  /**
+   * Indexes the tokens of a new text.
+   * @param id id of the text node
+   * @param text text
+   */
+  public synchronized void index(final int id, final byte[] text) {
+    final StopWords sw = lex.ftOpt().sw;
+    int pos = -1;
+    lex.init(text);
+    while(lex.hasNext()) {
+      final byte[] tok = lex.nextToken();
+      ++pos;
+      // skip too long and stopword tokens
+      if(tok.length > data.meta.maxlen || !sw.isEmpty() && sw.contains(tok)) continue;
+
+      IntList il = delta.get(tok);
+      if(il == null) {
+        il = new IntList(2);
+        delta.add(tok, il);
+      }
+      il.add(id);
+      il.add(pos);
+      ++entries;
+
+      TokenList tl = tokens.get(id);
+      if(tl == null) {
+        tl = new TokenList(1);
+        tokens.add(id, tl);
+      }
+      if(!tl.contains(tok)) tl.add(tok);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Removes the tokens of a text from the index.
+   * @param id id of the text node
+   */
+  public synchronized void delete(final int id) {
+    deleted.add(id);
+    final TokenList tl = tokens.get(id);
+    if(tl != null) {
+      // remove entries from delta segment
+      for(final byte[] tok : tl) {
+        final IntList il = delta.get(tok), nl = new IntList(il.size());
+        final int s = il.size();
+        for(int i = 0; i < s; i += 2) {
+          if(il.get(i) == id) continue;
+          nl.add(il.get(i));
+          nl.add(il.get(i + 1));
+        }
+        entries -= s - nl.size() >> 1;
+        delta.add(tok, nl);
+      }
+      tokens.add(id, null);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Replaces the tokens of a text.
+   * @param id id of the text node
+   * @param text new text
+   */
+  public synchronized void replace(final int id, final byte[] text) {
+    delete(id);
+    index(id, text);
+  }
+
+  @Override
+  int pre(final int id) {
+    return deleted.contains(id) ? -1 : data.pre(id);
+  }
+
+  @Override
+  public synchronized int count(final IndexToken it) {
+    final int c = super.count(it);
+    if(c == Integer.MAX_VALUE) return c;
+    final FTOpt opt = ((FTLexer) it).ftOpt();
+    if(opt.is(FZ) || opt.is(WC)) return c;
+    final IntList il = delta.get(it.get());
+    return il == null ? c : c + (il.size() >> 1);
+  }
+
+  @Override
+  public synchronized IndexIterator iter(final IndexToken it) {
+    final FTIndexIterator ii = (FTIndexIterator) super.iter(it);
+    if(entries == 0) return ii;
+
+    final byte[] tok = it.get();
+    final IntList pr = new IntList();
+    final IntList ps = new IntList();
+    final FTOpt opt = ((FTLexer) it).ftOpt();
+    if(opt.is(WC)) {
+      // wildcard search
+      final FTWildcard wc = new FTWildcard(tok);
+      if(!wc.parse()) return ii;
+      for(final byte[] key : delta) {
+        if(wc.match(key)) add(delta.get(key), pr, ps);
+      }
+    } else if(opt.is(FZ)) {
+      // fuzzy search
+      int k = data.meta.prop.num(Prop.LSERROR);
+      if(k == 0) k = tok.length >> 2;
+      for(final byte[] key : delta) {
+        if(ls.similar(key, tok, k)) add(delta.get(key), pr, ps);
+      }
+    } else {
+      add(delta.get(tok), pr, ps);
+    }
+    return pr.isEmpty() ? ii : FTIndexIterator.union(ii, iter(new FTCache(pr, ps)));
+  }
+
+  @Override
+  public EntryIterator entries(final IndexEntries ie) {
+    final EntryIterator ei = super.entries(ie);
+    // collect new tokens that do not occur in the main segment
+    final byte[] prefix = ie.get();
+    final TokenList tl = new TokenList();
+    synchronized(this) {
+      for(final byte[] key : delta) {
+        if(startsWith(key, prefix) && delta.get(key).size() != 0 &&
+            token(key) == -1) tl.add(key);
+      }
+    }
+    final byte[][] toks = sort(tl);
+
+    return new EntryIterator() {
+      int c, nr;
+
+      @Override
+      public byte[] next() {
+        byte[] tok = ei.next();
+        if(tok != null) {
+          nr = ei.count() + occs(tok);
+        } else if(c < toks.length) {
+          tok = toks[c++];
+          nr = occs(tok);
+        }
+        return tok;
+      }
+      @Override
+      public int count() {
+        return nr;
+      }
+    };
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if(!dirty) return;
+    if((long) (entries + deleted.size()) * RATIO > inZ.length()) merge();
+    else write();
+    dirty = false;
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      flush();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    super.close();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the number of delta entries for the specified token.
+   * @param tok token
+   * @return number of entries
+   */
+  private synchronized int occs(final byte[] tok) {
+    final IntList il = delta.get(tok);
+    return il == null ? 0 : il.size() >> 1;
+  }
+
+  /**
+   * Adds the pre values and positions of a delta entry to the specified lists.
+   * @param il id/pos list (may be {@code null})
+   * @param pr pre values
+   * @param ps positions
+   */
+  private void add(final IntList il, final IntList pr, final IntList ps) {
+    if(il == null) return;
+    final int s = il.size();
+    for(int i = 0; i < s; i += 2) {
+      pr.add(data.pre(il.get(i)));
+      ps.add(il.get(i + 1));
+    }
+  }
+
+  /**
+   * Reads the delta segment from disk.
+   * @throws IOException I/O Exception
+   */
+  private void read() throws IOException {
+    final IOFile file = data.meta.dbfile(DATAFTX + 'd');
+    if(!file.exists()) return;
+
+    final DataInput in = new DataInput(file);
+    try {
+      for(final int id : in.readNums()) deleted.add(id);
+      for(int t = in.readNum(); t > 0; --t) {
+        final byte[] tok = in.readToken();
+        final int[] vals = in.readNums();
+        delta.add(tok, new IntList(vals));
+        for(int v = 0; v < vals.length; v += 2) {
+          TokenList tl = tokens.get(vals[v]);
+          if(tl == null) {
+            tl = new TokenList(1);
+            tokens.add(vals[v], tl);
+          }
+          if(!tl.contains(tok)) tl.add(tok);
+        }
+        entries += vals.length >> 1;
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes the delta segment to disk.
+   * @throws IOException I/O Exception
+   */
+  private void write() throws IOException {
+    final IOFile file = data.meta.dbfile(DATAFTX + 'd');
+    if(entries == 0 && deleted.size() == 0) {
+      file.delete();
+      return;
+    }
+
+    final IntList ids = new IntList(deleted.size());
+    for(int i = 1; i <= deleted.size(); i++) ids.add(deleted.key(i));
+    final TokenList toks = new TokenList();
+    for(final byte[] key : delta) {
+      if(delta.get(key).size() != 0) toks.add(key);
+    }
+
+    final DataOutput out = new DataOutput(file);
+    try {
+      out.writeNums(ids.toArray());
+      out.writeNum(toks.size());
+      for(final byte[] tok : toks) {
+        out.writeToken(tok);
+        out.writeNums(delta.get(tok).toArray());
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Merges the delta segment with the main segment.
+   * @throws IOException I/O Exception
+   */
+  private void merge() throws IOException {
+    final String pref = DATAFTX + 'm';
+    final DataOutput outX = new DataOutput(data.meta.dbfile(pref + 'x'));
+    final DataOutput outY = new DataOutput(data.meta.dbfile(pref + 'y'));
+    final DataOutput outZ = new DataOutput(data.meta.dbfile(pref + 'z'));
+
+    final byte[][] toks = sort(new TokenList(delta.keys()));
+    final IntList ind = new IntList();
+    int ti = -1, p = 0, e = 0, d = 0, j = 0;
+    while(true) {
+      // find next token of the main segment
+      while(p == e && ++ti < tp.length - 1) {
+        if(tp[ti] == -1) continue;
+        p = tp[ti];
+        e = next(ti);
+      }
+      final byte[] mtok = p < e ? inY.readBytes(p, ti) : null;
+      final byte[] dtok = d < toks.length ? toks[d] : null;
+      if(mtok == null && dtok == null) break;
+
+      // compare tokens of both segments
+      final int c = mtok == null ? 1 : dtok == null ? -1 : compare(mtok, dtok);
+      final byte[] tok = c <= 0 ? mtok : dtok;
+      final IntList vals = new IntList();
+      if(c <= 0) {
+        final int s = size(p, ti);
+        final IntList ids = new IntList(s);
+        final IntList pos = new IntList(s);
+        FTPostings.read(inZ, pointer(p, ti), s, ids, pos);
+        for(int i = 0; i < s; i++) {
+          if(deleted.contains(ids.get(i))) continue;
+          vals.add(ids.get(i));
+          vals.add(pos.get(i));
+        }
+        p += ti + ENTRY;
+      }
+      if(c >= 0) {
+        final IntList il = delta.get(dtok);
+        for(int i = 0; i < il.size(); i++) vals.add(il.get(i));
+        ++d;
+      }
+      if(vals.isEmpty()) continue;
+
+      if(j < tok.length) {
+        j = tok.length;
+        ind.add(j);
+        ind.add((int) outY.size());
+      }
+      outY.writeBytes(tok);
+      final int vs = vals.size() >> 1;
+      final int[] ids = new int[vs], pos = new int[vs];
+      for(int i = 0; i < vs; i++) {
+        ids[i] = vals.get(i << 1);
+        pos[i] = vals.get((i << 1) + 1);
+      }
+      outY.write5(outZ.size());
+      outY.write4(vs);
+      FTPostings.write(outZ, ids, pos, vs);
+    }
+    FTBuilder.writeInd(outX, ind, ++j, (int) outY.size());
+    outX.close();
+    outY.close();
+    outZ.close();
+
+    // replace main segment and reset delta segment
+    super.close();
+    for(final char ch : new char[] { 'x', 'y', 'z' }) {
+      final IOFile f = data.meta.dbfile(DATAFTX + ch);
+      f.delete();
+      data.meta.dbfile(pref + ch).rename(f);
+    }
+    data.meta.dbfile(DATAFTX + 'd').delete();
+    delta = new TokenObjMap<IntList>();
+    tokens = new IntMap<TokenList>();
+    deleted = new IntSet();
+    entries = 0;
+    open();
+  }
+
+  /**
+   * Returns the offset of the first token that is longer than the specified length.
+   * @param tl token length
+   * @return offset
+   */
+  private int next(final int tl) {
+    int i = tl + 1;
+    while(tp[i] == -1) ++i;
+    return tp[i];
+  }
+
+  /**
+   * Sorts tokens in the order of the main segment.
+   * @param tl token list
+   * @return sorted tokens
+   */
+  private static byte[][] sort(final TokenList tl) {
+    final byte[][] toks = tl.toArray();
+    Arrays.sort(toks, new Comparator<byte[]>() {
+      @Override
+      public int compare(final byte[] t1, final byte[] t2) {
+        return UpdatableFTIndex.compare(t1, t2);
+      }
+    });
+    return toks;
+  }
+
+  /**
+   * Compares two tokens in the order of the main segment:
+   * by their length, and lexicographically.
+   * @param t1 first token
+   * @param t2 second token
+   * @return result of comparison
+   */
+  static int compare(final byte[] t1, final byte[] t2) {
+    final int d = t1.length - t2.length;
+    return d != 0 ? d : diff(t1, t2);
+  }
+}
@@ -38,6 +38,14 @@ public abstract class FTIndexIterator extends IndexIterator {
     toknum = tn;
   }
 
+  /**
+   * Indicates that the next call of {@link #more()} may skip all entries with
+   * pre values smaller than the specified value.
+   * This is an optional optimization; it is ignored by default.
+   * @param pre pre value
+   */
+  public void skip(final int pre) { }
+
   /**
    * Merges two index array iterators.
    * @param i1 first index array iterator to merge
@@ -60,6 +68,12 @@ public abstract class FTIndexIterator extends IndexIterator {
         return n != null;
       }
 
+      @Override
+      public void skip(final int pre) {
+        i1.skip(pre);
+        i2.skip(pre);
+      }
+
       @Override
       public FTMatches matches() {
         final FTMatches m = n.matches();
@@ -107,6 +121,9 @@ public abstract class FTIndexIterator extends IndexIterator {
       public boolean more() {
         int c = 0;
         while(true) {
+          // skip entries that cannot be part of the result
+          if(c < 0) i1.skip(s.next());
+          else if(c > 0) i2.skip(r.next());
           if(c <= 0) r = i1.more() ? i1 : null;
           if(c >= 0) s = i2.more() ? i2 : null;
           if(r == null || s == null) return false;
@@ -116,6 +133,12 @@ public abstract class FTIndexIterator extends IndexIterator {
         }
       }
 
+      @Override
+      public void skip(final int pre) {
+        i1.skip(pre);
+        i2.skip(pre);
+      }
+
       @Override
       public FTMatches matches() {
         return r.matches();
@@ -81,6 +81,7 @@ public class DiskValues implements Index {
     synchronized(monitor) {
       final long l = idxl.length() + idxr.length();
       tb.add(LI_SIZE + Performance.format(l, true) + NL);
+      tb.add(LI_CACHE + cache.info() + NL);
       final int s = size.get();
       for(int m = 0; m < s; ++m) {
         final long pos = idxr.read5(m * 5L);
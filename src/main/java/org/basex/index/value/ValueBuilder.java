@@ -35,8 +35,6 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class ValueBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
 
@@ -58,32 +56,8 @@ public final class ValueBuilder extends IndexBuilder {
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    final String f = text ? DATATXT : DATAATV;
-    final int k = text ? Data.TEXT : Data.ATTR;
-
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(memFull()) {
-          write(f + csize++, false);
-          index = new IndexTree();
-          Performance.gc(singlegc ? 1 : 2);
-        }
-      }
-      // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen)
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
-    }
-
-    if(merge) {
-      write(f + csize++, false);
-      index = null;
-      if(!singlegc) Performance.gc(1);
-      merge();
-    } else {
-      write(f, true);
-    }
+    index();
+    if(merge) merge();
 
     if(text) data.meta.textindex = true;
     else data.meta.attrindex = true;
@@ -93,6 +67,38 @@ public final class ValueBuilder extends IndexBuilder {
         new UpdatableDiskValues(data, text) : new DiskValues(data, text);
   }
 
+  @Override
+  protected Partition partition(final int start, final int end) {
+    return new Partition(start, end) {
+      /** Temporary value tree. */
+      private IndexTree index = new IndexTree();
+
+      @Override
+      protected void index() throws IOException {
+        final String f = text ? DATATXT : DATAATV;
+        final int k = text ? Data.TEXT : Data.ATTR;
+
+        for(pre = start; pre < end; ++pre) {
+          if((pre & 0x0FFF) == 0) {
+            check();
+            // write temporary run if memory budget is exceeded
+            if(full(index.memory())) {
+              write(index, f + nextRun(), false);
+              index = new IndexTree();
+            }
+          }
+          // skip too long values
+          if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen)
+            index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
+        }
+
+        if(merge) write(index, f + nextRun(), false);
+        else write(index, f, true);
+        index = null;
+      }
+    };
+  }
+
   /**
    * Merges cached index files.
    * @throws IOException I/O exception
@@ -106,8 +112,9 @@ public final class ValueBuilder extends IndexBuilder {
     // initialize cached index iterators
     final IntList ml = new IntList();
     final IntList il = new IntList();
+    final int[] runs = runs();
     final ValueMerger[] vm = new ValueMerger[csize];
-    for(int i = 0; i < csize; ++i) vm[i] = new ValueMerger(data, text, i);
+    for(int i = 0; i < csize; ++i) vm[i] = new ValueMerger(data, text, runs[i]);
     int sz = 0;
 
     // parse through all values
@@ -159,12 +166,14 @@ public final class ValueBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current value tree to disk.
+   * Writes a value tree to disk.
+   * @param index value tree
    * @param name name
    * @param all writes the complete tree
    * @throws IOException I/O exception
    */
-  private void write(final String name, final boolean all) throws IOException {
+  void write(final IndexTree index, final String name, final boolean all)
+      throws IOException {
     // write id arrays and references
     final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
     final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
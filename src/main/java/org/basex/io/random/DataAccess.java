@@ -178,6 +178,23 @@ public final class DataAccess {
     return readBytes(l);
   }
 
+  /**
+   * Checks if the token at the specified position equals the specified token.
+   * The bytes are compared in place, and the comparison stops at the first mismatch.
+   * @param p text position
+   * @param token token to be compared
+   * @return result of check
+   */
+  public synchronized boolean eqToken(final long p, final byte[] token) {
+    cursor(p);
+    final int l = token.length;
+    if(readNum() != l) return false;
+    for(int i = 0; i < l; i++) {
+      if(read() != (token[i] & 0xFF)) return false;
+    }
+    return true;
+  }
+
   /**
    * Reads a number of bytes from the specified offset.
    * @param p position
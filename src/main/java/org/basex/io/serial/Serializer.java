@@ -96,7 +96,11 @@ public abstract class Serializer {
    */
   public void serialize(final ANode node) throws IOException {
     if(node instanceof DBNode) {
-      node((DBNode) node);
+      node((DBNode) node, false, null);
+    } else if(node instanceof CopyNode) {
+      // copied database node: adopt namespaces of the original ancestors
+      final CopyNode cn = (CopyNode) node;
+      node(cn.node, true, cn.overlay());
     } else {
       if(node.type == NodeType.COM) {
         comment(node.string());
@@ -309,9 +313,13 @@ public abstract class Serializer {
   /**
    * Serializes a node of the specified data reference.
    * @param node database node
+   * @param scope include namespaces of ancestors, even if the node is not serialized
+   *   on top level
+   * @param ovl overlay with updates (can be {@code null})
    * @throws IOException I/O exception
    */
-  private void node(final DBNode node) throws IOException {
+  private void node(final DBNode node, final boolean scope, final Overlay ovl)
+      throws IOException {
     final FTPosData ft = node instanceof FTPosNode ? ((FTPosNode) node).ft : null;
     final Data data = node.data;
 
@@ -325,6 +333,11 @@ public abstract class Serializer {
     final int s = p + data.size(p, data.kind(p));
     while(p < s && !finished()) {
       final int k = data.kind(p);
+      // skip deleted nodes
+      if(ovl != null && ovl.deleted(p)) {
+        p += data.size(p, k);
+        continue;
+      }
       final int r = data.parent(p, k);
 
       // close opened elements...
@@ -337,6 +350,15 @@ public abstract class Serializer {
         if(doc) closeDoc();
         openDoc(data.text(p++, true));
         doc = true;
+      } else if(ovl != null && k != Data.ELEM) {
+        // updated copy: serialize leaf nodes with new values and names
+        final byte[] v = ovl.value(p);
+        if(k == Data.TEXT) text(v != null ? v : data.text(p, true));
+        else if(k == Data.COMM) comment(v != null ? v : data.text(p, true));
+        else if(k == Data.ATTR) attribute(name(data, p, k, ovl), v != null ? v :
+          data.text(p, false));
+        else pi(name(data, p, k, ovl), v != null ? v : data.atom(p));
+        p++;
       } else if(k == Data.TEXT) {
         final FTPos ftd = ft != null ? ft.get(data, p) : null;
         if(ftd != null) text(data.text(p++, true), ftd);
@@ -349,7 +371,8 @@ public abstract class Serializer {
         pi(data.name(p, k), data.atom(p++));
       } else {
         // add element node
-        final byte[] name = data.name(p, k);
+        final QNm qn = ovl != null ? ovl.name(p) : null;
+        final byte[] name = qn != null ? qn.string() : data.name(p, k);
         startElement(name);
 
         // add namespace definitions
@@ -360,7 +383,7 @@ public abstract class Serializer {
 
           // check namespace of current element
           byte[] key = prefix(name);
-          byte[] val = data.nspaces.uri(data.uri(p, k));
+          byte[] val = qn != null ? qn.uri() : data.nspaces.uri(data.uri(p, k));
           if(val == null) val = EMPTY;
           // add new or updated namespace
           final byte[] old = ns(key);
@@ -377,7 +400,7 @@ public abstract class Serializer {
               }
             }
             // check ancestors only on top level
-            if(level != 0 || l != 0) break;
+            if(!scope && level != 0 || l != 0) break;
 
             pp = data.parent(pp, data.kind(pp));
           } while(pp >= 0 && data.kind(pp) == Data.ELEM);
@@ -386,7 +409,12 @@ public abstract class Serializer {
         // serialize attributes
         final int as = p + data.attSize(p, k);
         while(++p != as) {
-          attribute(data.name(p, Data.ATTR), data.text(p, false));
+          if(ovl == null) {
+            attribute(data.name(p, Data.ATTR), data.text(p, false));
+          } else if(!ovl.deleted(p)) {
+            final byte[] v = ovl.value(p);
+            attribute(name(data, p, Data.ATTR, ovl), v != null ? v : data.text(p, false));
+          }
         }
         pars.set(l++, r);
       }
@@ -397,6 +425,20 @@ public abstract class Serializer {
     if(doc) closeDoc();
   }
 
+  /**
+   * Returns the name of a node in an updated copy.
+   * @param data data reference
+   * @param pre pre value
+   * @param kind node kind
+   * @param ovl overlay
+   * @return name
+   */
+  private static byte[] name(final Data data, final int pre, final int kind,
+      final Overlay ovl) {
+    final QNm qn = ovl.name(pre);
+    return qn != null ? qn.string() : data.name(pre, kind);
+  }
+
   /**
    * Gets the URI currently bound by the given prefix.
    * @param pref namespace prefix
@@ -46,12 +46,12 @@ public final class QueryContext extends Progress {
   /** Static context of an expression. */
   public StaticContext sc = new StaticContext();
   /** Variables. */
-  public final VarContext vars = new VarContext();
+  public final VarContext vars;
   /** Functions. */
   public final UserFuncs funcs = new UserFuncs();
 
   /** Query resources. */
-  public final QueryResources resource = new QueryResources(this);
+  public final QueryResources resource;
   /** Database context. */
   public final Context context;
 
@@ -105,12 +105,18 @@ public final class QueryContext extends Progress {
   /** Compilation flag: GFLWOR clause performs grouping. */
   public boolean grouping;
 
+  /** Flag for contexts that evaluate parts of a query in a separate thread. */
+  public final boolean forked;
   /** Number of successive tail calls. */
   public int tailCalls;
   /** Maximum number of successive tail calls. */
   public final int maxCalls;
   /** Counter for variable IDs. */
   public int varIDs;
+  /** Currently evaluated profiled expression (only assigned if queries are profiled). */
+  public Prof prof;
+  /** Memory accounting (shared with forked contexts). */
+  public final Memory memory;
 
   /** Pre-declared modules, containing module uri and their file paths. */
   final TokenMap modDeclared = new TokenMap();
@@ -147,15 +153,50 @@ public final class QueryContext extends Progress {
    */
   public QueryContext(final Context ctx) {
     context = ctx;
+    vars = new VarContext();
+    resource = new QueryResources(this);
+    forked = false;
     nodes = ctx.current();
     inf = ctx.prop.is(Prop.QUERYINFO) || Prop.debug;
     final String path = ctx.prop.get(Prop.QUERYPATH);
     if(!path.isEmpty()) sc.baseURI(path);
     maxCalls = ctx.prop.num(Prop.TAILCALLS);
     modules = new ModuleLoader(ctx);
+    memory = new Memory(ctx.mprop.num(MainProp.MEMLIMIT));
     sc.xquery3 = ctx.prop.is(Prop.XQUERY3);
   }
 
+  /**
+   * Constructor for evaluating parts of a query in a separate thread.
+   * Databases, modules and global variables are shared with the parent context,
+   * whereas local variables and the current focus are copied.
+   * @param qc parent query context
+   */
+  public QueryContext(final QueryContext qc) {
+    context = qc.context;
+    vars = new VarContext(qc.vars);
+    resource = qc.resource;
+    forked = true;
+    modules = qc.modules;
+    sc = qc.sc;
+    nodes = qc.nodes;
+    inf = qc.inf;
+    maxCalls = qc.maxCalls;
+    memory = qc.memory;
+    http = qc.http;
+    stop = qc.stop;
+    thes = qc.thes;
+    value = qc.value;
+    pos = qc.pos;
+    size = qc.size;
+    ftOpt = qc.ftOpt;
+    date = qc.date;
+    dtm = qc.dtm;
+    time = qc.time;
+    zone = qc.zone;
+    serProp = qc.serProp;
+  }
+
   /**
    * Parses the specified query.
    * @param qu input query
@@ -211,6 +252,12 @@ public final class QueryContext extends Progress {
     // dynamic compilation
     analyze();
 
+    // instrument compiled expressions for profiling
+    if(context.prop.is(Prop.PROFILE)) {
+      funcs.profile();
+      if(root != null) root = root.profile();
+    }
+
     // dump resulting query
     if(inf) info.add(NL + RESULT_C + funcs + root + NL);
   }
@@ -445,6 +492,11 @@ public final class QueryContext extends Progress {
     return 0;
   }
 
+  @Override
+  public long mem() {
+    return memory.used();
+  }
+
   // CLASS METHODS ======================================================================
 
   /**
@@ -486,7 +538,11 @@ public final class QueryContext extends Progress {
     // use standard iterator
     while((it = ir.next()) != null) {
       checkStop();
-      if(vb.size() < max) vb.add(it.materialize(null));
+      if(vb.size() < max) {
+        final Item m = it.materialize(null);
+        memory.add(Memory.size(m), null);
+        vb.add(m);
+      }
     }
     return vb;
   }
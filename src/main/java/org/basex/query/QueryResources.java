@@ -5,6 +5,7 @@ import static org.basex.query.util.Err.*;
 import java.io.*;
 import java.util.*;
 
+import org.basex.build.*;
 import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.data.*;
@@ -39,6 +40,10 @@ public final class QueryResources {
   private String[] collName = new String[1];
   /** Number of collections. */
   private int colls;
+  /** Parsers of streamed documents. */
+  private final ArrayList<Parser> streams = new ArrayList<Parser>();
+  /** Temporary resources, such as the runs of order by clauses. */
+  private final ArrayList<Closeable> temps = new ArrayList<Closeable>();
 
   /**
    * Constructor.
@@ -77,6 +82,24 @@ public final class QueryResources {
       Close.close(data[d], ctx.context);
     }
     datas = 0;
+    // close documents that have not been completely streamed
+    for(final Parser p : streams) {
+      try {
+        p.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    streams.clear();
+    // delete temporary resources that have not been completely read
+    for(final Closeable c : temps.toArray(new Closeable[temps.size()])) {
+      try {
+        c.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    temps.clear();
   }
 
   /**
@@ -86,7 +109,9 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data data(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data data(final String name, final InputInfo info)
+      throws QueryException {
+
     // check if a database with the same name has already been opened
     for(int d = 0; d < datas; ++d) {
       if(data[d].meta.name.equalsIgnoreCase(name)) return data[d];
@@ -110,7 +135,9 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final InputInfo info) throws QueryException {
+  public synchronized DBNode doc(final QueryInput qi, final InputInfo info)
+      throws QueryException {
+
     // check currently opened databases
     for(int d = 0; d < datas; ++d) {
       final Data dt = data[d];
@@ -147,7 +174,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final String input, final InputInfo info)
+  public synchronized Value collection(final String input, final InputInfo info)
       throws QueryException {
 
     // merge input with base directory
@@ -298,7 +325,7 @@ public final class QueryResources {
    * Adds a data reference.
    * @param d data reference to be added
    */
-  public void addData(final Data d) {
+  public synchronized void addData(final Data d) {
     if(datas == data.length) {
       final Data[] tmp = new Data[Array.newSize(datas)];
       System.arraycopy(data, 0, tmp, 0, datas);
@@ -307,11 +334,43 @@ public final class QueryResources {
     data[datas++] = d;
   }
 
+  /**
+   * Adds the parser of a streamed document, which will be closed with the query.
+   * @param p parser
+   */
+  public synchronized void addStream(final Parser p) {
+    streams.add(p);
+  }
+
+  /**
+   * Removes the parser of a completely streamed document.
+   * @param p parser
+   */
+  public synchronized void removeStream(final Parser p) {
+    streams.remove(p);
+  }
+
+  /**
+   * Adds a temporary resource, which will be closed with the query.
+   * @param c resource
+   */
+  public synchronized void addTemp(final Closeable c) {
+    temps.add(c);
+  }
+
+  /**
+   * Removes a temporary resource that has already been closed.
+   * @param c resource
+   */
+  public synchronized void removeTemp(final Closeable c) {
+    temps.remove(c);
+  }
+
   /**
    * Removes and closes a database if it has not been added by the global context.
    * @param name name of database to be removed
    */
-  public void removeData(final String name) {
+  public synchronized void removeData(final String name) {
     for(int d = ctx.nodes != null ? 1 : 0; d < datas; d++) {
       if(data[d].meta.name.equals(name)) {
         Close.close(data[d], ctx.context);
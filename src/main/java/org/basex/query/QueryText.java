@@ -122,6 +122,8 @@ public interface QueryText {
   String FUZZY = "fuzzy";
   /** Parser token. */
   String FUNCTION = "function";
+  /** Annotation token. */
+  String GLOBAL = "global";
   /** Parser token. */
   String GREATEST = "greatest";
   /** Parser token. */
@@ -164,6 +166,8 @@ public interface QueryText {
   String LOWERCASE = "lowercase";
   /** Parser token. */
   String MAPSTR = "map";
+  /** Annotation token. */
+  String MEMOIZE = "memoize";
   /** Parser token. */
   String MOD = "mod";
   /** Parser token. */
@@ -654,6 +658,16 @@ public interface QueryText {
   byte[] INF = token("inf");
   /** Query Plan. */
   byte[] COUNT = token("count");
+  /** Query Plan: evaluation with primitive values. */
+  byte[] PRIM = token("primitive");
+  /** Query Profile: number of calls. */
+  byte[] CALLS = token("calls");
+  /** Query Profile: number of returned items. */
+  byte[] ITMS = token("items");
+  /** Query Profile: total time. */
+  byte[] TOTAL = token("time");
+  /** Query Profile: self time. */
+  byte[] SLF = token("self");
 
   /** Example for a Date format. */
   String XDATE = "2000-12-31";
@@ -687,6 +701,8 @@ public interface QueryText {
   /** Optimization info. */
   String OPTMERGE = "merging axis paths";
   /** Optimization info. */
+  String OPTSTREAM = "streaming %";
+  /** Optimization info. */
   String OPTPRE = "pre-evaluating %";
   /** Optimization info. */
   String OPTWRITE = "rewriting %";
@@ -734,4 +750,10 @@ public interface QueryText {
   String OPTBIND = "binding static variable %";
   /** Optimization info. */
   String OPTCHILD = "converting % to child steps";
+  /** Optimization info. */
+  String OPTPARALLEL = "evaluating flwor expression in % threads";
+  /** Optimization info. */
+  String OPTACCUM = "accumulating %";
+  /** Optimization info. */
+  String OPTTOPK = "limiting order by clause to % tuples";
 }
@@ -17,7 +17,11 @@ import org.basex.util.*;
  */
 public final class Arith extends Arr {
   /** Calculation operator. */
-  private final Calc calc;
+  final Calc calc;
+  /** Evaluator for primitive values (assigned if the expression is hot). */
+  private PrimEval prim;
+  /** Number of evaluations. */
+  private int calls;
 
   /**
    * Constructor.
@@ -51,6 +55,12 @@ public final class Arith extends Arr {
 
   @Override
   public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    if(calls < PrimEval.HOT && ++calls == PrimEval.HOT) prim = PrimEval.get(this);
+    if(prim != null) {
+      final Item it = prim.item(ctx, info);
+      if(it != null) return it;
+      prim = null;
+    }
     final Item a = expr[0].item(ctx, info);
     if(a == null) return null;
     final Item b = expr[1].item(ctx, info);
@@ -60,7 +70,7 @@ public final class Arith extends Arr {
 
   @Override
   public void plan(final FElem plan) {
-    addPlan(plan, planElem(OP, calc.name), expr);
+    addPlan(plan, planElem(OP, calc.name, PRIM, prim != null ? Token.TRUE : null), expr);
   }
 
   @Override
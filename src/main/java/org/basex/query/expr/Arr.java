@@ -100,6 +100,16 @@ public abstract class Arr extends ParseExpr {
     checkNoneUp(expr);
   }
 
+  @Override
+  public Expr profile() {
+    // the array may have a more specific component type (e.g., ValueAccess[])
+    final int es = expr.length;
+    final Expr[] ex = new Expr[es];
+    for(int e = 0; e != es; ++e) ex[e] = expr[e].profile();
+    expr = ex;
+    return super.profile();
+  }
+
   @Override
   public void plan(final FElem plan) {
     addPlan(plan, planElem(), expr);
@@ -112,6 +112,10 @@ public final class CmpG extends Cmp {
   private ValueAccess[] va = {};
   /** Flag for atomic evaluation. */
   private boolean atomic;
+  /** Evaluator for primitive values (assigned if the expression is hot). */
+  private PrimEval prim;
+  /** Number of evaluations. */
+  private int calls;
 
   /**
    * Constructor.
@@ -204,6 +208,12 @@ public final class CmpG extends Cmp {
 
   @Override
   public Bln item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    if(calls < PrimEval.HOT && ++calls == PrimEval.HOT) prim = PrimEval.get(this);
+    if(prim != null) {
+      final Bln it = (Bln) prim.item(ctx, info);
+      if(it != null) return it;
+      prim = null;
+    }
     // atomic evaluation of arguments (faster)
     if(atomic) {
       final Item it1 = expr[0].item(ctx, info);
@@ -238,6 +248,10 @@ public final class CmpG extends Cmp {
     Item it1, it2;
     if(s2) {
       it2 = ir2.next();
+      if(ir1 instanceof ValueIter) {
+        final Bln b = prim(((ValueIter) ir1).value(), it2);
+        if(b != null) return b;
+      }
       while((it1 = ir1.next()) != null) if(eval(it1, it2)) return Bln.TRUE;
       return Bln.FALSE;
     }
@@ -262,6 +276,60 @@ public final class CmpG extends Cmp {
     return Bln.FALSE;
   }
 
+  /**
+   * Compares the primitive values of an integer, double or range sequence
+   * with a single number.
+   * @param v value
+   * @param it item
+   * @return result, or {@code null} if the items must be compared one by one
+   */
+  private Bln prim(final Value v, final Item it) {
+    final OpV o = op.op;
+    if(it instanceof Int && v instanceof RangeSeq) {
+      // ranges contain at least two different values
+      final long x = ((Int) it).itr();
+      final RangeSeq rs = (RangeSeq) v;
+      final long min = rs.min(), max = rs.max();
+      switch(o) {
+        case EQ: return Bln.get(x >= min && x <= max);
+        case NE: return Bln.TRUE;
+        case LT: return Bln.get(min < x);
+        case LE: return Bln.get(min <= x);
+        case GT: return Bln.get(max > x);
+        default: return Bln.get(max >= x);
+      }
+    }
+    if(it instanceof Int && v instanceof IntSeq) {
+      final long x = ((Int) it).itr();
+      for(final long l : ((IntSeq) v).values()) {
+        if(PrimEval.test(o, l < x ? -1 : l > x ? 1 : 0)) return Bln.TRUE;
+      }
+      return Bln.FALSE;
+    }
+    if(!(it instanceof Int || it instanceof Dbl)) return null;
+    final double x = it instanceof Int ? ((Int) it).itr() : ((Dbl) it).dbl();
+    if(v instanceof IntSeq) {
+      for(final long l : ((IntSeq) v).values()) if(prim(l, x)) return Bln.TRUE;
+      return Bln.FALSE;
+    }
+    if(v instanceof DblSeq) {
+      for(final double d : ((DblSeq) v).values()) if(prim(d, x)) return Bln.TRUE;
+      return Bln.FALSE;
+    }
+    return null;
+  }
+
+  /**
+   * Compares two doubles.
+   * @param d first double
+   * @param x second double
+   * @return result of check
+   */
+  private boolean prim(final double d, final double x) {
+    // comparisons with NaN are always false, except for inequality
+    return d != d || x != x ? op.op == OpV.NE : PrimEval.test(op.op, d < x ? -1 : d > x ? 1 : 0);
+  }
+
   /**
    * Compares a single item.
    * @param a first item to be compared
@@ -372,7 +440,7 @@ public final class CmpG extends Cmp {
 
   @Override
   public void plan(final FElem plan) {
-    addPlan(plan, planElem(OP, op.name), expr);
+    addPlan(plan, planElem(OP, op.name, PRIM, prim != null ? Token.TRUE : null), expr);
   }
 
   @Override
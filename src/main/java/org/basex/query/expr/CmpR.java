@@ -82,19 +82,26 @@ public final class CmpR extends Single {
     if(atomic) {
       final Item it = expr.item(ctx, info);
       if(it == null) return Bln.FALSE;
-      final double d = it.dbl(info);
-      return Bln.get((mni ? d >= min : d > min) && (mxi ? d <= max : d < max));
+      return Bln.get(contains(it.dbl(info)));
     }
 
     // iterative evaluation
     final Iter ir = ctx.iter(expr);
     for(Item it; (it = ir.next()) != null;) {
-      final double d = it.dbl(info);
-      if((mni ? d >= min : d > min) && (mxi ? d <= max : d < max)) return Bln.TRUE;
+      if(contains(it.dbl(info))) return Bln.TRUE;
     }
     return Bln.FALSE;
   }
 
+  /**
+   * Checks if the specified value is included in the range.
+   * @param d value
+   * @return result of check
+   */
+  boolean contains(final double d) {
+    return (mni ? d >= min : d > min) && (mxi ? d <= max : d < max);
+  }
+
   /**
    * Creates an intersection of the existing and the specified expressions.
    * @param c range comparison
@@ -140,6 +140,10 @@ public final class CmpV extends Cmp {
 
   /** Comparator. */
   OpV op;
+  /** Evaluator for primitive values (assigned if the expression is hot). */
+  private PrimEval prim;
+  /** Number of evaluations. */
+  private int calls;
 
   /**
    * Constructor.
@@ -199,6 +203,12 @@ public final class CmpV extends Cmp {
 
   @Override
   public Bln item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    if(calls < PrimEval.HOT && ++calls == PrimEval.HOT) prim = PrimEval.get(this);
+    if(prim != null) {
+      final Bln it = (Bln) prim.item(ctx, info);
+      if(it != null) return it;
+      prim = null;
+    }
     final Item a = expr[0].item(ctx, info);
     if(a == null) return null;
     final Item b = expr[1].item(ctx, info);
@@ -218,7 +228,7 @@ public final class CmpV extends Cmp {
 
   @Override
   public void plan(final FElem plan) {
-    addPlan(plan, planElem(OP, op.name), expr);
+    addPlan(plan, planElem(OP, op.name, PRIM, prim != null ? Token.TRUE : null), expr);
   }
 
   @Override
@@ -3,6 +3,7 @@ package org.basex.query.expr;
 import static org.basex.query.util.Err.*;
 
 import org.basex.query.*;
+import org.basex.query.flwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.item.*;
@@ -40,6 +41,10 @@ public final class Constr {
   private final TokenBuilder text = new TokenBuilder();
   /** Space separator flag. */
   private boolean more;
+  /** Flag for nodes that have been created by a constructor and need not be copied. */
+  private boolean fresh;
+  /** Estimated memory consumption of the buffered nodes. */
+  private long mem;
 
   /**
    * Creates the children of the constructor.
@@ -52,7 +57,8 @@ public final class Constr {
   }
 
   /**
-   * Constructs child and attribute nodes.
+   * Constructs child and attribute nodes. The memory of the buffered nodes is
+   * accounted until all nodes have been constructed.
    * @param expr input expressions
    * @return self reference
    * @throws QueryException query exception
@@ -62,6 +68,7 @@ public final class Constr {
     try {
       for(final Expr e : expr) {
         more = false;
+        fresh = e instanceof CFrag || e instanceof GFLWOR && ((GFLWOR) e).constructs();
         final Iter iter = ctx.iter(e);
         for(Item ch; (ch = iter.next()) != null && add(ch););
       }
@@ -69,6 +76,8 @@ public final class Constr {
       return this;
     } finally {
       ctx.sc.ns.size(s);
+      ctx.memory.free(mem);
+      mem = 0;
     }
   }
 
@@ -90,7 +99,7 @@ public final class Constr {
 
     } else {
       // type: nodes
-      ANode node = (ANode) it;
+      final ANode node = (ANode) it;
 
       final Type ip = it.type;
       if(ip == NodeType.TXT) {
@@ -115,7 +124,9 @@ public final class Constr {
         }
 
         // add attribute
-        atts.add(new FAttr(name, node.string()));
+        final byte[] value = node.string();
+        account(64 + value.length);
+        atts.add(new FAttr(name, value));
 
         if(name.hasURI()) {
           ctx.sc.ns.add(name.prefix(), name.uri());
@@ -153,16 +164,36 @@ public final class Constr {
 
         // add text node
         if(!text.isEmpty()) {
+          account(64 + text.size());
           children.add(new FTxt(text.finish()));
           text.reset();
         }
-
-        // [CG] XQuery, element construction: avoid full copy of sub tree if not needed
-        node = node.deepCopy();
-        children.add(node);
+        account(64);
+        children.add(fresh ? node : copy(node));
       }
       more = false;
     }
     return true;
   }
+
+  /**
+   * Accounts the memory of a buffered node.
+   * @param bytes number of bytes
+   * @throws QueryException query exception
+   */
+  private void account(final long bytes) throws QueryException {
+    ctx.memory.add(bytes, info);
+    mem += bytes;
+  }
+
+  /**
+   * Returns a copy of the specified node. Database nodes will only be copied
+   * virtually if the query is not updating.
+   * @param node node to be copied
+   * @return copy
+   */
+  private ANode copy(final ANode node) {
+    return node instanceof DBNode && !(node instanceof FTPosNode) && !ctx.updating ?
+      new CopyNode((DBNode) node) : node.deepCopy();
+  }
 }
@@ -56,6 +56,21 @@ public final class Except extends Set {
     return nc;
   }
 
+  @Override
+  protected NodeSeqBuilder combine(final NodeSeqBuilder nb1, final NodeSeqBuilder nb2) {
+    final ANode[] n1 = nb1.item, n2 = nb2.item;
+    final int s1 = (int) nb1.size(), s2 = (int) nb2.size();
+    final ANode[] nodes = new ANode[s1];
+    int i1 = 0, i2 = 0, s = 0;
+    while(i1 < s1) {
+      final ANode nd = n1[i1];
+      while(i2 < s2 && ((DBNode) n2[i2]).pre < ((DBNode) nd).pre) i2++;
+      if(i2 == s2 || ((DBNode) n2[i2]).pre != ((DBNode) nd).pre) nodes[s++] = nd;
+      i1++;
+    }
+    return new NodeSeqBuilder(nodes, s);
+  }
+
   @Override
   protected NodeIter iter(final Iter[] iter) {
     return new SetIter(iter) {
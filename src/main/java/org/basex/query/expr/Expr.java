@@ -28,6 +28,7 @@ public abstract class Expr extends ExprInfo {
     /** Depends on context. Example: context node. */        CTX,
     /** Non-deterministic. Example: random(). */             NDT,
     /** Context position. Example: position(). */            POS,
+    /** Keeps evaluation state. Example: full-text. */       STA,
     /** Performs updates. Example: insert expression. */     UPD,
     /** References a variable. Example: {@link VarRef}. */   VAR,
     /** Based on XQuery 3.0. Example: group by statement. */ X30,
@@ -322,4 +323,12 @@ public abstract class Expr extends ExprInfo {
   public Expr markTailCalls() {
     return this;
   }
+
+  /**
+   * Instruments the compiled expression and its subexpressions for profiling.
+   * @return expression, wrapped into a {@link Prof} instance
+   */
+  public Expr profile() {
+    return new Prof(this);
+  }
 }
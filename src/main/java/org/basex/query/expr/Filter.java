@@ -1,6 +1,7 @@
 package org.basex.query.expr;
 
 import org.basex.query.*;
+import org.basex.query.flwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
@@ -69,6 +70,10 @@ public class Filter extends Preds {
    * @return compiled expression
    */
   public final Expr comp2(final QueryContext ctx) {
+    // only sort the smallest tuples of an ordered flwor expression
+    if(preds[0] instanceof Pos && root instanceof GFLWOR)
+      ((GFLWOR) root).limit(((Pos) preds[0]).max, ctx);
+
     // evaluate return type
     final SeqType t = root.type();
 
@@ -193,6 +198,12 @@ public class Filter extends Preds {
     return root.databases(db) && super.databases(db);
   }
 
+  @Override
+  public final Expr profile() {
+    root = root.profile();
+    return super.profile();
+  }
+
   @Override
   public final void plan(final FElem plan) {
     final FElem el = planElem();
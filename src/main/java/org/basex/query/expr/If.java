@@ -21,7 +21,7 @@ import org.basex.util.list.*;
  */
 public final class If extends Arr {
   /** If expression. */
-  private Expr cond;
+  Expr cond;
 
   /**
    * Constructor.
@@ -155,6 +155,12 @@ public final class If extends Arr {
     return this;
   }
 
+  @Override
+  public Expr profile() {
+    cond = cond.profile();
+    return super.profile();
+  }
+
   @Override
   public void plan(final FElem plan) {
     addPlan(plan, planElem(), cond, expr);
@@ -48,6 +48,21 @@ public final class InterSect extends Set {
     return nc;
   }
 
+  @Override
+  protected NodeSeqBuilder combine(final NodeSeqBuilder nb1, final NodeSeqBuilder nb2) {
+    final ANode[] n1 = nb1.item, n2 = nb2.item;
+    final int s1 = (int) nb1.size(), s2 = (int) nb2.size();
+    final ANode[] nodes = new ANode[Math.min(s1, s2)];
+    int i1 = 0, i2 = 0, s = 0;
+    while(i1 < s1 && i2 < s2) {
+      final int d = ((DBNode) n1[i1]).pre - ((DBNode) n2[i2]).pre;
+      if(d == 0) nodes[s++] = n2[i2];
+      if(d <= 0) i1++;
+      if(d >= 0) i2++;
+    }
+    return new NodeSeqBuilder(nodes, s);
+  }
+
   @Override
   protected NodeIter iter(final Iter[] iter) {
     return new SetIter(iter) {
@@ -2,6 +2,7 @@ package org.basex.query.expr;
 
 import org.basex.query.*;
 import org.basex.query.iter.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 
 /**
@@ -21,15 +22,17 @@ final class IterFilter extends Filter {
   }
 
   @Override
-  public Iter iter(final QueryContext ctx) {
-    return new Iter() {
-      /** Iterator. */
-      Iter iter;
+  public Iter iter(final QueryContext ctx) throws QueryException {
+    final Iter iter = ctx.iter(root);
+    // native sequences: evaluate predicate with primitive values
+    if(preds.length == 1 && iter instanceof ValueIter) {
+      final Value v = PrimEval.filter(preds[0], ((ValueIter) iter).value(), ctx, info);
+      if(v != null) return v.iter();
+    }
 
+    return new Iter() {
       @Override
       public Item next() throws QueryException {
-        // first call - initialize iterator
-        if(iter == null) iter = ctx.iter(root);
         // filter sequence
         for(Item it; (it = iter.next()) != null;) {
           ctx.checkStop();
@@ -31,11 +31,11 @@ public final class LitMap extends Arr {
 
   @Override
   public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
-    Map map = Map.EMPTY;
+    final MapBuilder mb = new MapBuilder();
     for(int i = 0; i < expr.length; i++) {
-      map = map.insert(checkItem(expr[i], ctx), ctx.value(expr[++i]), ii);
+      mb.add(checkItem(expr[i], ctx), ctx.value(expr[++i]), ii);
     }
-    return map;
+    return mb.finish(ii);
   }
 
   @Override
@@ -0,0 +1,580 @@
+package org.basex.query.expr;
+
+import static org.basex.query.value.type.AtomType.*;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.CmpV.OpV;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Evaluator for numeric expressions that computes with primitive values.
+ * Arithmetic expressions, comparisons, conditionals and negations are compiled
+ * into a tree of evaluators if all their operands are known to yield single
+ * integers, doubles or booleans. Leaves may be constants, variable references
+ * or, if an integer or double sequence is mapped, the context item.
+ * Intermediate results will not be wrapped into items.
+ *
+ * <p>Expressions are compiled after they have been evaluated {@link #HOT} times.
+ * If an operand yields an unexpected item, or if an operation would raise an
+ * error, evaluation is cancelled and the expression will be interpreted again.
+ * As all leaves are free of side effects, the expression can safely be
+ * evaluated a second time. Compiled expressions are marked in the query plan.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public abstract class PrimEval {
+  /** Number of evaluations after which an expression will be compiled. */
+  static final int HOT = 1 << 8;
+  /** Signals that the expression must be interpreted. */
+  private static final Fallback FALLBACK = new Fallback();
+
+  /** Result type ({@link AtomType#ITR}, {@link AtomType#DBL}, {@link AtomType#BLN}). */
+  final Type type;
+
+  /**
+   * Constructor.
+   * @param t result type
+   */
+  PrimEval(final Type t) {
+    type = t;
+  }
+
+  /**
+   * Returns an evaluator for the specified expression, or {@code null}.
+   * @param e expression
+   * @return evaluator or {@code null}
+   */
+  static PrimEval get(final Expr e) {
+    return get(e, null);
+  }
+
+  /**
+   * Returns an evaluator for the specified expression, or {@code null}.
+   * @param e expression
+   * @param f focus (may be {@code null})
+   * @return evaluator or {@code null}
+   */
+  private static PrimEval get(final Expr e, final Focus f) {
+    try {
+      return compile(e, f);
+    } catch(final Fallback ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Evaluates the specified expression for all items of an integer, double or
+   * range sequence, and returns the results as a new sequence. No items will be
+   * created for the input and intermediate values.
+   * @param e expression
+   * @param v value
+   * @param ctx query context
+   * @param ii input info
+   * @return resulting sequence, or {@code null} if the expression must be interpreted
+   * @throws QueryException query exception
+   */
+  public static Value map(final Expr e, final Value v, final QueryContext ctx,
+      final InputInfo ii) throws QueryException {
+
+    final Focus f = Focus.get(v);
+    final PrimEval pe = f != null ? get(e, f) : null;
+    if(pe == null) return null;
+
+    final int s = (int) v.size();
+    final long[] ir = pe.type == ITR ? new long[s] : null;
+    final double[] dr = pe.type == DBL ? new double[s] : null;
+    final boolean[] br = pe.type == BLN ? new boolean[s] : null;
+    try {
+      for(int i = 0; i < s; i++) {
+        if((i & 0xFFFF) == 0) ctx.checkStop();
+        f.set(i);
+        if(ir != null) ir[i] = pe.itr(ctx, ii);
+        else if(dr != null) dr[i] = pe.dbl(ctx, ii);
+        else br[i] = pe.bln(ctx, ii);
+      }
+    } catch(final Fallback ex) {
+      return null;
+    }
+    return ir != null ? IntSeq.get(ir, ITR) : dr != null ? DblSeq.get(dr) :
+      BlnSeq.get(br);
+  }
+
+  /**
+   * Filters an integer, double or range sequence with the specified predicate,
+   * which must yield booleans. No items will be created for the input and
+   * intermediate values.
+   * @param e predicate
+   * @param v value
+   * @param ctx query context
+   * @param ii input info
+   * @return resulting sequence, or {@code null} if the predicate must be interpreted
+   * @throws QueryException query exception
+   */
+  public static Value filter(final Expr e, final Value v, final QueryContext ctx,
+      final InputInfo ii) throws QueryException {
+
+    final Focus f = Focus.get(v);
+    final PrimEval pe = f != null ? get(e, f) : null;
+    if(pe == null || pe.type != BLN) return null;
+
+    final int s = (int) v.size();
+    final long[] ir = f.type == ITR ? new long[s] : null;
+    final double[] dr = f.type == DBL ? new double[s] : null;
+    int c = 0;
+    try {
+      for(int i = 0; i < s; i++) {
+        if((i & 0xFFFF) == 0) ctx.checkStop();
+        f.set(i);
+        if(!pe.bln(ctx, ii)) continue;
+        if(ir != null) ir[c++] = f.itr;
+        else dr[c++] = f.dbl;
+      }
+    } catch(final Fallback ex) {
+      return null;
+    }
+    return ir != null ? IntSeq.get(Arrays.copyOf(ir, c), v instanceof IntSeq ? v.type : ITR) :
+      DblSeq.get(Arrays.copyOf(dr, c));
+  }
+
+  /**
+   * Evaluates the expression and returns the result as item.
+   * @param ctx query context
+   * @param ii input info
+   * @return resulting item, or {@code null} if the expression must be interpreted
+   * @throws QueryException query exception
+   */
+  final Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    try {
+      return type == ITR ? Int.get(itr(ctx, ii)) : type == DBL ?
+        Dbl.get(dbl(ctx, ii)) : Bln.get(bln(ctx, ii));
+    } catch(final Fallback ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns an integer result.
+   * @param ctx query context
+   * @param ii input info
+   * @return result
+   * @throws QueryException query exception
+   */
+  long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    throw FALLBACK;
+  }
+
+  /**
+   * Returns a double result. By default, integers are promoted to doubles.
+   * @param ctx query context
+   * @param ii input info
+   * @return result
+   * @throws QueryException query exception
+   */
+  double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    return itr(ctx, ii);
+  }
+
+  /**
+   * Returns a boolean result.
+   * @param ctx query context
+   * @param ii input info
+   * @return result
+   * @throws QueryException query exception
+   */
+  boolean bln(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    throw FALLBACK;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Compiles the specified expression.
+   * @param e expression
+   * @param f focus (may be {@code null})
+   * @return evaluator
+   */
+  private static PrimEval compile(final Expr e, final Focus f) {
+    if(e instanceof Arith) return arith((Arith) e, f);
+    if(e instanceof CmpV) {
+      final CmpV c = (CmpV) e;
+      return cmp(c.op, c.expr[0], c.expr[1], f);
+    }
+    if(e instanceof CmpG) {
+      final CmpG c = (CmpG) e;
+      return cmp(c.op.op, c.expr[0], c.expr[1], f);
+    }
+    if(e instanceof CmpR) return range((CmpR) e, f);
+    if(e instanceof Unary) return neg((Unary) e, f);
+    if(e instanceof If) return cond((If) e, f);
+    return leaf(e, f);
+  }
+
+  /**
+   * Compiles a leaf expression.
+   * @param e expression
+   * @param f focus (may be {@code null})
+   * @return evaluator
+   */
+  private static PrimEval leaf(final Expr e, final Focus f) {
+    final Type t = type(e);
+    if(e instanceof Int) {
+      final long v = ((Int) e).itr();
+      return new PrimEval(ITR) {
+        @Override
+        long itr(final QueryContext ctx, final InputInfo ii) {
+          return v;
+        }
+      };
+    }
+    if(e instanceof Dbl) {
+      final double v = ((Dbl) e).dbl();
+      return new PrimEval(DBL) {
+        @Override
+        double dbl(final QueryContext ctx, final InputInfo ii) {
+          return v;
+        }
+      };
+    }
+    if(e instanceof Bln) {
+      final boolean v = ((Bln) e).bool(null);
+      return new PrimEval(BLN) {
+        @Override
+        boolean bln(final QueryContext ctx, final InputInfo ii) {
+          return v;
+        }
+      };
+    }
+    if(e instanceof Context && f != null) {
+      return new PrimEval(f.type) {
+        @Override
+        long itr(final QueryContext ctx, final InputInfo ii) {
+          return f.itr;
+        }
+        @Override
+        double dbl(final QueryContext ctx, final InputInfo ii) {
+          return f.type == ITR ? f.itr : f.dbl;
+        }
+      };
+    }
+    if(!(e instanceof VarRef) || t == null) throw FALLBACK;
+
+    return new PrimEval(t) {
+      @Override
+      long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        final Item it = e.item(ctx, ii);
+        if(!(it instanceof Int)) throw FALLBACK;
+        return ((Int) it).itr();
+      }
+      @Override
+      double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        final Item it = e.item(ctx, ii);
+        if(it instanceof Dbl) return ((Dbl) it).dbl();
+        if(it instanceof Int) return ((Int) it).itr();
+        throw FALLBACK;
+      }
+      @Override
+      boolean bln(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        final Item it = e.item(ctx, ii);
+        if(!(it instanceof Bln)) throw FALLBACK;
+        return ((Bln) it).bool(ii);
+      }
+    };
+  }
+
+  /**
+   * Compiles an arithmetic expression.
+   * @param e expression
+   * @param f focus (may be {@code null})
+   * @return evaluator
+   */
+  private static PrimEval arith(final Arith e, final Focus f) {
+    final PrimEval a = compile(e.expr[0], f), b = compile(e.expr[1], f);
+    final Calc c = e.calc;
+    if(a.type == BLN || b.type == BLN) throw FALLBACK;
+
+    if(a.type == ITR && b.type == ITR) {
+      switch(c) {
+        case PLUS: return new PrimEval(ITR) {
+          @Override
+          long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+            final long x = a.itr(ctx, ii), y = b.itr(ctx, ii), r = x + y;
+            // overflow: interpret expression to raise the error
+            if(((x ^ r) & (y ^ r)) < 0) throw FALLBACK;
+            return r;
+          }
+        };
+        case MINUS: return new PrimEval(ITR) {
+          @Override
+          long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+            final long x = a.itr(ctx, ii), y = b.itr(ctx, ii), r = x - y;
+            if(((x ^ y) & (x ^ r)) < 0) throw FALLBACK;
+            return r;
+          }
+        };
+        case MULT: return new PrimEval(ITR) {
+          @Override
+          long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+            final long x = a.itr(ctx, ii), y = b.itr(ctx, ii);
+            final double d = x * (double) y;
+            if(d < Long.MIN_VALUE || d > Long.MAX_VALUE) throw FALLBACK;
+            return x * y;
+          }
+        };
+        case IDIV: return new PrimEval(ITR) {
+          @Override
+          long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+            final long x = a.itr(ctx, ii), y = b.itr(ctx, ii);
+            if(y == 0) throw FALLBACK;
+            return x / y;
+          }
+        };
+        case MOD: return new PrimEval(ITR) {
+          @Override
+          long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+            final long x = a.itr(ctx, ii), y = b.itr(ctx, ii);
+            if(y == 0) throw FALLBACK;
+            return x % y;
+          }
+        };
+        // integer division yields decimals
+        default: throw FALLBACK;
+      }
+    }
+
+    switch(c) {
+      case PLUS: return new PrimEval(DBL) {
+        @Override
+        double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+          return a.dbl(ctx, ii) + b.dbl(ctx, ii);
+        }
+      };
+      case MINUS: return new PrimEval(DBL) {
+        @Override
+        double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+          return a.dbl(ctx, ii) - b.dbl(ctx, ii);
+        }
+      };
+      case MULT: return new PrimEval(DBL) {
+        @Override
+        double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+          return a.dbl(ctx, ii) * b.dbl(ctx, ii);
+        }
+      };
+      case DIV: return new PrimEval(DBL) {
+        @Override
+        double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+          return a.dbl(ctx, ii) / b.dbl(ctx, ii);
+        }
+      };
+      case MOD: return new PrimEval(DBL) {
+        @Override
+        double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+          return a.dbl(ctx, ii) % b.dbl(ctx, ii);
+        }
+      };
+      // integer division of doubles may overflow
+      default: throw FALLBACK;
+    }
+  }
+
+  /**
+   * Compiles a comparison.
+   * @param op operator
+   * @param e1 first operand
+   * @param e2 second operand
+   * @param f focus (may be {@code null})
+   * @return evaluator
+   */
+  private static PrimEval cmp(final OpV op, final Expr e1, final Expr e2, final Focus f) {
+    final PrimEval a = compile(e1, f), b = compile(e2, f);
+    if(a.type == BLN || b.type == BLN) throw FALLBACK;
+    final boolean itr = a.type == ITR && b.type == ITR;
+    return new PrimEval(BLN) {
+      @Override
+      boolean bln(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        final int c;
+        if(itr) {
+          final long x = a.itr(ctx, ii), y = b.itr(ctx, ii);
+          c = x < y ? -1 : x > y ? 1 : 0;
+        } else {
+          final double x = a.dbl(ctx, ii), y = b.dbl(ctx, ii);
+          // comparisons with NaN are always false, except for inequality
+          if(x != x || y != y) return op == OpV.NE;
+          c = x < y ? -1 : x > y ? 1 : 0;
+        }
+        return test(op, c);
+      }
+    };
+  }
+
+  /**
+   * Compiles a range comparison.
+   * @param e expression
+   * @param f focus (may be {@code null})
+   * @return evaluator
+   */
+  private static PrimEval range(final CmpR e, final Focus f) {
+    final PrimEval a = compile(e.expr, f);
+    if(a.type == BLN) throw FALLBACK;
+    return new PrimEval(BLN) {
+      @Override
+      boolean bln(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        return e.contains(a.dbl(ctx, ii));
+      }
+    };
+  }
+
+  /**
+   * Checks if the result of a comparison matches the specified operator.
+   * @param op operator
+   * @param c result of comparison (negative, zero or positive)
+   * @return result of check
+   */
+  static boolean test(final OpV op, final int c) {
+    switch(op) {
+      case EQ: return c == 0;
+      case NE: return c != 0;
+      case LT: return c < 0;
+      case LE: return c <= 0;
+      case GT: return c > 0;
+      default: return c >= 0;
+    }
+  }
+
+  /**
+   * Compiles a negation.
+   * @param e expression
+   * @param f focus (may be {@code null})
+   * @return evaluator
+   */
+  private static PrimEval neg(final Unary e, final Focus f) {
+    if(!e.minus) throw FALLBACK;
+    final PrimEval a = compile(e.expr, f);
+    if(a.type == ITR) {
+      return new PrimEval(ITR) {
+        @Override
+        long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+          return -a.itr(ctx, ii);
+        }
+      };
+    }
+    if(a.type != DBL) throw FALLBACK;
+    return new PrimEval(DBL) {
+      @Override
+      double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        return -a.dbl(ctx, ii);
+      }
+    };
+  }
+
+  /**
+   * Compiles a conditional expression.
+   * @param e expression
+   * @param f focus (may be {@code null})
+   * @return evaluator
+   */
+  private static PrimEval cond(final If e, final Focus f) {
+    final PrimEval c = compile(e.cond, f), a = compile(e.expr[0], f),
+        b = compile(e.expr[1], f);
+    if(c.type != BLN || a.type != b.type) throw FALLBACK;
+    return new PrimEval(a.type) {
+      @Override
+      long itr(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        return (c.bln(ctx, ii) ? a : b).itr(ctx, ii);
+      }
+      @Override
+      double dbl(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        return (c.bln(ctx, ii) ? a : b).dbl(ctx, ii);
+      }
+      @Override
+      boolean bln(final QueryContext ctx, final InputInfo ii) throws QueryException {
+        return (c.bln(ctx, ii) ? a : b).bln(ctx, ii);
+      }
+    };
+  }
+
+  /**
+   * Returns the primitive type of the specified expression, or {@code null}.
+   * @param e expression
+   * @return type or {@code null}
+   */
+  private static Type type(final Expr e) {
+    final SeqType st = e.type();
+    if(!st.one()) return null;
+    final Type t = st.type;
+    return t == ITR || t == DBL || t == BLN ? t : null;
+  }
+
+  /** Current item of a mapped sequence. */
+  private static final class Focus {
+    /** Type of the items ({@link AtomType#ITR}, {@link AtomType#DBL}). */
+    final Type type;
+    /** Current integer. */
+    long itr;
+    /** Current double. */
+    double dbl;
+    /** Integers of the sequence (may be {@code null}). */
+    private long[] ints;
+    /** Doubles of the sequence (may be {@code null}). */
+    private double[] dbls;
+    /** First integer and increment of a range sequence. */
+    private long start, inc;
+
+    /**
+     * Constructor.
+     * @param t type of the items
+     */
+    private Focus(final Type t) {
+      type = t;
+    }
+
+    /**
+     * Returns a focus for the items of an integer, double or range sequence.
+     * @param v value
+     * @return focus, or {@code null} if the value is no such sequence
+     */
+    static Focus get(final Value v) {
+      if(v.size() > Integer.MAX_VALUE) return null;
+      if(v instanceof DblSeq) {
+        final Focus f = new Focus(DBL);
+        f.dbls = ((DblSeq) v).values();
+        return f;
+      }
+      final Focus f = new Focus(ITR);
+      if(v instanceof IntSeq) {
+        f.ints = ((IntSeq) v).values();
+      } else if(v instanceof RangeSeq) {
+        final RangeSeq rs = (RangeSeq) v;
+        f.start = rs.start;
+        f.inc = rs.asc ? 1 : -1;
+      } else {
+        return null;
+      }
+      return f;
+    }
+
+    /**
+     * Assigns the item at the specified position as current item.
+     * @param i position
+     */
+    void set(final int i) {
+      if(dbls != null) dbl = dbls[i];
+      else itr = ints != null ? ints[i] : start + i * inc;
+    }
+  }
+
+  /** Signals that the expression cannot be compiled or evaluated. */
+  private static final class Fallback extends RuntimeException {
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package org.basex.query.expr;
+
+import static org.basex.query.QueryText.*;
+
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Profiled expression. This expression wraps a compiled expression and records
+ * the number of calls, the number of returned items, and the total time spent
+ * for evaluating the expression. The self time is the total time minus the
+ * total time of all profiled subexpressions. Times of lazily evaluated iterators
+ * are measured when the items are requested. For recursive functions, total
+ * times include the times of all nested calls.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Prof extends Expr {
+  /** Profiled expression. */
+  public final Expr expr;
+  /** Number of calls. */
+  private long calls;
+  /** Number of returned items (or successful tests). */
+  private long items;
+  /** Total time (nano seconds). */
+  private long time;
+  /** Total time of directly profiled subexpressions (nano seconds). */
+  private long sub;
+
+  /**
+   * Constructor.
+   * @param e expression to be profiled
+   */
+  public Prof(final Expr e) {
+    expr = e;
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    expr.checkUp();
+  }
+
+  @Override
+  public Expr compile(final QueryContext ctx) {
+    return this;
+  }
+
+  @Override
+  public Expr profile() {
+    return this;
+  }
+
+  @Override
+  public Iter iter(final QueryContext ctx) throws QueryException {
+    final Prof par = enter(ctx);
+    final long start = System.nanoTime();
+    final Iter ir;
+    try {
+      ir = expr.iter(ctx);
+    } finally {
+      exit(ctx, par, start, 0);
+    }
+    return new Iter() {
+      @Override
+      public Item next() throws QueryException {
+        final Prof p = ctx.prof;
+        ctx.prof = Prof.this;
+        final long s = System.nanoTime();
+        Item it = null;
+        try {
+          it = ir.next();
+          return it;
+        } finally {
+          exit(ctx, p, s, it != null ? 1 : 0);
+        }
+      }
+      @Override
+      public Item get(final long i) throws QueryException {
+        return ir.get(i);
+      }
+      @Override
+      public long size() {
+        return ir.size();
+      }
+      @Override
+      public boolean reset() {
+        return ir.reset();
+      }
+    };
+  }
+
+  @Override
+  public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    final Prof par = enter(ctx);
+    final long start = System.nanoTime();
+    Item it = null;
+    try {
+      it = expr.item(ctx, ii);
+      return it;
+    } finally {
+      exit(ctx, par, start, it != null ? 1 : 0);
+    }
+  }
+
+  @Override
+  public Value value(final QueryContext ctx) throws QueryException {
+    final Prof par = enter(ctx);
+    final long start = System.nanoTime();
+    Value v = null;
+    try {
+      v = expr.value(ctx);
+      return v;
+    } finally {
+      exit(ctx, par, start, v != null ? v.size() : 0);
+    }
+  }
+
+  @Override
+  public Item ebv(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    final Prof par = enter(ctx);
+    final long start = System.nanoTime();
+    Item it = null;
+    try {
+      it = expr.ebv(ctx, ii);
+      return it;
+    } finally {
+      exit(ctx, par, start, it != null && it.bool(ii) ? 1 : 0);
+    }
+  }
+
+  @Override
+  public Item test(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    final Prof par = enter(ctx);
+    final long start = System.nanoTime();
+    Item it = null;
+    try {
+      it = expr.test(ctx, ii);
+      return it;
+    } finally {
+      exit(ctx, par, start, it != null ? 1 : 0);
+    }
+  }
+
+  /**
+   * Registers a call and makes this expression the currently evaluated one.
+   * @param ctx query context
+   * @return previously evaluated profiled expression (can be {@code null})
+   */
+  private Prof enter(final QueryContext ctx) {
+    synchronized(this) {
+      calls++;
+    }
+    final Prof par = ctx.prof;
+    ctx.prof = this;
+    return par;
+  }
+
+  /**
+   * Records the time of an evaluation step and restores the previously
+   * evaluated profiled expression.
+   * @param ctx query context
+   * @param par previously evaluated profiled expression (can be {@code null})
+   * @param start start time
+   * @param it number of returned items
+   */
+  private void exit(final QueryContext ctx, final Prof par, final long start,
+      final long it) {
+    final long t = System.nanoTime() - start;
+    ctx.prof = par;
+    synchronized(this) {
+      time += t;
+      items += it;
+    }
+    if(par != null) {
+      synchronized(par) {
+        par.sub += t;
+      }
+    }
+  }
+
+  @Override
+  public long size() {
+    return expr.size();
+  }
+
+  @Override
+  public SeqType type() {
+    return expr.type();
+  }
+
+  @Override
+  public boolean iterable() {
+    return expr.iterable();
+  }
+
+  @Override
+  public boolean uses(final Use u) {
+    return expr.uses(u);
+  }
+
+  @Override
+  public int count(final Var v) {
+    return expr.count(v);
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return expr.removable(v);
+  }
+
+  @Override
+  public Expr remove(final Var v) {
+    return new Prof(expr.remove(v));
+  }
+
+  @Override
+  public boolean databases(final StringList db) {
+    return expr.databases(db);
+  }
+
+  @Override
+  public boolean isVacuous() {
+    return expr.isVacuous();
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    // create plan of the profiled expression and annotate its root element
+    final FElem tmp = new FElem(PLAN);
+    expr.plan(tmp);
+    final AxisMoreIter ai = tmp.children();
+    for(ANode n; (n = ai.next()) != null;) {
+      final FElem el = (FElem) n;
+      synchronized(this) {
+        el.add(new QNm(CALLS), Long.toString(calls));
+        el.add(new QNm(ITMS), Long.toString(items));
+        el.add(new QNm(TOTAL), ms(time));
+        el.add(new QNm(SLF), ms(Math.max(0, time - sub)));
+      }
+      plan.add(el);
+    }
+  }
+
+  /**
+   * Returns the specified time in milliseconds.
+   * @param ns nano seconds
+   * @return milliseconds, with two decimal places
+   */
+  private static String ms(final long ns) {
+    return Double.toString(ns / 10000 / 100d);
+  }
+
+  @Override
+  public String toString() {
+    return expr.toString();
+  }
+}
@@ -123,6 +123,13 @@ public final class Quantifier extends ParseExpr {
     return sat.databases(db);
   }
 
+  @Override
+  public Expr profile() {
+    for(final For f : fl) f.expr = f.expr.profile();
+    sat = sat.profile();
+    return super.profile();
+  }
+
   @Override
   public void plan(final FElem plan) {
     addPlan(plan, planElem(TYP, every ? EVERY : SOME), fl, sat);
@@ -4,8 +4,10 @@ import static org.basex.query.QueryText.*;
 
 import java.util.*;
 
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.iter.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
@@ -45,8 +47,70 @@ abstract class Set extends Arr {
   @Override
   public final NodeIter iter(final QueryContext ctx) throws QueryException {
     final Iter[] iter = new Iter[expr.length];
-    for(int e = 0; e != expr.length; ++e) iter[e] = ctx.iter(expr[e]);
-    return iterable ? iter(iter) : eval(iter).sort();
+    if(iterable) {
+      for(int e = 0; e != expr.length; ++e) iter[e] = ctx.iter(expr[e]);
+      return iter(iter);
+    }
+
+    // database nodes of a single database are combined via their pre values
+    final Value[] vals = new Value[expr.length];
+    Data data = null;
+    boolean db = true;
+    for(int e = 0; e != expr.length; ++e) {
+      vals[e] = ctx.value(expr[e]);
+      for(final Item it : vals[e]) {
+        if(!db) break;
+        if(it instanceof DBNode) {
+          final Data d = ((DBNode) it).data;
+          if(data == null) data = d;
+          db = d == data;
+        } else {
+          db = false;
+        }
+      }
+    }
+    if(db) {
+      NodeSeqBuilder nb = sort(vals[0]);
+      for(int e = 1; e != vals.length; ++e) nb = combine(nb, sort(vals[e]));
+      return nb;
+    }
+    for(int e = 0; e != expr.length; ++e) iter[e] = vals[e].iter();
+    return eval(iter).sort();
+  }
+
+  /**
+   * Sorts the database nodes of the specified value by their pre values, removes
+   * duplicates and merges their scores.
+   * @param val value with database nodes of a single database
+   * @return sorted nodes
+   */
+  private static NodeSeqBuilder sort(final Value val) {
+    final int s = (int) val.size();
+    final DBNode[] nodes = new DBNode[s];
+    int n = 0;
+    boolean sorted = true;
+    for(final Item it : val) {
+      nodes[n] = (DBNode) it;
+      if(n != 0 && nodes[n - 1].pre >= nodes[n].pre) sorted = false;
+      n++;
+    }
+    if(sorted) return new NodeSeqBuilder(nodes, s);
+
+    // sort primitive keys, composed of pre values and original positions
+    final long[] keys = new long[s];
+    for(int i = 0; i < s; i++) keys[i] = (long) nodes[i].pre << 32 | i;
+    Arrays.sort(keys);
+    final DBNode[] res = new DBNode[s];
+    n = 0;
+    for(final long k : keys) {
+      final DBNode nd = nodes[(int) k];
+      if(n != 0 && res[n - 1].pre == nd.pre) {
+        res[n - 1].score(Math.max(nd.score(), res[n - 1].score()));
+      } else {
+        res[n++] = nd;
+      }
+    }
+    return new NodeSeqBuilder(res, n);
   }
 
   /**
@@ -57,6 +121,16 @@ abstract class Set extends Arr {
    */
   protected abstract NodeSeqBuilder eval(final Iter[] iter) throws QueryException;
 
+  /**
+   * Combines two sorted and duplicate-free sequences of database nodes, which belong
+   * to the same database, by merging their pre values.
+   * @param nb1 first nodes
+   * @param nb2 second nodes
+   * @return resulting nodes
+   */
+  protected abstract NodeSeqBuilder combine(final NodeSeqBuilder nb1,
+      final NodeSeqBuilder nb2);
+
   /**
    * Evaluates the specified iterators in an iterative manner.
    * @param iter iterators
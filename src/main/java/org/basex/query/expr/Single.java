@@ -63,6 +63,12 @@ public abstract class Single extends ParseExpr {
     return expr.databases(db);
   }
 
+  @Override
+  public Expr profile() {
+    expr = expr.profile();
+    return super.profile();
+  }
+
   @Override
   public void plan(final FElem plan) {
     addPlan(plan, planElem(), expr);
@@ -17,7 +17,11 @@ import org.basex.util.*;
  */
 public final class Unary extends Single {
   /** Minus flag. */
-  private final boolean minus;
+  final boolean minus;
+  /** Evaluator for primitive values (assigned if the expression is hot). */
+  private PrimEval prim;
+  /** Number of evaluations. */
+  private int calls;
 
   /**
    * Constructor.
@@ -43,6 +47,12 @@ public final class Unary extends Single {
 
   @Override
   public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    if(calls < PrimEval.HOT && ++calls == PrimEval.HOT) prim = PrimEval.get(this);
+    if(prim != null) {
+      final Item it = prim.item(ctx, info);
+      if(it != null) return it;
+      prim = null;
+    }
     final Item it = expr.item(ctx, info);
     if(it == null) return null;
     final Type ip = it.type;
@@ -62,7 +72,7 @@ public final class Unary extends Single {
 
   @Override
   public void plan(final FElem plan) {
-    addPlan(plan, planElem(VAL, minus), expr);
+    addPlan(plan, planElem(VAL, minus, PRIM, prim != null ? Token.TRUE : null), expr);
   }
 
   @Override
@@ -49,6 +49,32 @@ public final class Union extends Set {
     return nc;
   }
 
+  @Override
+  protected NodeSeqBuilder combine(final NodeSeqBuilder nb1, final NodeSeqBuilder nb2) {
+    final ANode[] n1 = nb1.item, n2 = nb2.item;
+    final int s1 = (int) nb1.size(), s2 = (int) nb2.size();
+    final ANode[] nodes = new ANode[s1 + s2];
+    int i1 = 0, i2 = 0, s = 0;
+    while(i1 < s1 && i2 < s2) {
+      final ANode nd1 = n1[i1], nd2 = n2[i2];
+      final int d = ((DBNode) nd1).pre - ((DBNode) nd2).pre;
+      if(d <= 0) {
+        if(d == 0) {
+          nd1.score(Math.max(nd1.score(), nd2.score()));
+          i2++;
+        }
+        nodes[s++] = nd1;
+        i1++;
+      } else {
+        nodes[s++] = nd2;
+        i2++;
+      }
+    }
+    while(i1 < s1) nodes[s++] = n1[i1++];
+    while(i2 < s2) nodes[s++] = n2[i2++];
+    return new NodeSeqBuilder(nodes, s);
+  }
+
   @Override
   protected NodeIter iter(final Iter[] iter) {
     return new SetIter(iter) {
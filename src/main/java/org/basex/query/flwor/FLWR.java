@@ -2,20 +2,30 @@ package org.basex.query.flwor;
 
 import static org.basex.query.QueryText.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
 
 /**
  * FLWR clause.
  *
+ * <p>If the {@link Prop#PARALLEL} option is set, and if the expression
+ * neither performs updates nor keeps any other state, the input of the first
+ * for clause is split into partitions, which are evaluated by separate threads.
+ * The results are concatenated in the order of the partitions.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class FLWR extends GFLWOR {
+  /** Maximum number of threads (0: sequential evaluation). */
+  private int threads;
+
   /**
    * Constructor.
    * @param f variable inputs
@@ -40,11 +50,22 @@ public final class FLWR extends GFLWOR {
         return fl[0].expr;
       }
     }
+
+    // choose parallel evaluation
+    final int t = ctx.context.prop.num(Prop.PARALLEL);
+    if(t > 1 && parallel()) {
+      ctx.compInfo(OPTPARALLEL, t);
+      threads = t;
+    }
     return this;
   }
 
   @Override
-  public Iter iter(final QueryContext ctx) {
+  public Iter iter(final QueryContext ctx) throws QueryException {
+    // nested expressions are evaluated sequentially;
+    // full-text positions would be lost in other threads
+    if(threads != 0 && !ctx.forked && ctx.ftpos == null) return parallel(ctx);
+
     return new Iter() {
       private Iter[] iter;
       private Iter rtrn;
@@ -96,6 +117,104 @@ public final class FLWR extends GFLWOR {
     };
   }
 
+  /**
+   * Checks if the expression can be evaluated in parallel.
+   * @return result of check
+   */
+  private boolean parallel() {
+    if(!(fl[0] instanceof For) || ((For) fl[0]).score != null ||
+        uses(Use.UPD) || uses(Use.NDT)) return false;
+    // all clauses except for the first input will be evaluated by several threads
+    for(int f = 1; f < fl.length; f++) if(!parallel(fl[f])) return false;
+    return (where == null || parallel(where)) && parallel(ret);
+  }
+
+  /**
+   * Checks if the specified expression can be evaluated by several threads.
+   * @param e expression
+   * @return result of check
+   */
+  private static boolean parallel(final Expr e) {
+    return !e.uses(Use.CNS) && !e.uses(Use.STA);
+  }
+
+  /**
+   * Evaluates the expression in parallel.
+   * @param ctx query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  private ValueBuilder parallel(final QueryContext ctx) throws QueryException {
+    final Value input = ctx.value(fl[0].expr);
+    final long is = input.size();
+    final int n = (int) Math.min(threads, is);
+    if(n < 2) return partition(ctx, input, 0, is);
+
+    final Value[] parts = new Fork(n) {
+      @Override
+      protected Value eval(final QueryContext qc, final int p) throws QueryException {
+        return partition(qc, input, is * p / n, is * (p + 1) / n).value();
+      }
+    }.run(ctx, n);
+
+    // concatenate results
+    final ValueBuilder vb = new ValueBuilder();
+    for(final Value p : parts) vb.add(p);
+    return vb;
+  }
+
+  /**
+   * Evaluates the specified range of the input of the first for clause.
+   * @param ctx query context
+   * @param input input of the first for clause
+   * @param s first position
+   * @param e position after the last item
+   * @return results
+   * @throws QueryException query exception
+   */
+  private ValueBuilder partition(final QueryContext ctx, final Value input, final long s,
+      final long e) throws QueryException {
+
+    final For f = (For) fl[0];
+    final Var v = f.var.copy();
+    final Var p = f.pos != null ? f.pos.copy() : null;
+    final int vs = ctx.vars.size();
+    ctx.vars.add(v);
+    if(p != null) ctx.vars.add(p);
+
+    final ValueBuilder vb = new ValueBuilder().account(ctx.memory);
+    try {
+      for(long i = s; i < e; i++) {
+        ctx.checkStop();
+        v.bind(input.itemAt(i), ctx);
+        if(p != null) p.bind(Int.get(i + 1), ctx);
+        add(ctx, 1, vb);
+      }
+    } finally {
+      ctx.vars.size(vs);
+      vb.free();
+    }
+    return vb;
+  }
+
+  /**
+   * Evaluates the specified and all subsequent clauses and adds the results.
+   * @param ctx query context
+   * @param c clause position
+   * @param vb value builder
+   * @throws QueryException query exception
+   */
+  private void add(final QueryContext ctx, final int c, final ValueBuilder vb)
+      throws QueryException {
+
+    if(c == fl.length) {
+      if(where == null || where.ebv(ctx, info).bool(info)) vb.add(ctx.value(ret), info);
+    } else {
+      final Iter ir = ctx.iter(fl[c]);
+      while(ir.next() != null) add(ctx, c + 1, vb);
+    }
+  }
+
   @Override
   public Expr markTailCalls() {
     for(final ForLet f : fl) if(f instanceof For) return this;
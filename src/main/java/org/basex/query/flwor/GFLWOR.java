@@ -2,15 +2,12 @@ package org.basex.query.flwor;
 
 import static org.basex.query.QueryText.*;
 
-import java.util.*;
-
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
-import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
 import org.basex.query.value.type.*;
@@ -34,6 +31,8 @@ public class GFLWOR extends ParseExpr {
   private Order order;
   /** Group by clause. */
   private final Group group;
+  /** Maximum number of ordered tuples to be returned (0: all tuples). */
+  private int limit;
 
   /**
    * GFLWOR constructor.
@@ -172,6 +171,8 @@ public class GFLWOR extends ParseExpr {
         }
       }
     }
+    // replace aggregations of non-grouping variables
+    if(group != null) ret = group.aggregate(ctx, ret, order);
     type = SeqType.get(ret.type().type, size);
 
     compHoist(ctx);
@@ -293,23 +294,41 @@ public class GFLWOR extends ParseExpr {
     for(int f = 0; f < fl.length; ++f) iter[f] = ctx.iter(fl[f]);
 
     // evaluate pre grouping tuples
-    ArrayList<Item[]> keys = null;
-    ValueList vals = null;
-    if(order != null) {
-      keys = new ArrayList<Item[]>();
-      vals = new ValueList();
+    final OrderBuffer buf = order != null ? new OrderBuffer(order, ctx, limit) : null;
+    final GroupPartition gp = group != null ? group.init(order, ctx) : null;
+    boolean ok = false;
+    try {
+      iter(ctx, iter, 0, buf, gp);
+      ctx.vars.size(vs);
+
+      for(final ForLet f : fl) ctx.vars.add(f.var);
+
+      // order != null, otherwise it would have been handled in group
+      final Iter ir = gp != null ? gp.ret(ret, buf) : buf.iter();
+      ctx.vars.size(vs);
+      ok = true;
+      return ir;
+    } finally {
+      // delete temporary files of spilled groups
+      if(gp != null) gp.close();
+      // delete runs of the order by clause if the evaluation failed
+      if(!ok && buf != null) buf.close();
     }
-    if(group != null) group.init(order);
-    iter(ctx, iter, 0, keys, vals);
-    ctx.vars.size(vs);
-
-    for(final ForLet f : fl) ctx.vars.add(f.var);
+  }
 
-    // order != null, otherwise it would have been handled in group
-    final Iter ir = group != null ?
-        group.gp.ret(ctx, ret, keys, vals) : ctx.iter(order.set(keys, vals));
-    ctx.vars.size(vs);
-    return ir;
+  /**
+   * Limits the number of ordered tuples if only the first results of this
+   * expression will be requested. This way, the smallest tuples can be
+   * determined without sorting all tuples.
+   * @param k number of requested results
+   * @param ctx query context
+   */
+  public final void limit(final long k, final QueryContext ctx) {
+    // the first k tuples will only yield k results if each tuple yields a result
+    if(order == null || k < 1 || k >= Integer.MAX_VALUE / 2 || ret.type().mayBeZero() ||
+        limit != 0 && limit <= k) return;
+    ctx.compInfo(OPTTOPK, k);
+    limit = (int) k;
   }
 
   /**
@@ -317,23 +336,23 @@ public class GFLWOR extends ParseExpr {
    * @param ctx query context
    * @param it iterator
    * @param p variable position
-   * @param ks sort keys
-   * @param vs values to sort
+   * @param buf tuple buffer
+   * @param gp grouping partition (may be {@code null})
    * @throws QueryException query exception
    */
   private void iter(final QueryContext ctx, final Iter[] it, final int p,
-      final ArrayList<Item[]> ks, final ValueList vs) throws QueryException {
+      final OrderBuffer buf, final GroupPartition gp) throws QueryException {
 
     final boolean more = p + 1 != fl.length;
     while(it[p].next() != null) {
       if(more) {
-        iter(ctx, it, p + 1, ks, vs);
+        iter(ctx, it, p + 1, buf, gp);
       } else if(where == null || where.ebv(ctx, info).bool(info)) {
-        if(group != null) {
-          group.gp.add(ctx);
+        if(gp != null) {
+          gp.add();
         } else if(order != null) {
           // order by will be handled in group by otherwise
-          order.add(ctx, ret, ks, vs);
+          order.add(ctx, ret, buf);
         }
       }
     }
@@ -368,6 +387,15 @@ public class GFLWOR extends ParseExpr {
     return c + ret.count(v);
   }
 
+  /**
+   * Checks if the return clause is a node constructor. In this case, all returned
+   * nodes are created by this expression and not referenced elsewhere.
+   * @return result of check
+   */
+  public final boolean constructs() {
+    return ret instanceof CFrag;
+  }
+
   @Override
   public final boolean removable(final Var v) {
     for(final ForLet f : fl) if(!f.removable(v)) return false;
@@ -398,6 +426,14 @@ public class GFLWOR extends ParseExpr {
     return ret.isVacuous();
   }
 
+  @Override
+  public final Expr profile() {
+    for(final ForLet f : fl) f.expr = f.expr.profile();
+    if(where != null) where = where.profile();
+    ret = ret.profile();
+    return super.profile();
+  }
+
   @Override
   public final void plan(final FElem plan) {
     final FElem el = planElem();
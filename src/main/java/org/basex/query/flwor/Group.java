@@ -4,6 +4,7 @@ import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.node.*;
@@ -19,11 +20,15 @@ import org.basex.util.list.*;
  */
 public final class Group extends ParseExpr {
   /** Group by specification. */
-  private final GroupSpec[] groupby;
+  final GroupSpec[] groupby;
   /** Non-grouping variables. */
-  private final Var[][] nongroup;
-  /** Grouping partition. **/
-  GroupPartition gp;
+  final Var[][] nongroup;
+  /** Non-grouping variables that are evaluated for each tuple. */
+  final boolean[] eval;
+  /** Non-grouping variables whose values are cached for each group. */
+  final boolean[] cache;
+  /** Aggregations of non-grouping variables. */
+  GroupAggr[] aggs = {};
 
   /**
    * Constructor.
@@ -35,14 +40,64 @@ public final class Group extends ParseExpr {
     super(ii);
     groupby = gb;
     nongroup = ng;
+    final int nl = ng[0].length;
+    eval = new boolean[nl];
+    cache = new boolean[nl];
+    for(int n = 0; n < nl; n++) eval[n] = cache[n] = true;
   }
 
   /**
-   * Initializes the grouping partition.
+   * Creates a new grouping partition.
    * @param ob order by specifier
+   * @param ctx query context
+   * @return grouping partition
    */
-  void init(final Order ob) {
-    gp = new GroupPartition(groupby, nongroup, ob, info);
+  GroupPartition init(final Order ob, final QueryContext ctx) {
+    return new GroupPartition(this, ob, ctx);
+  }
+
+  /**
+   * Replaces aggregations of non-grouping variables in the return and order by
+   * clauses with running accumulators. A variable is only aggregated if all its
+   * references are arguments of {@code count}, {@code sum}, {@code avg},
+   * {@code min} or {@code max}; its values will then not be cached.
+   * @param ctx query context
+   * @param ret return clause
+   * @param ob order by clause (may be {@code null})
+   * @return new return clause
+   */
+  Expr aggregate(final QueryContext ctx, final Expr ret, final Order ob) {
+    Expr r = ret;
+    final Var[] ng = nongroup[1];
+    for(int n = 0; n < ng.length; n++) {
+      final Var v = ng[n];
+      int c = r.count(v), a = accumulable(r, v);
+      if(ob != null) {
+        c += ob.count(v);
+        for(final OrderBy o : ob.ob) {
+          if(o instanceof OrderByExpr) a += accumulable(((OrderByExpr) o).expr, v);
+        }
+      }
+      if(a != c) continue;
+
+      // variable is never referenced, or only aggregated
+      if(a != 0) {
+        ctx.compInfo(QueryText.OPTACCUM, v);
+        r = accumulate(r, n, ctx);
+        if(ob != null) {
+          for(final OrderBy o : ob.ob) {
+            if(o instanceof OrderByExpr) {
+              final OrderByExpr oe = (OrderByExpr) o;
+              oe.expr = accumulate(oe.expr, n, ctx);
+            }
+          }
+        }
+      } else {
+        eval[n] = false;
+      }
+      cache[n] = false;
+    }
+    return r;
   }
 
   @Override
@@ -105,6 +160,48 @@ public final class Group extends ParseExpr {
     addPlan(plan, planElem(), groupby);
   }
 
+  /**
+   * Returns the number of aggregations of a variable that can be replaced
+   * with running accumulators.
+   * @param e expression
+   * @param v variable
+   * @return number of aggregations
+   */
+  private static int accumulable(final Expr e, final Var v) {
+    if(e instanceof FNAggr && ((FNAggr) e).accumulates(v)) return 1;
+    if(e.count(v) == 0) return 0;
+    int c = 0;
+    if(e instanceof Arr) {
+      for(final Expr a : ((Arr) e).expr) c += accumulable(a, v);
+    } else if(e instanceof Single) {
+      c = accumulable(((Single) e).expr, v);
+    }
+    return c;
+  }
+
+  /**
+   * Replaces aggregations of a non-grouping variable with running accumulators.
+   * @param e expression
+   * @param n index of the non-grouping variable
+   * @param ctx query context
+   * @return new expression
+   */
+  private Expr accumulate(final Expr e, final int n, final QueryContext ctx) {
+    if(e instanceof FNAggr && ((FNAggr) e).accumulates(nongroup[1][n])) {
+      final GroupAggr ga = new GroupAggr((FNAggr) e, n, ctx);
+      aggs = Array.add(aggs, ga);
+      return ga;
+    }
+    if(e instanceof Arr) {
+      final Expr[] ex = ((Arr) e).expr;
+      for(int i = 0; i < ex.length; i++) ex[i] = accumulate(ex[i], n, ctx);
+    } else if(e instanceof Single) {
+      final Single s = (Single) e;
+      s.expr = accumulate(s.expr, n, ctx);
+    }
+    return e;
+  }
+
   @Override
   public String toString() {
     return new TokenBuilder(' ' + GROUP + ' ' + BY + ' ').
@@ -0,0 +1,98 @@
+package org.basex.query.flwor;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.func.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.util.*;
+
+/**
+ * Aggregation of a non-grouping variable. The result is computed by a
+ * running {@link Accumulator} while the tuples are grouped.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class GroupAggr extends Simple {
+  /** Aggregate function. */
+  final FNAggr func;
+  /** Index of the non-grouping variable. */
+  final int var;
+  /** Variable, which is bound to the accumulator of the current group. */
+  private final Var acc;
+
+  /**
+   * Constructor.
+   * @param f aggregate function
+   * @param v index of the non-grouping variable
+   * @param ctx query context
+   */
+  GroupAggr(final FNAggr f, final int v, final QueryContext ctx) {
+    super(f.info);
+    func = f;
+    var = v;
+    acc = ctx.uniqueVar(info, null);
+    type = f.type();
+  }
+
+  /**
+   * Binds the accumulator of the current group. The result will be computed when
+   * it is requested for the first time.
+   * @param a accumulator
+   * @param ctx query context
+   * @return variable
+   * @throws QueryException query exception
+   */
+  Var bind(final Accumulator a, final QueryContext ctx) throws QueryException {
+    return acc.copy().bind(new Result(a), ctx);
+  }
+
+  @Override
+  public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    return ctx.vars.get(acc).item(ctx, ii);
+  }
+
+  @Override
+  public boolean uses(final Use u) {
+    return u == Use.VAR;
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(), func);
+  }
+
+  @Override
+  public String toString() {
+    return func.toString();
+  }
+
+  /**
+   * Result of an accumulator.
+   */
+  private final class Result extends Simple {
+    /** Accumulator. */
+    private final Accumulator accum;
+
+    /**
+     * Constructor.
+     * @param a accumulator
+     */
+    Result(final Accumulator a) {
+      super(GroupAggr.this.info);
+      accum = a;
+    }
+
+    @Override
+    public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+      return accum.result();
+    }
+
+    @Override
+    public String toString() {
+      return GroupAggr.this.toString();
+    }
+  }
+}
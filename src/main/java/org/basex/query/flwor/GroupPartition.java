@@ -2,14 +2,19 @@ package org.basex.query.flwor;
 
 import static org.basex.query.util.Err.*;
 
+import java.io.*;
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
-import org.basex.query.value.item.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
 import org.basex.util.list.*;
@@ -17,14 +22,28 @@ import org.basex.util.list.*;
 /**
  * Stores the grouping for a group by clause.
  *
+ * <p>If the estimated size of the groups exceeds the memory budget
+ * (see {@link Prop#GROUPMEM}), tuples of new groups are distributed to
+ * temporary partitions by their hash values. The partitions are grouped
+ * one by one after the groups in main memory have been returned.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Michael Seiferle
  */
 final class GroupPartition {
+  /** Number of partitions for spilled tuples. */
+  private static final int PARTS = 16;
+  /** Maximum number of recursive partitioning steps. */
+  private static final int LEVELS = 4;
+
   /** Input information. */
   private final InputInfo info;
   /** Order by specifier. */
   private final Order order;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Group by clause. */
+  private final Group group;
 
   /** Grouping variables. */
   private final GroupSpec[] gv;
@@ -35,38 +54,75 @@ final class GroupPartition {
   private final ArrayList<GroupNode> part = new ArrayList<GroupNode>();
   /** Resulting sequence for non-grouping variables. */
   private final ArrayList<ValueBuilder[]> items;
+  /** Accumulators for aggregated non-grouping variables. */
+  private final ArrayList<Accumulator[]> accs;
   /** HashValue, position (with overflow bucket). */
   private final IntMap<IntList> hashes = new IntMap<IntList>();
 
+  /** Memory budget (in bytes). */
+  private final long budget;
+  /** Estimated memory consumption of the groups. */
+  private long mem;
+  /** Partitioning level. */
+  private final int level;
+  /** Partitions with spilled tuples ({@code null} if nothing was spilled). */
+  private IOFile[] files;
+  /** Serializers of the partitions, which keep the items referenced by their tuples. */
+  private Spill[] spills;
+  /** Output streams of the partitions. */
+  private DataOutput[] outs;
+  /** Number of tuples in the partitions. */
+  private int[] sizes;
+
   /**
    * Sets up an empty partitioning.
    * Sets up the ordering scheme.
-   * @param groupby grouping variables
-   * @param ng non-grouping variables
+   * @param g group by clause
    * @param ob order by specifier
-   * @param ii input info
+   * @param c query context
    */
-  GroupPartition(final GroupSpec[] groupby, final Var[][] ng, final Order ob,
-      final InputInfo ii) {
-    gv = groupby;
-    ngv = ng;
+  GroupPartition(final Group g, final Order ob, final QueryContext c) {
+    group = g;
+    gv = g.groupby;
+    ngv = g.nongroup;
     order = ob;
-    items = ngv[0].length != 0 ? new ArrayList<ValueBuilder[]>() : null;
-    info = ii;
+    ctx = c;
+    info = g.info;
+    boolean cache = false;
+    for(final boolean b : g.cache) cache |= b;
+    items = cache ? new ArrayList<ValueBuilder[]>() : null;
+    accs = g.aggs.length != 0 ? new ArrayList<Accumulator[]>() : null;
+    final long m = c.context.prop.num(Prop.GROUPMEM);
+    budget = m > 0 ? m << 20 : Runtime.getRuntime().maxMemory() >> 2;
+    level = 0;
+  }
+
+  /**
+   * Sets up an empty partitioning for the tuples of a spilled partition.
+   * The items that are referenced by the partition are subtracted from the budget.
+   * @param gp parent partitioning
+   * @param refs estimated memory consumption of the referenced items
+   */
+  private GroupPartition(final GroupPartition gp, final long refs) {
+    group = gp.group;
+    gv = gp.gv;
+    ngv = gp.ngv;
+    order = gp.order;
+    ctx = gp.ctx;
+    info = gp.info;
+    items = gp.items != null ? new ArrayList<ValueBuilder[]>() : null;
+    accs = gp.accs != null ? new ArrayList<Accumulator[]>() : null;
+    budget = Math.max(gp.budget - refs, gp.budget / PARTS);
+    level = gp.level + 1;
   }
 
   /**
    * Adds the current grouping variable binding to the partitioning scheme.
    * Then the resulting non-grouping variable item sequence is built for each
    * candidate.
-   * Searches the known partition hashes {@link GroupPartition#hashes} for
-   * potential matches and checks them for equivalence.
-   * The GroupNode candidate is ignored if it exists otherwise added to the
-   * partitioning scheme.
-   * @param ctx QueryContext
    * @throws QueryException exception
    */
-  void add(final QueryContext ctx) throws QueryException  {
+  void add() throws QueryException  {
     final int gl = gv.length;
     final Value[] vals = new Value[gl];
     for(int i = 0; i < gl; i++) {
@@ -75,6 +131,65 @@ final class GroupPartition {
       vals[i] = val;
     }
 
+    final int ngl = ngv[0].length;
+    final Value[] ng = new Value[ngl];
+    for(int i = 0; i < ngl; ++i) {
+      if(group.eval[i]) ng[i] = ctx.value(ctx.vars.get(ngv[0][i]));
+    }
+    add(vals, ng);
+  }
+
+  /**
+   * Returns grouped variables.
+   * @param ret return expression
+   * @param buf tuple buffer (may be {@code null})
+   * @return iterator on the result set
+   * @throws QueryException query exception
+   */
+  Iter ret(final Expr ret, final OrderBuffer buf) throws QueryException {
+    final ValueBuilder vb = new ValueBuilder();
+    ret(ret, buf, vb);
+    return order != null ? buf.iter() : vb;
+  }
+
+  /**
+   * Closes the partitions with spilled tuples and deletes their temporary files.
+   * This method must be called if the tuples have been grouped, or if the evaluation
+   * has been aborted.
+   */
+  void close() {
+    if(files == null) return;
+    for(int p = 0; p < PARTS; p++) {
+      if(outs[p] != null) {
+        try {
+          outs[p].close();
+        } catch(final IOException ex) {
+          Util.debug(ex);
+        }
+        outs[p] = null;
+      }
+      if(files[p] != null) {
+        files[p].delete();
+        files[p] = null;
+      }
+      free(p);
+    }
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Adds a tuple to the partitioning scheme.
+   * Searches the known partition hashes {@link GroupPartition#hashes} for
+   * potential matches and checks them for equivalence.
+   * The GroupNode candidate is ignored if it exists otherwise added to the
+   * partitioning scheme, or spilled if the memory budget has been exceeded.
+   * @param vals grouping values
+   * @param ng non-grouping values (entries are {@code null} if not evaluated)
+   * @throws QueryException exception
+   */
+  private void add(final Value[] vals, final Value[] ng) throws QueryException  {
+    final long m = mem;
     final GroupNode gn = new GroupNode(info, vals);
     final int h = gn.hash();
     final IntList ps = hashes.get(h);
@@ -89,6 +204,11 @@ final class GroupPartition {
       }
     }
     if(p < 0) {
+      if(files != null) {
+        spill(h, vals, ng);
+        return;
+      }
+
       p = part.size();
       part.add(gn);
 
@@ -98,42 +218,110 @@ final class GroupPartition {
         hashes.add(h, pos);
       }
       pos.add(p);
+
+      if(items != null) items.add(new ValueBuilder[ng.length]);
+      if(accs != null) {
+        final GroupAggr[] aggs = group.aggs;
+        final Accumulator[] acc = new Accumulator[aggs.length];
+        for(int a = 0; a < acc.length; a++) acc[a] = new Accumulator(aggs[a].func, ctx);
+        accs.add(acc);
+      }
+      mem += 64 + (group.aggs.length << 6);
+      for(final Value v : vals) mem += Memory.size(v);
     }
 
-    final int ngl = ngv[0].length;
+    // adds the current non-grouping variable bindings to the p-th partition.
+    if(items != null) {
+      final ValueBuilder[] sq = items.get(p);
+      for(int i = 0; i < ng.length; ++i) {
+        if(!group.cache[i]) continue;
+        ValueBuilder vb = sq[i];
+        if(vb == null) {
+          vb = new ValueBuilder();
+          sq[i] = vb;
+        }
+        vb.add(ng[i]);
+        mem += Memory.size(ng[i]);
+      }
+    }
+    // updates the running aggregations
+    if(accs != null) {
+      final GroupAggr[] aggs = group.aggs;
+      final Accumulator[] acc = accs.get(p);
+      for(int a = 0; a < acc.length; a++) {
+        final Value v = ng[aggs[a].var];
+        final long s = v.size();
+        for(long i = 0; i < s; i++) acc[a].defer(v.itemAt(i));
+      }
+    }
 
-    // no non-grouping variables exist
-    if(ngl == 0) return;
+    ctx.memory.add(mem - m, info);
 
-    // adds the current non-grouping variable bindings to the p-th partition.
-    if(p == items.size()) items.add(new ValueBuilder[ngl]);
-    final ValueBuilder[] sq = items.get(p);
+    // spill tuples of new groups if the memory budget is exceeded
+    if(files == null && mem > budget && level < LEVELS) {
+      files = new IOFile[PARTS];
+      outs = new DataOutput[PARTS];
+      sizes = new int[PARTS];
+      spills = new Spill[PARTS];
+    }
+  }
 
-    for(int i = 0; i < ngl; ++i) {
-      ValueBuilder vb = sq[i];
-      final Value result = ctx.value(ctx.vars.get(ngv[0][i]));
-      if(vb == null) {
-        vb = new ValueBuilder();
-        sq[i] = vb;
+  /**
+   * Writes a tuple to a temporary partition.
+   * @param h hash value of the grouping values
+   * @param vals grouping values
+   * @param ng non-grouping values
+   * @throws QueryException query exception
+   */
+  private void spill(final int h, final Value[] vals, final Value[] ng)
+      throws QueryException {
+    // choose different hash bits for each partitioning level
+    final int p = h * (0x9E3779B9 + (level << 5)) >>> 28;
+    try {
+      if(outs[p] == null) {
+        files[p] = Spill.file("group");
+        outs[p] = new DataOutput(files[p]);
+        spills[p] = new Spill();
+      }
+      final DataOutput out = outs[p];
+      final Spill spill = spills[p];
+      final long r = spill.memory();
+      for(final Value v : vals) spill.write(out, v);
+      for(int i = 0; i < ng.length; ++i) {
+        if(group.eval[i]) spill.write(out, ng[i]);
       }
-      vb.add(result);
+      sizes[p]++;
+      // referenced items remain accounted until the partition has been grouped
+      ctx.memory.add(spill.memory() - r, info);
+    } catch(final IOException ex) {
+      throw BASX_GENERIC.thrw(info, ex);
     }
   }
 
   /**
-   * Returns grouped variables.
-   * @param ctx query context
+   * Releases the items that are referenced by the specified partition.
+   * @param p partition
+   */
+  private void free(final int p) {
+    final Spill spill = spills[p];
+    if(spill == null) return;
+    ctx.memory.free(spill.memory());
+    spill.clear();
+    spills[p] = null;
+  }
+
+  /**
+   * Returns grouped variables, followed by the groups of the spilled tuples.
    * @param ret return expression
-   * @param ks key list
-   * @param vs value list
-   * @return iterator on the result set
+   * @param buf tuple buffer (may be {@code null})
+   * @param vb value builder
    * @throws QueryException query exception
    */
-  Iter ret(final QueryContext ctx, final Expr ret, final ArrayList<Item[]> ks,
-      final ValueList vs) throws QueryException {
-    final ValueBuilder vb = new ValueBuilder();
+  private void ret(final Expr ret, final OrderBuffer buf, final ValueBuilder vb)
+      throws QueryException {
 
     for(int i = 0; i < part.size(); ++i) {
+      final int vs = ctx.vars.size();
       final GroupNode gn = part.get(i);
       for(int j = 0; j < gv.length; ++j)
         ctx.vars.add(gv[j].var.copy().bind(gn.vals[j], ctx));
@@ -141,13 +329,55 @@ final class GroupPartition {
       if(items != null) {
         final ValueBuilder[] ii = items.get(i);
         for(int j = 0; j < ii.length; ++j) {
-          ctx.vars.add(ngv[1][j].copy().bind(ii[j].value(), ctx));
+          if(ii[j] != null) ctx.vars.add(ngv[1][j].copy().bind(ii[j].value(), ctx));
         }
       }
+      if(accs != null) {
+        final Accumulator[] acc = accs.get(i);
+        for(int a = 0; a < acc.length; a++) ctx.vars.add(group.aggs[a].bind(acc[a], ctx));
+      }
       if(order != null) {
-        order.add(ctx, ret, ks, vs);
+        order.add(ctx, ret, buf);
       } else vb.add(ctx.value(ret));
+      ctx.vars.size(vs);
+    }
+    ctx.memory.free(mem);
+    if(files == null) return;
+
+    // group spilled tuples
+    final int gl = gv.length, ngl = ngv[0].length;
+    for(int p = 0; p < PARTS; p++) {
+      if(files[p] == null) continue;
+      final Spill spill = spills[p];
+      final GroupPartition gp = new GroupPartition(this, spill.memory());
+      try {
+        try {
+          outs[p].close();
+          outs[p] = null;
+          final DataInput in = new DataInput(files[p]);
+          try {
+            for(int t = 0; t < sizes[p]; t++) {
+              final Value[] vals = new Value[gl];
+              for(int i = 0; i < gl; i++) vals[i] = spill.value(in);
+              final Value[] ng = new Value[ngl];
+              for(int i = 0; i < ngl; i++) {
+                if(group.eval[i]) ng[i] = spill.value(in);
+              }
+              gp.add(vals, ng);
+            }
+          } finally {
+            in.close();
+            files[p].delete();
+            files[p] = null;
+          }
+        } catch(final IOException ex) {
+          throw BASX_GENERIC.thrw(info, ex);
+        }
+        gp.ret(ret, buf, vb);
+      } finally {
+        gp.close();
+        free(p);
+      }
     }
-    return order != null ? ctx.iter(order.set(ks, vs)) : vb;
   }
 }
@@ -59,18 +59,21 @@ public final class Let extends ForLet {
   @Override
   public Iter iter(final QueryContext ctx) {
     final Var vr = var.copy();
+    // evaluate the bound value on demand if it may not be completely consumed
+    final boolean lazy = !score && vr.type == null && LazyIter.lazy(expr);
 
     return new Iter() {
       /** Variable stack size. */
       private int vs;
       /** Iterator flag. */
       private boolean more;
+      /** Estimated memory consumption of the bound value. */
+      private long mem;
 
       @Override
       public Item next() throws QueryException {
         if(!more) {
           vs = ctx.vars.size();
-          final Value v;
           if(score) {
             // assign average score value
             double s = 0;
@@ -80,11 +83,15 @@ public final class Let extends ForLet {
               s += it.score();
               ++c;
             }
-            v = Dbl.get(Scoring.let(s, c));
+            ctx.vars.add(vr.bind(Dbl.get(Scoring.let(s, c)), ctx));
+          } else if(lazy) {
+            ctx.vars.add(vr.bindLazy(expr, ctx));
           } else {
-            v = ctx.value(expr);
+            final Value v = ctx.value(expr);
+            mem = Memory.size(v);
+            ctx.memory.add(mem, info);
+            ctx.vars.add(vr.bind(v, ctx));
           }
-          ctx.vars.add(vr.bind(v, ctx));
           more = true;
           return Bln.TRUE;
         }
@@ -107,6 +114,9 @@ public final class Let extends ForLet {
       public boolean reset() {
         if(more) {
           ctx.vars.size(vs);
+          if(lazy) vr.free();
+          ctx.memory.free(mem);
+          mem = 0;
           more = false;
         }
         return true;
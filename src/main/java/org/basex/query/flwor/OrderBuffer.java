@@ -0,0 +1,608 @@
+package org.basex.query.flwor;
+
+import static org.basex.query.util.Err.*;
+import static org.basex.util.Array.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class buffers and sorts the tuples of an order by clause.
+ *
+ * <p>Tuples are cached in main memory. If their estimated size exceeds the
+ * memory budget (see {@link Prop#ORDERMEM}), they are sorted and written to a
+ * temporary run. Eventually, all runs are merged. Items that cannot be written
+ * to disk, such as constructed nodes or function items, remain in main memory
+ * and are referenced by the runs. As the position of a tuple is its last sort
+ * key (see {@link OrderByStable}), the merged result is stable.</p>
+ *
+ * <p>If only the first results are requested, the smallest tuples are kept in
+ * a bounded heap, and all other tuples are discarded. As soon as a sort key is
+ * found that is not comparable with the previous keys, all remaining tuples
+ * will be cached and sorted.</p>
+ *
+ * <p>All runs are deleted when the last tuple has been returned, or when the buffer
+ * is closed. If the result is not completely consumed, the buffer is closed together
+ * with the query (see {@link QueryResources#close()}).</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class OrderBuffer implements Closeable {
+  /** Maximum number of runs that are merged at the same time. */
+  private static final int MERGE = 64;
+  /** Order by clause. */
+  private final Order order;
+  /** Memory budget (in bytes). */
+  private final long budget;
+  /** Maximum number of tuples to be returned (0: all tuples). */
+  private final int limit;
+  /** Heap with the smallest tuples (top-k evaluation), or {@code null}. */
+  private MinHeap<Item[], Value> heap;
+  /** First non-empty sort keys of the top-k evaluation. */
+  private final Item[] firsts;
+  /** Memory accounting of the query. */
+  private final Memory memory;
+  /** Query resources. */
+  private final QueryResources resources;
+
+  /** Sort keys of the cached tuples. */
+  private ArrayList<Item[]> keys = new ArrayList<Item[]>();
+  /** Values of the cached tuples. */
+  private ValueList values = new ValueList();
+  /** Estimated memory consumption of the cached tuples. */
+  private long mem;
+  /** Total number of tuples. */
+  private int size;
+
+  /** Temporary runs. */
+  private final ArrayList<IOFile> runs = new ArrayList<IOFile>();
+  /** Number of tuples in the temporary runs. */
+  private final IntList sizes = new IntList();
+  /** Serializer for the items of the runs. */
+  private final Spill spill = new Spill();
+  /** All temporary files that have not been deleted yet. */
+  private final ArrayList<IOFile> files = new ArrayList<IOFile>();
+  /** Runs that are currently opened. */
+  private final ArrayList<Run> open = new ArrayList<Run>();
+
+  /**
+   * Constructor.
+   * @param o order by clause
+   * @param ctx query context
+   * @param l maximum number of tuples to be returned (0: all tuples)
+   */
+  OrderBuffer(final Order o, final QueryContext ctx, final int l) {
+    order = o;
+    final long m = ctx.context.prop.num(Prop.ORDERMEM);
+    budget = m > 0 ? m << 20 : Runtime.getRuntime().maxMemory() >> 2;
+    limit = l;
+    memory = ctx.memory;
+    resources = ctx.resource;
+    firsts = new Item[o.ob.length];
+    // the largest tuple is located at the top of the heap
+    heap = l == 0 ? null : new MinHeap<Item[], Value>(l + 1, new Comparator<Item[]>() {
+      @Override
+      public int compare(final Item[] a, final Item[] b) {
+        try {
+          return order.diff(b, a);
+        } catch(final QueryException ex) {
+          throw new QueryRTException(ex);
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the total number of tuples.
+   * @return number of tuples
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Adds a tuple. The value is only evaluated if the tuple may be returned.
+   * @param k sort keys
+   * @param e expression that yields the value
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  void add(final Item[] k, final Expr e, final QueryContext ctx) throws QueryException {
+    if(heap == null) {
+      add(k, ctx.value(e));
+      return;
+    }
+
+    size++;
+    if(!comparable(k)) {
+      // sort all remaining tuples
+      try {
+        while(!heap.isEmpty()) {
+          final Item[] mk = heap.minKey();
+          cache(mk, heap.removeMin());
+        }
+      } catch(final QueryRTException ex) {
+        throw ex.wrapped();
+      }
+      heap = null;
+      cache(k, ctx.value(e));
+      return;
+    }
+    // skip tuples that are larger than the k smallest tuples
+    if(heap.size() == limit && order.diff(k, heap.minKey()) > 0) return;
+    try {
+      heap.insert(k, ctx.value(e));
+      if(heap.size() > limit) heap.removeMin();
+    } catch(final QueryRTException ex) {
+      throw ex.wrapped();
+    }
+  }
+
+  /**
+   * Returns an iterator on the sorted values.
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  Iter iter() throws QueryException {
+    if(heap != null) {
+      final Value[] vs = new Value[heap.size()];
+      try {
+        for(int i = vs.length; --i >= 0;) vs[i] = heap.removeMin();
+      } catch(final QueryRTException ex) {
+        throw ex.wrapped();
+      }
+      return iter(vs);
+    }
+    if(runs.isEmpty()) {
+      final int[] o = sort();
+      final Value[] vs = new Value[o.length];
+      for(int i = 0; i < o.length; i++) vs[i] = values.get(o[i]);
+      memory.free(mem);
+      return iter(vs);
+    }
+
+    if(!keys.isEmpty()) spill();
+    try {
+      // reduce number of runs to be opened at the same time
+      while(runs.size() > MERGE) {
+        final Run[] rs = new Run[MERGE];
+        int s = 0;
+        for(int r = 0; r < MERGE; r++) {
+          rs[r] = new Run(runs.remove(0), sizes.get(r));
+          s += rs[r].left;
+        }
+        final int[] tmp = Arrays.copyOfRange(sizes.toArray(), MERGE, sizes.size());
+        sizes.reset();
+        for(final int t : tmp) sizes.add(t);
+
+        final IOFile file = file();
+        final DataOutput out = new DataOutput(file);
+        try {
+          final Merger m = new Merger(rs);
+          for(Run r; (r = m.next()) != null;) write(out, r.key, r.value);
+        } finally {
+          out.close();
+        }
+        runs.add(file);
+        sizes.add(s);
+      }
+
+      final Run[] rs = new Run[runs.size()];
+      for(int r = 0; r < rs.length; r++) rs[r] = new Run(runs.get(r), sizes.get(r));
+      runs.clear();
+      final Merger m = new Merger(rs);
+      return new Iter() {
+        /** Current iterator. */
+        Iter ir;
+
+        @Override
+        public Item next() throws QueryException {
+          while(true) {
+            if(ir != null) {
+              final Item i = ir.next();
+              if(i != null) return i;
+              ir = null;
+            } else {
+              Run r = null;
+              try {
+                r = m.next();
+              } catch(final IOException ex) {
+                throw BASX_GENERIC.thrw(order.info, ex);
+              } finally {
+                if(r == null) close();
+              }
+              if(r == null) return null;
+              ir = r.value.iter();
+            }
+          }
+        }
+      };
+    } catch(final IOException ex) {
+      close();
+      throw BASX_GENERIC.thrw(order.info, ex);
+    } catch(final QueryException ex) {
+      close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Closes all opened runs and deletes all temporary files.
+   * This method may be called several times.
+   */
+  @Override
+  public void close() {
+    for(final Run r : open) {
+      try {
+        r.in.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    open.clear();
+    for(final IOFile f : files) f.delete();
+    files.clear();
+    runs.clear();
+    memory.free(spill.memory());
+    spill.clear();
+    resources.removeTemp(this);
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Adds a tuple to the cached tuples.
+   * @param k sort keys
+   * @param v value
+   * @throws QueryException query exception
+   */
+  private void add(final Item[] k, final Value v) throws QueryException {
+    size++;
+    cache(k, v);
+  }
+
+  /**
+   * Caches a tuple and writes all cached tuples to a temporary run if the memory
+   * budget is exceeded.
+   * @param k sort keys
+   * @param v value
+   * @throws QueryException query exception
+   */
+  private void cache(final Item[] k, final Value v) throws QueryException {
+    keys.add(k);
+    values.add(v);
+
+    long m = 32 + (k.length << 3) + Memory.size(v);
+    for(final Item it : k) m += Memory.size(it);
+    memory.add(m, order.info);
+    mem += m;
+    // referenced items remain in main memory; runs must be small enough to be merged
+    if(mem > Math.max(budget - spill.memory(), budget / MERGE)) spill();
+  }
+
+  /**
+   * Checks if the specified sort keys are comparable with the first non-empty keys.
+   * Otherwise, the keys are compared in both directions, which raises the errors
+   * that would be raised by sorting all tuples.
+   * @param k sort keys
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  private boolean comparable(final Item[] k) throws QueryException {
+    boolean c = true;
+    for(int i = 0; i < k.length; i++) {
+      final Item it = k[i], f = firsts[i];
+      if(it == null) continue;
+      if(f == null) {
+        firsts[i] = it;
+      } else if(!f.comparable(it)) {
+        f.diff(order.info, it);
+        it.diff(order.info, f);
+        c = false;
+      }
+    }
+    return c;
+  }
+
+  /**
+   * Returns an iterator on the specified values.
+   * @param vs values
+   * @return iterator
+   */
+  private static Iter iter(final Value[] vs) {
+    return new Iter() {
+      /** Current position. */
+      int pos = -1;
+      /** Current iterator. */
+      Iter ir;
+
+      @Override
+      public Item next() throws QueryException {
+        while(true) {
+          if(ir != null) {
+            final Item i = ir.next();
+            if(i != null) return i;
+            ir = null;
+          } else {
+            if(++pos == vs.length) return null;
+            ir = vs[pos].iter();
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Creates a temporary file. The buffer will be closed together with the query
+   * if it has not been closed before.
+   * @return file
+   * @throws IOException I/O exception
+   */
+  private IOFile file() throws IOException {
+    if(files.isEmpty()) resources.addTemp(this);
+    final IOFile file = Spill.file("order");
+    files.add(file);
+    return file;
+  }
+
+  /**
+   * Sorts the cached tuples and writes them to a temporary run.
+   * @throws QueryException query exception
+   */
+  private void spill() throws QueryException {
+    final int[] o = sort();
+    final long refs = spill.memory();
+    try {
+      final IOFile file = file();
+      final DataOutput out = new DataOutput(file);
+      try {
+        for(final int i : o) write(out, keys.get(i), values.get(i));
+      } finally {
+        out.close();
+      }
+      runs.add(file);
+      sizes.add(o.length);
+    } catch(final IOException ex) {
+      close();
+      throw BASX_GENERIC.thrw(order.info, ex);
+    }
+    keys = new ArrayList<Item[]>();
+    values = new ValueList();
+    // referenced items remain accounted until the buffer is closed
+    memory.free(mem - (spill.memory() - refs));
+    mem = 0;
+  }
+
+  /**
+   * Writes a tuple.
+   * @param out output stream
+   * @param k sort keys
+   * @param v value
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out, final Item[] k, final Value v)
+      throws IOException {
+    for(final Item it : k) spill.write(out, it);
+    spill.write(out, v);
+  }
+
+  /**
+   * Sorts the cached tuples.
+   * @return sorted tuple positions
+   * @throws QueryException query exception
+   */
+  private int[] sort() throws QueryException {
+    final int end = values.size();
+    final int[] o = new int[end];
+    for(int i = 0; i < end; ++i) o[i] = i;
+    sort(o, 0, end);
+    return o;
+  }
+
+  /**
+   * Recursively sorts the specified items.
+   * The algorithm is derived from {@link Arrays#sort(int[])}.
+   * @param o order array
+   * @param s start position
+   * @param e end position
+   * @throws QueryException query exception
+   */
+  private void sort(final int[] o, final int s, final int e) throws QueryException {
+    if(e < 7) {
+      for(int i = s; i < e + s; ++i)
+        for(int j = i; j > s && d(o, j - 1, j) > 0; j--) swap(o, j, j - 1);
+      return;
+    }
+
+    int m = s + (e >> 1);
+    if(e > 7) {
+      int l = s;
+      int n = s + e - 1;
+      if(e > 40) {
+        final int k = e >>> 3;
+        l = m(o, l, l + k, l + (k << 1));
+        m = m(o, m - k, m, m + k);
+        n = m(o, n - (k << 1), n - k, n);
+      }
+      m = m(o, l, m, n);
+    }
+
+    final Item[] im = keys.get(o[m]);
+
+    int a = s, b = a, c = s + e - 1, d = c;
+    while(true) {
+      while(b <= c) {
+        final int h = order.diff(keys.get(o[b]), im);
+        if(h > 0) break;
+        if(h == 0) swap(o, a++, b);
+        ++b;
+      }
+      while(c >= b) {
+        final int h = order.diff(keys.get(o[c]), im);
+        if(h < 0) break;
+        if(h == 0) swap(o, c, d--);
+        --c;
+      }
+      if(b > c) break;
+      swap(o, b++, c--);
+    }
+
+    int k;
+    final int n = s + e;
+    k = Math.min(a - s, b - a);
+    swap(o, s, b - k, k);
+    k = Math.min(d - c, n - d - 1);
+    swap(o, b, n - k, k);
+
+    if((k = b - a) > 1) sort(o, s, k);
+    if((k = d - c) > 1) sort(o, n - k, k);
+  }
+
+  /**
+   * Returns the difference of two entries (part of QuickSort).
+   * @param o order array
+   * @param a first position
+   * @param b second position
+   * @return result
+   * @throws QueryException query exception
+   */
+  private int d(final int[] o, final int a, final int b) throws QueryException {
+    return order.diff(keys.get(o[a]), keys.get(o[b]));
+  }
+
+  /**
+   * Returns the index of the median of the three indexed integers.
+   * @param o order array
+   * @param a first offset
+   * @param b second offset
+   * @param c thirst offset
+   * @return median
+   * @throws QueryException query exception
+   */
+  private int m(final int[] o, final int a, final int b, final int c)
+      throws QueryException {
+    final Item[] ka = keys.get(o[a]), kb = keys.get(o[b]), kc = keys.get(o[c]);
+    return d(ka, kb) < 0 ? d(kb, kc) < 0 ? b : d(ka, kc) < 0 ? c : a :
+        d(kb, kc) > 0 ? b : d(ka, kc) > 0 ? c : a;
+  }
+
+  /**
+   * Returns the difference of two sort keys.
+   * @param a first keys
+   * @param b second keys
+   * @return result
+   * @throws QueryException query exception
+   */
+  private int d(final Item[] a, final Item[] b) throws QueryException {
+    return order.diff(a, b);
+  }
+
+  /**
+   * A temporary run, which is read tuple by tuple.
+   */
+  private final class Run {
+    /** Run file. */
+    private final IOFile file;
+    /** Input stream. */
+    private final DataInput in;
+    /** Number of remaining tuples. */
+    int left;
+    /** Sort keys of the current tuple. */
+    Item[] key;
+    /** Value of the current tuple. */
+    Value value;
+
+    /**
+     * Constructor.
+     * @param f run file
+     * @param s number of tuples
+     * @throws IOException I/O exception
+     */
+    Run(final IOFile f, final int s) throws IOException {
+      file = f;
+      in = new DataInput(f);
+      left = s;
+      open.add(this);
+    }
+
+    /**
+     * Reads the next tuple. The run is deleted if no more tuples exist.
+     * @return {@code true} if a tuple was read
+     * @throws IOException I/O exception
+     */
+    boolean next() throws IOException {
+      if(left == 0) {
+        in.close();
+        file.delete();
+        open.remove(this);
+        files.remove(file);
+        return false;
+      }
+      left--;
+      final Item[] k = new Item[order.ob.length];
+      for(int i = 0; i < k.length; i++) k[i] = spill.read(in);
+      key = k;
+      value = spill.value(in);
+      return true;
+    }
+  }
+
+  /**
+   * Merges the tuples of several runs.
+   */
+  private final class Merger {
+    /** Heap with the current tuples of all runs. */
+    private final MinHeap<Item[], Run> heap;
+    /** Error raised while comparing keys. */
+    QueryException error;
+    /** Run that was returned last. */
+    private Run last;
+
+    /**
+     * Constructor.
+     * @param rs runs
+     * @throws IOException I/O exception
+     */
+    Merger(final Run[] rs) throws IOException {
+      heap = new MinHeap<Item[], Run>(rs.length, new Comparator<Item[]>() {
+        @Override
+        public int compare(final Item[] a, final Item[] b) {
+          try {
+            return order.diff(a, b);
+          } catch(final QueryException ex) {
+            if(error == null) error = ex;
+            return 0;
+          }
+        }
+      });
+      for(final Run r : rs) if(r.next()) heap.insert(r.key, r);
+    }
+
+    /**
+     * Returns the run with the next tuple, or {@code null}.
+     * @return run
+     * @throws IOException I/O exception
+     * @throws QueryException query exception
+     */
+    Run next() throws IOException, QueryException {
+      if(last != null && last.next()) heap.insert(last.key, last);
+      last = heap.isEmpty() ? null : heap.removeMin();
+      if(error != null) throw error;
+      return last;
+    }
+  }
+}
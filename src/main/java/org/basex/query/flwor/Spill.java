@@ -0,0 +1,236 @@
+package org.basex.query.flwor;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * This class writes items of FLWOR clauses to temporary files and reads them back.
+ * Database nodes, strings, untyped atomic values, booleans, numbers, durations and
+ * dates are serialized. All other items, such as constructed nodes, function items or
+ * items with a score value, remain in main memory and are referenced by the files.
+ * The memory consumption of the referenced items is estimated, as it cannot be
+ * released by writing the files.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Spill {
+  /** Item kind: empty item. */
+  private static final int NULL = 0;
+  /** Item kind: reference to an item in main memory. */
+  private static final int REF = 1;
+  /** Item kind: database node. */
+  private static final int DBNODE = 2;
+  /** Item kind: integer. */
+  private static final int INT = 3;
+  /** Item kind: double. */
+  private static final int DBL = 4;
+  /** Item kind: string. */
+  private static final int STR = 5;
+  /** Item kind: untyped atomic value. */
+  private static final int ATM = 6;
+  /** Item kind: boolean. */
+  private static final int BLN = 7;
+  /** Item kind: other atomic value, which is restored from its string. */
+  private static final int ATOM = 8;
+  /** Atomic types. */
+  private static final AtomType[] TYPES = AtomType.values();
+
+  /** Items that are referenced by the files. */
+  private final ArrayList<Item> refs = new ArrayList<Item>();
+  /** Positions of the referenced items. */
+  private final IdentityHashMap<Item, Integer> ids = new IdentityHashMap<Item, Integer>();
+  /** Databases that are referenced by the files. */
+  private final ArrayList<Data> datas = new ArrayList<Data>();
+  /** Estimated memory consumption of the referenced items. */
+  private long mem;
+
+  /**
+   * Creates a temporary file.
+   * @param prefix file prefix
+   * @return file
+   * @throws IOException I/O exception
+   */
+  static IOFile file(final String prefix) throws IOException {
+    return new IOFile(File.createTempFile(prefix, IO.BASEXSUFFIX));
+  }
+
+  /**
+   * Returns the estimated memory consumption of the items that are referenced
+   * by the files.
+   * @return number of bytes
+   */
+  long memory() {
+    return mem;
+  }
+
+  /**
+   * Removes all references to items and databases.
+   */
+  void clear() {
+    refs.clear();
+    ids.clear();
+    datas.clear();
+    mem = 0;
+  }
+
+  /**
+   * Writes a value.
+   * @param out output stream
+   * @param v value
+   * @throws IOException I/O exception
+   */
+  void write(final DataOutput out, final Value v) throws IOException {
+    final long s = v.size();
+    if(s > Integer.MAX_VALUE) throw new IOException("Value is too large to be written: " +
+        s + " items.");
+    out.writeNum((int) s);
+    for(long i = 0; i < s; i++) write(out, v.itemAt(i));
+  }
+
+  /**
+   * Reads a value.
+   * @param in input stream
+   * @return value
+   * @throws IOException I/O exception
+   */
+  Value value(final DataInput in) throws IOException {
+    final int s = in.readNum();
+    if(s == 0) return Empty.SEQ;
+    if(s == 1) return read(in);
+    final ValueBuilder vb = new ValueBuilder(s);
+    for(int i = 0; i < s; i++) vb.add(read(in));
+    return vb.value();
+  }
+
+  /**
+   * Writes a single item.
+   * @param out output stream
+   * @param it item (may be {@code null})
+   * @throws IOException I/O exception
+   */
+  void write(final DataOutput out, final Item it) throws IOException {
+    if(it == null) {
+      out.write(NULL);
+    } else if(it.score() != 0) {
+      ref(out, it);
+    } else if(it instanceof DBNode) {
+      final DBNode n = (DBNode) it;
+      int d = datas.indexOf(n.data);
+      if(d == -1) {
+        d = datas.size();
+        datas.add(n.data);
+      }
+      out.write(DBNODE);
+      out.writeNum(d);
+      out.writeNum(n.pre);
+    } else if(it.type == AtomType.ITR && it instanceof Int) {
+      out.write(INT);
+      out.write8(((Int) it).itr());
+    } else if(it.type == AtomType.DBL && it instanceof Dbl) {
+      out.write(DBL);
+      out.write8(Double.doubleToRawLongBits(((Dbl) it).dbl()));
+    } else if(it.type == AtomType.STR && it instanceof Str) {
+      out.write(STR);
+      out.writeToken(((Str) it).string());
+    } else if(it instanceof Atm) {
+      out.write(ATM);
+      out.writeToken(((Atm) it).string(null));
+    } else if(it instanceof Bln) {
+      out.write(BLN);
+      out.write(((Bln) it).bool(null) ? 1 : 0);
+    } else if(it instanceof ANum && it.type instanceof AtomType) {
+      atom(out, it, ((ANum) it).string());
+    } else if(it instanceof ADate && it.type instanceof AtomType) {
+      atom(out, it, ((ADate) it).string(null));
+    } else if(it instanceof Dur && it.type instanceof AtomType) {
+      atom(out, it, ((Dur) it).string(null));
+    } else {
+      ref(out, it);
+    }
+  }
+
+  /**
+   * Reads a single item.
+   * @param in input stream
+   * @return item (may be {@code null})
+   * @throws IOException I/O exception
+   */
+  Item read(final DataInput in) throws IOException {
+    final int k = in.read();
+    switch(k) {
+      case NULL:   return null;
+      case REF:    return refs.get(in.readNum());
+      case DBNODE: return new DBNode(datas.get(in.readNum()), in.readNum());
+      case INT:    return Int.get(in.read8());
+      case DBL:    return Dbl.get(Double.longBitsToDouble(in.read8()));
+      case STR:    return Str.get(in.readToken());
+      case ATM:    return new Atm(in.readToken());
+      case BLN:    return Bln.get(in.read() == 1);
+      case ATOM:   return atom(TYPES[in.readNum()], in.readToken());
+      default:     throw Util.notexpected(k);
+    }
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Writes a reference to an item, which is kept in main memory.
+   * @param out output stream
+   * @param it item
+   * @throws IOException I/O exception
+   */
+  private void ref(final DataOutput out, final Item it) throws IOException {
+    Integer id = ids.get(it);
+    if(id == null) {
+      id = refs.size();
+      ids.put(it, id);
+      refs.add(it);
+      mem += Memory.size(it) + 8;
+    }
+    out.write(REF);
+    out.writeNum(id);
+  }
+
+  /**
+   * Writes an atomic value, which will be restored from its string representation.
+   * @param out output stream
+   * @param it item
+   * @param value string representation
+   * @throws IOException I/O exception
+   */
+  private static void atom(final DataOutput out, final Item it, final byte[] value)
+      throws IOException {
+    out.write(ATOM);
+    out.writeNum(((AtomType) it.type).ordinal());
+    out.writeToken(value);
+  }
+
+  /**
+   * Restores an atomic value from its string representation.
+   * @param type type
+   * @param value string representation
+   * @return item
+   */
+  private static Item atom(final AtomType type, final byte[] value) {
+    try {
+      return type.cast(Str.get(value), null, null);
+    } catch(final QueryException ex) {
+      throw Util.notexpected(ex);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package org.basex.query.func;
+
+import static org.basex.query.util.Err.*;
+import static org.basex.query.value.type.AtomType.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.CmpV.OpV;
+import org.basex.query.value.item.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Running accumulator for the aggregate functions {@code fn:count},
+ * {@code fn:sum}, {@code fn:avg}, {@code fn:min} and {@code fn:max}.
+ * Items are added one by one, and only the intermediate result is kept.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Accumulator {
+  /** Aggregate function. */
+  private final FNAggr func;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Input info. */
+  private final InputInfo info;
+  /** Comparison operator (min, max). */
+  private final OpV cmp;
+
+  /** Number of added items. */
+  private long count;
+  /** Intermediate result. */
+  private Item rs;
+  /** Type of the first item (sum, avg). */
+  private Type first;
+  /** Numeric summation (sum, avg). */
+  private boolean num;
+  /** Summation of dayTimeDuration items (sum, avg). */
+  private boolean dtd;
+  /** Summation of yearMonthDuration items (sum, avg). */
+  private boolean ymd;
+  /** Deferred error. */
+  private QueryException error;
+
+  /**
+   * Constructor.
+   * @param f aggregate function
+   * @param c query context
+   */
+  public Accumulator(final FNAggr f, final QueryContext c) {
+    func = f;
+    ctx = c;
+    info = f.info;
+    cmp = f.sig == Function.MIN ? OpV.GT : f.sig == Function.MAX ? OpV.LT : null;
+  }
+
+  /**
+   * Adds an item.
+   * @param it item
+   * @throws QueryException query exception
+   */
+  public void add(final Item it) throws QueryException {
+    switch(func.sig) {
+      case COUNT:
+        break;
+      case SUM:
+      case AVG:
+        sum(it);
+        break;
+      default:
+        minmax(it);
+    }
+    ++count;
+  }
+
+  /**
+   * Adds an item. A raised error is deferred until the result is requested.
+   * @param it item
+   */
+  public void defer(final Item it) {
+    if(error != null) return;
+    try {
+      add(it);
+    } catch(final QueryException ex) {
+      error = ex;
+    }
+  }
+
+  /**
+   * Returns the result of the aggregation.
+   * @return result (may be {@code null})
+   * @throws QueryException query exception
+   */
+  public Item result() throws QueryException {
+    if(error != null) throw error;
+    switch(func.sig) {
+      case COUNT:
+        return Int.get(count);
+      case SUM:
+        return count != 0 ? rs : func.expr.length == 2 ?
+          func.expr[1].item(ctx, info) : Int.get(0);
+      case AVG:
+        return count != 0 ? Calc.DIV.ev(info, rs, Int.get(count)) : null;
+      default:
+        return rs;
+    }
+  }
+
+  /**
+   * Adds an item to the sum.
+   * @param it item
+   * @throws QueryException query exception
+   */
+  private void sum(final Item it) throws QueryException {
+    if(count == 0) {
+      rs = it.type.isUntyped() ? Dbl.get(it.string(info), info) : it;
+      first = it.type;
+      num = rs instanceof ANum;
+      dtd = !num && rs.type == AtomType.DTD;
+      ymd = !num && !dtd && rs.type == AtomType.YMD;
+      if(!num && (!(rs instanceof Dur) || rs.type == DUR))
+        SUMTYPE.thrw(info, func, rs.type);
+      return;
+    }
+
+    if(it.type.isNumberOrUntyped()) {
+      if(!num) FUNDUR.thrw(info, func, it.type);
+    } else {
+      if(num) FUNNUM.thrw(info, func, it.type);
+      if(dtd && it.type != AtomType.DTD || ymd && it.type != AtomType.YMD)
+        FUNCMP.thrw(info, func, first, it.type);
+    }
+    rs = Calc.PLUS.ev(info, rs, it);
+  }
+
+  /**
+   * Compares an item with the current minimum or maximum.
+   * @param it item
+   * @throws QueryException query exception
+   */
+  private void minmax(final Item it) throws QueryException {
+    if(count == 0) {
+      // check if first item is comparable
+      cmp.eval(info, it, it);
+      rs = it instanceof AStr || it instanceof ADate || it instanceof Dur ||
+        it.type == AtomType.BLN || !it.type.isUntyped() ? it : DBL.cast(it, ctx, info);
+      return;
+    }
+
+    // strings
+    if(rs instanceof AStr) {
+      if(!(it instanceof AStr)) FUNCMP.thrw(info, func, rs.type, it.type);
+      if(cmp.eval(info, rs, it)) rs = it;
+      return;
+    }
+    // dates, durations and booleans
+    if(rs instanceof ADate || rs instanceof Dur || rs.type == AtomType.BLN) {
+      if(rs.type != it.type) FUNCMP.thrw(info, func, rs.type, it.type);
+      if(cmp.eval(info, rs, it)) rs = it;
+      return;
+    }
+    // numbers
+    final Type t = numType(rs, it);
+    if(cmp.eval(info, rs, it) || Double.isNaN(it.dbl(info))) rs = it;
+    if(rs.type != t) rs = t.cast(rs, ctx, info);
+  }
+
+  /**
+   * Returns the numeric type with the highest precedence.
+   * @param r result item
+   * @param i new item
+   * @return result
+   * @throws QueryException query exception
+   */
+  private Type numType(final Item r, final Item i) throws QueryException {
+    final Type tr = r.type, ti = i.type;
+    if(ti.isUntyped()) return DBL;
+    if(!(i instanceof ANum)) FUNCMP.thrw(info, func, tr, ti);
+
+    if(tr == ti) return tr;
+    if(tr == DBL || ti == DBL) return DBL;
+    if(tr == FLT || ti == FLT) return FLT;
+    if(tr == DEC || ti == DEC) return DEC;
+    return ITR;
+  }
+}
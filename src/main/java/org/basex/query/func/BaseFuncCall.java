@@ -34,7 +34,8 @@ public final class BaseFuncCall extends UserFuncCall {
     try {
       do {
         // cache arguments, evaluate function and reset variable scope
-        final VarStack cs = addArgs(ctx, args);
+        final Var[] as = args;
+        final VarStack cs = addArgs(ctx, as);
         ctx.tailCalls = 0;
         try {
           return fun.item(ctx, ii);
@@ -43,6 +44,7 @@ public final class BaseFuncCall extends UserFuncCall {
           args = c.getArgs();
         } finally {
           ctx.vars.reset(cs);
+          free(as);
         }
       } while(true);
     } finally {
@@ -59,7 +61,8 @@ public final class BaseFuncCall extends UserFuncCall {
     try {
       do {
         // cache arguments, evaluate function and reset variable scope
-        final VarStack cs = addArgs(ctx, args);
+        final Var[] as = args;
+        final VarStack cs = addArgs(ctx, as);
         ctx.tailCalls = 0;
         try {
           return ctx.value(fun);
@@ -68,6 +71,7 @@ public final class BaseFuncCall extends UserFuncCall {
           args = c.getArgs();
         } finally {
           ctx.vars.reset(cs);
+          free(as);
         }
       } while(true);
     } finally {
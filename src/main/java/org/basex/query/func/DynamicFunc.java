@@ -88,6 +88,12 @@ public final class DynamicFunc extends Arr {
     return fit;
   }
 
+  @Override
+  public boolean uses(final Use u) {
+    // the evaluated function code is unknown at compile time
+    return u == Use.STA && !(expr[expr.length - 1] instanceof FItem) || super.uses(u);
+  }
+
   @Override
   public void plan(final FElem plan) {
     addPlan(plan, planElem());
@@ -1,14 +1,12 @@
 package org.basex.query.func;
 
-import static org.basex.query.util.Err.*;
-import static org.basex.query.value.type.AtomType.*;
-
 import org.basex.query.*;
 import org.basex.query.expr.*;
-import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
-import org.basex.query.value.type.*;
+import org.basex.query.value.seq.*;
 import org.basex.util.*;
 
 /**
@@ -42,16 +40,12 @@ public final class FNAggr extends StandardFunc {
         }
         return Int.get(c);
       case MIN:
-        return minmax(iter, OpV.GT, ctx);
       case MAX:
-        return minmax(iter, OpV.LT, ctx);
+        if(expr.length == 2) checkColl(expr[1], ctx);
+        return aggregate(iter, ctx);
       case SUM:
-        Item it = iter.next();
-        return it != null ? sum(iter, it, false) :
-          expr.length == 2 ? expr[1].item(ctx, info) : Int.get(0);
       case AVG:
-        it = iter.next();
-        return it == null ? null : sum(iter, it, true);
+        return aggregate(iter, ctx);
       default:
         return super.item(ctx, ii);
     }
@@ -71,98 +65,54 @@ public final class FNAggr extends StandardFunc {
   }
 
   /**
-   * Sums up the specified item(s).
-   * @param iter iterator
-   * @param it first item
-   * @param avg calculate average
-   * @return summed up item
-   * @throws QueryException query exception
+   * Checks if this function aggregates the items of the specified variable,
+   * and if the aggregation can be computed by an {@link Accumulator}.
+   * @param v variable
+   * @return result of check
    */
-  private Item sum(final Iter iter, final Item it, final boolean avg)
-      throws QueryException {
-
-    Item rs = it.type.isUntyped() ? Dbl.get(it.string(info), info) : it;
-    final boolean n = rs instanceof ANum;
-    final boolean dtd = !n && rs.type == AtomType.DTD;
-    final boolean ymd = !n && !dtd && rs.type == AtomType.YMD;
-    if(!n && (!(rs instanceof Dur) || rs.type == DUR)) SUMTYPE.thrw(info, this, rs.type);
-
-    int c = 1;
-    for(Item i; (i = iter.next()) != null;) {
-      if(i.type.isNumberOrUntyped()) {
-        if(!n) FUNDUR.thrw(info, this, i.type);
-      } else {
-        if(n) FUNNUM.thrw(info, this, i.type);
-        if(dtd && i.type != AtomType.DTD || ymd && i.type != AtomType.YMD)
-          FUNCMP.thrw(info, this, it.type, i.type);
-      }
-      rs = Calc.PLUS.ev(info, rs, i);
-      ++c;
-    }
-    return avg ? Calc.DIV.ev(info, rs, Int.get(c)) : rs;
+  public boolean accumulates(final Var v) {
+    return expr[0] instanceof VarRef && ((VarRef) expr[0]).var.is(v) &&
+      (expr.length == 1 || sig == Function.SUM && expr[1].isValue());
   }
 
   /**
-   * Returns a minimum or maximum item.
-   * @param iter values to be compared
-   * @param cmp comparator
+   * Aggregates the specified items.
+   * @param iter items to be aggregated
    * @param ctx query context
    * @return resulting item
    * @throws QueryException query exception
    */
-  private Item minmax(final Iter iter, final OpV cmp, final QueryContext ctx)
-      throws QueryException {
-
-    if(expr.length == 2) checkColl(expr[1], ctx);
-
-    Item rs = iter.next();
-    if(rs == null) return null;
-
-    // check if first item is comparable
-    cmp.eval(info, rs, rs);
-
-    // strings
-    if(rs instanceof AStr) {
-      for(Item it; (it = iter.next()) != null;) {
-        if(!(it instanceof AStr)) FUNCMP.thrw(info, this, rs.type, it.type);
-        if(cmp.eval(info, rs, it)) rs = it;
-      }
-      return rs;
-    }
-    // dates, durations and booleans
-    if(rs instanceof ADate || rs instanceof Dur || rs.type == AtomType.BLN) {
-      for(Item it; (it = iter.next()) != null;) {
-        if(rs.type != it.type) FUNCMP.thrw(info, this, rs.type, it.type);
-        if(cmp.eval(info, rs, it)) rs = it;
-      }
-      return rs;
+  private Item aggregate(final Iter iter, final QueryContext ctx) throws QueryException {
+    if(iter instanceof ValueIter) {
+      final Item it = aggregate(((ValueIter) iter).value());
+      if(it != null) return it;
     }
-    // numbers
-    if(rs.type.isUntyped()) rs = DBL.cast(rs, ctx, info);
-    for(Item it; (it = iter.next()) != null;) {
-      final Type t = numType(rs, it);
-      if(cmp.eval(info, rs, it) || Double.isNaN(it.dbl(info))) rs = it;
-      if(rs.type != t) rs = t.cast(rs, ctx, info);
-    }
-    return rs;
+    final Accumulator acc = new Accumulator(this, ctx);
+    for(Item it; (it = iter.next()) != null;) acc.add(it);
+    return acc.result();
   }
 
   /**
-   * Returns the numeric type with the highest precedence.
-   * @param r result item
-   * @param i new item
-   * @return result
+   * Aggregates the primitive values of an integer, double or range sequence.
+   * @param v value
+   * @return resulting item, or {@code null} if the items must be aggregated one by one
    * @throws QueryException query exception
    */
-  private Type numType(final Item r, final Item i) throws QueryException {
-    final Type tr = r.type, ti = i.type;
-    if(ti.isUntyped()) return DBL;
-    if(!(i instanceof ANum)) FUNCMP.thrw(info, this, tr, ti);
-
-    if(tr == ti) return tr;
-    if(tr == DBL || ti == DBL) return DBL;
-    if(tr == FLT || ti == FLT) return FLT;
-    if(tr == DEC || ti == DEC) return DEC;
-    return ITR;
+  private Item aggregate(final Value v) throws QueryException {
+    final boolean max = sig == Function.MAX, sum = sig == Function.SUM || sig == Function.AVG;
+    final Item it;
+    if(v instanceof IntSeq) {
+      final IntSeq is = (IntSeq) v;
+      it = sum ? is.sum() : is.minmax(max);
+    } else if(v instanceof DblSeq) {
+      final DblSeq ds = (DblSeq) v;
+      it = sum ? ds.sum() : ds.minmax(max);
+    } else if(v instanceof RangeSeq) {
+      final RangeSeq rs = (RangeSeq) v;
+      it = sum ? rs.sum() : Int.get(max ? rs.max() : rs.min());
+    } else {
+      return null;
+    }
+    return it == null || sig != Function.AVG ? it : Calc.DIV.ev(info, it, Int.get(v.size()));
   }
 }
@@ -256,6 +256,6 @@ public final class FNFunc extends StandardFunc {
   @Override
   public boolean uses(final Use u) {
     return u == Use.CTX && oneOf(sig, PARTIAL_APPLY, FUNCTION_LOOKUP) ||
-        u == Use.X30 || super.uses(u);
+        u == Use.X30 || u == Use.STA || super.uses(u);
   }
 }
@@ -41,6 +41,8 @@ public final class FNHof extends StandardFunc {
       case _HOF_UNTIL:      return until(ctx).iter();
       case _HOF_TOP_K_BY:   return topKBy(ctx).iter();
       case _HOF_TOP_K_WITH: return topKWith(ctx).iter();
+      case _HOF_PARALLEL_MAP:
+      case _HOF_PARALLEL_FILTER: return parallel(ctx);
       default:              return super.iter(ctx);
     }
   }
@@ -55,6 +57,8 @@ public final class FNHof extends StandardFunc {
       case _HOF_CONST:      return ctx.value(expr[0]);
       case _HOF_TOP_K_BY:   return topKBy(ctx);
       case _HOF_TOP_K_WITH: return topKWith(ctx);
+      case _HOF_PARALLEL_MAP:
+      case _HOF_PARALLEL_FILTER: return parallel(ctx).value();
       default:              return super.value(ctx);
     }
   }
@@ -186,6 +190,55 @@ public final class FNHof extends StandardFunc {
     return Seq.get(arr, arr.length);
   }
 
+  /**
+   * Maps a function onto a sequence of items, or filters the items, by evaluating
+   * the function in several threads. The results are returned in input order.
+   * Sequences with more than {@link Integer#MAX_VALUE} items are evaluated
+   * sequentially and lazily.
+   * @param ctx query context
+   * @return resulting sequence
+   * @throws QueryException query exception
+   */
+  private Iter parallel(final QueryContext ctx) throws QueryException {
+    final FItem f = withArity(0, 1, ctx);
+    final Value v = ctx.value(expr[1]);
+    final int t = threads(2, ctx);
+    final long s = v.size();
+    final boolean filter = sig == _HOF_PARALLEL_FILTER;
+    if(s > Integer.MAX_VALUE) {
+      final Iter xs = v.iter();
+      return new Iter() {
+        /** Results. */
+        Iter ys = Empty.ITER;
+
+        @Override
+        public Item next() throws QueryException {
+          do {
+            final Item it = ys.next();
+            if(it != null) return it;
+            final Item x = xs.next();
+            if(x == null) return null;
+            if(!filter) ys = f.invIter(ctx, info, x);
+            else if(checkBln(checkNoEmpty(f.invItem(ctx, info, x)), ctx)) return x;
+          } while(true);
+        }
+      };
+    }
+
+    final Value[] res = new Fork((int) s) {
+      @Override
+      protected Value eval(final QueryContext qc, final int i) throws QueryException {
+        final Item it = v.itemAt(i);
+        if(!filter) return f.invValue(qc, info, it);
+        return checkBln(checkNoEmpty(f.invItem(qc, info, it)), qc) ? it : Empty.SEQ;
+      }
+    }.run(ctx, Fork.parallel(f) ? t : 1);
+
+    final ValueBuilder vb = new ValueBuilder();
+    for(final Value r : res) vb.add(r);
+    return vb;
+  }
+
   /**
    * Gets a comparator from a less-than predicate as function item.
    * The {@link Comparator#compare(Object, Object)} method throws a
@@ -235,6 +288,7 @@ public final class FNHof extends StandardFunc {
 
   @Override
   public boolean uses(final Use u) {
-    return sig == Function.PARTIAL_APPLY && u == Use.CTX || u == Use.X30 || super.uses(u);
+    return sig == Function.PARTIAL_APPLY && u == Use.CTX || u == Use.X30 ||
+        u == Use.STA || super.uses(u);
   }
 }
@@ -89,11 +89,26 @@ public final class FNMap extends StandardFunc {
     if(expr.length == 0) return Map.EMPTY;
     if(expr.length == 2) checkColl(expr[1], ctx);
 
-    Map map = Map.EMPTY;
+    // the bindings of the third and all subsequent maps are collected by a builder
+    Map map = Map.EMPTY, next = null;
+    MapBuilder mb = null;
     final Iter maps = expr[0].iter(ctx);
-    for(Item m; (m = maps.next()) != null;)
-      map = map.addAll(checkMap(m), ii);
-    return map;
+    for(Item it; (it = maps.next()) != null;) {
+      final Map m = checkMap(it);
+      if(map == Map.EMPTY) {
+        map = m;
+      } else if(next == null) {
+        next = m;
+      } else {
+        if(mb == null) {
+          mb = new MapBuilder();
+          mb.add(next);
+        }
+        mb.add(m);
+      }
+    }
+    if(mb != null) next = mb.finish(ii);
+    return next == null ? map : map.addAll(next, ii);
   }
 
   /**
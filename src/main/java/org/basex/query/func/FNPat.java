@@ -235,12 +235,14 @@ public final class FNPat extends StandardFunc {
     final TokenBuilder tb = new TokenBuilder(pat);
     if(mod != null) tb.add(0).add(mod);
     final byte[] key = tb.finish();
-    Pattern p = patterns.get(key);
-    if(p == null) {
-      p = RegExParser.parse(pat, mod, ctx.sc.xquery3, info);
-      patterns.add(key, p);
+    synchronized(patterns) {
+      Pattern p = patterns.get(key);
+      if(p == null) {
+        p = RegExParser.parse(pat, mod, ctx.sc.xquery3, info);
+        patterns.add(key, p);
+      }
+      return p;
     }
-    return p;
   }
 
   @Override
@@ -7,6 +7,7 @@ import org.basex.query.expr.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
 import org.basex.util.*;
 
 /**
@@ -42,6 +43,7 @@ public final class FNProf extends StandardFunc {
       case _PROF_CURRENT_MS: return Int.get(System.currentTimeMillis());
       case _PROF_CURRENT_NS: return Int.get(System.nanoTime());
       case _PROF_DUMP:       return dump(ctx);
+      case _PROF_PROFILE:    return profile(ctx);
       default:               return super.item(ctx, ii);
     }
   }
@@ -54,6 +56,7 @@ public final class FNProf extends StandardFunc {
           Token.token(expr[0].toString()), ctx);
       return expr[0];
     }
+    if(sig == Function._PROF_PROFILE) expr[0] = expr[0].profile();
     return e;
   }
 
@@ -148,6 +151,21 @@ public final class FNProf extends StandardFunc {
     };
   }
 
+  /**
+   * Evaluates the specified expression and returns its query plan, which is
+   * annotated with the profiling results of all subexpressions.
+   * @param ctx query context
+   * @return query plan
+   * @throws QueryException query exception
+   */
+  private Item profile(final QueryContext ctx) throws QueryException {
+    final Iter ir = ctx.iter(expr[0]);
+    while(ir.next() != null) ctx.checkStop();
+    final FElem plan = new FElem(QueryText.PLAN);
+    expr[0].plan(plan);
+    return plan;
+  }
+
   /**
    * Sleeps for the specified number of milliseconds.
    * @param ctx query context
@@ -161,6 +179,7 @@ public final class FNProf extends StandardFunc {
 
   @Override
   public boolean uses(final Use u) {
-    return u == Use.NDT || super.uses(u);
+    return u == Use.NDT || u == Use.CNS && sig == Function._PROF_PROFILE ||
+        super.uses(u);
   }
 }
@@ -10,6 +10,7 @@ import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.expr.*;
+import org.basex.query.flwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
@@ -144,6 +145,18 @@ public final class FNSeq extends StandardFunc {
       return cmpDist(ctx);
     }
 
+    // only sort the smallest tuples of an ordered flwor expression
+    if(expr[0] instanceof GFLWOR) {
+      final GFLWOR fl = (GFLWOR) expr[0];
+      if(sig == Function.HEAD) {
+        fl.limit(1, ctx);
+      } else if(sig == Function.SUBSEQUENCE && expr.length == 3 &&
+          expr[1] instanceof Int && expr[2] instanceof Int) {
+        final long s = ((Int) expr[1]).itr(), l = ((Int) expr[2]).itr();
+        if(l > 0 && l < Integer.MAX_VALUE) fl.limit(Math.max(s, 1) + l - 1, ctx);
+      }
+    }
+
     // all other types will return existing types
     Occ o = Occ.ZERO_MORE;
     // at most one returned item
@@ -232,6 +245,10 @@ public final class FNSeq extends StandardFunc {
   private Iter indexOf(final QueryContext ctx) throws QueryException {
     final Item it = checkItem(expr[1], ctx);
     if(expr.length == 3) checkColl(expr[2], ctx);
+    // strings and integers are directly compared
+    final boolean str = it.type.isStringOrUntyped(), itr = it instanceof Int;
+    final byte[] s = str ? it.string(info) : null;
+    final long l = itr ? it.itr(info) : 0;
 
     return new Iter() {
       final Iter ir = expr[0].iter(ctx);
@@ -243,7 +260,11 @@ public final class FNSeq extends StandardFunc {
           final Item i = ir.next();
           if(i == null) return null;
           ++c;
-          if(i.comparable(it) && OpV.EQ.eval(info, i, it)) return Int.get(c);
+          final boolean eq;
+          if(itr && i instanceof Int) eq = ((Int) i).itr() == l;
+          else if(str && i.type.isStringOrUntyped()) eq = Token.eq(i.string(info), s);
+          else eq = i.comparable(it) && OpV.EQ.eval(info, i, it);
+          if(eq) return Int.get(c);
         }
       }
     };
@@ -11,7 +11,10 @@ import org.basex.io.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.type.*;
 import org.basex.util.*;
 
 /**
@@ -37,6 +40,7 @@ public final class FNXQuery extends StandardFunc {
       case _XQUERY_EVAL:   return eval(ctx).iter();
       case _XQUERY_INVOKE: return invoke(ctx).iter();
       case _XQUERY_TYPE:   return value(ctx).iter();
+      case _XQUERY_FORK_JOIN: return forkJoin(ctx).iter();
       default:             return super.iter(ctx);
     }
   }
@@ -47,6 +51,7 @@ public final class FNXQuery extends StandardFunc {
       case _XQUERY_EVAL:   return eval(ctx);
       case _XQUERY_INVOKE: return invoke(ctx);
       case _XQUERY_TYPE:   return comp(ctx).value(ctx);
+      case _XQUERY_FORK_JOIN: return forkJoin(ctx);
       default:             return super.value(ctx);
     }
   }
@@ -116,8 +121,42 @@ public final class FNXQuery extends StandardFunc {
     }
   }
 
+  /**
+   * Evaluates the specified functions in several threads and returns the
+   * concatenated results.
+   * @param ctx query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  private Value forkJoin(final QueryContext ctx) throws QueryException {
+    final Value v = ctx.value(expr[0]);
+    final int s = (int) v.size();
+    final FItem[] funcs = new FItem[s];
+    boolean par = true;
+    for(int f = 0; f < s; f++) {
+      final Item it = v.itemAt(f);
+      if(!(it instanceof FItem) || ((FItem) it).arity() != 0)
+        Err.type(this, FuncType.arity(0), it);
+      funcs[f] = (FItem) it;
+      par &= Fork.parallel(funcs[f]);
+    }
+    final int t = threads(1, ctx);
+
+    final Value[] res = new Fork(s) {
+      @Override
+      protected Value eval(final QueryContext qc, final int f) throws QueryException {
+        return funcs[f].invValue(qc, info);
+      }
+    }.run(ctx, par ? t : 1);
+
+    final ValueBuilder vb = new ValueBuilder();
+    for(final Value r : res) vb.add(r);
+    return vb.value();
+  }
+
   @Override
   public boolean uses(final Use u) {
-    return u == Use.NDT && oneOf(sig, _XQUERY_EVAL, _XQUERY_INVOKE) || super.uses(u);
+    return u == Use.NDT && oneOf(sig, _XQUERY_EVAL, _XQUERY_INVOKE) ||
+        u == Use.STA && sig == _XQUERY_FORK_JOIN || super.uses(u);
   }
 }
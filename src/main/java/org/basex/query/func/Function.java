@@ -785,6 +785,12 @@ public enum Function {
   /** XQuery function. */
   _HOF_TOP_K_WITH(FNHof.class, "top-k-with(seq,less-than,k)", ITEM_ZM, ITEM_ZM,
       FuncType.get(BLN, ITEM_ZO, ITEM_ZO).seqType(), ITR),
+  /** XQuery function. */
+  _HOF_PARALLEL_MAP(FNHof.class, "parallel-map(function,seq[,threads])", ITEM_ZM, 2,
+      FuncType.get(ITEM_ZM, ITEM).seqType(), ITEM_ZM, ITR),
+  /** XQuery function. */
+  _HOF_PARALLEL_FILTER(FNHof.class, "parallel-filter(function,seq[,threads])", ITEM_ZM,
+      2, FuncType.get(BLN, ITEM).seqType(), ITEM_ZM, ITR),
 
   /* FNCrypto functions (EXPath Cryptographic module). */
 
@@ -838,6 +844,9 @@ public enum Function {
   _XQUERY_INVOKE(FNXQuery.class, "invoke(string[,bindings])", ITEM_ZM, 1, STR, ITEM),
   /** XQuery function. */
   _XQUERY_TYPE(FNXQuery.class, "type(expr)", ITEM_ZM, ITEM_ZM),
+  /** XQuery function. */
+  _XQUERY_FORK_JOIN(FNXQuery.class, "fork-join(functions[,threads])", ITEM_ZM, 1,
+      SeqType.get(FuncType.get(ITEM_ZM), Occ.ZERO_MORE), ITR),
 
   /* FNProf functions. */
 
@@ -853,6 +862,8 @@ public enum Function {
   _PROF_CURRENT_NS(FNProf.class, "current-ns()", ITR),
   /** XQuery function. */
   _PROF_DUMP(FNProf.class, "dump(expr[,label])", EMP, 1, ITEM_ZM, STR),
+  /** XQuery function. */
+  _PROF_PROFILE(FNProf.class, "profile(expr)", ELM, ITEM_ZM),
 
   /* FNHash functions. */
 
@@ -190,6 +190,20 @@ public abstract class StandardFunc extends Arr {
     return hm;
   }
 
+  /**
+   * Returns the maximum number of threads for evaluating function items in parallel.
+   * @param i index of the optional argument
+   * @param ctx query context
+   * @return number of threads
+   * @throws QueryException query exception
+   */
+  int threads(final int i, final QueryContext ctx) throws QueryException {
+    if(i >= expr.length) return Fork.threads(ctx);
+    final long t = checkItr(expr[i], ctx);
+    if(t < 1 || t > Integer.MAX_VALUE) BASX_THREADS.thrw(info, t);
+    return (int) t;
+  }
+
   /**
    * Compares several signatures for equality.
    * @param sig signature to be found
@@ -32,11 +32,13 @@ public final class TailFuncCall extends UserFuncCall {
     final int calls = checkHeight(ctx);
 
     // cache arguments, evaluate function and reset variable scope
-    final VarStack cs = addArgs(ctx, args(ctx));
+    final Var[] args = args(ctx);
+    final VarStack cs = addArgs(ctx, args);
     try {
       return func.item(ctx, ii);
     } finally {
       ctx.vars.reset(cs);
+      free(args);
       ctx.tailCalls = calls;
     }
   }
@@ -46,11 +48,13 @@ public final class TailFuncCall extends UserFuncCall {
     final int calls = checkHeight(ctx);
 
     // cache arguments, evaluate function and reset variable scope
-    final VarStack cs = addArgs(ctx, args(ctx));
+    final Var[] args = args(ctx);
+    final VarStack cs = addArgs(ctx, args);
     try {
       return ctx.value(func);
     } finally {
       ctx.vars.reset(cs);
+      free(args);
       ctx.tailCalls = calls;
     }
   }
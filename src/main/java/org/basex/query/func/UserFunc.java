@@ -14,6 +14,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * User-defined function.
@@ -43,6 +44,10 @@ public class UserFunc extends Single {
   private boolean cast;
   /** Compilation flag. */
   private boolean compiled;
+  /** Memoized results (assigned if the function is annotated with %basex:memoize). */
+  private Memo memo;
+  /** Indicates if the accessed databases are currently being determined. */
+  private boolean dbs;
 
   /**
    * Function constructor.
@@ -131,6 +136,7 @@ public class UserFunc extends Single {
 
     // convert all function calls in tail position to proper tail calls
     if(tco()) expr = expr.markTailCalls();
+    memo(ctx);
     if(ret == null) return;
 
     // adopt expected return type
@@ -146,6 +152,8 @@ public class UserFunc extends Single {
 
   @Override
   public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    if(memo != null) return value(ctx).item(ctx, ii);
+
     // reset context and evaluate function
     final Value cv = ctx.value;
     ctx.value = null;
@@ -165,6 +173,19 @@ public class UserFunc extends Single {
 
   @Override
   public Value value(final QueryContext ctx) throws QueryException {
+    // return memoized result
+    Memo.Key key = null;
+    if(memo != null) {
+      final int al = args.length;
+      final Value[] vals = new Value[al];
+      for(int a = 0; a < al; a++) vals[a] = ctx.vars.get(args[a]).value(ctx);
+      key = memo.key(vals, info);
+      if(key != null) {
+        final Value v = memo.get(key);
+        if(v != null) return v;
+      }
+    }
+
     // reset context and evaluate function
     final Value cv = ctx.value;
     ctx.value = null;
@@ -172,9 +193,11 @@ public class UserFunc extends Single {
     ctx.sc = sc;
     final Atts ns = ctx.sc.ns.reset();
     try {
-      final Value v = ctx.value(expr);
+      Value v = ctx.value(expr);
       // optionally promote return value to target type
-      return cast ? ret.promote(v, ctx, info) : v;
+      if(cast) v = ret.promote(v, ctx, info);
+      if(key != null) memo.put(key, v);
+      return v;
     } finally {
       ctx.sc.ns.stack(ns);
       ctx.sc = s;
@@ -204,6 +227,18 @@ public class UserFunc extends Single {
     return b;
   }
 
+  @Override
+  public boolean databases(final StringList db) {
+    // handle recursive calls
+    if(dbs) return true;
+    dbs = true;
+    try {
+      return expr == null || super.databases(db);
+    } finally {
+      dbs = false;
+    }
+  }
+
   @Override
   public void plan(final FElem plan) {
     final FElem el = planElem(NAM, name.string());
@@ -229,6 +264,61 @@ public class UserFunc extends Single {
     return tb.toString();
   }
 
+  /**
+   * Assigns a cache for memoized results if the function is annotated with
+   * {@code %basex:memoize}. The optional annotation values specify the maximum number
+   * of results and if results will be shared by all queries ({@code 'global'}).
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void memo(final QueryContext ctx) throws QueryException {
+    // inline functions are not memoized
+    final Value val = ann.value(Ann.Q_MEMOIZE);
+    if(val == null || name == null) return;
+
+    // results of non-deterministic, node-constructing and updating functions may differ
+    final byte[] nm = name.string();
+    if(updating) BASX_MEMOIZE.thrw(info, nm, "function is updating");
+    if(uses(Use.NDT) || uses(Use.CNS)) BASX_MEMOIZE.thrw(info, nm, "result may differ");
+
+    int max = Memo.MAX;
+    boolean global = false;
+    final long vs = val.size();
+    if(vs > 0) {
+      final Item it = val.itemAt(0);
+      if(!(it instanceof Int) || it.itr(info) < 1 || it.itr(info) > Integer.MAX_VALUE)
+        BASX_MEMOIZE.thrw(info, nm, "positive integer expected");
+      max = (int) it.itr(info);
+    }
+    if(vs > 1) {
+      global = vs == 2 && Token.eq(val.itemAt(1).string(info), Token.token(GLOBAL));
+      if(!global) BASX_MEMOIZE.thrw(info, nm, "'" + GLOBAL + "' expected");
+    }
+    // constant results need not be memoized (the function call may be inlined)
+    if(expr.isValue()) return;
+    if(!global) {
+      memo = new Memo(null, max, false);
+      return;
+    }
+
+    // shared results of functions that access databases or documents may be outdated
+    final StringList db = new StringList();
+    if(!databases(db) || !db.isEmpty())
+      BASX_MEMOIZE.thrw(info, nm, "function accesses databases or documents");
+
+    // share results of functions with the same declaration
+    final String decl = toString();
+    final Map<String, Memo> memos = ctx.context.memos;
+    synchronized(memos) {
+      final String key = Token.string(name.id()) + '#' + args.length;
+      memo = memos.get(key);
+      if(memo == null || !memo.func.equals(decl)) {
+        memo = new Memo(decl, max, true);
+        memos.put(key, memo);
+      }
+    }
+  }
+
   /**
    * Checks if this function is tail-call optimizable.
    * @return {@code true} if it is optimizable, {@code false} otherwise
@@ -4,10 +4,12 @@ import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * Function call for user-defined functions.
@@ -72,12 +74,23 @@ public abstract class UserFuncCall extends Arr {
   Var[] args(final QueryContext ctx) throws QueryException {
     final int al = expr.length;
     final Var[] args = new Var[al];
-    // evaluate arguments
-    for(int a = 0; a < al; ++a)
-      args[a] = func.args[a].bind(expr[a].value(ctx), ctx).copy();
+    // evaluate arguments; sequences may be evaluated on demand
+    for(int a = 0; a < al; ++a) {
+      final Var v = func.args[a].copy();
+      args[a] = v.type == null && LazyIter.lazy(expr[a]) ? v.bindLazy(expr[a], ctx) :
+        v.bind(expr[a].value(ctx), ctx);
+    }
     return args;
   }
 
+  /**
+   * Releases the memory that has been accounted for lazily evaluated arguments.
+   * @param args arguments
+   */
+  static void free(final Var[] args) {
+    for(final Var v : args) v.free();
+  }
+
   /**
    * Initializes the function call after all functions have been declared.
    * @param f function reference
@@ -109,6 +122,12 @@ public abstract class UserFuncCall extends Arr {
     return func == null || (u == Use.UPD ? func.updating : func.uses(u));
   }
 
+  @Override
+  public boolean databases(final StringList db) {
+    // check arguments and function code
+    return super.databases(db) && (func == null || func.databases(db));
+  }
+
   @Override
   public final void plan(final FElem plan) {
     addPlan(plan, planElem(NAM, this), expr);
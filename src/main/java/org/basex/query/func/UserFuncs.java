@@ -185,6 +185,15 @@ public final class UserFuncs extends ExprInfo {
     }
   }
 
+  /**
+   * Instruments the bodies of the compiled functions for profiling.
+   */
+  public void profile() {
+    for(int i = 0; i < funcs.length; i++) {
+      if(calls[i].length != 0) funcs[i].expr = funcs[i].expr.profile();
+    }
+  }
+
   /**
    * Finds similar function names and throws an error message.
    * @param name function name
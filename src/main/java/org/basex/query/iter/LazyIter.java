@@ -0,0 +1,207 @@
+package org.basex.query.iter;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.Expr.Use;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * Lazy, memoizing evaluation of an expression. The expression is only iterated if
+ * its items are demanded by one of the returned iterators, and the items are cached
+ * for subsequent requests. If the complete value is requested via {@link #value()}
+ * before any items have been demanded, the expression is evaluated at once.
+ * If the evaluation fails, the error is raised again by all subsequent requests.
+ * The memory of the cached items is accounted until it is released via {@link #free}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LazyIter {
+  /** Expression to be evaluated. */
+  private final Expr expr;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Input info. */
+  private final InputInfo info;
+  /** Static context of the expression. */
+  private final StaticContext sc;
+  /** Iterator ({@code null} if no items have been requested yet). */
+  private Iter iter;
+  /** Cached items. */
+  private final ValueBuilder cache = new ValueBuilder();
+  /** Complete value ({@code null} if not yet created). */
+  private Value value;
+  /** Error raised by the evaluation ({@code null} if no error occurred). */
+  private QueryException error;
+  /** Accounted memory ({@code -1}: memory has been released). */
+  private long mem;
+
+  /**
+   * Constructor.
+   * @param e expression to be evaluated (see {@link #lazy})
+   * @param c query context
+   * @param ii input info
+   */
+  public LazyIter(final Expr e, final QueryContext c, final InputInfo ii) {
+    expr = e;
+    ctx = c;
+    info = ii;
+    sc = c.sc;
+  }
+
+  /**
+   * Checks if the specified expression can be evaluated lazily. This is the case if
+   * it yields more than one item, and if its evaluation is independent of the current
+   * focus, local variables, namespaces or side effects.
+   * @param e expression
+   * @return result of check
+   */
+  public static boolean lazy(final Expr e) {
+    if(e.isValue() || e.type().zeroOrOne()) return false;
+    for(final Use u : Use.values()) {
+      if(u != Use.X30 && e.uses(u)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the item at the specified position. Items are requested from the
+   * iterator until the position is reached.
+   * @param i position
+   * @return item, or {@code null} if the value has less items
+   * @throws QueryException query exception
+   */
+  synchronized Item item(final long i) throws QueryException {
+    if(error != null) throw error;
+    if(value != null) return i < value.size() ? value.itemAt(i) : null;
+
+    final StaticContext s = ctx.sc;
+    ctx.sc = sc;
+    try {
+      if(iter == null) iter = ctx.iter(expr);
+      while(i >= cache.size()) {
+        final Item it = iter.next();
+        if(it == null) {
+          value = cache.value();
+          iter = null;
+          return null;
+        }
+        cache.add(it);
+        account(Memory.size(it));
+      }
+      return cache.get(i);
+    } catch(final QueryException ex) {
+      throw fail(ex);
+    } finally {
+      ctx.sc = s;
+    }
+  }
+
+  /**
+   * Returns the number of items, or {@code -1} if not all items have been evaluated.
+   * @return number of items
+   */
+  synchronized long size() {
+    return value != null ? value.size() : -1;
+  }
+
+  /**
+   * Returns a new iterator, which returns the cached items and requests new items
+   * on demand.
+   * @return iterator
+   */
+  public Iter iter() {
+    return new Iter() {
+      /** Current position. */
+      private long p;
+
+      @Override
+      public Item next() throws QueryException {
+        final Item it = item(p);
+        if(it != null) p++;
+        return it;
+      }
+
+      @Override
+      public Item get(final long i) throws QueryException {
+        return item(i);
+      }
+
+      @Override
+      public long size() {
+        return LazyIter.this.size();
+      }
+
+      @Override
+      public boolean reset() {
+        p = 0;
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Requests all remaining items and returns the complete value.
+   * @return value
+   * @throws QueryException query exception
+   */
+  public synchronized Value value() throws QueryException {
+    if(value == null) {
+      if(error != null) throw error;
+      final StaticContext s = ctx.sc;
+      ctx.sc = sc;
+      try {
+        if(iter == null) {
+          value = ctx.value(expr);
+          account(Memory.size(value));
+        } else {
+          for(Item it; (it = iter.next()) != null;) {
+            cache.add(it);
+            account(Memory.size(it));
+          }
+          value = cache.value();
+          iter = null;
+        }
+      } catch(final QueryException ex) {
+        throw fail(ex);
+      } finally {
+        ctx.sc = s;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Releases the accounted memory. This method is called if the variable binding
+   * goes out of scope; items that are requested afterwards will not be accounted.
+   */
+  public synchronized void free() {
+    if(mem > 0) ctx.memory.free(mem);
+    mem = -1;
+  }
+
+  /**
+   * Accounts the memory of evaluated items.
+   * @param bytes number of bytes
+   * @throws QueryException query exception
+   */
+  private void account(final long bytes) throws QueryException {
+    if(mem == -1) return;
+    ctx.memory.add(bytes, info);
+    mem += bytes;
+  }
+
+  /**
+   * Remembers an error raised by the evaluation and discards the iterator.
+   * @param ex query exception
+   * @return query exception
+   */
+  private QueryException fail(final QueryException ex) {
+    error = ex;
+    iter = null;
+    return ex;
+  }
+}
@@ -3,6 +3,8 @@ package org.basex.query.iter;
 import java.util.*;
 
 import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -27,6 +29,10 @@ public final class NodeSeqBuilder extends AxisIter {
   private boolean sort;
   /** Check incoming nodes for potential duplicates and unsorted entries. */
   private boolean check;
+  /** Memory accounting (may be {@code null}). */
+  private Memory memory;
+  /** Accounted bytes. */
+  private long mem;
 
   /**
    * Constructor.
@@ -54,6 +60,17 @@ public final class NodeSeqBuilder extends AxisIter {
     return this;
   }
 
+  /**
+   * Accounts the memory of the nodes that are added via {@link #add(ANode, InputInfo)}
+   * until {@link #free} is called.
+   * @param m memory accounting
+   * @return self reference
+   */
+  public NodeSeqBuilder account(final Memory m) {
+    memory = m;
+    return this;
+  }
+
   /**
    * Returns the specified node.
    * @param i node offset
@@ -85,6 +102,29 @@ public final class NodeSeqBuilder extends AxisIter {
     item[size++] = n;
   }
 
+  /**
+   * Adds a node and accounts its memory.
+   * @param n node to be added
+   * @param ii input info
+   * @throws QueryException query exception
+   */
+  public void add(final ANode n, final InputInfo ii) throws QueryException {
+    if(memory != null) {
+      final long m = Memory.size(n) + 8;
+      memory.add(m, ii);
+      mem += m;
+    }
+    add(n);
+  }
+
+  /**
+   * Releases the accounted memory.
+   */
+  public void free() {
+    if(memory != null) memory.free(mem);
+    mem = 0;
+  }
+
   @Override
   public boolean reset() {
     pos = -1;
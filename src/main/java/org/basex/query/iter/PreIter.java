@@ -0,0 +1,120 @@
+package org.basex.query.iter;
+
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.query.value.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.util.list.*;
+
+/**
+ * Batched iterator over the pre values of a database.
+ * Instead of single nodes, blocks of pre values are passed on, and
+ * {@link DBNode} instances will only be created if the results are
+ * requested as nodes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public abstract class PreIter {
+  /** Default block size. */
+  public static final int BLOCK = 1024;
+
+  /**
+   * Fills the specified array with the next pre values.
+   * @param pres array to be filled
+   * @return number of returned pre values, or {@code 0} if the iterator is exhausted
+   */
+  public abstract int next(final int[] pres);
+
+  /**
+   * Returns an iterator over the specified pre values.
+   * @param pres pre values
+   * @return iterator
+   */
+  public static PreIter get(final int... pres) {
+    return new PreIter() {
+      int p;
+
+      @Override
+      public int next(final int[] pr) {
+        final int n = Math.min(pr.length, pres.length - p);
+        System.arraycopy(pres, p, pr, 0, n);
+        p += n;
+        return n;
+      }
+    };
+  }
+
+  /**
+   * Returns all remaining pre values in ascending order and without duplicates.
+   * @return pre values
+   */
+  public final int[] finish() {
+    final IntList il = new IntList();
+    final int[] pres = new int[BLOCK];
+    boolean sorted = true;
+    int l = -1;
+    for(int n; (n = next(pres)) != 0;) {
+      for(int i = 0; i < n; i++) {
+        final int p = pres[i];
+        if(p > l) {
+          il.add(p);
+          l = p;
+        } else if(p != l) {
+          il.add(p);
+          sorted = false;
+        }
+      }
+    }
+    if(sorted) return il.toArray();
+
+    // sort and remove duplicates
+    final int[] tmp = il.sort().toArray();
+    int s = 0;
+    for(int i = 0; i < tmp.length; i++) {
+      if(s == 0 || tmp[i] != tmp[s - 1]) tmp[s++] = tmp[i];
+    }
+    return Arrays.copyOf(tmp, s);
+  }
+
+  /**
+   * Returns all remaining pre values as database nodes.
+   * @param data data reference
+   * @return resulting value
+   */
+  public final Value value(final Data data) {
+    return DBNodeSeq.get(finish(), data, NodeType.NOD, false);
+  }
+
+  /**
+   * Returns a node iterator, which creates database nodes for the returned pre values.
+   * The pre values must be returned in ascending order; duplicates will be skipped.
+   * @param data data reference
+   * @return node iterator
+   */
+  public final NodeIter iter(final Data data) {
+    return new NodeIter() {
+      final int[] pres = new int[BLOCK];
+      int p, s, l = -1;
+
+      @Override
+      public DBNode next() {
+        while(true) {
+          if(p == s) {
+            s = PreIter.this.next(pres);
+            p = 0;
+            if(s == 0) return null;
+          }
+          final int pre = pres[p++];
+          if(pre != l) {
+            l = pre;
+            return new DBNode(data, pre);
+          }
+        }
+      }
+    };
+  }
+}
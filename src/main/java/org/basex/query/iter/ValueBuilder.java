@@ -5,6 +5,8 @@ import java.io.*;
 import org.basex.data.*;
 import org.basex.io.out.*;
 import org.basex.io.serial.*;
+import org.basex.query.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.seq.*;
@@ -24,6 +26,10 @@ public final class ValueBuilder extends ValueIter implements Result {
   private int size;
   /** Current iterator position. */
   private int pos = -1;
+  /** Memory accounting (may be {@code null}). */
+  private Memory memory;
+  /** Accounted bytes. */
+  private long mem;
 
   /**
    * Constructor.
@@ -58,6 +64,40 @@ public final class ValueBuilder extends ValueIter implements Result {
     item[size++] = it;
   }
 
+  /**
+   * Accounts the memory of the values that are added via {@link #add(Value, InputInfo)}
+   * until {@link #free} is called.
+   * @param m memory accounting
+   * @return self reference
+   */
+  public ValueBuilder account(final Memory m) {
+    memory = m;
+    return this;
+  }
+
+  /**
+   * Adds the contents of a value and accounts its memory.
+   * @param val value to be added
+   * @param ii input info
+   * @throws QueryException query exception
+   */
+  public void add(final Value val, final InputInfo ii) throws QueryException {
+    if(memory != null) {
+      final long m = Memory.size(val);
+      memory.add(m, ii);
+      mem += m;
+    }
+    add(val);
+  }
+
+  /**
+   * Releases the accounted memory.
+   */
+  public void free() {
+    if(memory != null) memory.free(mem);
+    mem = 0;
+  }
+
   @Override
   public boolean sameAs(final Result v) {
     if(!(v instanceof ValueBuilder)) return false;
@@ -30,7 +30,7 @@ public class AxisPath extends Path {
   /** Flag for result caching. */
   private boolean cache;
   /** Cached result. */
-  private NodeSeqBuilder citer;
+  private Value cvalue;
   /** Last visited item. */
   private Value lvalue;
 
@@ -269,30 +269,52 @@ public class AxisPath extends Path {
     final Value r = root != null ? ctx.value(root) : cv;
 
     try {
-      /* cache values if:
+      /* reuse cached values if:
        * - caching is desirable
-       * - the code is called for the first time
-       * - the value has changed and the underlying node is not the same
+       * - the code has been called before
+       * - the value has not changed, or the underlying node is the same.
+       * a new iterator is returned, as the path may be evaluated by several threads
        */
-      if(!cache || citer == null || lvalue != r && !(r instanceof ANode &&
-          lvalue instanceof ANode && ((ANode) lvalue).is((ANode) r))) {
-        lvalue = r;
-        citer = new NodeSeqBuilder().check();
-        if(r != null) {
-          final Iter ir = ctx.iter(r);
-          for(Item it; (it = ir.next()) != null;) {
-            ctx.value = it;
-            iter(0, citer, ctx);
+      if(cache) {
+        synchronized(this) {
+          if(cvalue != null && (lvalue == r || r instanceof ANode &&
+              lvalue instanceof ANode && ((ANode) lvalue).is((ANode) r))) {
+            return cvalue.iter();
           }
-        } else {
-          ctx.value = null;
-          iter(0, citer, ctx);
         }
-        citer.sort();
+      }
+
+      // evaluate steps on pre values if possible
+      final PreIter pi = preIter(r, ctx);
+      final Value v;
+      if(pi != null) {
+        v = pi.value(r.itemAt(0).data());
       } else {
-        citer.reset();
+        final NodeSeqBuilder nc = new NodeSeqBuilder().check().account(ctx.memory);
+        try {
+          if(r != null) {
+            final Iter ir = ctx.iter(r);
+            for(Item it; (it = ir.next()) != null;) {
+              ctx.value = it;
+              iter(0, nc, ctx);
+            }
+          } else {
+            ctx.value = null;
+            iter(0, nc, ctx);
+          }
+        } finally {
+          nc.free();
+        }
+        if(!cache) return nc.sort();
+        v = nc.value();
       }
-      return citer;
+      if(cache) {
+        synchronized(this) {
+          lvalue = r;
+          cvalue = v;
+        }
+      }
+      return v.iter();
     } finally {
       ctx.value = cv;
       ctx.size = cs;
@@ -300,6 +322,50 @@ public class AxisPath extends Path {
     }
   }
 
+  /**
+   * Returns a batched iterator over the pre values of the resulting nodes,
+   * or {@code null} if the steps cannot be evaluated on pre values.
+   * @param r root value (may be {@code null})
+   * @param ctx query context
+   * @return iterator or {@code null}
+   */
+  final PreIter preIter(final Value r, final QueryContext ctx) {
+    final int[] pres = pres(r);
+    if(pres == null) return null;
+
+    final Data data = r.itemAt(0).data();
+    PreIter pi = PreIter.get(pres);
+    for(int s = 0; s < steps.length && pi != null; s++) {
+      pi = PreStep.get(pi, step(s), data, ctx);
+    }
+    return pi;
+  }
+
+  /**
+   * Returns the sorted and duplicate-free pre values of the specified root value,
+   * or {@code null} if the value does not exclusively consist of database nodes
+   * of the same database.
+   * @param r root value (may be {@code null})
+   * @return pre values or {@code null}
+   */
+  private static int[] pres(final Value r) {
+    if(r instanceof DBNodeSeq) return ((DBNodeSeq) r).pres;
+    if(r == null || r.size() == 0 || r.size() > Integer.MAX_VALUE) return null;
+
+    final int s = (int) r.size();
+    final int[] pres = new int[s];
+    final Data data = r.itemAt(0).data();
+    boolean sorted = true;
+    for(int i = 0; i < s; i++) {
+      final Item it = r.itemAt(i);
+      // nodes with scores will be evaluated one by one
+      if(!(it instanceof DBNode) || it.data() != data || it.score() != 0) return null;
+      pres[i] = ((DBNode) it).pre;
+      sorted &= i == 0 || pres[i] > pres[i - 1];
+    }
+    return sorted ? pres : PreIter.get(pres).finish();
+  }
+
   /**
    * Recursive step iterator.
    * @param l current step
@@ -319,7 +385,7 @@ public class AxisPath extends Path {
         iter(l + 1, nc, ctx);
       } else {
         ctx.checkStop();
-        nc.add(node);
+        nc.add(node, info);
       }
     }
   }
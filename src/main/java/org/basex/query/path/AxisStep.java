@@ -113,25 +113,29 @@ public class AxisStep extends Preds {
     if(!(v instanceof ANode)) NODESPATH.thrw(info, this, v.type);
     final AxisIter ai = axis.iter((ANode) v);
 
-    final NodeSeqBuilder nc = new NodeSeqBuilder();
-    for(ANode n; (n = ai.next()) != null;) if(test.eq(n)) nc.add(n.finish());
+    final NodeSeqBuilder nc = new NodeSeqBuilder().account(ctx.memory);
+    try {
+      for(ANode n; (n = ai.next()) != null;) if(test.eq(n)) nc.add(n.finish(), info);
 
-    // evaluate predicates
-    for(final Expr p : preds) {
-      ctx.size = nc.size();
-      ctx.pos = 1;
-      int c = 0;
-      for(int n = 0; n < nc.size(); ++n) {
-        ctx.value = nc.get(n);
-        final Item i = p.test(ctx, info);
-        if(i != null) {
-          // assign score value
-          nc.get(n).score(i.score());
-          nc.item[c++] = nc.get(n);
+      // evaluate predicates
+      for(final Expr p : preds) {
+        ctx.size = nc.size();
+        ctx.pos = 1;
+        int c = 0;
+        for(int n = 0; n < nc.size(); ++n) {
+          ctx.value = nc.get(n);
+          final Item i = p.test(ctx, info);
+          if(i != null) {
+            // assign score value
+            nc.get(n).score(i.score());
+            nc.item[c++] = nc.get(n);
+          }
+          ctx.pos++;
         }
-        ctx.pos++;
+        nc.size(c);
       }
-      nc.size(c);
+    } finally {
+      nc.free();
     }
     return nc;
   }
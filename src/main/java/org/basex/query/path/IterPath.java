@@ -39,12 +39,20 @@ final class IterPath extends AxisPath {
     return new NodeIter() {
       Expr[] expr;
       Iter[] iter;
+      NodeIter pres;
       ANode node;
       int p;
 
       @Override
       public ANode next() throws QueryException {
         if(iter == null) {
+          // evaluate steps on pre values if the root is a database node
+          if(pres == null && root instanceof Value) {
+            final PreIter pi = preIter((Value) root, ctx);
+            if(pi != null) pres = pi.iter(((Value) root).itemAt(0).data());
+          }
+          if(pres != null) return pres.next();
+
           if(expr == null) {
             expr = steps;
             if(root != null) {
@@ -96,6 +104,7 @@ final class IterPath extends AxisPath {
       @Override
       public boolean reset() {
         iter = null;
+        pres = null;
         node = null;
         p = 0;
         return true;
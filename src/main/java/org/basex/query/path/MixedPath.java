@@ -69,6 +69,14 @@ public final class MixedPath extends Path {
       for(final Expr e : steps) {
         // map operator: don't remove duplicates and check for nodes
         final boolean path = !(e instanceof Bang);
+        // map operator: compute native sequences with primitive values
+        if(!path && res instanceof ValueIter) {
+          final Value mv = PrimEval.map(((Bang) e).expr, ((ValueIter) res).value(), ctx, info);
+          if(mv != null) {
+            res = mv.iter();
+            continue;
+          }
+        }
         //final boolean last = ex + 1 == el;
         final ValueBuilder vb = new ValueBuilder();
 
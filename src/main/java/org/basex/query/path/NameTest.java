@@ -83,11 +83,11 @@ public final class NameTest extends Test {
         return Token.eq(ln, Token.local(node.name()));
       // name wildcard - check only namespace
       case NS:
-        return Token.eq(name.uri(), node.qname(tmpq).uri());
+        return Token.eq(name.uri(), node.qname(new QNm()).uri());
       default:
         // check attributes, or check everything
         return type == NodeType.ATT && !name.hasPrefix() ?
-            Token.eq(ln, node.name()) : name.eq(node.qname(tmpq));
+            Token.eq(ln, node.name()) : name.eq(node.qname(new QNm()));
     }
   }
 
@@ -78,6 +78,10 @@ public abstract class Path extends ParseExpr {
 
   @Override
   public final Expr compile(final QueryContext ctx) throws QueryException {
+    // evaluate path while the document is parsed
+    final Expr sp = StreamPath.get(this, ctx);
+    if(sp != null) return sp;
+
     if(root != null) {
       root = root.compile(ctx);
       if(root instanceof Context) {
@@ -415,6 +419,12 @@ public abstract class Path extends ParseExpr {
     return true;
   }
 
+  @Override
+  public final Expr profile() {
+    if(root != null) root = root.profile();
+    return super.profile();
+  }
+
   @Override
   public final void plan(final FElem plan) {
     addPlan(plan, planElem(), root, steps);
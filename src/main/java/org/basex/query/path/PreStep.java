@@ -0,0 +1,231 @@
+package org.basex.query.path;
+
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.iter.*;
+import org.basex.util.list.*;
+
+/**
+ * Batched evaluation of a location step. The pre values of the context nodes
+ * are consumed in blocks, and the pre values of the resulting nodes are
+ * returned in blocks. Supported are the child, attribute, descendant,
+ * descendant-or-self, ancestor and ancestor-or-self axes, kind and name tests,
+ * and predicates that check the existence of children or attributes.
+ *
+ * <p>Descendant and ancestor steps are evaluated as staircase joins: if the
+ * context nodes are sorted, all nodes are visited only once, and the results
+ * will be sorted and duplicate-free. Context nodes that are descendants of the
+ * previous context node are skipped by descendant steps. Ancestor steps walk up
+ * the tree until they reach a node that has already been returned.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class PreStep extends PreIter {
+  /** Input iterator. */
+  private final PreIter input;
+  /** Data reference. */
+  private final Data data;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Axis. */
+  private final Axis axis;
+  /** Node test. */
+  private final PreTest test;
+  /** Axes of the predicates. */
+  private final Axis[] paxes;
+  /** Node tests of the predicates. */
+  private final PreTest[] ptests;
+
+  /** Pre values of the context nodes. */
+  private final int[] in = new int[BLOCK];
+  /** Number of context nodes. */
+  private int is;
+  /** Current context node. */
+  private int ip;
+  /** Next pre value to be checked. */
+  private int pre;
+  /** Pre value after the last node of the current context node. */
+  private int end;
+  /** First pre value of the last descendant range. */
+  private int min;
+  /** Pre value after the last descendant range. */
+  private int max;
+  /** Ancestors of the current context node (only assigned for ancestor axes). */
+  private final IntList anc;
+
+  /**
+   * Constructor.
+   * @param i input iterator
+   * @param d data reference
+   * @param c query context
+   * @param a axis
+   * @param t node test
+   * @param pa axes of the predicates
+   * @param pt node tests of the predicates
+   */
+  private PreStep(final PreIter i, final Data d, final QueryContext c, final Axis a,
+      final PreTest t, final Axis[] pa, final PreTest[] pt) {
+    input = i;
+    data = d;
+    ctx = c;
+    axis = a;
+    test = t;
+    paxes = pa;
+    ptests = pt;
+    anc = a == Axis.ANC || a == Axis.ANCORSELF ? new IntList() : null;
+  }
+
+  /**
+   * Returns a batched iterator for the specified step, or {@code null} if the step
+   * cannot be evaluated in batches.
+   * @param ir input iterator
+   * @param step axis step
+   * @param data data reference
+   * @param ctx query context
+   * @return iterator or {@code null}
+   */
+  static PreStep get(final PreIter ir, final AxisStep step, final Data data,
+      final QueryContext ctx) {
+
+    final Axis a = step.axis;
+    if(!down(a, true) && a != Axis.ANC && a != Axis.ANCORSELF) return null;
+    final PreTest t = PreTest.get(step.test, data);
+    if(t == null) return null;
+
+    final int pl = step.preds.length;
+    final Axis[] pa = new Axis[pl];
+    final PreTest[] pt = new PreTest[pl];
+    for(int p = 0; p < pl; p++) {
+      // accept single child or attribute steps without predicates
+      final Expr pr = step.preds[p];
+      if(!(pr instanceof AxisPath)) return null;
+      final AxisPath path = (AxisPath) pr;
+      if(path.root != null || path.steps.length != 1) return null;
+      final AxisStep s = path.step(0);
+      if(!down(s.axis, false) || s.preds.length != 0) return null;
+      pa[p] = s.axis;
+      pt[p] = PreTest.get(s.test, data);
+      if(pt[p] == null) return null;
+    }
+    return new PreStep(ir, data, ctx, a, t, pa, pt);
+  }
+
+  @Override
+  public int next(final int[] pres) {
+    final int pl = pres.length;
+    int c = 0;
+    while(c < pl) {
+      if(pre == end) {
+        // current context node is exhausted: proceed with next one
+        if(ip == is) {
+          ctx.checkStop();
+          is = input.next(in);
+          ip = 0;
+          if(is == 0) break;
+        }
+        open(in[ip++]);
+        continue;
+      }
+      final int p, k;
+      if(anc != null) {
+        p = anc.get(pre++);
+        k = data.kind(p);
+      } else {
+        p = pre;
+        k = data.kind(p);
+        pre += axis == Axis.CHILD ? data.size(p, k) : axis == Axis.ATTR ? 1 :
+          data.attSize(p, k);
+      }
+      if(test.eq(p, k) && preds(p, k)) pres[c++] = p;
+    }
+    return c;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Initializes the range of the specified context node.
+   * @param p pre value of the context node
+   */
+  private void open(final int p) {
+    if(anc != null) {
+      ancestors(p);
+      return;
+    }
+    final int k = data.kind(p);
+    end = p + (axis == Axis.ATTR ? data.attSize(p, k) : data.size(p, k));
+    if(axis == Axis.DESC || axis == Axis.DESCORSELF) {
+      // skip context nodes that are descendants of the previous context node
+      if(p >= min && p < max) {
+        pre = end;
+        return;
+      }
+      min = p;
+      max = end;
+    }
+    pre = axis == Axis.DESCORSELF ? p : axis == Axis.ATTR ? p + 1 :
+      p + data.attSize(p, k);
+  }
+
+  /**
+   * Adds the ancestors of the specified context node that have not been returned yet.
+   * The list of ancestors always contains the ancestors of the last context node,
+   * sorted by their pre values.
+   * @param p pre value of the context node
+   */
+  private void ancestors(final int p) {
+    // remove nodes that are no ancestors of the current context node
+    while(anc.size() != 0) {
+      final int a = anc.peek();
+      if(a <= p && p < a + data.size(a, data.kind(a))) break;
+      anc.pop();
+    }
+    // add new ancestors until the last returned ancestor is reached
+    final int top = anc.size() == 0 ? -1 : anc.peek(), s = anc.size();
+    for(int a = axis == Axis.ANCORSELF ? p : data.parent(p, data.kind(p)); a > top;
+        a = data.parent(a, data.kind(a))) anc.add(a);
+    // sort new ancestors
+    for(int l = s, r = anc.size() - 1; l < r; l++, r--) {
+      final int t = anc.get(l);
+      anc.set(l, anc.get(r));
+      anc.set(r, t);
+    }
+    pre = s;
+    end = anc.size();
+  }
+
+  /**
+   * Checks if the predicates are fulfilled for the specified node.
+   * @param p pre value
+   * @param k node kind
+   * @return result of check
+   */
+  private boolean preds(final int p, final int k) {
+    for(int t = 0; t < ptests.length; t++) {
+      final boolean att = paxes[t] == Axis.ATTR;
+      final int e = p + (att ? data.attSize(p, k) : data.size(p, k));
+      int q = att ? p + 1 : p + data.attSize(p, k);
+      boolean found = false;
+      while(q < e && !found) {
+        final int qk = data.kind(q);
+        found = ptests[t].eq(q, qk);
+        q += att ? 1 : data.size(q, qk);
+      }
+      if(!found) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the specified axis is supported.
+   * @param axis axis
+   * @param desc accept descendant axes
+   * @return result of check
+   */
+  private static boolean down(final Axis axis, final boolean desc) {
+    return axis == Axis.CHILD || axis == Axis.ATTR ||
+      desc && (axis == Axis.DESC || axis == Axis.DESCORSELF);
+  }
+}
@@ -0,0 +1,114 @@
+package org.basex.query.path;
+
+import org.basex.data.*;
+import org.basex.index.name.*;
+import org.basex.query.path.Test.Mode;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Node test on pre values. Kinds and names are directly compared with the entries
+ * of the database table.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class PreTest {
+  /** Data reference. */
+  private final Data data;
+  /** Node kind ({@code -1}: all kinds). */
+  private final int kind;
+  /** Name id ({@code -1}: all names). */
+  private final int id;
+  /** Accepted name ids (if not {@code null}, replaces the name id). */
+  private final boolean[] names;
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param k node kind
+   * @param i name id
+   * @param n accepted name ids
+   */
+  private PreTest(final Data d, final int k, final int i, final boolean[] n) {
+    data = d;
+    kind = k;
+    id = i;
+    names = n;
+  }
+
+  /**
+   * Returns a test on pre values, or {@code null} if the specified test
+   * cannot be mapped.
+   * @param test node test
+   * @param data data reference
+   * @return test or {@code null}
+   */
+  static PreTest get(final Test test, final Data data) {
+    if(test == Test.NOD) return new PreTest(data, -1, -1, null);
+    if(test.getClass() == KindTest.class) {
+      final int k = kind(test.type);
+      return k == -1 ? null : new PreTest(data, k, -1, null);
+    }
+    if(!(test instanceof NameTest)) return null;
+
+    final boolean att = test.type == NodeType.ATT;
+    final int k = att ? Data.ATTR : Data.ELEM;
+    if(test.mode == Mode.ALL) return new PreTest(data, k, -1, null);
+
+    final byte[] ln = ((NameTest) test).ln;
+    final Names nm = att ? data.atnindex : data.tagindex;
+    final boolean local = test.mode == Mode.NAME;
+    if(data.nspaces.size() == 0) {
+      // no namespaces: names can be compared by their ids
+      if(!local && (test.mode != Mode.STD || test.name.uri().length != 0)) return null;
+      final int id = nm.id(ln);
+      // local name test: consider names with the implicit xml prefix
+      final int xid = local ? nm.id(Token.concat(Token.XMLC, ln)) : 0;
+      if(xid == 0) return new PreTest(data, k, id, null);
+      final boolean[] names = new boolean[Math.max(id, xid) + 1];
+      names[id] = true;
+      names[xid] = true;
+      return new PreTest(data, k, -1, names);
+    }
+    if(!local) return null;
+
+    // namespaces: compare local names
+    final int ns = nm.size();
+    final boolean[] names = new boolean[ns + 1];
+    for(int n = 1; n <= ns; n++) names[n] = Token.eq(ln, Token.local(nm.key(n)));
+    return new PreTest(data, k, -1, names);
+  }
+
+  /**
+   * Tests the specified node.
+   * @param pre pre value
+   * @param k node kind
+   * @return result of check
+   */
+  boolean eq(final int pre, final int k) {
+    if(kind != -1 && kind != k) return false;
+    if(names != null) {
+      final int n = data.name(pre);
+      return n < names.length && names[n];
+    }
+    return id == -1 || data.name(pre) == id;
+  }
+
+  /**
+   * Returns the database kind of the specified node type.
+   * @param type node type
+   * @return kind, or {@code -1} if the type has no database counterpart
+   */
+  private static int kind(final NodeType type) {
+    switch(type) {
+      case DOC: return Data.DOC;
+      case ELM: return Data.ELEM;
+      case TXT: return Data.TEXT;
+      case ATT: return Data.ATTR;
+      case COM: return Data.COMM;
+      case PI:  return Data.PI;
+      default:  return -1;
+    }
+  }
+}
@@ -0,0 +1,438 @@
+package org.basex.query.path;
+
+import static org.basex.query.QueryText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.build.*;
+import org.basex.build.xml.*;
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Receives the events of an {@link XMLParser} and matches them against the steps
+ * of a streamable location path. For each open node, the steps that will be
+ * applied to its children are stored as bits of a mask. Only the resulting
+ * nodes and their descendants are materialized as fragments.
+ *
+ * <p>Results are returned in document order. An element is returned as soon as
+ * it has been closed and all results preceding it have been returned.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class StreamBuilder extends Builder {
+  /** Parser. */
+  private final XMLParser parser;
+  /** Steps. */
+  private final AxisStep[] steps;
+  /** Descendant flags (indicates that a step is applied to all descendants). */
+  private final boolean[] desc;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Input info. */
+  private final InputInfo info;
+
+  /** Steps that are applied to the children of the open nodes. */
+  private long[] masks = new long[ElementList.CAP];
+  /** Materialized open elements ({@code null}: element is not materialized). */
+  private FElem[] elems = new FElem[ElementList.CAP];
+  /** Queue positions of the open elements ({@code -1}: element is no result). */
+  private int[] qpos = new int[ElementList.CAP];
+  /** Number of namespaces in scope before the open elements were added. */
+  private int[] nsoff = new int[ElementList.CAP];
+  /** Namespaces in scope. */
+  private final Atts nsp = new Atts();
+  /** Namespaces declared by the next element. */
+  private final Atts decl = new Atts();
+  /** Level of the current node (0: document node). */
+  private int level;
+
+  /** Queued results. */
+  private final ArrayList<ANode> queue = new ArrayList<ANode>();
+  /** Flags for completed results. */
+  private final BoolList done = new BoolList();
+  /** Position of the next result to be returned. */
+  private int head;
+  /** Indicates if the parser returns more events. */
+  private boolean more = true;
+
+  /**
+   * Constructor.
+   * @param p parser
+   * @param st steps
+   * @param ds descendant flags
+   * @param c query context
+   * @param ii input info
+   */
+  StreamBuilder(final XMLParser p, final AxisStep[] st, final boolean[] ds,
+      final QueryContext c, final InputInfo ii) {
+    super(p.src.name(), p);
+    p.builder(this);
+    parser = p;
+    steps = st;
+    desc = ds;
+    ctx = c;
+    info = ii;
+    masks[0] = 1;
+    qpos[0] = -1;
+  }
+
+  /**
+   * Returns the next result.
+   * @return next node or {@code null}
+   * @throws IOException I/O exception
+   */
+  ANode next() throws IOException {
+    while(true) {
+      if(head < queue.size() && done.get(head)) {
+        final ANode n = queue.get(head);
+        queue.set(head++, null);
+        if(head == queue.size()) {
+          queue.clear();
+          done.reset();
+          head = 0;
+        }
+        return n;
+      }
+      if(!more) return null;
+      more = parser.next();
+    }
+  }
+
+  @Override
+  public void startNS(final byte[] pref, final byte[] uri) {
+    decl.add(pref, uri);
+  }
+
+  @Override
+  public void startElem(final byte[] nm, final Atts att) throws IOException {
+    open(nm, att);
+  }
+
+  @Override
+  public void emptyElem(final byte[] nm, final Atts att) throws IOException {
+    open(nm, att);
+    endElem();
+  }
+
+  @Override
+  public void endElem() {
+    final int q = qpos[level];
+    if(q != -1) done.set(q, true);
+    elems[level] = null;
+    nsp.size(nsoff[level--]);
+  }
+
+  @Override
+  public void text(final byte[] value) throws IOException {
+    if(value.length != 0) leaf(NodeType.TXT, value);
+  }
+
+  @Override
+  public void comment(final byte[] value) throws IOException {
+    leaf(NodeType.COM, value);
+  }
+
+  @Override
+  public void pi(final byte[] pi) throws IOException {
+    leaf(NodeType.PI, pi);
+  }
+
+  @Override
+  public void encoding(final String enc) {
+  }
+
+  @Override
+  public Data build() {
+    throw Util.notexpected();
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+
+  @Override
+  protected void addDoc(final byte[] value) {
+    throw Util.notexpected();
+  }
+
+  @Override
+  protected void addElem(final int dist, final int nm, final int asize, final int uri,
+      final boolean ne) {
+    throw Util.notexpected();
+  }
+
+  @Override
+  protected void addAttr(final int nm, final byte[] value, final int dist,
+      final int uri) {
+    throw Util.notexpected();
+  }
+
+  @Override
+  protected void addText(final byte[] value, final int dist, final byte kind) {
+    throw Util.notexpected();
+  }
+
+  @Override
+  protected void setSize(final int pre, final int size) {
+    throw Util.notexpected();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Opens an element.
+   * @param nm element name
+   * @param att attributes
+   * @throws IOException I/O exception
+   */
+  private void open(final byte[] nm, final Atts att) throws IOException {
+    final int p = level++;
+    if(level == masks.length) {
+      final int s = Array.newSize(level);
+      masks = Arrays.copyOf(masks, s);
+      elems = Arrays.copyOf(elems, s);
+      qpos = Arrays.copyOf(qpos, s);
+      nsoff = Arrays.copyOf(nsoff, s);
+    }
+    // register namespaces
+    nsoff[level] = nsp.size();
+    final int ds = decl.size();
+    for(int d = 0; d < ds; d++) nsp.add(decl.name(d), decl.string(d));
+
+    // find matching steps
+    final QNm name = qname(nm, true);
+    final long pm = masks[p];
+    final int sl = steps.length;
+    long m = 0;
+    boolean res = false;
+    FElem tmp = null;
+    for(int s = 0; s < sl; s++) {
+      if((pm & 1L << s) == 0) continue;
+      if(desc[s]) m |= 1L << s;
+      final AxisStep step = steps[s];
+      if(step.axis == Axis.ATTR || !test(step.test, NodeType.ELM, nm, name)) continue;
+      if(step.preds.length != 0) {
+        if(tmp == null) tmp = elem(name, att, null);
+        if(!preds(step, tmp)) continue;
+      }
+      if(s + 1 == sl) res = true;
+      else m |= 1L << s + 1;
+    }
+    masks[level] = m;
+
+    // materialize results and descendants of results
+    final FElem pe = elems[p];
+    FElem e = null;
+    if(res || pe != null) {
+      e = elem(name, att, res ? inscope() : ds == 0 ? null : copy(decl));
+      if(pe != null) pe.add(e);
+    }
+    elems[level] = e;
+    qpos[level] = res ? add(e, false) : -1;
+    decl.reset();
+
+    // attribute results
+    final int l = sl - 1;
+    final AxisStep step = steps[l];
+    if((m & 1L << l) != 0 && step.axis == Axis.ATTR) {
+      final int as = att.size();
+      for(int a = 0; a < as; a++) {
+        final byte[] an = att.name(a);
+        final QNm qn = qname(an, false);
+        if(test(step.test, NodeType.ATT, an, qn)) add(new FAttr(qn, att.string(a)), true);
+      }
+    }
+  }
+
+  /**
+   * Processes a text node, comment or processing instruction.
+   * @param type node type
+   * @param value value
+   * @throws IOException I/O exception
+   */
+  private void leaf(final NodeType type, final byte[] value) throws IOException {
+    final int l = steps.length - 1;
+    final AxisStep step = steps[l];
+    final boolean res = (masks[level] & 1L << l) != 0 && step.axis != Axis.ATTR &&
+        test(step.test, type, null, null);
+    final FElem pe = elems[level];
+    if(!res && pe == null) return;
+
+    final ANode n;
+    if(type == NodeType.TXT) {
+      n = new FTxt(value);
+    } else if(type == NodeType.COM) {
+      n = new FComm(value);
+    } else {
+      final int i = indexOf(value, ' ');
+      n = i == -1 ? new FPI(new QNm(value), EMPTY) :
+        new FPI(new QNm(substring(value, 0, i)), substring(value, i + 1));
+    }
+    if(pe != null) pe.add(n);
+    if(res) add(n, true);
+  }
+
+  /**
+   * Adds a result to the queue.
+   * @param n node
+   * @param d completion flag
+   * @return queue position
+   */
+  private int add(final ANode n, final boolean d) {
+    queue.add(n);
+    done.add(d);
+    return queue.size() - 1;
+  }
+
+  /**
+   * Creates an element with the specified attributes.
+   * @param name element name
+   * @param att attributes
+   * @param ns namespaces (can be {@code null})
+   * @return element
+   */
+  private FElem elem(final QNm name, final Atts att, final Atts ns) {
+    final FElem e = new FElem(name, ns);
+    final int as = att.size();
+    for(int a = 0; a < as; a++) e.add(qname(att.name(a), false), att.string(a));
+    return e;
+  }
+
+  /**
+   * Checks if the predicates of the specified step are fulfilled.
+   * @param step step
+   * @param e element
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  private boolean preds(final AxisStep step, final FElem e) throws IOException {
+    final Value cv = ctx.value;
+    final long cp = ctx.pos, cs = ctx.size;
+    ctx.value = e;
+    ctx.pos = 1;
+    ctx.size = 1;
+    try {
+      for(final Expr p : step.preds) if(p.test(ctx, info) == null) return false;
+      return true;
+    } catch(final QueryException ex) {
+      throw new StreamException(ex);
+    } finally {
+      ctx.value = cv;
+      ctx.pos = cp;
+      ctx.size = cs;
+    }
+  }
+
+  /**
+   * Tests a node against the specified node test.
+   * @param test node test
+   * @param type node type
+   * @param nm name (only relevant for elements and attributes)
+   * @param qn resolved name (only relevant for elements and attributes)
+   * @return result of check
+   */
+  private static boolean test(final Test test, final NodeType type, final byte[] nm,
+      final QNm qn) {
+    if(test == Test.NOD) return true;
+    if(test.type != type) return false;
+    if(!(test instanceof NameTest)) return true;
+    final NameTest nt = (NameTest) test;
+    switch(nt.mode) {
+      case ALL:
+        return true;
+      case NAME:
+        return eq(nt.ln, local(nm));
+      case NS:
+        return eq(nt.name.uri(), qn.uri());
+      default:
+        return type == NodeType.ATT && !nt.name.hasPrefix() ? eq(nt.ln, nm) :
+          nt.name.eq(qn);
+    }
+  }
+
+  /**
+   * Returns the resolved name of an element or attribute.
+   * @param nm name
+   * @param elem element flag
+   * @return name
+   */
+  private QNm qname(final byte[] nm, final boolean elem) {
+    final byte[] pref = prefix(nm);
+    final byte[] uri;
+    if(pref.length == 0 && !elem) {
+      uri = EMPTY;
+    } else if(eq(pref, XML)) {
+      uri = XMLURI;
+    } else {
+      final int i = uri(pref);
+      uri = i == -1 ? EMPTY : nsp.string(i);
+    }
+    return new QNm(nm, uri);
+  }
+
+  /**
+   * Returns the index of the innermost namespace with the specified prefix.
+   * @param pref prefix
+   * @return index, or {@code -1}
+   */
+  private int uri(final byte[] pref) {
+    for(int i = nsp.size() - 1; i >= 0; i--) if(eq(nsp.name(i), pref)) return i;
+    return -1;
+  }
+
+  /**
+   * Returns all namespaces in scope.
+   * @return namespaces, or {@code null}
+   */
+  private Atts inscope() {
+    final int ns = nsp.size();
+    if(ns == 0) return null;
+    final Atts a = new Atts();
+    for(int i = 0; i < ns; i++) {
+      final byte[] pref = nsp.name(i);
+      if(uri(pref) == i) a.add(pref, nsp.string(i));
+    }
+    return a;
+  }
+
+  /**
+   * Returns a copy of the specified namespaces.
+   * @param ns namespaces
+   * @return copy
+   */
+  private static Atts copy(final Atts ns) {
+    final Atts a = new Atts();
+    final int s = ns.size();
+    for(int i = 0; i < s; i++) a.add(ns.name(i), ns.string(i));
+    return a;
+  }
+
+  /**
+   * Wraps a query exception that is raised while events are processed.
+   */
+  static final class StreamException extends IOException {
+    /** Query exception. */
+    final QueryException ex;
+
+    /**
+     * Constructor.
+     * @param qe query exception
+     */
+    StreamException(final QueryException qe) {
+      super(qe.getMessage());
+      ex = qe;
+    }
+  }
+}
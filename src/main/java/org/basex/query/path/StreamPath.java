@@ -0,0 +1,238 @@
+package org.basex.query.path;
+
+import static org.basex.query.QueryText.*;
+import static org.basex.query.util.Err.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.build.xml.*;
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Location path on a document that is evaluated while the document is parsed,
+ * without creating a database instance. The path must start with {@code fn:doc}
+ * and a static file path, and it may only contain child, descendant and
+ * attribute steps. Predicates may only refer to attributes of the context node.
+ *
+ * <p>As only the matching nodes are materialized, the resulting nodes have no
+ * parent and no connection to the original document. The results of the first
+ * complete evaluation are cached: if the path is evaluated again, the document
+ * will not be parsed again, and the same nodes will be returned.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class StreamPath extends Simple {
+  /** Original path. */
+  private final Path path;
+  /** Input. */
+  private final IO input;
+  /** Steps. */
+  private final AxisStep[] steps;
+  /** Descendant flags. */
+  private final boolean[] desc;
+  /** Results of the first complete evaluation ({@code null}: not cached yet). */
+  private volatile ANode[] cache;
+
+  /**
+   * Constructor.
+   * @param p original path
+   * @param in input
+   * @param st steps
+   * @param ds descendant flags
+   */
+  private StreamPath(final Path p, final IO in, final AxisStep[] st, final boolean[] ds) {
+    super(p.info);
+    path = p;
+    input = in;
+    steps = st;
+    desc = ds;
+    type = SeqType.NOD_ZM;
+  }
+
+  /**
+   * Returns a streamable version of the specified path, or {@code null}.
+   * Must be called before the root expression of the path is compiled.
+   * @param path path
+   * @param ctx query context
+   * @return streamable path or {@code null}
+   * @throws QueryException query exception
+   */
+  static StreamPath get(final Path path, final QueryContext ctx) throws QueryException {
+    final Prop prop = ctx.context.prop;
+    if(!prop.is(Prop.STREAM) || !prop.is(Prop.INTPARSE) ||
+        !prop.get(Prop.PARSER).toLowerCase(Locale.ENGLISH).equals(DataText.M_XML))
+      return null;
+
+    // root must be a document call with a static file path
+    final Expr r = path.root;
+    if(r == null || !r.isFunction(Function.DOC)) return null;
+    final Expr arg = ((StandardFunc) r).expr[0];
+    if(!(arg instanceof Str)) return null;
+    final byte[] uri = ((Str) arg).string();
+    if(!Uri.uri(uri).isValid()) return null;
+    final QueryInput qi = new QueryInput(Token.string(uri));
+    if(qi.db != null && ctx.context.mprop.dbexists(qi.db)) return null;
+    if(!(qi.io instanceof IOFile) || !qi.io.exists() || qi.io.isDir()) return null;
+
+    // analyze steps
+    final Expr[] st = path.steps;
+    final int sl = st.length;
+    final ArrayList<AxisStep> list = new ArrayList<AxisStep>();
+    final BoolList ds = new BoolList();
+    boolean d = false;
+    for(int s = 0; s < sl; s++) {
+      if(!(st[s] instanceof AxisStep)) return null;
+      final AxisStep step = (AxisStep) st[s];
+      final boolean last = s + 1 == sl;
+      // merge descendant-or-self::node() with the next step
+      if(step.axis == Axis.DESCORSELF && step.test == Test.NOD &&
+          step.preds.length == 0 && !last) {
+        d = true;
+        continue;
+      }
+      final boolean att = step.axis == Axis.ATTR;
+      if(step.axis == Axis.DESC) d = true;
+      else if(step.axis != Axis.CHILD && !att) return null;
+      if(!test(step.test, att, last)) return null;
+      for(final Expr p : step.preds) if(att || !attPred(p)) return null;
+      list.add(step);
+      ds.add(d);
+      d = false;
+    }
+    if(list.size() > Long.SIZE - 1) return null;
+
+    // compile predicates
+    final Value v = ctx.value;
+    ctx.value = null;
+    try {
+      for(final AxisStep step : list) {
+        final Expr[] preds = step.preds;
+        for(int p = 0; p < preds.length; p++) preds[p] = preds[p].compile(ctx);
+      }
+    } finally {
+      ctx.value = v;
+    }
+    ctx.compInfo(OPTSTREAM, qi.io);
+    return new StreamPath(path, qi.io, list.toArray(new AxisStep[list.size()]),
+        ds.toArray());
+  }
+
+  @Override
+  public NodeIter iter(final QueryContext ctx) throws QueryException {
+    final ANode[] c = cache;
+    if(c != null) return new NodeSeqBuilder(c, c.length);
+
+    final XMLParser parser;
+    final StreamBuilder builder;
+    try {
+      parser = new XMLParser(input, ctx.context.prop);
+      builder = new StreamBuilder(parser, steps, desc, ctx, info);
+    } catch(final IOException ex) {
+      throw IOERR.thrw(info, ex);
+    }
+    ctx.resource.addStream(parser);
+
+    return new NodeIter() {
+      /** Results that have been returned so far. */
+      final NodeSeqBuilder nb = new NodeSeqBuilder();
+
+      @Override
+      public ANode next() throws QueryException {
+        ctx.checkStop();
+        try {
+          final ANode n = builder.next();
+          if(n != null) {
+            nb.add(n);
+          } else if(cache == null) {
+            ctx.resource.removeStream(parser);
+            // cache complete results; they remain accounted until the query is closed
+            final ANode[] nodes = Arrays.copyOf(nb.item, (int) nb.size());
+            long m = 16;
+            for(final ANode nd : nodes) m += Memory.size(nd) + 8;
+            ctx.memory.add(m, info);
+            cache = nodes;
+          }
+          return n;
+        } catch(final StreamBuilder.StreamException ex) {
+          throw ex.ex;
+        } catch(final IOException ex) {
+          throw IOERR.thrw(info, ex);
+        }
+      }
+    };
+  }
+
+  @Override
+  public boolean uses(final Use u) {
+    return u == Use.CNS;
+  }
+
+  @Override
+  public boolean iterable() {
+    return true;
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(), path);
+  }
+
+  @Override
+  public String toString() {
+    return path.toString();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Checks if the specified node test can be streamed.
+   * @param test node test
+   * @param att attribute step
+   * @param last last step
+   * @return result of check
+   */
+  private static boolean test(final Test test, final boolean att, final boolean last) {
+    if(test instanceof NameTest) return test.type == (att ? NodeType.ATT : NodeType.ELM);
+    if(test == Test.NOD) return !att && last;
+    if(test.getClass() != KindTest.class) return false;
+    if(att) return test.type == NodeType.ATT;
+    return test.type == NodeType.ELM || last && (test.type == NodeType.TXT ||
+        test.type == NodeType.COM || test.type == NodeType.PI);
+  }
+
+  /**
+   * Checks if the specified predicate only refers to attributes of the context node.
+   * Accepted are attribute steps and comparisons of attributes with values.
+   * @param pred predicate
+   * @return result of check
+   */
+  private static boolean attPred(final Expr pred) {
+    if(pred instanceof CmpG || pred instanceof CmpV) {
+      for(final Expr e : ((Cmp) pred).expr) {
+        if(!(e instanceof Value) && !attPred(e)) return false;
+      }
+      return true;
+    }
+    if(!(pred instanceof AxisPath)) return false;
+    final AxisPath p = (AxisPath) pred;
+    if(p.root != null || p.steps.length != 1 || !(p.steps[0] instanceof AxisStep))
+      return false;
+    final AxisStep s = p.step(0);
+    return s.axis == Axis.ATTR && s.preds.length == 0;
+  }
+}
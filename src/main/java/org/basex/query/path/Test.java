@@ -46,9 +46,6 @@ public abstract class Test {
   /** Name test. Set to {@code null} for other kind tests. */
   public QNm name;
 
-  /** Mutable QName instance. */
-  final QNm tmpq = new QNm();
-
   /**
    * Returns a test instance.
    * @param t node type
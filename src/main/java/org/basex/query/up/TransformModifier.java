@@ -4,15 +4,24 @@ import static org.basex.query.util.Err.*;
 
 import java.util.*;
 
+import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.up.primitives.*;
+import org.basex.query.value.node.*;
 
 /**
  * The Transform context modifier carries out updates of a single transform
  * expression. It especially keeps track of all nodes that are copied in the
  * 'copy' statement of a transform expression.
  *
+ * <p>Database nodes can also be copied virtually (see {@link #view}). Updates on
+ * these copies are not applied, but attached to the copies as {@link Overlay}, provided
+ * that they only change values and names or delete nodes, and that no text nodes would
+ * have to be merged after the deletions. Otherwise, the nodes are
+ * copied to main memory, and the updates are assigned to the copies
+ * (see {@link #materialize}).</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Lukas Kircher
  */
@@ -23,6 +32,16 @@ public final class TransformModifier extends ContextModifier {
    * (XUDY0014) if the data reference of the corresponding target node is not
    * part of this set, hence the target node has not been copied. */
   private final Set<Data> refs = new HashSet<Data>();
+  /** Virtual copies of database nodes, indexed by their data references. */
+  private final Map<Data, CopyNode> views = new HashMap<Data, CopyNode>();
+  /** Updates on virtual copies, indexed by their data references. */
+  private final Map<Data, DatabaseUpdates> patches = new HashMap<Data, DatabaseUpdates>();
+  /** Update primitives on virtual copies. */
+  private final List<UpdatePrimitive> prims = new ArrayList<UpdatePrimitive>();
+  /** Target node of the next update primitive on a virtual copy. */
+  private DBNode target;
+  /** Indicates if all updates on virtual copies can be represented as overlays. */
+  private boolean patchable = true;
 
   /**
    * Adds a data reference to list which keeps track of the nodes copied
@@ -33,6 +52,102 @@ public final class TransformModifier extends ContextModifier {
     refs.add(d);
   }
 
+  /**
+   * Creates a virtual copy of the specified database node.
+   * @param node database node
+   * @return virtual copy, or {@code null} if the database is already referenced by
+   *   another virtual copy
+   */
+  public CopyNode view(final DBNode node) {
+    if(views.containsKey(node.data)) return null;
+    final CopyNode c = new CopyNode(node);
+    views.put(node.data, c);
+    return c;
+  }
+
+  /**
+   * Returns the database node of a node that is part of a virtual copy.
+   * @param node node of a virtual copy
+   * @return database node, or {@code null} if the node is not part of a virtual copy
+   *   of this transform expression
+   */
+  DBNode target(final CopyNode node) {
+    final CopyNode c = views.get(node.node.data);
+    if(c == null || !node.within(c)) return null;
+    target = node.node;
+    return target;
+  }
+
+  /**
+   * Attaches the updates on virtual copies as overlays.
+   * @return {@code false} if the updates cannot be represented as overlays
+   * @throws QueryException query exception
+   */
+  public boolean patch() throws QueryException {
+    if(!patchable) return false;
+    for(final DatabaseUpdates du : patches.values()) du.check(null);
+
+    // deleted nodes, indexed by their data references
+    final Map<Data, BitSet> deleted = new HashMap<Data, BitSet>();
+    for(final UpdatePrimitive up : prims) {
+      if(!(up instanceof DeleteNode)) continue;
+      final Data data = up.getData();
+      BitSet del = deleted.get(data);
+      if(del == null) {
+        del = new BitSet();
+        deleted.put(data, del);
+      }
+      del.set(up.targetPre);
+    }
+    for(final Map.Entry<Data, BitSet> e : deleted.entrySet()) {
+      if(merges(e.getKey(), e.getValue())) return false;
+    }
+
+    final Map<Data, Overlay> ovls = new HashMap<Data, Overlay>();
+    for(final UpdatePrimitive up : prims) {
+      final Data data = up.getData();
+      Overlay ovl = ovls.get(data);
+      if(ovl == null) {
+        ovl = new Overlay();
+        ovls.put(data, ovl);
+      }
+      final int pre = up.targetPre;
+      if(up instanceof ReplaceValue) ovl.value(pre, ((ReplaceValue) up).value);
+      else if(up instanceof RenameNode) ovl.name(pre, ((RenameNode) up).name);
+      else ovl.delete(pre, data.size(pre, data.kind(pre)));
+    }
+    for(final Map.Entry<Data, Overlay> e : ovls.entrySet()) {
+      views.get(e.getKey()).overlay(e.getValue().finish());
+    }
+    return true;
+  }
+
+  /**
+   * Copies the nodes of all virtual copies to main memory, and assigns the updates
+   * on the virtual copies to the physical copies. This method must be called if the
+   * updates cannot be represented as overlays (see {@link #patch}).
+   * @param prop database properties
+   * @return physical copies, indexed by the data references of the virtual copies
+   * @throws QueryException query exception
+   */
+  public Map<Data, DBNode> materialize(final Prop prop) throws QueryException {
+    final Map<Data, DBNode> copies = new HashMap<Data, DBNode>();
+    for(final Map.Entry<Data, CopyNode> e : views.entrySet()) {
+      final DBNode copy = e.getValue().node.dbCopy(prop);
+      copies.put(e.getKey(), copy);
+      refs.add(copy.data);
+    }
+    for(final UpdatePrimitive up : prims) {
+      final Data data = up.getData();
+      up.move(copies.get(data).data, views.get(data).node.pre);
+      add(up);
+    }
+    views.clear();
+    patches.clear();
+    prims.clear();
+    return copies;
+  }
+
   @Override
   void add(final Operation o, final QueryContext ctx) throws QueryException {
     /* Disallow side-effecting updates within transform expressions.
@@ -40,9 +155,83 @@ public final class TransformModifier extends ContextModifier {
      * (future discussion: https://www.w3.org/Bugs/Public/show_bug.cgi?id=13970). */
     if(o instanceof BasicOperation) BASEX_DBTRANSFORM.thrw(o.getInfo());
 
+    final Data data = o.getData();
+    if(views.containsKey(data)) {
+      // target node must have been addressed via the virtual copy
+      final UpdatePrimitive up = (UpdatePrimitive) o;
+      final DBNode t = target;
+      target = null;
+      if(t == null || t.pre != up.targetPre)
+        UPNOTCOPIED.thrw(o.getInfo(), o.getTargetNode());
+
+      patchable &= patchable(up);
+      if(patchable) {
+        DatabaseUpdates du = patches.get(data);
+        if(du == null) {
+          du = new DatabaseUpdates(data);
+          patches.put(data, du);
+        }
+        du.add(up, null);
+      }
+      prims.add(up);
+      return;
+    }
+
     add(o);
     /* check if the target node of the given primitive has been copied in the
      * 'copy' statement of this transform expression. */
-    if(!refs.contains(o.getData())) UPNOTCOPIED.thrw(o.getInfo(), o.getTargetNode());
+    if(!refs.contains(data)) UPNOTCOPIED.thrw(o.getInfo(), o.getTargetNode());
+  }
+
+  /**
+   * Checks if text nodes would be adjacent after the specified nodes have been
+   * deleted. As such text nodes must be merged, the deletions cannot be represented
+   * as overlay.
+   * @param data data reference
+   * @param del pre values of the deleted nodes
+   * @return result of check
+   */
+  private static boolean merges(final Data data, final BitSet del) {
+    // parents whose children have already been checked
+    final BitSet parents = new BitSet();
+    for(int pre = del.nextSetBit(0); pre >= 0; pre = del.nextSetBit(pre + 1)) {
+      final int k = data.kind(pre);
+      if(k == Data.ATTR) continue;
+      final int par = data.parent(pre, k);
+      if(par == -1 || parents.get(par)) continue;
+      parents.set(par);
+
+      // check if a deleted node is located between two remaining texts
+      final int pk = data.kind(par), end = par + data.size(par, pk);
+      boolean text = false, gap = false;
+      for(int p = par + data.attSize(par, pk); p < end; p += data.size(p, data.kind(p))) {
+        if(del.get(p)) {
+          gap = true;
+        } else {
+          final boolean t = data.kind(p) == Data.TEXT;
+          if(t && text && gap) return true;
+          text = t;
+          gap = false;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the specified update primitive can be represented as overlay.
+   * @param up update primitive
+   * @return result of check
+   */
+  private static boolean patchable(final UpdatePrimitive up) {
+    final int k = up.getData().kind(up.targetPre);
+    if(up instanceof ReplaceValue) {
+      // replacing element contents and deleting texts changes the structure
+      final ReplaceValue rv = (ReplaceValue) up;
+      return !rv.rec && (rv.value.length != 0 || k != Data.TEXT);
+    }
+    // prefixed attributes may require new namespace declarations
+    if(up instanceof RenameNode) return k != Data.ATTR || !((RenameNode) up).name.hasPrefix();
+    return up instanceof DeleteNode;
   }
 }
@@ -87,6 +87,11 @@ public final class Updates {
    */
   public DBNode determineDataRef(final ANode target, final QueryContext ctx) {
     if(target instanceof DBNode) return (DBNode) target;
+    // virtual copies of database nodes are updated via the original node
+    if(target instanceof CopyNode && mod instanceof TransformModifier) {
+      final DBNode dbn = ((TransformModifier) mod).target((CopyNode) target);
+      if(dbn != null) return dbn;
+    }
 
     // determine highest ancestor node
     ANode anc = target;
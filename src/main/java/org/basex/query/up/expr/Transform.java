@@ -3,6 +3,9 @@ package org.basex.query.up.expr;
 import static org.basex.query.QueryText.*;
 import static org.basex.query.util.Err.*;
 
+import java.util.*;
+
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.flwor.*;
@@ -66,34 +69,72 @@ public final class Transform extends Arr {
     final int s = ctx.vars.size();
     final int o = (int) ctx.output.size();
     final ContextModifier tmp = ctx.updates.mod;
-    final TransformModifier pu = new TransformModifier();
-    ctx.updates.mod = pu;
 
     try {
-      for(final Let fo : copies) {
-        final Iter ir = ctx.iter(fo.expr);
-        Item i = ir.next();
-        if(!(i instanceof ANode) || ir.next() != null) UPCOPYMULT.thrw(info);
+      // database nodes are copied virtually if the query is not updating
+      modify(ctx, !ctx.updating);
+      return ctx.value(expr[1]);
+    } finally {
+      ctx.vars.size(s);
+      ctx.output.size(o);
+      ctx.updates.mod = tmp;
+    }
+  }
 
+  /**
+   * Binds the copied nodes, evaluates the modify clause and applies all updates.
+   * @param ctx query context
+   * @param virtual copy database nodes virtually
+   * @throws QueryException query exception
+   */
+  private void modify(final QueryContext ctx, final boolean virtual)
+      throws QueryException {
+
+    final int s = ctx.vars.size();
+    final TransformModifier pu = new TransformModifier();
+    ctx.updates.mod = pu;
+    final Item[] nodes = new Item[copies.length];
+    for(int n = 0; n < copies.length; n++) {
+      final Let fo = copies[n];
+      final Iter ir = ctx.iter(fo.expr);
+      Item i = ir.next();
+      if(!(i instanceof ANode) || ir.next() != null) UPCOPYMULT.thrw(info);
+
+      final CopyNode c = virtual && i instanceof DBNode && !(i instanceof FTPosNode) ?
+          pu.view((DBNode) i) : null;
+      if(c != null) {
+        i = c;
+      } else {
         // copy node to main memory data instance
         i = ((ANode) i).dbCopy(ctx.context.prop);
-        // add resulting node to variable
-        ctx.vars.add(fo.var.bind(i, ctx).copy());
         pu.addData(i.data());
+        ctx.memory.add((long) i.data().meta.size << 6, info);
       }
-      ctx.value(expr[0]);
-      ctx.updates.apply();
-      return ctx.value(expr[1]);
-    } finally {
+      // add resulting node to variable
+      ctx.vars.add(fo.var.bind(i, ctx).copy());
+      nodes[n] = i;
+    }
+    ctx.value(expr[0]);
+
+    if(!pu.patch()) {
+      // updates cannot be attached to the virtual copies: copy nodes to main memory
+      final Map<Data, DBNode> dbs = pu.materialize(ctx.context.prop);
       ctx.vars.size(s);
-      ctx.output.size(o);
-      ctx.updates.mod = tmp;
+      for(int n = 0; n < copies.length; n++) {
+        Item i = nodes[n];
+        if(i instanceof CopyNode) {
+          i = dbs.get(((CopyNode) i).node.data);
+          ctx.memory.add((long) i.data().meta.size << 6, info);
+        }
+        ctx.vars.add(copies[n].var.bind(i, ctx).copy());
+      }
     }
+    ctx.updates.apply();
   }
 
   @Override
   public boolean uses(final Use u) {
-    return u == Use.VAR || u != Use.UPD && super.uses(u);
+    return u == Use.VAR || u == Use.STA || u != Use.UPD && super.uses(u);
   }
 
   @Override
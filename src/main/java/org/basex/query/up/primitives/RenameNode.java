@@ -18,7 +18,7 @@ import org.basex.util.*;
  */
 public final class RenameNode extends UpdatePrimitive {
   /** New name. */
-  private final QNm name;
+  public final QNm name;
 
   /**
    * Constructor.
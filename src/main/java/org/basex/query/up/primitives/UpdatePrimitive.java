@@ -15,7 +15,7 @@ import org.basex.util.*;
  */
 public abstract class UpdatePrimitive extends Operation {
   /** Target node pre value. */
-  public final int targetPre;
+  public int targetPre;
   /** Primitive Type. */
   public final PrimitiveType type;
 
@@ -32,6 +32,17 @@ public abstract class UpdatePrimitive extends Operation {
     type = t;
   }
 
+  /**
+   * Assigns the primitive to a main-memory copy of the target database.
+   * The copied nodes must have the same order, starting at the specified offset.
+   * @param d data reference of the copy
+   * @param off pre value of the first copied node
+   */
+  public final void move(final Data d, final int off) {
+    data = d;
+    targetPre -= off;
+  }
+
   /**
    * Creates a {@link DBNode} instance from the target node information.
    * @return DBNode
@@ -23,6 +23,8 @@ public final class Ann extends ElementList {
   public static final QNm Q_PUBLIC = new QNm(QueryText.PUBLIC, FNURI);
   /** Annotation "updating". */
   public static final QNm Q_UPDATING = new QNm(QueryText.UPDATING, FNURI);
+  /** Annotation "memoize". */
+  public static final QNm Q_MEMOIZE = new QNm(QueryText.MEMOIZE, BASEXURI);
 
   /** QNames. */
   public QNm[] names = new QNm[1];
@@ -56,6 +58,16 @@ public final class Ann extends ElementList {
     return false;
   }
 
+  /**
+   * Returns the value of the specified element.
+   * @param e element to be found
+   * @return value, or {@code null} if the element is not found
+   */
+  public Value value(final QNm e) {
+    for(int i = 0; i < size; ++i) if(names[i].eq(e)) return values[i];
+    return null;
+  }
+
   @Override
   public String toString() {
     final TokenBuilder tb = new TokenBuilder();
@@ -251,8 +251,8 @@ public final class DataBuilder {
    * @return number of descendants + 1 or attribute size + 1
    */
   private static int size(final ANode n, final boolean a) {
-    if(n instanceof DBNode) {
-      final DBNode dbn = (DBNode) n;
+    if(n instanceof DBNode || n instanceof CopyNode && ((CopyNode) n).overlay() == null) {
+      final DBNode dbn = n instanceof DBNode ? (DBNode) n : ((CopyNode) n).node;
       final int k = n.kind();
       return a ? dbn.data.attSize(dbn.pre, k) : dbn.data.size(dbn.pre, k);
     }
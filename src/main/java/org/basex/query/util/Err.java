@@ -33,6 +33,12 @@ public enum Err {
   BASX_RESTXQ(BASX, 3, "%"),
   /** BASEX0004. */
   BASEX_DBTRANSFORM(BASX, 4, "No database updates allowed within transform expression."),
+  /** BASX0005. */
+  BASX_MEMOIZE(BASX, 5, "Function '%' cannot be memoized: %."),
+  /** BASX0006. */
+  BASX_THREADS(BASX, 6, "Invalid number of threads: %."),
+  /** BASX0007. */
+  BASX_MEMORY(BASX, 7, "Query exceeds memory limit of % MB."),
 
   // Client module
 
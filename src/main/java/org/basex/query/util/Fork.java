@@ -0,0 +1,188 @@
+package org.basex.query.util;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.Expr.Use;
+import org.basex.query.value.*;
+import org.basex.util.*;
+
+/**
+ * Evaluates a number of tasks by a bounded number of threads. Each thread has its own
+ * query context, which shares databases, modules and global variables with the
+ * parent context, and fetches the next task as soon as the previous one is finished.
+ * The results are returned in the order of the tasks. If tasks fail, the error of the
+ * first failed task is passed on, and interruptions are forwarded to all threads.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public abstract class Fork {
+  /** Number of tasks. */
+  private final int tasks;
+  /** Results of the tasks. */
+  private final Value[] results;
+  /** Errors raised by the tasks. */
+  private final Throwable[] errors;
+  /** Index of the next task. */
+  private int next;
+  /** Index of the first failed task. */
+  private int failed = Integer.MAX_VALUE;
+
+  /**
+   * Constructor.
+   * @param t number of tasks
+   */
+  protected Fork(final int t) {
+    tasks = t;
+    results = new Value[t];
+    errors = new Throwable[t];
+  }
+
+  /**
+   * Evaluates the specified task.
+   * @param ctx query context of the evaluating thread
+   * @param t index of the task
+   * @return result
+   * @throws QueryException query exception
+   */
+  protected abstract Value eval(final QueryContext ctx, final int t)
+      throws QueryException;
+
+  /**
+   * Checks if the specified expression can be evaluated by several threads.
+   * @param e expression
+   * @return result of check
+   */
+  public static boolean parallel(final Expr e) {
+    return !e.uses(Use.UPD) && !e.uses(Use.CNS) && !e.uses(Use.STA);
+  }
+
+  /**
+   * Returns the default number of threads.
+   * @return number of threads
+   */
+  public static int threads() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns the maximum number of threads for evaluating a single query
+   * (see {@link MainProp#MAXTHREADS}).
+   * @param ctx query context
+   * @return number of threads
+   */
+  public static int threads(final QueryContext ctx) {
+    final int t = ctx.context.mprop.num(MainProp.MAXTHREADS);
+    return t > 0 ? t : threads();
+  }
+
+  /**
+   * Evaluates all tasks. Tasks are evaluated sequentially if only one thread is
+   * requested, or if the query context itself belongs to a forked thread.
+   * The number of threads is limited by the number of tasks and by
+   * {@link #threads(QueryContext)}.
+   * @param ctx query context
+   * @param threads requested number of threads
+   * @return results, in the order of the tasks
+   * @throws QueryException query exception
+   */
+  public final Value[] run(final QueryContext ctx, final int threads)
+      throws QueryException {
+
+    final int n = Math.min(Math.min(threads, tasks), threads(ctx));
+    if(n < 2 || ctx.forked) {
+      for(int t = 0; t < tasks; t++) {
+        ctx.checkStop();
+        results[t] = eval(ctx, t);
+      }
+      return results;
+    }
+
+    // each thread evaluates its tasks with a copy of the current namespace stack
+    final Atts ns = ctx.sc.ns.stack();
+    final Worker[] workers = new Worker[n];
+    for(int w = 0; w < n; w++) {
+      final Atts st = new Atts();
+      for(int a = 0; a < ns.size(); a++) st.add(ns.name(a), ns.string(a));
+      workers[w] = new Worker(new QueryContext(ctx), st);
+      workers[w].start();
+    }
+    // wait for all threads, pass on interruptions
+    for(final Worker w : workers) {
+      while(w.isAlive()) {
+        try {
+          ctx.checkStop();
+        } catch(final ProgressException ex) {
+          for(final Worker wk : workers) wk.ctx.stop();
+        }
+        try {
+          w.join(100);
+        } catch(final InterruptedException ex) {
+          Util.debug(ex);
+        }
+      }
+    }
+    ctx.checkStop();
+
+    // all tasks before the first failed one have been evaluated
+    if(failed != Integer.MAX_VALUE) {
+      final Throwable ex = errors[failed];
+      if(ex instanceof QueryException) throw (QueryException) ex;
+      if(ex instanceof RuntimeException) throw (RuntimeException) ex;
+      throw (Error) ex;
+    }
+    return results;
+  }
+
+  /**
+   * Returns the index of the next task to be evaluated.
+   * @return index, or {@code -1} if no more tasks need to be evaluated
+   */
+  synchronized int next() {
+    return next < tasks && next < failed ? next++ : -1;
+  }
+
+  /**
+   * Assigns an error to the specified task.
+   * @param t index of the task
+   * @param ex error
+   */
+  synchronized void error(final int t, final Throwable ex) {
+    errors[t] = ex;
+    if(t < failed) failed = t;
+  }
+
+  /**
+   * Thread evaluating tasks.
+   */
+  private final class Worker extends Thread {
+    /** Query context of the thread. */
+    final QueryContext ctx;
+    /** Namespace stack of the thread. */
+    private final Atts ns;
+
+    /**
+     * Constructor.
+     * @param qc query context
+     * @param st namespace stack
+     */
+    Worker(final QueryContext qc, final Atts st) {
+      ctx = qc;
+      ns = st;
+    }
+
+    @Override
+    public void run() {
+      ctx.sc.ns.stack(ns);
+      for(int t; (t = next()) != -1;) {
+        try {
+          ctx.checkStop();
+          results[t] = eval(ctx, t);
+        } catch(final Throwable ex) {
+          error(t, ex);
+        }
+      }
+    }
+  }
+}
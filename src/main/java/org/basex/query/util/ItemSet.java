@@ -5,9 +5,14 @@ import java.util.*;
 import org.basex.query.*;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Set for quickly indexing items.
+ * As long as all keys are strings, integers or doubles, they are indexed in a
+ * specialized set, which compares tokens or primitive values. As soon as a key of
+ * another type is added, all keys are moved to a generic set, which hashes and
+ * compares items.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -15,16 +20,35 @@ import org.basex.util.*;
 public class ItemSet implements Iterable<Item> {
   /** Initial hash capacity. */
   protected static final int CAP = 1 << 3;
-  /** Hash values. */
-  private int[] hash = new int[CAP];
-  /** Pointers to the next token. */
-  private int[] next = new int[CAP];
-  /** Hash table buckets. */
-  private int[] bucket = new int[CAP];
+  /** Mode: no keys indexed yet. */
+  private static final int NONE = 0;
+  /** Mode: strings and untyped atomics. */
+  private static final int STR = 1;
+  /** Mode: integers. */
+  private static final int ITR = 2;
+  /** Mode: doubles. */
+  private static final int DBL = 3;
+  /** Mode: generic items. */
+  private static final int ITEM = 4;
+
   /** Hashed items. */
   Item[] keys = new Item[CAP];
   /** Hash entries. Actual hash size is {@code size - 1}. */
   int size = 1;
+  /** Current mode. */
+  private int mode = NONE;
+
+  /** Specialized set for string keys. */
+  private TokenSet tokens;
+  /** Specialized set for integer or double keys. */
+  private LongSet numbers;
+
+  /** Hash values (generic set). */
+  private int[] hash;
+  /** Pointers to the next token (generic set). */
+  private int[] next;
+  /** Hash table buckets (generic set). */
+  private int[] bucket;
 
   /**
    * Indexes the specified key and returns the offset of the added key.
@@ -35,7 +59,22 @@ public class ItemSet implements Iterable<Item> {
    * @throws QueryException query exception
    */
   public int add(final Item key, final InputInfo ii) throws QueryException {
-    if(size == next.length) rehash();
+    if(size == keys.length) rehash();
+
+    if(mode == NONE) {
+      mode = mode(key);
+      if(mode == STR) tokens = new TokenSet();
+      else if(mode != ITEM) numbers = new LongSet();
+      else generic(ii);
+    }
+    if(mode != ITEM) {
+      if(mode(key) == mode) {
+        final int id = mode == STR ? tokens.add(key.string(ii)) : numbers.add(bits(key, ii));
+        if(id > 0) keys[size++] = key;
+        return id;
+      }
+      generic(ii);
+    }
 
     final int h = key.hash(ii);
     final int p = h & bucket.length - 1;
@@ -57,6 +96,14 @@ public class ItemSet implements Iterable<Item> {
    * @throws QueryException query exception
    */
   public final int id(final Item key, final InputInfo ii) throws QueryException {
+    if(mode == NONE) return 0;
+    if(mode != ITEM) {
+      if(mode(key) == mode) {
+        return mode == STR ? tokens.id(key.string(ii)) : numbers.id(bits(key, ii));
+      }
+      generic(ii);
+    }
+
     final int h = key.hash(ii);
     final int p = h & bucket.length - 1;
     for(int id = bucket[p]; id != 0; id = next[id]) {
@@ -65,25 +112,73 @@ public class ItemSet implements Iterable<Item> {
     return 0;
   }
 
+  /**
+   * Returns the mode for the specified key.
+   * @param key key
+   * @return mode
+   */
+  private static int mode(final Item key) {
+    return key.type.isStringOrUntyped() ? STR : key instanceof Int ? ITR :
+      key instanceof Dbl ? DBL : ITEM;
+  }
+
+  /**
+   * Returns the primitive representation of a numeric key. Positive and negative
+   * zero as well as all NaN values are mapped to the same value.
+   * @param key key
+   * @param ii input info
+   * @return primitive value
+   * @throws QueryException query exception
+   */
+  private long bits(final Item key, final InputInfo ii) throws QueryException {
+    if(mode == ITR) return key.itr(ii);
+    final double d = key.dbl(ii);
+    return d == 0 ? 0 : Double.doubleToLongBits(d);
+  }
+
+  /**
+   * Moves all keys from the specialized set to the generic set.
+   * @param ii input info
+   * @throws QueryException query exception
+   */
+  private void generic(final InputInfo ii) throws QueryException {
+    mode = ITEM;
+    tokens = null;
+    numbers = null;
+    final int s = keys.length;
+    hash = new int[s];
+    next = new int[s];
+    bucket = new int[s];
+    for(int id = 1; id < size; id++) {
+      final int h = keys[id].hash(ii);
+      final int p = h & s - 1;
+      next[id] = bucket[p];
+      hash[id] = h;
+      bucket[p] = id;
+    }
+  }
+
   /**
    * Resizes the hash table.
    */
   protected void rehash() {
     final int s = size << 1;
-    final int[] tmp = new int[s];
-    for(final int b : bucket) {
-      int id = b;
-      while(id != 0) {
-        final int p = hash[id] & s - 1;
-        final int nx = next[id];
-        next[id] = tmp[p];
-        tmp[p] = id;
-        id = nx;
+    if(mode == ITEM) {
+      final int[] tmp = new int[s];
+      for(final int b : bucket) {
+        int id = b;
+        while(id != 0) {
+          final int p = hash[id] & s - 1;
+          final int nx = next[id];
+          next[id] = tmp[p];
+          tmp[p] = id;
+          id = nx;
+        }
       }
+      bucket = tmp;
+      next = Arrays.copyOf(next, s);
+      hash = Arrays.copyOf(hash, s);
     }
-    bucket = tmp;
-    next = Arrays.copyOf(next, s);
-    hash = Arrays.copyOf(hash, s);
     final Item[] i = new Item[s];
     System.arraycopy(keys, 0, i, 0, size);
     keys = i;
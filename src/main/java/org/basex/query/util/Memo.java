@@ -0,0 +1,182 @@
+package org.basex.query.util;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Memoized results of a user-defined function, which are indexed by the values of the
+ * function arguments. Nodes are compared by their identity, and all other items by
+ * their type and value. If the maximum number of results is exceeded, the least
+ * recently used result is discarded.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Memo {
+  /** Default maximum number of results. */
+  public static final int MAX = 10000;
+
+  /** Function declaration. */
+  public final String func;
+  /** Maximum number of results. */
+  private final int max;
+  /** Only cache atomic arguments and results (required for sharing results). */
+  private final boolean atomic;
+  /** Results, in the order of their last access. */
+  private final LinkedHashMap<Key, Value> results =
+      new LinkedHashMap<Key, Value>(16, 0.75f, true);
+
+  /**
+   * Constructor.
+   * @param f function declaration
+   * @param m maximum number of results
+   * @param a only cache atomic arguments and results
+   */
+  public Memo(final String f, final int m, final boolean a) {
+    func = f;
+    max = m;
+    atomic = a;
+  }
+
+  /**
+   * Returns a key for the specified argument values.
+   * @param args argument values
+   * @param ii input info
+   * @return key, or {@code null} if the arguments cannot be used as key
+   * @throws QueryException query exception
+   */
+  public Key key(final Value[] args, final InputInfo ii) throws QueryException {
+    int h = args.length;
+    for(final Value v : args) {
+      for(final Item it : v) {
+        if(!valid(it)) return null;
+        h = (h << 5) - h + hash(it, ii);
+      }
+      h = (h << 5) - h + (int) v.size();
+    }
+    return new Key(args, h, ii);
+  }
+
+  /**
+   * Returns the result for the specified key.
+   * @param key key
+   * @return result, or {@code null}
+   */
+  public synchronized Value get(final Key key) {
+    return results.get(key);
+  }
+
+  /**
+   * Caches the result for the specified key.
+   * @param key key
+   * @param value result
+   */
+  public void put(final Key key, final Value value) {
+    for(final Item it : value) if(!valid(it)) return;
+    synchronized(this) {
+      results.put(key, value);
+      if(results.size() > max) {
+        final Iterator<Key> it = results.keySet().iterator();
+        it.next();
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Checks if the specified item can be cached.
+   * @param it item
+   * @return result of check
+   */
+  private boolean valid(final Item it) {
+    return !(it instanceof FItem || atomic && it instanceof ANode);
+  }
+
+  /**
+   * Returns a hash value for the specified item.
+   * @param it item
+   * @param ii input info
+   * @return hash value
+   * @throws QueryException query exception
+   */
+  private static int hash(final Item it, final InputInfo ii) throws QueryException {
+    if(it instanceof DBNode) return ((DBNode) it).pre;
+    if(it instanceof CopyNode) return ((CopyNode) it).node.pre;
+    if(it instanceof ANode) return ((ANode) it).id;
+    return it.hash(ii);
+  }
+
+  /**
+   * Checks if two items are identical.
+   * @param it1 first item
+   * @param it2 second item
+   * @param ii input info
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  static boolean eq(final Item it1, final Item it2, final InputInfo ii)
+      throws QueryException {
+
+    if(it1 instanceof ANode) return it2 instanceof ANode && ((ANode) it1).is((ANode) it2);
+    if(it1.type != it2.type) return false;
+    // distinguish negative and positive zero
+    if(it1.type == AtomType.DBL || it1.type == AtomType.FLT)
+      return Double.compare(it1.dbl(ii), it2.dbl(ii)) == 0;
+    return it1.equiv(ii, it2);
+  }
+
+  /**
+   * Key, composed of argument values.
+   */
+  public static final class Key {
+    /** Argument values. */
+    private final Value[] args;
+    /** Hash value. */
+    private final int hash;
+    /** Input info. */
+    private final InputInfo info;
+
+    /**
+     * Constructor.
+     * @param a argument values
+     * @param h hash value
+     * @param ii input info
+     */
+    Key(final Value[] a, final int h, final InputInfo ii) {
+      args = a;
+      hash = h;
+      info = ii;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if(!(obj instanceof Key)) return false;
+      final Key k = (Key) obj;
+      if(hash != k.hash || args.length != k.args.length) return false;
+      try {
+        for(int a = 0; a < args.length; a++) {
+          final Value v1 = args[a], v2 = k.args[a];
+          final long s = v1.size();
+          if(s != v2.size()) return false;
+          for(long i = 0; i < s; i++) {
+            if(!eq(v1.itemAt(i), v2.itemAt(i), info)) return false;
+          }
+        }
+        return true;
+      } catch(final QueryException ex) {
+        return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package org.basex.query.util;
+
+import static org.basex.query.util.Err.*;
+
+import java.util.concurrent.atomic.*;
+
+import org.basex.query.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
+import org.basex.util.*;
+
+/**
+ * Approximate accounting of the memory that is consumed by the materialized
+ * structures of a query, such as let bindings, constructed nodes, database copies,
+ * and buffered tuples of order by and group by clauses. If the memory limit is
+ * exceeded, the query is aborted with an error. The accounting is shared by all
+ * threads that evaluate parts of the same query.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Memory {
+  /** Memory limit (in bytes; {@code 0}: no limit). */
+  private final long max;
+  /** Currently accounted bytes. */
+  private final AtomicLong used = new AtomicLong();
+  /** Maximum number of accounted bytes. */
+  private volatile long peak;
+
+  /**
+   * Constructor.
+   * @param mb memory limit in megabytes ({@code 0}: no limit)
+   */
+  public Memory(final long mb) {
+    max = mb << 20;
+  }
+
+  /**
+   * Accounts the specified number of bytes.
+   * @param bytes number of bytes
+   * @param ii input info
+   * @throws QueryException query exception
+   */
+  public void add(final long bytes, final InputInfo ii) throws QueryException {
+    final long u = used.addAndGet(bytes);
+    if(u > peak) peak = u;
+    if(max != 0 && u > max) {
+      used.addAndGet(-bytes);
+      BASX_MEMORY.thrw(ii, max >> 20);
+    }
+  }
+
+  /**
+   * Releases the specified number of bytes.
+   * @param bytes number of bytes
+   */
+  public void free(final long bytes) {
+    used.addAndGet(-bytes);
+  }
+
+  /**
+   * Returns the number of currently accounted bytes.
+   * @return number of bytes
+   */
+  public long used() {
+    return used.get();
+  }
+
+  /**
+   * Returns the maximum number of accounted bytes.
+   * @return number of bytes
+   */
+  public long peak() {
+    return peak;
+  }
+
+  /**
+   * Returns the estimated memory consumption of an item.
+   * @param it item (may be {@code null})
+   * @return number of bytes
+   */
+  public static long size(final Item it) {
+    if(it instanceof Str) return 48 + ((Str) it).string().length;
+    if(it instanceof Atm) return 48 + ((Atm) it).string(null).length;
+    if(it instanceof FNode) return 64;
+    return 32;
+  }
+
+  /**
+   * Returns the estimated memory consumption of a value. Range sequences are
+   * considered to be small, and sequences with primitive values are estimated
+   * without iterating their items.
+   * @param v value
+   * @return number of bytes
+   */
+  public static long size(final Value v) {
+    if(v instanceof Item) return size((Item) v);
+    if(v instanceof RangeSeq) return 32;
+    final long s = v.size();
+    if(v instanceof NativeSeq && !(v instanceof StrSeq || v instanceof DecSeq)) {
+      return 16 + (s << 3);
+    }
+    long m = 16;
+    for(long i = 0; i < s; i++) m += size(v.itemAt(i)) + 8;
+    return m;
+  }
+
+  @Override
+  public String toString() {
+    return Performance.format(used.get());
+  }
+}
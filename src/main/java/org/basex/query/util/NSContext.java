@@ -16,8 +16,8 @@ import org.basex.util.*;
 public final class NSContext {
   /** Static namespaces, containing prefixes and URIs. */
   private final Atts ns = new Atts();
-  /** Dynamically added namespaces. */
-  private Atts stack;
+  /** Dynamically added namespaces (one stack per evaluating thread). */
+  private final ThreadLocal<Atts> stack = new ThreadLocal<Atts>();
 
   /**
    * Validates and adds the specified namespace at parsing time.
@@ -65,9 +65,10 @@ public final class NSContext {
    * @return namespace URI or {@code null}
    */
   public byte[] uri(final byte[] pref) {
-    if(stack != null) {
-      for(int s = stack.size() - 1; s >= 0; s--) {
-        if(eq(stack.name(s), pref)) return stack.string(s);
+    final Atts st = stack.get();
+    if(st != null) {
+      for(int s = st.size() - 1; s >= 0; s--) {
+        if(eq(st.name(s), pref)) return st.string(s);
       }
     }
     final byte[] uri = staticURI(pref);
@@ -104,7 +105,7 @@ public final class NSContext {
    * @param s stack to be set
    */
   public void stack(final Atts s) {
-    stack = s;
+    stack.set(s);
   }
 
   /**
@@ -112,8 +113,8 @@ public final class NSContext {
    * @return old instance
    */
   public Atts reset() {
-    final Atts s = stack;
-    stack = null;
+    final Atts s = stack.get();
+    stack.set(null);
     return s;
   }
 
@@ -122,7 +123,11 @@ public final class NSContext {
    * @return stack
    */
   public Atts stack() {
-    if(stack == null) stack = new Atts();
-    return stack;
+    Atts s = stack.get();
+    if(s == null) {
+      s = new Atts();
+      stack.set(s);
+    }
+    return s;
   }
 }
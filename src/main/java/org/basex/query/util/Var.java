@@ -42,6 +42,8 @@ public final class Var extends ParseExpr {
   private Value value;
   /** Bound expression. */
   private Expr expr;
+  /** Lazily evaluated value ({@code null} if value is not lazy). */
+  private LazyIter lazy;
 
   /**
    * Constructor.
@@ -117,6 +119,7 @@ public final class Var extends ParseExpr {
    */
   public Var bind(final Expr e, final QueryContext ctx) throws QueryException {
     expr = e;
+    lazy = null;
     return e.isValue() ? bind((Value) e, ctx) : this;
   }
 
@@ -138,9 +141,33 @@ public final class Var extends ParseExpr {
   public Var bind(final Value v, final QueryContext ctx) throws QueryException {
     expr = v;
     value = cast(v, ctx);
+    lazy = null;
     return this;
   }
 
+  /**
+   * Binds the result of the specified expression to the variable, which will be
+   * evaluated on demand. This method must only be called if the variable has no type,
+   * and if the expression can be evaluated lazily (see {@link LazyIter#lazy}).
+   * @param e expression to be evaluated
+   * @param ctx query context
+   * @return self reference
+   */
+  public Var bindLazy(final Expr e, final QueryContext ctx) {
+    expr = e;
+    value = null;
+    lazy = new LazyIter(e, ctx, info);
+    return this;
+  }
+
+  /**
+   * Releases the memory that has been accounted for a lazily evaluated value.
+   * This method is called if the variable binding goes out of scope.
+   */
+  public void free() {
+    if(lazy != null) lazy.free();
+  }
+
   @Override
   public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
     return value(ctx).item(ctx, ii);
@@ -148,11 +175,12 @@ public final class Var extends ParseExpr {
 
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
-    return value(ctx).iter();
+    return value == null && lazy != null ? lazy.iter() : value(ctx).iter();
   }
 
   @Override
   public Value value(final QueryContext ctx) throws QueryException {
+    if(value == null && lazy != null) value = lazy.value();
     if(value == null) {
       if(expr == null) VAREMPTY.thrw(info, this);
       final StaticContext s = ctx.sc;
@@ -196,6 +224,7 @@ public final class Var extends ParseExpr {
     v.global = global;
     v.value = value;
     v.expr = expr;
+    v.lazy = lazy;
     v.type = type;
     v.ret = ret;
     v.cast = cast;
@@ -13,9 +13,27 @@ import org.basex.query.value.node.*;
  */
 public final class VarContext extends ExprInfo {
   /** Global variables. */
-  private final VarStack global = new VarStack();
+  private final VarStack global;
   /** Local variables. */
-  private VarStack local = new VarStack();
+  private VarStack local;
+
+  /**
+   * Constructor.
+   */
+  public VarContext() {
+    global = new VarStack();
+    local = new VarStack();
+  }
+
+  /**
+   * Constructor for a context that is used by another thread.
+   * Global variables are shared, and local variables are copied.
+   * @param vc variable context
+   */
+  public VarContext(final VarContext vc) {
+    global = vc.global;
+    local = new VarStack(vc.local);
+  }
 
   /**
    * Returns the global variables.
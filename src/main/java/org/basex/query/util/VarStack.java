@@ -36,6 +36,15 @@ public final class VarStack extends ExprInfo {
     vars = new Var[c];
   }
 
+  /**
+   * Constructor, copying the variables of the specified stack.
+   * @param vs variable stack
+   */
+  public VarStack(final VarStack vs) {
+    vars = vs.vars.clone();
+    size = vs.size;
+  }
+
   /**
    * Adds or replaces the specified variable.
    * @param v variable
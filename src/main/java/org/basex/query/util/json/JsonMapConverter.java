@@ -60,13 +60,13 @@ public final class JsonMapConverter {
       }
     }
 
-    Map map = Map.EMPTY;
+    final MapBuilder mb = new MapBuilder();
     final JStruct st = (JStruct) nd;
     final TokenList names = st instanceof JObject ? ((JObject) st).names : null;
     for(int i = st.size(); --i >= 0;) {
-      map = map.insert(names == null ? Int.get(i + 1) : Str.get(names.get(i)),
+      mb.add(names == null ? Int.get(i + 1) : Str.get(names.get(i)),
           convert(st.value(i)), null);
     }
-    return map;
+    return mb.finish(null);
   }
 }
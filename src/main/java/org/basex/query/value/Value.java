@@ -107,6 +107,11 @@ public abstract class Value extends Expr implements Iterable<Item> {
     return this;
   }
 
+  @Override
+  public final Value profile() {
+    return this;
+  }
+
   @Override
   public boolean uses(final Use u) {
     return false;
@@ -1,6 +1,7 @@
 package org.basex.query.value.item;
 
 import org.basex.query.*;
+import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
 
@@ -33,7 +34,8 @@ public abstract class AStr extends Item {
 
   @Override
   public final boolean eq(final InputInfo ii, final Item it) throws QueryException {
-    return Token.eq(string(ii), it.string(ii));
+    return it instanceof ANode ? ((ANode) it).eq(string(ii)) :
+      Token.eq(string(ii), it.string(ii));
   }
 
   @Override
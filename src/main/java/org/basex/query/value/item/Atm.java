@@ -4,6 +4,7 @@ import static org.basex.data.DataText.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
@@ -47,7 +48,8 @@ public final class Atm extends Item {
 
   @Override
   public boolean eq(final InputInfo ii, final Item it) throws QueryException {
-    return it.type.isUntyped() ? Token.eq(val, it.string(ii)) : it.eq(ii, this);
+    return it instanceof ANode ? ((ANode) it).eq(val) :
+      it.type.isUntyped() ? Token.eq(val, it.string(ii)) : it.eq(ii, this);
   }
 
   @Override
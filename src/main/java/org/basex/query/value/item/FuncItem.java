@@ -88,7 +88,8 @@ public final class FuncItem extends FItem {
       throws QueryException {
 
     for(int v = closure.size; --v >= 0;) ctx.vars.add(closure.vars[v].copy());
-    for(int v = vars.length; --v >= 0;) ctx.vars.add(vars[v].bind(args[v], ctx).copy());
+    // copies are bound, as the function may be invoked by several threads
+    for(int v = vars.length; --v >= 0;) ctx.vars.add(vars[v].copy().bind(args[v], ctx));
   }
 
   @Override
@@ -198,6 +198,11 @@ final class Branch extends TrieNode {
     for(final TrieNode nd : kids) if(nd != null) nd.keys(ks);
   }
 
+  @Override
+  void add(final MapBuilder mb) {
+    for(final TrieNode nd : kids) if(nd != null) nd.add(mb);
+  }
+
   @Override
   boolean hasType(final AtomType kt, final SeqType vt) {
     for(final TrieNode k : kids)
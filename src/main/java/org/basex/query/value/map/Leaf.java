@@ -169,6 +169,11 @@ final class Leaf extends TrieNode {
     ks.add(key);
   }
 
+  @Override
+  void add(final MapBuilder mb) {
+    mb.add(hash, key, value);
+  }
+
   @Override
   boolean hasType(final AtomType kt, final SeqType vt) {
     return (kt == null || key.type.instanceOf(kt))
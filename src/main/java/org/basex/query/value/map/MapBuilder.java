@@ -0,0 +1,166 @@
+package org.basex.query.value.map;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Builder for creating a {@link Map} with a large number of bindings.
+ * Instead of inserting each binding into the persistent trie, which copies all nodes
+ * on the path to the inserted leaf, all bindings are collected first. The trie is then
+ * built bottom-up: the bindings are distributed to the children of each level via
+ * counting sort, and each node is created only once.
+ * If a key is added several times, the last value will be bound.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MapBuilder {
+  /** Hash values of the keys (will be sorted together with the {@link #order} array). */
+  private int[] hashes = new int[ElementList.CAP];
+  /** Keys. */
+  private Item[] keys = new Item[ElementList.CAP];
+  /** Values. */
+  private Value[] values = new Value[ElementList.CAP];
+  /** Number of bindings. */
+  private int size;
+
+  /** Order of the bindings. */
+  private int[] order;
+  /** Buffers for sorting the bindings. */
+  private int[] tmp, tmph;
+
+  /**
+   * Adds a binding.
+   * @param key key
+   * @param value value
+   * @param ii input info
+   * @throws QueryException query exception
+   */
+  public void add(final Item key, final Value value, final InputInfo ii)
+      throws QueryException {
+    final Item k = Map.key(key, ii);
+    if(k != null) add(k.hash(ii), k, value);
+  }
+
+  /**
+   * Adds all bindings of the specified map.
+   * @param map map
+   */
+  public void add(final Map map) {
+    map.root.add(this);
+  }
+
+  /**
+   * Adds a binding with a checked key.
+   * @param hash hash value of the key
+   * @param key key
+   * @param value value
+   */
+  void add(final int hash, final Item key, final Value value) {
+    if(size == keys.length) {
+      final int s = Array.newSize(size);
+      hashes = Arrays.copyOf(hashes, s);
+      keys = Arrays.copyOf(keys, s);
+      values = Arrays.copyOf(values, s);
+    }
+    hashes[size] = hash;
+    keys[size] = key;
+    values[size++] = value;
+  }
+
+  /**
+   * Creates the map. The builder must not be used anymore after this call.
+   * @param ii input info
+   * @return map
+   * @throws QueryException query exception
+   */
+  public Map finish(final InputInfo ii) throws QueryException {
+    if(size == 0) return Map.EMPTY;
+    order = new int[size];
+    for(int i = 0; i < size; i++) order[i] = i;
+    tmp = new int[size];
+    tmph = new int[size];
+    return new Map(node(0, size, 0, ii));
+  }
+
+  /**
+   * Creates a trie node for the specified range of bindings.
+   * @param s first position in the {@link #order} array
+   * @param e position after the last binding
+   * @param l level
+   * @param ii input info
+   * @return node
+   * @throws QueryException query exception
+   */
+  private TrieNode node(final int s, final int e, final int l, final InputInfo ii)
+      throws QueryException {
+
+    final int h = hashes[s];
+    if(e - s == 1) return new Leaf(h, keys[order[s]], values[order[s]]);
+
+    // bindings with identical hash values are stored in a leaf or collision list
+    int p = s + 1;
+    while(p < e && hashes[p] == h) p++;
+    if(p == e) return list(s, e, h, ii);
+
+    // distribute bindings to the children (sort is stable: later bindings win)
+    final int[] pos = new int[TrieNode.KIDS + 1];
+    for(int i = s; i < e; i++) pos[TrieNode.key(hashes[i], l) + 1]++;
+    for(int k = 0; k < TrieNode.KIDS; k++) pos[k + 1] += pos[k];
+    final int[] start = pos.clone();
+    for(int i = s; i < e; i++) {
+      final int t = s + pos[TrieNode.key(hashes[i], l)]++;
+      tmp[t] = order[i];
+      tmph[t] = hashes[i];
+    }
+    System.arraycopy(tmp, s, order, s, e - s);
+    System.arraycopy(tmph, s, hashes, s, e - s);
+
+    // create child nodes
+    final TrieNode[] kids = new TrieNode[TrieNode.KIDS];
+    int used = 0, ns = 0;
+    for(int k = 0; k < TrieNode.KIDS; k++) {
+      final int ks = s + start[k], ke = s + start[k + 1];
+      if(ks == ke) continue;
+      kids[k] = node(ks, ke, l + 1, ii);
+      used |= 1 << k;
+      ns += kids[k].size;
+    }
+    return new Branch(kids, used, ns);
+  }
+
+  /**
+   * Creates a leaf or collision list for bindings with the same hash value.
+   * @param s first position in the {@link #order} array
+   * @param e position after the last binding
+   * @param h hash value
+   * @param ii input info
+   * @return node
+   * @throws QueryException query exception
+   */
+  private TrieNode list(final int s, final int e, final int h, final InputInfo ii)
+      throws QueryException {
+
+    final Item[] ks = new Item[e - s];
+    final Value[] vs = new Value[e - s];
+    int n = 0;
+    outer: for(int i = s; i < e; i++) {
+      final int o = order[i];
+      for(int j = 0; j < n; j++) {
+        if(TrieNode.eq(ks[j], keys[o], ii)) {
+          vs[j] = values[o];
+          continue outer;
+        }
+      }
+      ks[n] = keys[o];
+      vs[n++] = values[o];
+    }
+    return n == 1 ? new Leaf(h, ks[0], vs[0]) :
+      new List(h, Arrays.copyOf(ks, n), Arrays.copyOf(vs, n));
+  }
+}
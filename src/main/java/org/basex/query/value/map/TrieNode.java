@@ -48,6 +48,8 @@ abstract class TrieNode {
     @Override
     void keys(final ValueBuilder ks) { }
     @Override
+    void add(final MapBuilder mb) { }
+    @Override
     boolean hasType(final AtomType kt, final SeqType vt) { return true; }
     @Override
     int hash(final InputInfo ii) throws QueryException { return 0; }
@@ -181,6 +183,12 @@ abstract class TrieNode {
    */
   abstract void keys(final ValueBuilder ks);
 
+  /**
+   * Adds all bindings in this subtree to the specified builder.
+   * @param mb map builder
+   */
+  abstract void add(final MapBuilder mb);
+
   /**
    * Calculates the hash key for the given level.
    * @param hash hash value
@@ -236,6 +244,10 @@ abstract class TrieNode {
    */
   static boolean eq(final Item a, final Item b, final InputInfo ii)
       throws QueryException {
+    // shortcuts for the most common key types
+    if(a instanceof Str && b instanceof Str)
+      return Token.eq(((Str) a).string(), ((Str) b).string());
+    if(a instanceof Int && b instanceof Int) return a.itr(ii) == b.itr(ii);
     return a.comparable(b) && a.eq(ii, b);
   }
 
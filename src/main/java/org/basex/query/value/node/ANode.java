@@ -1,5 +1,7 @@
 package org.basex.query.value.node;
 
+import java.util.concurrent.atomic.*;
+
 import org.basex.api.dom.*;
 import org.basex.core.*;
 import org.basex.data.*;
@@ -24,9 +26,10 @@ public abstract class ANode extends Item {
   /** Static node counter. */
   // [CG] XQuery, node id: move to query context to reduce chance of overflow, or
   // move to FNode to reduce memory usage of DBNode instances
-  private static int sid;
+  // the counter is atomic, as nodes may be created by several threads
+  private static final AtomicInteger SID = new AtomicInteger();
   /** Unique node id. */
-  public final int id = ++sid;
+  public final int id = SID.incrementAndGet();
 
   /** Cached string value. */
   byte[] val;
@@ -57,9 +60,18 @@ public abstract class ANode extends Item {
    */
   public abstract byte[] string();
 
+  /**
+   * Checks if the string value equals the specified token.
+   * @param token token to be compared
+   * @return result of check
+   */
+  public boolean eq(final byte[] token) {
+    return Token.eq(string(), token);
+  }
+
   @Override
   public final boolean eq(final InputInfo ii, final Item it) throws QueryException {
-    return it.type.isUntyped() ? Token.eq(string(), it.string(ii)) : it.eq(ii, this);
+    return it.type.isUntyped() ? eq(it.string(ii)) : it.eq(ii, this);
   }
 
   @Override
@@ -241,13 +253,37 @@ public abstract class ANode extends Item {
    * Returns an ancestor axis iterator.
    * @return iterator
    */
-  public abstract AxisIter ancestor();
+  public AxisIter ancestor() {
+    return new AxisIter() {
+      /** Temporary node. */
+      private ANode node = ANode.this;
+
+      @Override
+      public ANode next() {
+        node = node.parent();
+        return node;
+      }
+    };
+  }
 
   /**
    * Returns an ancestor-or-self axis iterator.
    * @return iterator
    */
-  public abstract AxisIter ancestorOrSelf();
+  public AxisIter ancestorOrSelf() {
+    return new AxisIter() {
+      /** Temporary node. */
+      private ANode node = ANode.this;
+
+      @Override
+      public ANode next() {
+        if(node == null) return null;
+        final ANode n = node;
+        node = n.parent();
+        return n;
+      }
+    };
+  }
 
   /**
    * Returns an attribute axis iterator.
@@ -277,19 +313,71 @@ public abstract class ANode extends Item {
    * Returns a following axis iterator.
    * @return iterator
    */
-  public abstract AxisIter following();
+  public AxisIter following() {
+    return new AxisIter() {
+      /** Iterator. */
+      private NodeSeqBuilder nc;
+
+      @Override
+      public ANode next() {
+        if(nc == null) {
+          nc = new NodeSeqBuilder();
+          ANode n = ANode.this;
+          ANode p = n.parent();
+          while(p != null) {
+            final AxisIter i = p.children();
+            for(ANode c; n.type != NodeType.ATT &&
+              (c = i.next()) != null && !c.is(n););
+            for(ANode c; (c = i.next()) != null;) {
+              nc.add(c.finish());
+              addDesc(c.children(), nc);
+            }
+            n = p;
+            p = p.parent();
+          }
+        }
+        return nc.next();
+      }
+    };
+  }
 
   /**
    * Returns a following-sibling axis iterator.
    * @return iterator
    */
-  public abstract AxisIter followingSibling();
+  public AxisIter followingSibling() {
+    return new AxisIter() {
+      /** Iterator. */
+      private AxisIter ai;
+
+      @Override
+      public ANode next() {
+        if(ai == null) {
+          final ANode r = parent();
+          if(r == null) return null;
+          ai = r.children();
+          for(ANode n; (n = ai.next()) != null && !n.is(ANode.this););
+        }
+        return ai.next();
+      }
+    };
+  }
 
   /**
    * Returns a parent axis iterator.
    * @return iterator
    */
-  public abstract AxisIter parentIter();
+  public AxisIter parentIter() {
+    return new AxisIter() {
+      /** First call. */
+      private boolean more;
+
+      @Override
+      public ANode next() {
+        return (more ^= true) ? parent() : null;
+      }
+    };
+  }
 
   /**
    * Returns a preceding axis iterator.
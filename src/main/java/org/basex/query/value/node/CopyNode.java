@@ -0,0 +1,320 @@
+package org.basex.query.value.node;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Virtual copy of a database node, which is created if a database node is added
+ * to a constructed node. Instead of copying the subtree, the nodes of the original
+ * database are referenced and wrapped on demand. The copy has its own identity,
+ * and its parent is the constructed node.
+ *
+ * <p>The referenced data must not be changed as long as the copy is used.
+ * Database nodes must therefore be copied if the query is updating.
+ * Updates of transform expressions can be attached to the copy as {@link Overlay}.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CopyNode extends ANode {
+  /** Original database node. */
+  public final DBNode node;
+  /** Root of the copy. */
+  private final CopyNode root;
+  /** Namespaces in scope (only assigned to the root of the copy). */
+  private Atts nsp;
+  /** Overlay with updates (only assigned to the root of the copy). */
+  private Overlay ovl;
+
+  /**
+   * Constructor, creating a copy of the specified node.
+   * @param n database node
+   */
+  public CopyNode(final DBNode n) {
+    super(n.nodeType());
+    node = n.finish();
+    root = this;
+  }
+
+  /**
+   * Constructor for the descendants of a copy.
+   * @param n database node
+   * @param r root of the copy
+   */
+  private CopyNode(final DBNode n, final CopyNode r) {
+    super(n.nodeType());
+    node = n;
+    root = r;
+  }
+
+  /**
+   * Attaches an overlay with updates to the root of the copy.
+   * @param o overlay
+   */
+  public void overlay(final Overlay o) {
+    root.ovl = o;
+  }
+
+  /**
+   * Returns the overlay with updates.
+   * @return overlay or {@code null}
+   */
+  public Overlay overlay() {
+    return root.ovl;
+  }
+
+  /**
+   * Checks if this node is part of the copy with the specified root.
+   * @param r root of the copy
+   * @return result of check
+   */
+  public boolean within(final CopyNode r) {
+    return root == r;
+  }
+
+  @Override
+  public byte[] string() {
+    final Overlay o = root.ovl;
+    if(o != null) {
+      final byte[] v = o.value(node.pre);
+      if(v != null) return v;
+      if(changed()) {
+        // collect the remaining and updated texts of the descendants
+        final TokenBuilder tb = new TokenBuilder();
+        final AxisIter ai = descendant();
+        for(ANode n; (n = ai.next()) != null;) {
+          if(n.type == NodeType.TXT) tb.add(n.string());
+        }
+        return tb.finish();
+      }
+    }
+    return node.string();
+  }
+
+  @Override
+  public long itr(final InputInfo ii) throws QueryException {
+    return changed() ? super.itr(ii) : node.itr(ii);
+  }
+
+  @Override
+  public double dbl(final InputInfo ii) throws QueryException {
+    return changed() ? super.dbl(ii) : node.dbl(ii);
+  }
+
+  @Override
+  public byte[] name() {
+    final QNm nm = rename();
+    return nm != null ? nm.string() : node.name();
+  }
+
+  @Override
+  public QNm qname() {
+    final QNm nm = rename();
+    return nm != null ? nm : node.qname();
+  }
+
+  @Override
+  public QNm qname(final QNm nm) {
+    final QNm n = rename();
+    return n != null ? n : node.qname(nm);
+  }
+
+  @Override
+  public Atts namespaces() {
+    if(this != root) return node.namespaces();
+    // root of the copy: adopt all namespaces in scope of the original node
+    if(nsp == null && type == NodeType.ELM) nsp = node.nsScope();
+    return nsp;
+  }
+
+  @Override
+  public byte[] baseURI() {
+    return node.baseURI();
+  }
+
+  @Override
+  public CopyNode copy() {
+    return deepCopy().parent(par);
+  }
+
+  @Override
+  public CopyNode deepCopy() {
+    final CopyNode c = new CopyNode(node);
+    c.ovl = root.ovl;
+    return c;
+  }
+
+  @Override
+  public DBNode dbCopy(final Prop prop) {
+    // updated copies are materialized node by node
+    return root.ovl == null ? node.dbCopy(prop) : super.dbCopy(prop);
+  }
+
+  @Override
+  public boolean is(final ANode nd) {
+    return nd == this || nd instanceof CopyNode && root == ((CopyNode) nd).root &&
+        node.pre == ((CopyNode) nd).node.pre;
+  }
+
+  @Override
+  public int diff(final ANode nd) {
+    if(nd instanceof CopyNode && root == ((CopyNode) nd).root)
+      return node.pre - ((CopyNode) nd).node.pre;
+
+    // check if one node is an ancestor of the other
+    for(ANode n = parent(); n != null; n = n.parent()) if(n.is(nd)) return 1;
+    for(ANode n = nd.parent(); n != null; n = n.parent()) if(n.is(this)) return -1;
+    // order copies by the creation of their roots
+    return root.id - (nd instanceof CopyNode ? ((CopyNode) nd).root.id : nd.id);
+  }
+
+  @Override
+  public ANode parent() {
+    return node.pre == root.node.pre ? root.par : wrap((DBNode) node.parent());
+  }
+
+  @Override
+  public CopyNode parent(final ANode p) {
+    par = p;
+    return this;
+  }
+
+  @Override
+  public boolean hasChildren() {
+    return root.ovl == null ? node.hasChildren() : children().more();
+  }
+
+  @Override
+  public AxisMoreIter attributes() {
+    return iter(node.attributes());
+  }
+
+  @Override
+  public AxisMoreIter children() {
+    return iter(node.children());
+  }
+
+  @Override
+  public AxisIter descendant() {
+    return iter(node.descendant());
+  }
+
+  @Override
+  public AxisIter descendantOrSelf() {
+    return iter(node.descendantOrSelf());
+  }
+
+  @Override
+  public AxisIter followingSibling() {
+    // siblings of the root are not part of the original database
+    return this == root ? super.followingSibling() : iter(node.followingSibling());
+  }
+
+  @Override
+  public String toString() {
+    return node.toString();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Checks if the node or one of its descendants has been changed by an update.
+   * @return result of check
+   */
+  private boolean changed() {
+    final Overlay o = root.ovl;
+    return o != null && o.changed(node.pre, node.pre + node.data.size(node.pre, kind()));
+  }
+
+  /**
+   * Returns the new name of the node.
+   * @return name or {@code null}
+   */
+  private QNm rename() {
+    final Overlay o = root.ovl;
+    return o != null ? o.name(node.pre) : null;
+  }
+
+  /**
+   * Wraps the specified database node.
+   * @param n database node (will not be copied)
+   * @return wrapped node
+   */
+  private CopyNode wrap(final DBNode n) {
+    return n.pre == root.node.pre ? root : new CopyNode(n, root);
+  }
+
+  /**
+   * Returns an iterator that wraps the nodes of the specified iterator.
+   * @param ai database node iterator
+   * @return wrapping iterator
+   */
+  private AxisMoreIter iter(final AxisMoreIter ai) {
+    if(root.ovl != null) {
+      // skip deleted nodes
+      return new AxisMoreIter() {
+        /** Next node. */
+        private ANode next;
+
+        @Override
+        public boolean more() {
+          if(next == null) next = CopyNode.this.next(ai);
+          return next != null;
+        }
+
+        @Override
+        public ANode next() {
+          more();
+          final ANode n = next;
+          next = null;
+          return n;
+        }
+      };
+    }
+    return new AxisMoreIter() {
+      @Override
+      public boolean more() {
+        return ai.more();
+      }
+
+      @Override
+      public ANode next() {
+        final ANode n = ai.next();
+        return n == null ? null : wrap(((DBNode) n).finish());
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator that wraps the nodes of the specified iterator.
+   * @param ai database node iterator
+   * @return wrapping iterator
+   */
+  private AxisIter iter(final AxisIter ai) {
+    return new AxisIter() {
+      @Override
+      public ANode next() {
+        return CopyNode.this.next(ai);
+      }
+    };
+  }
+
+  /**
+   * Returns the next wrapped node of the specified iterator that has not been deleted.
+   * @param ai database node iterator
+   * @return wrapped node or {@code null}
+   */
+  private ANode next(final AxisIter ai) {
+    final Overlay o = root.ovl;
+    for(ANode n; (n = ai.next()) != null;) {
+      final DBNode dn = (DBNode) n;
+      if(o == null || !o.deleted(dn.pre)) return wrap(dn.finish());
+    }
+    return null;
+  }
+}
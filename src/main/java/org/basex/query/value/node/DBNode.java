@@ -116,6 +116,11 @@ public class DBNode extends ANode {
     return val;
   }
 
+  @Override
+  public final boolean eq(final byte[] token) {
+    return val != null ? Token.eq(val, token) : data.atomEq(pre, token);
+  }
+
   @Override
   public final long itr(final InputInfo ii) throws QueryException {
     final boolean txt = type == NodeType.TXT || type == NodeType.COM;
@@ -197,6 +202,7 @@ public class DBNode extends ANode {
 
   @Override
   public final int diff(final ANode node) {
+    if(node instanceof CopyNode) return -node.diff(this);
     return !(node instanceof DBNode) || data != node.data() ?
         id - node.id : pre - ((DBNode) node).pre;
   }
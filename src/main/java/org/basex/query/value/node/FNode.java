@@ -47,6 +47,7 @@ public abstract class FNode extends ANode {
 
   @Override
   public final int diff(final ANode node) {
+    if(node instanceof CopyNode) return -node.diff(this);
     if(id != node.id) {
       ANode n = this;
       while(n != null) {
@@ -69,36 +70,6 @@ public abstract class FNode extends ANode {
     return par;
   }
 
-  @Override
-  public final AxisIter ancestor() {
-    return new AxisIter() {
-      /** Temporary node. */
-      private ANode node = FNode.this;
-
-      @Override
-      public ANode next() {
-        node = node.parent();
-        return node;
-      }
-    };
-  }
-
-  @Override
-  public final AxisIter ancestorOrSelf() {
-    return new AxisIter() {
-      /** Temporary node. */
-      private ANode node = FNode.this;
-
-      @Override
-      public ANode next() {
-        if(node == null) return null;
-        final ANode n = node;
-        node = n.parent();
-        return n;
-      }
-    };
-  }
-
   @Override
   public AxisMoreIter attributes() {
     return AxisMoreIter.EMPTY;
@@ -200,65 +171,4 @@ public abstract class FNode extends ANode {
       }
     };
   }
-
-  @Override
-  public final AxisIter parentIter() {
-    return new AxisIter() {
-      /** First call. */
-      private boolean more;
-
-      @Override
-      public ANode next() {
-        return (more ^= true) ? par : null;
-      }
-    };
-  }
-
-  @Override
-  public final AxisIter followingSibling() {
-    return new AxisIter() {
-      /** Iterator. */
-      private AxisIter ai;
-
-      @Override
-      public ANode next() {
-        if(ai == null) {
-          final ANode r = parent();
-          if(r == null) return null;
-          ai = r.children();
-          for(ANode n; (n = ai.next()) != null && !n.is(FNode.this););
-        }
-        return ai.next();
-      }
-    };
-  }
-
-  @Override
-  public final AxisIter following() {
-    return new AxisIter() {
-      /** Iterator. */
-      private NodeSeqBuilder nc;
-
-      @Override
-      public ANode next() {
-        if(nc == null) {
-          nc = new NodeSeqBuilder();
-          ANode n = FNode.this;
-          ANode p = n.parent();
-          while(p != null) {
-            final AxisIter i = p.children();
-            for(ANode c; n.type != NodeType.ATT &&
-              (c = i.next()) != null && !c.is(n););
-            for(ANode c; (c = i.next()) != null;) {
-              nc.add(c.finish());
-              addDesc(c.children(), nc);
-            }
-            n = p;
-            p = p.parent();
-          }
-        }
-        return nc.next();
-      }
-    };
-  }
 }
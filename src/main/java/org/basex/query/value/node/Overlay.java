@@ -0,0 +1,120 @@
+package org.basex.query.value.node;
+
+import org.basex.query.value.item.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * Overlay of a virtual copy of a database node. The overlay records the updates of a
+ * transform expression as patches on the original database table: new values and
+ * names are indexed by pre values, and deleted nodes are stored as pre ranges.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Overlay {
+  /** New values. */
+  private final IntMap<byte[]> values = new IntMap<byte[]>();
+  /** New names. */
+  private final IntMap<QNm> names = new IntMap<QNm>();
+  /** Pre values of deleted nodes, mapped to the pre values of their following nodes. */
+  private final IntMap<Integer> deleted = new IntMap<Integer>();
+  /** Sorted start values of the deleted pre ranges. */
+  private final IntList starts = new IntList();
+  /** End values of the deleted pre ranges (exclusive). */
+  private final IntList ends = new IntList();
+  /** Sorted pre values of all nodes with new values or deleted nodes. */
+  private final IntList changed = new IntList();
+
+  /**
+   * Assigns a new value to the specified node.
+   * @param pre pre value
+   * @param value new value
+   */
+  public void value(final int pre, final byte[] value) {
+    values.add(pre, value);
+    changed.add(pre);
+  }
+
+  /**
+   * Assigns a new name to the specified node.
+   * @param pre pre value
+   * @param name new name
+   */
+  public void name(final int pre, final QNm name) {
+    names.add(pre, name);
+  }
+
+  /**
+   * Deletes the specified node.
+   * @param pre pre value
+   * @param size size of the node
+   */
+  public void delete(final int pre, final int size) {
+    deleted.add(pre, pre + size);
+    changed.add(pre);
+  }
+
+  /**
+   * Finishes the overlay. Must be called before the overlay is accessed.
+   * @return self reference
+   */
+  public Overlay finish() {
+    changed.sort();
+    final int s = deleted.size();
+    final IntList pres = new IntList(s);
+    for(int i = 1; i <= s; i++) pres.add(deleted.key(i));
+    pres.sort();
+    // skip ranges that are part of other deleted ranges
+    for(int i = 0; i < s; i++) {
+      final int pre = pres.get(i);
+      if(!ends.isEmpty() && pre < ends.get(ends.size() - 1)) continue;
+      starts.add(pre);
+      ends.add(deleted.get(pre));
+    }
+    return this;
+  }
+
+  /**
+   * Returns the new value of the specified node.
+   * @param pre pre value
+   * @return value or {@code null}
+   */
+  public byte[] value(final int pre) {
+    return values.get(pre);
+  }
+
+  /**
+   * Returns the new name of the specified node.
+   * @param pre pre value
+   * @return name or {@code null}
+   */
+  public QNm name(final int pre) {
+    return names.get(pre);
+  }
+
+  /**
+   * Checks if the specified node, or one of its ancestors, has been deleted.
+   * @param pre pre value
+   * @return result of check
+   */
+  public boolean deleted(final int pre) {
+    final int i = starts.sortedIndexOf(pre);
+    if(i >= 0) return true;
+    final int r = -i - 2;
+    return r >= 0 && pre < ends.get(r);
+  }
+
+  /**
+   * Checks if a value of the specified pre range has been changed or deleted.
+   * @param pre first pre value
+   * @param end pre value after the last node of the range
+   * @return result of check
+   */
+  public boolean changed(final int pre, final int end) {
+    final int i = changed.sortedIndexOf(pre);
+    if(i >= 0) return true;
+    final int r = -i - 1;
+    return r < changed.size() && changed.get(r) < end;
+  }
+}
@@ -58,6 +58,35 @@ public final class DblSeq extends NativeSeq {
     return get(tmp);
   }
 
+  /**
+   * Returns the values of this sequence. The array must not be modified.
+   * @return values
+   */
+  public double[] values() {
+    return values;
+  }
+
+  /**
+   * Returns the sum of all values.
+   * @return sum
+   */
+  public Dbl sum() {
+    double s = 0;
+    for(final double v : values) s += v;
+    return Dbl.get(s);
+  }
+
+  /**
+   * Returns the smallest or largest value. If a value is {@code NaN}, it will be returned.
+   * @param max maximum flag
+   * @return resulting item
+   */
+  public Dbl minmax(final boolean max) {
+    double m = values[0];
+    for(final double v : values) if(v != v || (max ? v > m : v < m)) m = v;
+    return Dbl.get(m);
+  }
+
   // STATIC METHODS =====================================================================
 
   /**
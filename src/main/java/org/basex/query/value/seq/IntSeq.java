@@ -78,6 +78,39 @@ public final class IntSeq extends NativeSeq {
     return get(tmp, type);
   }
 
+  /**
+   * Returns the values of this sequence. The array must not be modified.
+   * @return values
+   */
+  public long[] values() {
+    return values;
+  }
+
+  /**
+   * Returns the sum of all values.
+   * @return sum, or {@code null} if the sum exceeds the range of integers
+   */
+  public Int sum() {
+    long s = 0;
+    for(final long v : values) {
+      final long r = s + v;
+      if(((s ^ r) & (v ^ r)) < 0) return null;
+      s = r;
+    }
+    return Int.get(s);
+  }
+
+  /**
+   * Returns the smallest or largest value.
+   * @param max maximum flag
+   * @return resulting item
+   */
+  public Int minmax(final boolean max) {
+    long m = values[0];
+    for(final long v : values) if(max ? v > m : v < m) m = v;
+    return Int.get(m, type);
+  }
+
   // STATIC METHODS =====================================================================
 
   /**
@@ -93,6 +93,34 @@ public final class RangeSeq extends Seq {
     return asc ? get(start + s - 1, s, false) : get(start - s + 1, s, true);
   }
 
+  /**
+   * Returns the smallest value.
+   * @return smallest value
+   */
+  public long min() {
+    return asc ? start : start - size + 1;
+  }
+
+  /**
+   * Returns the largest value.
+   * @return largest value
+   */
+  public long max() {
+    return asc ? start + size - 1 : start;
+  }
+
+  /**
+   * Returns the sum of all values.
+   * @return sum, or {@code null} if the sum may exceed the range of integers
+   */
+  public Int sum() {
+    // sum of arithmetic series: n * min + n * (n - 1) / 2
+    final long n = size, m = min();
+    final double a = (double) n * m, b = (double) n * (n - 1) / 2;
+    if(Math.abs(a) >= 1L << 62 || b >= 1L << 62) return null;
+    return Int.get(n * m + ((n & 1) == 0 ? n / 2 * (n - 1) : (n - 1) / 2 * n));
+  }
+
   @Override
   public boolean homogeneous() {
     return true;
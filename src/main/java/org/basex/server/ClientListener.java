@@ -54,6 +54,8 @@ public final class ClientListener extends Thread {
   private PrintOutput out;
   /** Current command. */
   private Command command;
+  /** Currently evaluated process (command or query). */
+  private volatile Progress process;
   /** Query id counter. */
   private int id;
   /** Indicates if the server thread is running. */
@@ -142,12 +144,15 @@ public final class ClientListener extends Thread {
         String info;
         try {
           // run command
+          process = command;
           command.execute(context, new EncodingOutput(out));
           info = command.info();
         } catch(final BaseXException ex) {
           ok = false;
           info = ex.getMessage();
           if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+        } finally {
+          process = null;
         }
 
         // send 0 to mark end of result
@@ -305,6 +310,10 @@ public final class ClientListener extends Thread {
   public String toString() {
     final StringBuilder sb = new StringBuilder("[").append(address()).append(']');
     if(context.data() != null) sb.append(COLS).append(context.data().meta.name);
+    // memory consumed by the currently evaluated query
+    final Progress p = process;
+    final long mem = p != null ? p.memory() : 0;
+    if(mem > 0) sb.append(", ").append(MEMUSED_C).append(Performance.format(mem));
     return sb.toString();
   }
 
@@ -485,10 +494,13 @@ public final class ClientListener extends Thread {
           info.append(val);
           if(!typ.isEmpty()) info.append(" as ").append(typ);
         } else if(sc == ServerCmd.ITER) {
+          process = qp;
           qp.execute(true, out, true, false);
         } else if(sc == ServerCmd.EXEC) {
+          process = qp;
           qp.execute(false, out, true, false);
         } else if(sc == ServerCmd.FULL) {
+          process = qp;
           qp.execute(true, out, true, true);
         } else if(sc == ServerCmd.INFO) {
           out.print(qp.info());
@@ -516,6 +528,8 @@ public final class ClientListener extends Thread {
       log(sc + "[" + arg + ']', null);
       log(err, false);
       queries.remove(arg);
+    } finally {
+      process = null;
     }
     if(err != null) {
       // send 0 as end marker, 1 as error flag, and {MSG}0
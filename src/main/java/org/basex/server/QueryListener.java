@@ -45,6 +45,11 @@ final class QueryListener extends Progress {
     ctx = c;
   }
 
+  @Override
+  protected long mem() {
+    return qp.memory();
+  }
+
   /**
    * Binds a value to a global variable.
    * @param n name of variable
@@ -160,6 +165,10 @@ final class QueryListener extends Progress {
         tb.addExt(HITS_X_CC + "% %" + NL, c, c == 1 ? ITEM : ITEMS);
         tb.addExt(UPDATED_CC + "% %" + NL, up, up == 1 ? ITEM : ITEMS);
         tb.addExt(TOTAL_TIME_CC + '%', perf);
+        // add query plan with profiled expressions
+        if(ctx.prop.is(Prop.PROFILE)) {
+          tb.add(NL + NL + QUERY_PLAN_C + NL).add(qp.plan().serialize().toString());
+        }
         info = tb.toString();
 
       } catch(final QueryException ex) {
@@ -0,0 +1,122 @@
+package org.basex.util.hash;
+
+import java.util.*;
+
+/**
+ * This is an efficient hash set, storing keys in a simple long array.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LongSet {
+  /** Initial hash capacity. */
+  private static final int CAP = 1 << 3;
+  /** Hash entries. Actual hash size is {@code size - 1}. */
+  private int size = 1;
+  /** Hash keys. */
+  private long[] keys;
+
+  /** Pointers to the next key. */
+  private int[] next;
+  /** Hash table buckets. */
+  private int[] bucket;
+
+  /**
+   * Constructor.
+   */
+  public LongSet() {
+    keys = new long[CAP];
+    next = new int[CAP];
+    bucket = new int[CAP];
+  }
+
+  /**
+   * Indexes the specified key and returns the offset of the added key.
+   * If the key already exists, a negative offset is returned.
+   * @param key key
+   * @return offset of added key, negative offset otherwise
+   */
+  public int add(final long key) {
+    if(size == next.length) rehash();
+    final int p = hash(key) & bucket.length - 1;
+    for(int id = bucket[p]; id != 0; id = next[id]) {
+      if(key == keys[id]) return -id;
+    }
+    next[size] = bucket[p];
+    keys[size] = key;
+    bucket[p] = size;
+    return size++;
+  }
+
+  /**
+   * Returns true if the given key is contained in this set.
+   * @param key key to look for
+   * @return true if key contained, else false
+   */
+  public boolean contains(final long key) {
+    return id(key) != 0;
+  }
+
+  /**
+   * Returns the id of the specified key.
+   * @param key key to be found
+   * @return id or 0 if nothing was found
+   */
+  public int id(final long key) {
+    final int p = hash(key) & bucket.length - 1;
+    for(int id = bucket[p]; id != 0; id = next[id]) {
+      if(key == keys[id]) return id;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the specified key.
+   * @param i key index
+   * @return key
+   */
+  public long key(final int i) {
+    return keys[i];
+  }
+
+  /**
+   * Returns number of entries.
+   * @return number of entries
+   */
+  public int size() {
+    return size - 1;
+  }
+
+  /**
+   * Resizes the hash table.
+   */
+  private void rehash() {
+    final int s = size << 1;
+    final int[] tmp = new int[s];
+
+    for(final int b : bucket) {
+      int id = b;
+      while(id != 0) {
+        final int p = hash(keys[id]) & s - 1;
+        final int nx = next[id];
+        next[id] = tmp[p];
+        tmp[p] = id;
+        id = nx;
+      }
+    }
+    bucket = tmp;
+    next = Arrays.copyOf(next, s);
+    keys = Arrays.copyOf(keys, s);
+  }
+
+  /**
+   * Returns a hash value for the specified key. Small integers are returned unchanged,
+   * and the upper bits are folded into the lower bits, as the keys may also be bit
+   * patterns of doubles, which often differ only in their upper bits.
+   * @param key key
+   * @return hash value
+   */
+  private static int hash(final long key) {
+    return (int) (key ^ key >>> 32 ^ key >>> 48);
+  }
+}
@@ -0,0 +1,84 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * This class tests the updatable full-text index.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FTIndexUpdateTest extends AdvancedQueryTest {
+  /** Number of hits for the term 'hello'. */
+  private static final String HELLO = "count(//a[text() contains text 'hello'])";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    new Set(Prop.UPDINDEX, true).execute(context);
+    new Set(Prop.FTINDEX, true).execute(context);
+    new CreateDB(NAME, "<x><a>hello world</a><a>foo bar</a></x>").execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.UPDINDEX, false).execute(context);
+    new Set(Prop.AUTOFLUSH, true).execute(context);
+  }
+
+  /**
+   * Resets the index options.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new Set(Prop.FTINDEX, false).execute(context);
+  }
+
+  /**
+   * Inserts, replaces and deletes texts.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    query("insert node <a>hello again</a> into /x");
+    query(HELLO, 2);
+    query("replace value of node //a[2] with 'hello bar'");
+    query(HELLO, 3);
+    query("count(//a[text() contains text 'foo'])", 0);
+    query("delete node //a[1]");
+    query(HELLO, 2);
+    query("//a[text() contains text 'ag.*' using wildcards]/string()", "hello again");
+    assertTrue(context.data().meta.ftxtindex);
+  }
+
+  /**
+   * Checks if buffered updates are persistent.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void reopen() throws BaseXException {
+    new Set(Prop.AUTOFLUSH, false).execute(context);
+    for(int i = 0; i < 20; i++) query("insert node <a>hello " + i + "</a> into /x");
+    query("delete node //a[text() contains text '10']");
+    query(HELLO, 20);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    query(HELLO, 20);
+    query("count(//a[text() contains text '1.*' using wildcards])", 10);
+  }
+}
@@ -0,0 +1,199 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.index.ft.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+import org.junit.*;
+
+/**
+ * This class tests the block encoding of full-text postings.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FTPostingsTest extends SandboxTest {
+  /** Verbose flag. */
+  private static final boolean VERBOSE = false;
+  /** Random number generator. */
+  private static final Random RANDOM = new Random();
+  /** Test file. */
+  private static IOFile file;
+
+  /** Initializes the test file. */
+  @BeforeClass
+  public static void init() {
+    file = new IOFile(sandbox(), NAME);
+  }
+
+  /**
+   * Single entries and block boundaries.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void roundtrip() throws IOException {
+    for(final int n : new int[] { 1, 2, FTPostings.BLOCK - 1, FTPostings.BLOCK,
+        FTPostings.BLOCK + 1, FTPostings.BLOCK * 5 + 17 }) {
+      final int[] ids = new int[n], poss = new int[n];
+      for(int i = 0, id = RANDOM.nextInt(100); i < n; i++) {
+        id += RANDOM.nextInt(3) == 0 ? 0 : RANDOM.nextInt(1000);
+        ids[i] = id;
+        poss[i] = i > 0 && ids[i - 1] == id ? poss[i - 1] + 1 + RANDOM.nextInt(10) :
+          RANDOM.nextInt(10);
+      }
+      check(ids, poss, ids.clone(), poss.clone());
+    }
+  }
+
+  /**
+   * Large values and zero gaps.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void extremes() throws IOException {
+    check(new int[] { 0, 0, 0 }, new int[] { 0, 1, 2 }, null, null);
+    check(new int[] { 0, Integer.MAX_VALUE }, new int[] { Integer.MAX_VALUE, 0 },
+        null, null);
+  }
+
+  /**
+   * Unsorted input.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void unsorted() throws IOException {
+    check(new int[] { 5, 1, 5, 3 }, new int[] { 7, 2, 3, 1 },
+        new int[] { 1, 3, 5, 5 }, new int[] { 2, 1, 3, 7 });
+  }
+
+  /**
+   * Skipping blocks via the stored last ids.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void skip() throws IOException {
+    final int n = FTPostings.BLOCK * 3;
+    final int[] ids = new int[n], poss = new int[n];
+    for(int i = 0; i < n; i++) ids[i] = i * 2;
+    write(ids, poss, n);
+
+    final DataAccess da = new DataAccess(file);
+    try {
+      long off = 0;
+      for(int b = 0; b < 3; b++) {
+        assertEquals((b + 1) * FTPostings.BLOCK * 2 - 2, FTPostings.last(da, off));
+        off = FTPostings.next(da, off);
+      }
+      assertEquals(da.length(), off);
+    } finally {
+      da.close();
+    }
+  }
+
+  /**
+   * Compares the decoding performance with single compressed numbers.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void performance() throws IOException {
+    final int n = FTPostings.BLOCK << 13;
+    final int[] ids = new int[n], poss = new int[n];
+    for(int i = 0, id = 0; i < n; i++) {
+      id += RANDOM.nextInt(50);
+      ids[i] = id;
+      poss[i] = RANDOM.nextInt(100);
+    }
+    write(ids, poss, n);
+    final long blocks = file.length();
+    Performance p = new Performance();
+    DataAccess da = new DataAccess(file);
+    final int[] bi = new int[FTPostings.BLOCK], bp = new int[FTPostings.BLOCK];
+    long c = 0;
+    try {
+      for(long o = 0; o < blocks;) {
+        o = FTPostings.block(da, o, FTPostings.BLOCK, bi, bp);
+        c += bi[0];
+      }
+    } finally {
+      da.close();
+    }
+    if(VERBOSE) Util.errln("Blocks: " + blocks + " bytes, decoded in " + p);
+
+    final DataOutput out = new DataOutput(file);
+    try {
+      for(int i = 0; i < n; i++) {
+        out.writeNum(i == 0 ? ids[0] : ids[i] - ids[i - 1]);
+        out.writeNum(poss[i]);
+      }
+    } finally {
+      out.close();
+    }
+    p = new Performance();
+    da = new DataAccess(file);
+    try {
+      da.cursor(0);
+      for(int i = 0, id = 0; i < n; i++) {
+        id += da.readNum();
+        c += id + da.readNum();
+      }
+    } finally {
+      da.close();
+    }
+    if(VERBOSE) Util.errln("Numbers: " + file.length() + " bytes, decoded in " + p);
+    assertTrue(c != 0);
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Writes and reads the specified entries and compares the results.
+   * @param ids ids
+   * @param poss positions
+   * @param eids expected ids (if {@code null}, input will be taken)
+   * @param eposs expected positions (if {@code null}, input will be taken)
+   * @throws IOException I/O exception
+   */
+  private static void check(final int[] ids, final int[] poss, final int[] eids,
+      final int[] eposs) throws IOException {
+
+    final int n = ids.length;
+    final int[] ei = eids != null ? eids : ids.clone();
+    final int[] ep = eposs != null ? eposs : poss.clone();
+    write(ids, poss, n);
+
+    final DataAccess da = new DataAccess(file);
+    try {
+      final IntList ri = new IntList(), rp = new IntList();
+      assertEquals(da.length(), FTPostings.read(da, 0, n, ri, rp));
+      assertArrayEquals(ei, ri.toArray());
+      assertArrayEquals(ep, rp.toArray());
+    } finally {
+      da.close();
+    }
+  }
+
+  /**
+   * Writes the specified entries to the test file.
+   * @param ids ids
+   * @param poss positions
+   * @param n number of entries
+   * @throws IOException I/O exception
+   */
+  private static void write(final int[] ids, final int[] poss, final int n)
+      throws IOException {
+    final DataOutput out = new DataOutput(file);
+    try {
+      FTPostings.write(out, ids, poss, n);
+    } finally {
+      out.close();
+    }
+  }
+}
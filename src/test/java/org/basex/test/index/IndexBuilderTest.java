@@ -0,0 +1,234 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * This class tests the parallel and external-memory construction of index
+ * structures.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuilderTest extends SandboxTest {
+  /** Name of the database without indexes. */
+  private static final String NOINDEX = NAME + "NoIndex";
+  /** Number of elements (more than two partitions). */
+  private static final int SIZE = 300000;
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//a[text() contains text 'w1']",
+    "//a[text() contains text 'w1 w2' all words]",
+    "//a[text() contains text 'w9.*' using wildcards]",
+    "//a[text() = 'w1']",
+    "//a[@n = ('v17', 'v999')]",
+    "//a[text() = 'unknown']",
+    "//a[text() contains text 'unknown']"
+  };
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    final Random rnd = new Random(0);
+    for(int i = 0; i < SIZE; i++) {
+      sb.append("<a n='v").append(rnd.nextInt(1000)).append("'>w");
+      sb.append(rnd.nextInt(5)).append(" w").append(rnd.nextInt(1000)).append("</a>");
+    }
+    sb.append("<a>w1</a></x>");
+    final String doc = sb.toString();
+
+    new Set(Prop.TEXTINDEX, false).execute(context);
+    new Set(Prop.ATTRINDEX, false).execute(context);
+    new CreateDB(NOINDEX, doc).execute(context);
+    new Set(Prop.TEXTINDEX, true).execute(context);
+    new Set(Prop.ATTRINDEX, true).execute(context);
+    new Set(Prop.FTINDEX, true).execute(context);
+    new Set(Prop.INDEXTHREADS, 3).execute(context);
+    new CreateDB(NAME, doc).execute(context);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new DropDB(NOINDEX).execute(context);
+    new Set(Prop.FTINDEX, false).execute(context);
+    new Set(Prop.INDEXTHREADS, 0).execute(context);
+    new Set(Prop.INDEXMEM, 0).execute(context);
+  }
+
+  /**
+   * Compares the results of index-based and sequential queries.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void create() throws BaseXException {
+    compare();
+  }
+
+  /**
+   * Rebuilds all indexes in parallel and compares the results.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void optimizeAll() throws BaseXException {
+    new Open(NAME).execute(context);
+    new OptimizeAll().execute(context);
+    compare();
+  }
+
+  /**
+   * Rebuilds all indexes with a small memory budget and compares the results.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void budget() throws BaseXException {
+    new Set(Prop.INDEXMEM, 1).execute(context);
+    new Open(NAME).execute(context);
+    new OptimizeAll().execute(context);
+    new Set(Prop.INDEXMEM, 0).execute(context);
+    compare();
+  }
+
+  /**
+   * Checks that the database is indexed by parallel partitions, and that runs
+   * are written if the memory budget is exceeded.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void partitions() throws IOException {
+    new Open(NOINDEX).execute(context);
+    final Data data = context.data();
+
+    // three threads (see init method), no runs
+    Recorder rec = new Recorder(data);
+    assertEquals(3, rec.ranges.size());
+    assertEquals(3, rec.threads.size());
+    assertFalse(rec.threads.contains(Thread.currentThread()));
+    assertEquals(0, rec.runs.length);
+
+    // minimum memory budget: runs are written by all partitions
+    new Set(Prop.INDEXMEM, 1).execute(context);
+    try {
+      rec = new Recorder(data);
+    } finally {
+      new Set(Prop.INDEXMEM, 0).execute(context);
+    }
+    assertTrue(rec.runs.length > 3);
+    final BitSet ids = new BitSet();
+    for(final int r : rec.runs) ids.set(r);
+    assertEquals(rec.runs.length, ids.cardinality());
+
+    // single thread: the database is indexed by the calling thread
+    new Set(Prop.INDEXTHREADS, 1).execute(context);
+    try {
+      rec = new Recorder(data);
+    } finally {
+      new Set(Prop.INDEXTHREADS, 3).execute(context);
+    }
+    assertEquals(Collections.singleton(Thread.currentThread()), rec.threads);
+  }
+
+  /**
+   * Compares the results of index-based and sequential queries.
+   * @throws BaseXException database exception
+   */
+  private static void compare() throws BaseXException {
+    for(final String q : QUERIES) {
+      final String exp = new XQuery(query(NOINDEX, q)).execute(context);
+      final String res = new XQuery(query(NAME, q)).execute(context);
+      assertEquals(q, exp, res);
+    }
+  }
+
+  /**
+   * Returns a query that computes a checksum for the specified path.
+   * @param db database
+   * @param path path
+   * @return query
+   */
+  private static String query(final String db, final String path) {
+    final String nodes = "db:open('" + db + "')" + path;
+    return "count(" + nodes + ") || ' ' || sum(" + nodes + "/db:node-pre(.))";
+  }
+
+  /**
+   * Index builder that records how the database is partitioned.
+   * The pre ranges of the partitions are checked after indexing.
+   */
+  private static final class Recorder extends IndexBuilder {
+    /** Threads that indexed the partitions. */
+    final java.util.Set<Thread> threads =
+        Collections.synchronizedSet(new HashSet<Thread>());
+    /** Pre ranges of the partitions, ordered by their start values. */
+    final TreeMap<Integer, Integer> ranges = new TreeMap<Integer, Integer>();
+    /** Ids of the written runs. */
+    final int[] runs;
+
+    /**
+     * Constructor, indexing all nodes of the database.
+     * @param d data reference
+     * @throws IOException I/O exception
+     */
+    Recorder(final Data d) throws IOException {
+      super(d);
+      build();
+      runs = runs();
+      int pre = 0;
+      for(final Map.Entry<Integer, Integer> e : ranges.entrySet()) {
+        assertEquals(pre, (int) e.getKey());
+        pre = e.getValue();
+      }
+      assertEquals(size, pre);
+      assertEquals(ranges.size() > 1 || runs.length > 0, merge);
+    }
+
+    @Override
+    public Index build() throws IOException {
+      index();
+      return null;
+    }
+
+    @Override
+    public void abort() { }
+
+    @Override
+    protected Partition partition(final int start, final int end) {
+      synchronized(ranges) {
+        ranges.put(start, end);
+      }
+      return new Partition(start, end) {
+        @Override
+        protected void index() {
+          threads.add(Thread.currentThread());
+          long mem = 0;
+          for(; pre < end; pre++) {
+            check();
+            mem += 64;
+            if(full(mem)) {
+              nextRun();
+              mem = 0;
+            }
+          }
+        }
+      };
+    }
+  }
+}
@@ -77,6 +77,41 @@ public final class IndexCacheTest {
     assertNull(cache.get(key));
   }
 
+  /** Test for the maximum number of entries. */
+  @Test
+  public void testCapacity() {
+    cache = new IndexCache(1000);
+    for(int i = 0; i < 100000; ++i) cache.add(token("keyCapacity" + i), i, i);
+    assertTrue(cache.size() <= 1000);
+  }
+
+  /** Frequently requested entries must not be evicted by a scan. */
+  @Test
+  public void testFrequency() {
+    cache = new IndexCache(600);
+    for(int i = 0; i < 20000; ++i) {
+      for(final byte[] key : new byte[][] { token("keyHot" + i % 500), token("keyScan" + i) }) {
+        if(cache.get(key) == null) cache.add(key, i, i);
+      }
+    }
+    int found = 0;
+    for(int i = 0; i < 500; ++i) if(cache.get(token("keyHot" + i)) != null) ++found;
+    assertTrue("Hot entries found: " + found, found > 450);
+  }
+
+  /** Test for the hit statistics. */
+  @Test
+  public void testStatistics() {
+    final byte[] key = token("keyStats");
+    assertNull(cache.get(key));
+    cache.add(key, 1, 1L);
+    assertNotNull(cache.get(key));
+    assertNotNull(cache.get(key));
+    assertEquals(2, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(2 / 3d, cache.ratio(), 1e-9);
+  }
+
   /**
    * Test that new records can be continuously added without hitting
    * {@link OutOfMemoryError}.
@@ -2,10 +2,14 @@ package org.basex.test.query;
 
 import static org.junit.Assert.*;
 
+import org.basex.core.*;
+import org.basex.core.cmd.Set;
+import org.basex.io.*;
 import org.basex.io.out.*;
 import org.basex.io.serial.*;
 import org.basex.query.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.test.*;
 import org.basex.util.*;
 
@@ -39,6 +43,44 @@ public abstract class AdvancedQueryTest extends SandboxTest {
     }
   }
 
+  /**
+   * Evaluates the specified query and returns the resulting value.
+   * @param query query string
+   * @return value
+   */
+  protected static Value value(final String query) {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      return qp.value();
+    } catch(final QueryException ex) {
+      fail("Query failed:\n" + query + "\nMessage: " + ex);
+      return null;
+    } finally {
+      qp.close();
+    }
+  }
+
+  /**
+   * Compiles the specified query and returns the query info.
+   * @param query query string
+   * @return query info
+   */
+  protected static String info(final String query) {
+    final boolean qi = context.prop.is(Prop.QUERYINFO);
+    context.prop.set(Prop.QUERYINFO, true);
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.compile();
+      return qp.ctx.info();
+    } catch(final QueryException ex) {
+      fail("Query failed:\n" + query + "\nMessage: " + ex);
+      return null;
+    } finally {
+      qp.close();
+      context.prop.set(Prop.QUERYINFO, qi);
+    }
+  }
+
   /**
    * Checks if a query yields the specified string.
    * @param query query string
@@ -52,6 +94,85 @@ public abstract class AdvancedQueryTest extends SandboxTest {
           "\u00ab\n[F] \u00bb" + res + '\u00ab');
   }
 
+  /**
+   * Compares the results of the specified queries with the results of the same
+   * queries that are wrapped by the specified pragma.
+   * @param pragma pragma
+   * @param queries queries
+   */
+  protected static void comparePragma(final String pragma, final String... queries) {
+    for(final String q : queries) assertEquals(q, query(q), query(pragma + "{ " + q + " }"));
+  }
+
+  /**
+   * Compares the results of the specified queries with the results that are
+   * returned after the specified option has been assigned.
+   * @param option option
+   * @param value value
+   * @param queries queries
+   * @throws BaseXException database exception
+   */
+  protected static void compareOption(final Object[] option, final Object value,
+      final String... queries) throws BaseXException {
+    final String[] exp = new String[queries.length];
+    for(int q = 0; q < queries.length; q++) exp[q] = query(queries[q]);
+    final Object old = context.prop.get(option[0].toString());
+    new Set(option, value).execute(context);
+    try {
+      for(int q = 0; q < queries.length; q++) assertEquals(queries[q], exp[q], query(queries[q]));
+    } finally {
+      new Set(option, old).execute(context);
+    }
+  }
+
+  /**
+   * Compares the results of the specified queries, in which the placeholder
+   * {@code %} is replaced by two different expressions.
+   * @param exp expression that yields the expected results
+   * @param res expression to be tested
+   * @param queries queries
+   */
+  protected static void compareReplaced(final String exp, final String res,
+      final String... queries) {
+    for(final String q : queries) {
+      final String r = q.replace("%", res);
+      assertEquals(r, query(q.replace("%", exp)), query(r));
+    }
+  }
+
+  /**
+   * Adds nested elements with attributes, texts, comments, processing instructions
+   * and namespaced elements (prefix {@code p}, URI {@code urn:p}) to a document.
+   * @param sb string builder
+   * @param n number of top-level elements
+   * @return string builder
+   */
+  protected static StringBuilder nested(final StringBuilder sb, final int n) {
+    for(int i = 0; i < n; i++) nested(sb, i, 0);
+    return sb;
+  }
+
+  /**
+   * Adds a nested element to a document.
+   * @param sb string builder
+   * @param i counter
+   * @param l level
+   */
+  private static void nested(final StringBuilder sb, final int i, final int l) {
+    sb.append("<a");
+    if(i % 2 == 0) sb.append(" id='").append(i).append('\'');
+    if(i % 5 == 0) sb.append(" xml:lang='en' n='").append(l).append('\'');
+    sb.append('>');
+    if(i % 3 == 0) sb.append("text ").append(i);
+    if(i % 7 == 0) sb.append("<!-- ").append(i).append(" -->");
+    if(i % 11 == 0) sb.append("<?pi ").append(i).append("?>");
+    if(i % 13 == 0) sb.append("<p:c p:d='").append(i).append("'><c xmlns='urn:c'/></p:c>");
+    sb.append("<b>").append(i).append("</b>");
+    if(l < 3 && i % 4 < 2) nested(sb, i + 1, l + 1);
+    sb.append("<b c='").append(l).append("'/>");
+    sb.append("</a>");
+  }
+
   /**
    * Creates a transform expression from a given input, modification and return clause.
    *
@@ -145,6 +266,19 @@ public abstract class AdvancedQueryTest extends SandboxTest {
     }
   }
 
+  /**
+   * Returns the number of temporary files with the specified prefix.
+   * @param prefix file prefix
+   * @return number of files
+   */
+  protected static int temp(final String prefix) {
+    int c = 0;
+    for(final IOFile f : new IOFile(System.getProperty("java.io.tmpdir")).children()) {
+      if(f.name().startsWith(prefix)) c++;
+    }
+    return c;
+  }
+
   /**
    * Returns serialization parameters.
    * @param arg serialization arguments
@@ -0,0 +1,81 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for database nodes that are copied virtually into constructed nodes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CopyNodeTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<r xmlns:p='urn:p'><s a='1' p:b='2'><t>x</t>" +
+      "<!--c--><?pi y?><u><t>z</t></u></s><s a='3'/></r>";
+  /** Constructed element. */
+  private static final String CONSTR = "<a>{ db:open('" + NAME + "')/r/s }</a>";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Checks the identity and document order of copied nodes.
+   */
+  @Test
+  public void identity() {
+    final String q = "let $a := " + CONSTR + ", $s := db:open('" + NAME + "')/r/s return ";
+    query(q + "$a/s[1] is $s[1]", "false");
+    query(q + "$a/s[1] is $a/s[1]", "true");
+    query(q + "$a/s[1]/t is $a/s[1]/u/t", "false");
+    query(q + "$a/s[1]//t ! (.. is $a/s[1])", "true false");
+    query(q + "count($a//t | $a/s | $a//t)", "4");
+    query(q + "($a//t | $a//u) ! name()", "t u t");
+    query(q + "($a//u << $a/s[2], $a/s[2] << $a//u)", "true false");
+  }
+
+  /**
+   * Checks navigation from and to the constructed node.
+   */
+  @Test
+  public void axes() {
+    final String q = "let $a := " + CONSTR + " return ";
+    query(q + "$a/s/t/../.. is $a", "true");
+    query(q + "$a/s[1]/u/t/root() is $a", "true");
+    query(q + "$a/s[1]/u/t/ancestor::* ! name()", "a s u");
+    query(q + "$a/s[1]/following-sibling::* ! @a/string()", "3");
+    query(q + "$a/s[1]/u/t/following::* ! @a/string()", "3");
+    query(q + "count($a/s[2]/preceding::node())", "8");
+    query(q + "in-scope-prefixes($a/s[2]) = 'p'", "true");
+  }
+
+  /**
+   * Compares the serialization of virtual and physical copies.
+   */
+  @Test
+  public void serialize() {
+    final String copy = "copy $c := " + CONSTR + " modify () return $c";
+    assertEquals(query(copy), query(CONSTR));
+    assertEquals(query("<x xmlns:p='urn:q'>{" + copy + "}</x>"),
+        query("<x xmlns:p='urn:q'>{" + CONSTR + "}</x>"));
+  }
+}
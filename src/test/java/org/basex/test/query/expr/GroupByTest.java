@@ -0,0 +1,174 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for aggregations in group by clauses, and for group by clauses
+ * that exceed the memory budget.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class GroupByTest extends AdvancedQueryTest {
+  /** Pragma for grouping with a minimum memory budget. */
+  private static final String SPILL = "(# db:groupmem 1 #) ";
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "for $i in 1 to 100000 group by $k := $i mod 20000 order by $k " +
+      "return $k || ':' || count($i) || ':' || sum($i) || ':' || avg($i)",
+    "for $i in 1 to 50000 let $s := string($i) group by $k := $i mod 9999 " +
+      "order by $k descending return $k || ':' || string-join($s, ',')",
+    "for $i in 1 to 50000 group by $a := $i mod 7, " +
+      "$b := if($i mod 3 = 0) then () else $i mod 1000 " +
+      "order by $a, $b empty greatest return ($a, $b, min($i), max($i))",
+    "for $a in //a group by $n := $a/@n order by $n return ($n, count($a), $a)",
+    "string-join(for $s in (for $i in 1 to 50000 group by $k := $i mod 9999 " +
+      "return $k || '-' || max($i)) order by $s return $s, ' ')",
+    "for $i in 1 to 30000 let $e := <e>{ $i }</e> group by $k := $i mod 5000 " +
+      "order by $k return ($k, $e[1])",
+    "for $i in () group by $k := $i return count($i)",
+    "head(for $i in 1 to 50000 group by $k := $i mod 999 return sum($i))",
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 20000; i++) {
+      sb.append("<a n='").append(i % 5003).append("'>").append(i).append("</a>");
+    }
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares running aggregations with the aggregation of cached values.
+   */
+  @Test
+  public void aggregate() {
+    final String q = "for $i in (1 to 20, 2.5, 3e0, ()) group by $k := $i mod 4 " +
+        "order by $k return <g>{ count(%), sum(%), avg(%), min(%), max(%) }</g>";
+    assertEquals(query(q.replace("%", "$i[true()]")), query(q.replace("%", "$i")));
+    query("for $i in (1, 'a') group by $k := 1 return " +
+        "if($k = 1) then count($i) else sum($i)", "2");
+    query("for $i in 1 to 3 group by $k := $i mod 2 order by $k " +
+        "return sum($i, 0) + count($i)", "3 6");
+    error("for $i in (1, 'a') group by $k := 1 return sum($i)", Err.FUNNUM);
+  }
+
+  /**
+   * Aggregations in recursive function calls.
+   */
+  @Test
+  public void recursive() {
+    query("declare function local:f($n) { for $x in 1 to 4 let $y := $x * $n " +
+        "group by $k := $x mod 2 order by $k return (" +
+        "if($n > 1) then local:f($n - 1) else (), sum($y)) }; local:f(2)",
+        "6 4 12 6 4 8");
+  }
+
+  /**
+   * Deletes the temporary files of spilled groups if the evaluation is aborted.
+   */
+  @Test
+  public void cleanup() {
+    final int before = temp("group");
+    error(SPILL + "{ for $i in 1 to 100000 let $s := string($i) group by $k := $i " +
+        "return if($k = 90000) then error() else count($s) }", Err.FUNERR1);
+    error(SPILL + "{ for $i in 1 to 100000 let $s := string($i) " +
+        "group by $k := if($i = 90000) then error() else $i return count($s) }",
+        Err.FUNERR1);
+    assertEquals(before, temp("group"));
+  }
+
+  /**
+   * Checks that items that remain in main memory are accounted until their
+   * partitions have been grouped.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void refs() throws QueryException {
+    final String q = "count(for $i in 1 to 100000 let $e := <e>{ $i }</e> " +
+        "group by $k := $i mod 50000 return $e[2])";
+    assertEquals(query(q), query(SPILL + "{ " + q + " }"));
+    final long peak = peak(SPILL + "{ " + q + " }");
+    assertTrue("Peak: " + peak, peak > 50000 * 64);
+  }
+
+  /**
+   * Checks that groups are spilled if the memory budget is exceeded.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void budget() throws QueryException {
+    // running aggregations: the budget is exceeded by at most a single group
+    for(final String q : new String[] {
+      "count(for $i in 1 to 200000 group by $k := $i return count($i))",
+      "count(for $i in 1 to 100000 group by $k := $i mod 20000 return sum($i))",
+    }) {
+      final long all = peak(q), spilled = peak(SPILL + "{ " + q + " }");
+      assertTrue(q + "\nPeak: " + all, all > 2 << 20);
+      assertTrue(q + "\nPeak: " + spilled, spilled < (1 << 20) + 1024);
+    }
+    // cached values: groups in main memory may still grow
+    final String q = "count(for $i in 1 to 200000 let $s := string($i) " +
+        "group by $k := $i mod 50000 return $s)";
+    final long all = peak(q), spilled = peak(SPILL + "{ " + q + " }");
+    assertTrue("Peaks: " + all + ", " + spilled, spilled < all / 4);
+  }
+
+  /**
+   * Returns the maximum memory that has been accounted by the specified query,
+   * and checks that the memory of the groups has been released.
+   * @param query query
+   * @return number of bytes
+   * @throws QueryException query exception
+   */
+  private static long peak(final String query) throws QueryException {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.execute();
+      final long used = qp.ctx.memory.used();
+      assertTrue("Used: " + used, used < 1024);
+      return qp.ctx.memory.peak();
+    } finally {
+      qp.close();
+    }
+  }
+
+  /**
+   * Compares the results of grouping in main memory and spilled grouping.
+   */
+  @Test
+  public void pragma() {
+    comparePragma(SPILL, QUERIES);
+  }
+
+  /**
+   * Compares the results of grouping in main memory and spilled grouping,
+   * using the option.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void option() throws BaseXException {
+    compareOption(Prop.GROUPMEM, 1, QUERIES);
+  }
+}
@@ -0,0 +1,71 @@
+package org.basex.test.query.expr;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for variables and function arguments whose values are evaluated on demand.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LazyTest extends AdvancedQueryTest {
+  /**
+   * Creates a test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, "<a><b>1</b><b>2</b><b>3</b></a>").execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /** Let clauses. */
+  @Test
+  public void let() {
+    final String a = "let $a := db:open('" + NAME + "')//b ";
+    query(a + "return head($a)/string()", "1");
+    query(a + "return (exists($a), empty($a))", "true false");
+    query(a + "return ($a[2]/string(), $a[1]/string(), count($a))", "2 1 3");
+    query(a + "return (count($a), $a[last()]/string(), $a[1]/string())", "3 3 1");
+    query(a + "return (head($a) is $a[1], $a[3] is $a[last()])", "true true");
+    query("for $i in 1 to 3 let $s := (1 to 100000) ! (. * $i) " +
+        "return $s[$i]", "1 4 9");
+    query("for $i in 1 to 3 let $s := (1 to 100000) ! (. * 2) " +
+        "return $s[$i] + count($s)", "100002 100004 100006");
+  }
+
+  /** Errors are raised again by all subsequent requests. */
+  @Test
+  public void errors() {
+    final String a = "let $x := (1 to 3)[6 idiv (2 - .) > -100] return ";
+    error(a + "(try { $x[3] } catch * { 'c' }, count($x), $x)", Err.DIVZERO);
+    query(a + "(try { $x[3] } catch * { 'c' }, try { $x[1] } catch * { 'd' })", "c d");
+    error("declare function local:f($x) { try { $x[3] } catch * { () }, $x }; " +
+        "local:f((1 to 3)[6 idiv (2 - .) > -100])", Err.DIVZERO);
+  }
+
+  /** Function arguments. */
+  @Test
+  public void args() {
+    query("declare function local:f($x) { head($x) }; " +
+        "local:f(db:open('" + NAME + "')//b)/string()", "1");
+    query("declare function local:f($x, $i) { $x[$i] }; " +
+        "for $i in 1 to 3 return local:f(db:open('" + NAME + "')//b, $i)/string()", "1 2 3");
+    query("declare function local:f($x as element()+) { $x[2] }; " +
+        "local:f(db:open('" + NAME + "')//b)/string()", "2");
+    query("declare function local:f($x) { $x }; " +
+        "string-join(local:f(db:open('" + NAME + "')//b), ',')", "1,2,3");
+  }
+}
@@ -0,0 +1,88 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for user-defined functions with memoized results.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MemoizeTest extends AdvancedQueryTest {
+  /** Memoized function declaration. */
+  private static final String MEMO = "declare %basex:memoize";
+
+  /** Results of memoized functions. */
+  @Test
+  public void results() {
+    query(MEMO + " function local:fib($n as xs:integer) as xs:integer { " +
+        "if($n < 2) then $n else local:fib($n - 1) + local:fib($n - 2) }; " +
+        "local:fib(90)", "2880067194370816120");
+    query(MEMO + " function local:f($a) { $a }; " +
+        "(local:f(1), local:f(1.0), local:f('1'), local:f(1)) ! string(. instance of " +
+        "xs:integer)", "true false false true");
+    query(MEMO + " function local:f($a) { 1 div $a }; local:f(0e0), local:f(-0e0)",
+        "INF -INF");
+    query(MEMO + "(1) function local:f($a, $b) { $a + $b }; " +
+        "for $i in 1 to 3 return (local:f($i, ()), local:f($i, 1), local:f((), $i))", "2 3 4");
+  }
+
+  /** Nodes are compared by their identity. */
+  @Test
+  public void nodes() {
+    query(MEMO + " function local:f($a) { $a/.. }; " +
+        "let $a := <a><b/></a>, $b := <a><b/></a> " +
+        "return (local:f($a/b) is $a, local:f($b/b) is $b)", "true true");
+    query(MEMO + " function local:f($a) { $a }; " +
+        "let $a := <a/>, $b := <a/> return local:f(($a, $b)) ! name()", "a a");
+  }
+
+  /** Shared results. */
+  @Test
+  public void global() {
+    final String f = MEMO + "(10, 'global') function local:f($a) { $a * 2 }; ";
+    query(f + "local:f(3), local:f(3e0)", "6 6");
+    assertFalse(context.memos.isEmpty());
+    query(f + "local:f(3), local:f(<a>4</a>)", "6 8");
+    query(MEMO + "(10, 'global') function local:f($a) { 1 }; local:f(1)", "1");
+  }
+
+  /** Rejected functions and annotation values. */
+  @Test
+  public void errors() {
+    error(MEMO + " function local:f() { random:double() }; local:f()", Err.BASX_MEMOIZE);
+    error(MEMO + " function local:f() { <a/> }; local:f()", Err.BASX_MEMOIZE);
+    error(MEMO + " updating function local:f() { delete node <a/> }; local:f()",
+        Err.BASX_MEMOIZE);
+    error(MEMO + "(0) function local:f() { 1 }; local:f()", Err.BASX_MEMOIZE);
+    error(MEMO + "('a') function local:f() { 1 }; local:f()", Err.BASX_MEMOIZE);
+    error(MEMO + "(1, 'local') function local:f() { 1 }; local:f()", Err.BASX_MEMOIZE);
+  }
+
+  /**
+   * Rejects shared results of functions that access databases or documents.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void databases() throws BaseXException {
+    new CreateDB(NAME, "<a/>").execute(context);
+    try {
+      final String g = MEMO + "(10, 'global') function local:f($n) { ";
+      error(g + "count(collection($n)) }; local:f('" + NAME + "')", Err.BASX_MEMOIZE);
+      error(g + "db:open($n) }; local:f('" + NAME + "')", Err.BASX_MEMOIZE);
+      error(g + "doc($n) }; local:f('" + NAME + "')", Err.BASX_MEMOIZE);
+      error(g + "local:g($n) }; declare function local:g($n) { collection($n) }; " +
+          "local:f('" + NAME + "')", Err.BASX_MEMOIZE);
+      query(MEMO + "(10) function local:f($n) { count(collection($n)) }; " +
+          "local:f('" + NAME + "')", "1");
+    } finally {
+      new DropDB(NAME).execute(context);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for the memory accounting of queries.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MemoryTest extends AdvancedQueryTest {
+  /** Resets the memory limit. */
+  @After
+  public void after() {
+    context.mprop.set(MainProp.MEMLIMIT, 0);
+  }
+
+  /** Materializing structures exceed the memory limit. */
+  @Test
+  public void limit() {
+    context.mprop.set(MainProp.MEMLIMIT, 1);
+    error("count(<a>{ for $i in 1 to 100000 return <b>{ $i }</b> }</a>/b)",
+        Err.BASX_MEMORY);
+    error("string-join(for $i in 1 to 100000 order by -$i return string($i))",
+        Err.BASX_MEMORY);
+    error("count(for $i in 1 to 100000 group by $k := $i mod 50000 return $k)",
+        Err.BASX_MEMORY);
+    error("for $i in 1 to 2 let $a := (1 to 100000) ! string() " +
+        "return count($a) + count($a)", Err.BASX_MEMORY);
+    error("declare function local:f($a) { count($a) + count($a) }; " +
+        "local:f((1 to 100000) ! string())", Err.BASX_MEMORY);
+  }
+
+  /**
+   * Nodes and values that are buffered by location paths and FLWOR partitions
+   * exceed the memory limit.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void builders() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<a>");
+    for(int i = 0; i < 100000; i++) sb.append("<b/>");
+    new CreateDB(NAME, sb.append("</a>").toString()).execute(context);
+    try {
+      context.mprop.set(MainProp.MEMLIMIT, 1);
+      error("count(db:open('" + NAME + "')/a/b[position() < last()])", Err.BASX_MEMORY);
+      // buffered nodes are released after the evaluation of a path
+      query("sum(for $i in 1 to 100 return count(db:open('" + NAME + "')/a/b[1]))", "100");
+
+      final String flwor = "for $i in 1 to 100000 return string($i)";
+      query("count(" + flwor + ")", "100000");
+      error("count((# db:parallel 2 #) { " + flwor + " })", Err.BASX_MEMORY);
+    } finally {
+      new DropDB(NAME).execute(context);
+    }
+  }
+
+  /** Estimated sizes of items and values. */
+  @Test
+  public void size() {
+    final byte[] t = Token.token("abcdef");
+    assertEquals(Memory.size(Str.get(t)), Memory.size(new Atm(t)));
+    assertTrue(Memory.size(Str.get(t)) > Memory.size(Int.get(1)));
+    assertEquals(32, Memory.size(RangeSeq.get(1, 1000000, true)));
+    assertEquals(16 + 3 * 8, Memory.size(IntSeq.get(new long[] { 1, 2, 3 }, AtomType.ITR)));
+    final long s = Memory.size(StrSeq.get(new byte[][] { t, t }));
+    assertEquals(16 + 2 * (Memory.size(Str.get(t)) + 8), s);
+  }
+
+  /** Memory of let bindings is released after each iteration. */
+  @Test
+  public void release() {
+    context.mprop.set(MainProp.MEMLIMIT, 1);
+    query("sum(for $i in 1 to 10000 let $s := (1 to 100) ! string() return count($s))",
+        "1000000");
+    query("count(for $i in 1 to 100 return " +
+        "for $j in 1 to 1000 order by -$j return $j)", "100000");
+    query("sum(for $i in 1 to 100000 return string-length(<a>{ $i }</a>))", "488895");
+    query("declare function local:f($a) { count($a) }; " +
+        "sum(for $i in 1 to 1000 return local:f((1 to 1000) ! string()))", "1000000");
+  }
+
+  /** Accounted memory of a query.
+   * @throws QueryException query exception */
+  @Test
+  public void used() throws QueryException {
+    final QueryProcessor qp = new QueryProcessor(
+        "count(<a>{ for $i in 1 to 1000 return <b>{ $i }</b> }</a>/b)", context);
+    try {
+      assertEquals("1000", qp.execute().toString());
+      assertTrue(qp.ctx.memory.used() > 0);
+      assertEquals(qp.ctx.memory.used(), qp.memory());
+    } finally {
+      qp.close();
+    }
+  }
+}
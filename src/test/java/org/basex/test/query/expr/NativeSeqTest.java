@@ -0,0 +1,131 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.seq.*;
+import org.basex.test.query.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Test cases for the evaluation of integer, double and range sequences with
+ * primitive values.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class NativeSeqTest extends AdvancedQueryTest {
+  /** Verbose flag (prints evaluation times). */
+  private static final boolean VERBOSE = false;
+  /** Number of items in the benchmark sequences. */
+  private static final int SIZE = 1000000;
+  /** Sequences with primitive values. */
+  private static final String[] SEQS = {
+    "(-500 to 500)", "reverse(-500 to 500)", "((-500 to 500) ! (. * 3))",
+    "((-500 to 500) ! (. div 7e0))",
+    "((1 to 10) ! (if(. = 5) then xs:double('NaN') else . * 1e0))",
+  };
+  /** Queries (the placeholder will be replaced with a sequence). */
+  private static final String[] QUERIES = {
+    "sum(%)", "avg(%)", "min(%)", "max(%)", "sum(reverse(%))",
+    "% ! (. * 2)", "% ! (. + 1.5e0)", "% ! (. > 0)", "% ! (-.)", "% ! (. mod 3 = 0)",
+    "% = 7", "% = 7.5e0", "% != 3", "% < -500", "% <= -500", "% > 1000", "% >= 499",
+    "% = xs:double('NaN')", "% != xs:double('NaN')", "% > 1.5e0",
+    "sum(%[. > 100000])", "max(%[. > 100000])", "%[. > 100000] = 1", "head(% ! (. * 2))",
+    "%[. mod 3 = 0]", "%[. > 0] ! (. * 2)", "%[. != 1.5e0]", "head(%[. < 0])",
+  };
+
+  /**
+   * Compares the results of primitive and regular evaluation.
+   */
+  @Test
+  public void compare() {
+    for(final String s : SEQS) {
+      // filter prevents primitive evaluation
+      compareReplaced("(" + s + ", '')[not(. instance of xs:string)]", s, QUERIES);
+    }
+  }
+
+  /**
+   * Checks that maps and filters on native sequences yield native sequences.
+   */
+  @Test
+  public void types() {
+    type("(-500 to 500) ! (. * 3)", IntSeq.class);
+    type("reverse(-500 to 500) ! (-.)", IntSeq.class);
+    type("((-5 to 5) ! (. + 1)) ! (. * 2)", IntSeq.class);
+    type("(-500 to 500) ! (. div 7e0)", DblSeq.class);
+    type("(1 to 10) ! (if(. = 5) then xs:double('NaN') else . * 1e0)", DblSeq.class);
+    type("(-500 to 500) ! (. > 0)", BlnSeq.class);
+    type("((-5 to 5) ! (. div 2e0)) ! (. <= 1)", BlnSeq.class);
+    type("(-500 to 500) ! (. mod 3 = 0)", BlnSeq.class);
+    type("(-500 to 500) ! (. = 7.5e0)", BlnSeq.class);
+    // results of other expressions, and inputs of other types, are built item by item
+    type("(1 to 10) ! string(.)", ItemSeq.class);
+    type("(1 to 10, '')[not(. instance of xs:string)] ! (. * 3)", ItemSeq.class);
+
+    type("(-500 to 500)[. > 100]", IntSeq.class);
+    type("reverse(-500 to 500)[. mod 3 = 0]", IntSeq.class);
+    type("((1 to 10) ! (. div 2e0))[. < 2]", DblSeq.class);
+    type("for $i in -1000 to 1000 where $i * 3 mod 5 = 1 return $i", IntSeq.class);
+    // filters that yield numbers are positional
+    query("(1 to 10)[. idiv 2]", "");
+    query("(xs:byte(1), xs:byte(2), xs:byte(3))[. > 1] instance of xs:byte+", "true");
+    query("for $i in (1 to 9)[. > 4] return $i * 2", "10 12 14 16 18");
+  }
+
+  /**
+   * Checks that aggregations and comparisons on ranges are computed without
+   * creating items. Item-wise evaluation of the huge ranges would take minutes.
+   */
+  @Test
+  public void range() {
+    final String r = "(1 to 3000000000)";
+    query("sum(" + r + ")", "4500000001500000000");
+    query("avg(" + r + ")", "1500000000.5");
+    query("min(" + r + ")", "1");
+    query("max(reverse" + r + ")", "3000000000");
+    query(r + " = 2999999999", "true");
+    query(r + " = 0", "false");
+    query(r + " != 1", "true");
+  }
+
+  /**
+   * Checks that errors are raised by sequences that are computed with primitive values.
+   */
+  @Test
+  public void errors() {
+    error("sum((8 to 9) ! (. * 1000000000000000000))", Err.RANGE);
+    error("(1 to 3) ! (. * 4611686018427387904)", Err.RANGE);
+    error("(1 to 3) ! (1 idiv (. - 2))", Err.DIVZERO);
+  }
+
+  /**
+   * Evaluates aggregations and maps on large sequences.
+   */
+  @Test
+  public void benchmark() {
+    final String[] queries = {
+      "sum(1 to " + SIZE + ")",
+      "max((1 to " + SIZE + ") ! (. * 2))",
+      "sum((1 to " + SIZE + ") ! (. * 0.5e0))",
+      "(1 to " + SIZE + ") ! (. * 3) = 0",
+    };
+    for(final String q : queries) {
+      final Performance p = new Performance();
+      query(q);
+      if(VERBOSE) Util.errln(q + ": " + p);
+    }
+  }
+
+  /**
+   * Checks the type of the value that is returned by the specified query.
+   * @param query query
+   * @param type expected type
+   */
+  private static void type(final String query, final Class<? extends Value> type) {
+    assertEquals(query, type, value(query).getClass());
+  }
+}
@@ -0,0 +1,228 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.query.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for order by clauses that exceed the memory budget.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class OrderByTest extends AdvancedQueryTest {
+  /** Pragma for sorting with a minimum memory budget. */
+  private static final String SPILL = "(# db:ordermem 1 #) ";
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "for $i in 1 to 50000 order by $i mod 1000 descending, $i return $i",
+    "for $i in 1 to 50000 order by string($i) return $i",
+    "for $i in 1 to 30000 order by $i mod 7 return string($i)",
+    "for $i in 1 to 30000 order by $i div 10 * 1.5e0 descending return $i",
+    "for $i in 1 to 30000 stable order by $i mod 3 return <a>{ $i }</a>",
+    "for $i in 1 to 20000 order by if($i mod 5 = 0) then () else $i mod 11 " +
+      "empty greatest return ($i, $i)",
+    "for $a in //a order by data($a/@n), $a/text() descending return $a",
+    "for $a in //a order by $a/@n return ($a/@n, $a)",
+    "for $i in 1 to 2000 order by $i mod 2 " +
+      "return string-join(for $j in 1 to 100 return string($i), ' ')",
+    "for $i in 1 to 10 group by $g := $i mod 3 order by $g descending return $g",
+    "for $i in () order by $i return $i",
+    "head(for $i in 1 to 50000 order by $i mod 1000 return $i[. = .])",
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 20000; i++) {
+      sb.append("<a n='").append(i % 17).append("'>").append(i).append("</a>");
+    }
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of internal and external sorting.
+   */
+  @Test
+  public void pragma() {
+    comparePragma(SPILL, QUERIES);
+  }
+
+  /**
+   * Compares the results of sorting all tuples and of sorting the smallest tuples.
+   * If the return clause may yield empty sequences, all tuples will be sorted.
+   */
+  @Test
+  public void topK() {
+    final String[] orders = {
+      "order by $i mod 97 descending, string($i)",
+      "stable order by $i mod 3",
+      "order by if($i mod 5 = 0) then () else -$i empty greatest",
+    };
+    final String[] filters = {
+      "(%)[position() <= 10]", "(%)[position() = 5 to 9]", "(%)[3]", "head(%)",
+      "subsequence(%, 4, 7)", "subsequence(%, 0, 3)", "(%)[position() < 0]",
+    };
+    final String topk = QueryText.OPTTOPK.substring(0, QueryText.OPTTOPK.indexOf('%'));
+    for(final String o : orders) {
+      final String q = "for $i in 1 to 10000 " + o + " return $i";
+      for(final String f : filters) {
+        final String all = f.replace("%", q + "[. = .]"), top = f.replace("%", q);
+        assertEquals(top, query(all), query(top));
+        // no tuples are requested by the last filter
+        assertEquals(top, f != filters[filters.length - 1], info(top).contains(topk));
+        assertFalse(all, info(all).contains(topk));
+      }
+    }
+  }
+
+  /**
+   * Checks that sort keys of different types are handled like in a full sort
+   * if only the smallest tuples are requested.
+   */
+  @Test
+  public void topKTypes() {
+    error("(for $x in (3, 2, 'a') order by $x return $x)[1]", Err.FUNCAST);
+    error("head(for $x in (3, 2, 1, 'a') order by $x return $x)", Err.FUNCAST);
+    final String q = "for $i in 1 to 10 order by if($i < 5) then $i else string($i) " +
+        "return $i";
+    query("(" + q + ")[position() <= 6]", query("(" + q + "[. = .])[position() <= 6]"));
+  }
+
+  /**
+   * Checks if all runs are deleted if the evaluation fails or if only the
+   * first results are requested.
+   */
+  @Test
+  public void cleanup() {
+    final int before = temp("order");
+    error(SPILL + "{ for $i in 1 to 50000 order by if($i = 40000) then error() " +
+        "else $i return $i }", Err.FUNERR1);
+    error(SPILL + "{ for $i in 1 to 50000 order by $i mod 1000 " +
+        "return if($i = 777) then error() else $i }", Err.FUNERR1);
+    query(SPILL + "{ head(for $i in 1 to 50000 order by $i mod 1000 return $i[. = .]) }",
+        "1000");
+    query(SPILL + "{ (for $i in 1 to 50000 order by $i mod 1000 return $i[. = .])[3] }",
+        "3000");
+    assertEquals(before, temp("order"));
+  }
+
+  /**
+   * Checks that runs are only written if the memory budget is exceeded.
+   * @throws BaseXException database exception
+   * @throws QueryException query exception
+   */
+  @Test
+  public void runs() throws BaseXException, QueryException {
+    for(final String q : QUERIES) assertEquals(q, 0, runs(q));
+    new Set(Prop.ORDERMEM, 1).execute(context);
+    try {
+      for(final String q : QUERIES) {
+        // tuples of small inputs are kept in main memory
+        final boolean small = q.contains(" in 1 to 10 ") || q.contains(" in () ");
+        assertEquals(q, !small, runs(q) > 0);
+      }
+    } finally {
+      new Set(Prop.ORDERMEM, 0).execute(context);
+    }
+  }
+
+  /**
+   * Checks that atomic values of other types are written to the runs.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void types() throws QueryException {
+    final String[] queries = {
+      "for $i in 1 to 30000 order by xs:date('2000-01-01') + " +
+        "xs:dayTimeDuration('P' || $i mod 500 || 'D') descending, $i return $i",
+      "for $i in 1 to 30000 order by $i mod 2 = 0, $i * 1.5 descending " +
+        "return ($i * 0.5, $i mod 3 = 0, xs:float($i) div 7, xs:unsignedByte($i mod 256))",
+      "for $i in 1 to 30000 order by xs:dayTimeDuration('PT' || $i mod 100 || 'S') " +
+        "return (xs:yearMonthDuration('P' || $i || 'M'), " +
+        "xs:dateTime('2012-01-01T00:00:00+02:00') + xs:dayTimeDuration('PT' || $i || 'M'))",
+      "for $i in 1 to 30000 order by $i mod 3 " +
+        "return (xs:time('12:00:00Z'), xs:gYear('2012'), " +
+        "xs:decimal('0.00000000000000000001') * $i)",
+    };
+    comparePragma(SPILL, queries);
+    // serialized values are released: the budget is exceeded by at most a single tuple
+    final long peak = peak("count(" + SPILL + "{ " + queries[0] + " })");
+    assertTrue("Peak: " + peak, peak < (1 << 20) + 1024);
+  }
+
+  /**
+   * Checks that items that remain in main memory are still accounted if the
+   * tuples are written to runs, and that the size of written values is checked.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void refs() throws QueryException {
+    final long peak = peak("count(" + SPILL + "{ for $i in 1 to 50000 order by $i mod 7 " +
+        "return <a>{ $i }</a> })");
+    assertTrue("Peak: " + peak, peak > 50000 * 64);
+    error(SPILL + "{ for $i in 1 to 50000 order by $i return if($i = 1) " +
+        "then 1 to 3000000000 + random:integer(1) else $i }", Err.BASX_GENERIC);
+  }
+
+  /**
+   * Returns the number of runs that have been written by the specified query.
+   * @param query query
+   * @return number of runs
+   * @throws QueryException query exception
+   */
+  private static int runs(final String query) throws QueryException {
+    final int before = temp("order");
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.iter().next();
+      return temp("order") - before;
+    } finally {
+      qp.close();
+    }
+  }
+
+  /**
+   * Returns the maximum memory that has been accounted by the specified query.
+   * @param query query
+   * @return number of bytes
+   * @throws QueryException query exception
+   */
+  private static long peak(final String query) throws QueryException {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.execute();
+      return qp.ctx.memory.peak();
+    } finally {
+      qp.close();
+    }
+  }
+
+  /**
+   * Compares the results of internal and external sorting, using the option.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void option() throws BaseXException {
+    compareOption(Prop.ORDERMEM, 1, QUERIES);
+  }
+}
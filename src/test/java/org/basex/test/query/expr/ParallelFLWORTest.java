@@ -0,0 +1,130 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.query.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Test cases for the parallel evaluation of FLWOR expressions.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelFLWORTest extends AdvancedQueryTest {
+  /** Pragma for parallel evaluation. */
+  private static final String PARALLEL = "(# db:parallel 4 #) ";
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "for $i in 1 to 10000 return $i * 2",
+    "for $i at $p in reverse(1 to 1000) let $s := $i * 3 where $s mod 7 = 0 " +
+      "return $p || ':' || $s",
+    "for $i in 1 to 100 for $j in 1 to $i where ($i + $j) mod 13 = 0 return $i * $j",
+    "for $n in //a return string-join(($n/@n, $n/text()), '-')",
+    "for $n in //a let $c := count(//a[@n = $n/@n]) return $c",
+    "for $i in 1 to 1000 return replace(string($i), '(.)(.)', '$2$1')",
+    "for $i in 1 to 10 return <a>{ $i }</a>",
+    "for $i in 1 to 3 for $j in (1, 2) order by $j return $i",
+    "for $i in () return $i * 2", "for $i in 1 to 3 return $i * 2",
+    "head(for $i in 1 to 10000 return $i * 2)", "(for $i in 1 to 10000 return $i)[5000]",
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 500; i++) {
+      sb.append("<a n='").append(i % 17).append("'>").append(i).append("</a>");
+    }
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of sequential and parallel evaluation.
+   */
+  @Test
+  public void pragma() {
+    comparePragma(PARALLEL, QUERIES);
+  }
+
+  /**
+   * Compares the results of sequential and parallel evaluation, using the option.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void option() throws BaseXException {
+    compareOption(Prop.PARALLEL, 3, QUERIES);
+  }
+
+  /**
+   * Checks that only expressions without constructors, ordering, and non-deterministic
+   * or context-dependent functions are evaluated in parallel.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void plan() throws BaseXException {
+    final String[] parallel = {
+      QUERIES[0], QUERIES[1], QUERIES[2], QUERIES[3], QUERIES[4], QUERIES[5],
+      "head(for $i in 1 to 10000 return $i * 2)",
+      "let $s := 1 to 10 for $i in $s return $i * 2",
+    };
+    for(final String q : parallel) assertTrue(q, parallel(PARALLEL + "{ " + q + " }", 4));
+
+    final String[] serial = {
+      "for $i in 1 to 10 return <a>{ $i }</a>",
+      "for $i in 1 to 3 for $j in (1, 2) order by $j return $i",
+      "for $i in 1 to 10 return $i * random:integer(10)",
+      "for $i in 1 to 10 return static-base-uri()",
+      "for $i in () return $i * 2",
+    };
+    for(final String q : serial) assertFalse(q, parallel(PARALLEL + "{ " + q + " }", 4));
+
+    // option
+    assertFalse(parallel(QUERIES[0], 3));
+    final Object old = context.prop.get(Prop.PARALLEL[0].toString());
+    new Set(Prop.PARALLEL, 3).execute(context);
+    try {
+      assertTrue(parallel(QUERIES[0], 3));
+      assertFalse(parallel(serial[0], 3));
+    } finally {
+      new Set(Prop.PARALLEL, old).execute(context);
+    }
+  }
+
+  /**
+   * Checks that errors raised by other threads are passed on.
+   */
+  @Test
+  public void error() {
+    error(PARALLEL + "{ for $i in 1 to 1000 return if($i = 777) then error() else $i }",
+        Err.FUNERR1);
+  }
+
+  /**
+   * Checks if a FLWOR expression in the specified query is evaluated in parallel.
+   * @param query query
+   * @param threads number of threads
+   * @return result of check
+   */
+  private static boolean parallel(final String query, final int threads) {
+    return info(query).contains(Util.info(QueryText.OPTPARALLEL, threads));
+  }
+}
@@ -0,0 +1,145 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.util.*;
+import org.basex.query.value.seq.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for location paths that are evaluated on blocks of pre values,
+ * and for staircase joins.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class PathTest extends AdvancedQueryTest {
+  /** Name of the database without namespaces. */
+  private static final String PLAIN = NAME + "Plain";
+  /** Paths. */
+  private static final String[] PATHS = {
+    "//a", "//b", "//a//b", "//a/b", "/x/a/b", "/x/a/b/text()", "//b/@*", "//@id",
+    "//a/node()", "//node()", "//comment()", "//processing-instruction()",
+    "//*", "/x/*/*", "//a[@id]", "//a[b]", "//a[b][@id]", "//a[text()]",
+    "//a[@*:lang]/@id", "descendant-or-self::a", "//a/descendant-or-self::b",
+    "//a/descendant::a", "//a//@*", "//@xml:lang", "//@*:lang", "//text()",
+    "(//a)/b", "(//a)//b", "//unknown", "//a/unknown", "//a[unknown]", "/x/a/@id",
+    "db:open('" + NAME + "')/x/a/b", "db:open('" + NAME + "')//b/text()",
+    "//b/ancestor::a", "//b/ancestor-or-self::*", "//@id/ancestor::node()",
+    "//text()/ancestor::a[@id]", "//b/ancestor::a/b", "//a/ancestor::a//b",
+    "//comment()/ancestor-or-self::a[b]/@id", "//b[text() = '5']/ancestor::a",
+    "(//b)[position() mod 3 = 0]/ancestor::a", "reverse(//b)/ancestor::a",
+    "//*:c", "//p:c/@p:d", "//@p:*", "//p:c/ancestor::a/@id", "//*:a/node()",
+    "//text()/ancestor::node()", "//node()/ancestor::*:c", "//*:a/descendant::text()",
+    "()//a", "//unknown//b", "//unknown/ancestor::a", "//a[unknown]//b",
+  };
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final StringBuilder sb = nested(new StringBuilder("<x xmlns:p='urn:p'>"), 300);
+    final String doc = sb.append("</x>").toString();
+    new CreateDB(PLAIN, doc.replaceAll(" xmlns:p='urn:p'|<p:c .*?</p:c>", "")).execute(context);
+    new CreateDB(NAME, doc).execute(context);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new DropDB(PLAIN).execute(context);
+  }
+
+  /**
+   * Opens the database with namespaces.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void open() throws BaseXException {
+    new Open(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of batched and generic path evaluation.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void batched() throws BaseXException {
+    // the predicate prevents batched evaluation
+    final String ns = "declare namespace p='urn:p'; ";
+    for(final String db : new String[] { NAME, PLAIN }) {
+      new Open(db).execute(context);
+      for(final String p : PATHS) {
+        compareReplaced(p + "[self::node()]", p, ns + "count(%)", ns + "%");
+      }
+    }
+  }
+
+  /**
+   * Checks that paths are evaluated on blocks of pre values. The results of these
+   * paths are returned as sequences of pre values.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void blocks() throws BaseXException {
+    // kind and local name tests are mapped in databases with namespaces
+    blocks("//text()/ancestor::node()", "//comment()/ancestor-or-self::*:a",
+        "//*:a/descendant::text()", "//node()/ancestor::*:c", "//*:a/node()");
+    // other name tests are only mapped if the database has no namespaces
+    new Open(PLAIN).execute(context);
+    blocks("//a//b", "//a/b", "//a/node()", "//a//@*", "(//a)//b", "//b/ancestor::a",
+        "//b/ancestor-or-self::*", "//text()/ancestor::a[@id]", "//a/ancestor::a//b",
+        "//comment()/ancestor-or-self::a[b]/@id", "reverse(//b)/ancestor::a");
+  }
+
+  /**
+   * Checks that the specified paths are evaluated on blocks of pre values.
+   * @param paths paths
+   */
+  private static void blocks(final String... paths) {
+    for(final String p : paths) {
+      assertTrue(p, value(p) instanceof DBNodeSeq);
+      assertFalse(p, value(p + "[self::node()]") instanceof DBNodeSeq);
+    }
+  }
+
+  /**
+   * Compares the results of paths whose evaluation is stopped early.
+   */
+  @Test
+  public void early() {
+    for(final String p : new String[] { "//a//b", "//b/ancestor::a", "//a/node()" }) {
+      compareReplaced(p + "[self::node()]", p, "head(%)", "(%)[3]", "exists(%)",
+          "subsequence(%, 5, 3)", "(%)[position() < 4]");
+    }
+  }
+
+  /**
+   * Checks that errors are raised for steps on items that are no nodes.
+   */
+  @Test
+  public void errors() {
+    error("(//a, 1)//b", Err.NODESPATH);
+    error("(1, //a)/ancestor::x", Err.NODESPATH);
+  }
+
+  /**
+   * Checks the results of paths on nested context nodes.
+   */
+  @Test
+  public void nested() {
+    query("count(//a//a//b)", query("count(//a//a//b[self::node()])"));
+    query("for $a in (//a)[position() < 10] return count($a//b)",
+        query("for $a in (//a)[position() < 10] return count($a//b[self::node()])"));
+    query("count((//a)//b)", query("count(//b[ancestor::a])"));
+  }
+}
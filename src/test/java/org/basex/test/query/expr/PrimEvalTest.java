@@ -0,0 +1,116 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.io.out.*;
+import org.basex.io.serial.*;
+import org.basex.query.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for numeric expressions that are evaluated with primitive values.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class PrimEvalTest extends AdvancedQueryTest {
+  /** Input sequence with a static integer type. */
+  private static final String TYPED = "-1000 to 1000";
+  /** Input sequence without static type (prevents compilation). */
+  private static final String UNTYPED = "(" + TYPED + ", '')[. instance of xs:integer]";
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "for $i in % return $i * 2 + $i mod 7 - $i idiv 3",
+    "for $i in % return -$i * $i - 5",
+    "for $i in % return $i * 1.5e0 div 3 + $i mod 4.5e0",
+    "for $i in % return $i div 7e0 - -$i",
+    "for $i in % return $i > 10 and $i * 2 <= 1500",
+    "for $i in % return $i eq 5 or $i * 3 ne 27",
+    "for $i in % return $i * 1e0 = $i",
+    "for $i in % return if($i mod 3 = 0) then $i * 2 else $i * 4",
+    "for $i in % return if($i > 0) then $i * 1e0 else -0.5e0",
+    "for $i in % let $d := if($i mod 2 = 0) then xs:double('NaN') else $i * 1e0 " +
+      "return ($d != $d, $d = $d, $d < 1, $d >= 1)",
+    "for $i in % return $i + 9223372036854774808",
+    "for $i in % return 1 idiv (if($i = 0) then 1 else $i)",
+    "for $i in % return (1 + $i) mod (if($i = 0) then 1 else $i)",
+    "for $i in % return $i * 9223372036854775",
+    "for $i in % where $i * 3 mod 5 = 1 return $i",
+    "for $i in % where $i > 5000 return $i * 2",
+    "(for $i in % return $i * 3)[10]",
+  };
+
+  /**
+   * Compares the results of primitive and regular evaluation.
+   */
+  @Test
+  public void compare() {
+    compareReplaced(UNTYPED, TYPED, QUERIES);
+  }
+
+  /**
+   * Checks that hot expressions are evaluated with primitive values.
+   */
+  @Test
+  public void plan() {
+    for(final String q : QUERIES) {
+      // skip integer overflows, early exits and where clauses (rewritten to predicates)
+      final boolean prim = !q.contains("9223372036854774808") && !q.endsWith("[10]") &&
+          !q.contains(" where ");
+      assertEquals(q, prim, primitive(q.replace("%", TYPED)));
+    }
+    // expressions are compiled after 256 evaluations
+    assertTrue(primitive("for $i in 1 to 256 return $i * 3"));
+    assertFalse(primitive("for $i in 1 to 255 return $i * 3"));
+    assertFalse(primitive("(for $i in " + TYPED + " return $i * 3)[10]"));
+    // integer overflow: expression is interpreted again
+    assertFalse(primitive("for $i in " + TYPED + " return $i + 9223372036854774808"));
+    // operands without static type
+    for(final String q : QUERIES) assertFalse(q, primitive(q.replace("%", UNTYPED)));
+  }
+
+  /**
+   * Checks that errors are raised by expressions that have been compiled.
+   */
+  @Test
+  public void errors() {
+    error("for $i in 1 to 1000 return $i * " +
+        "(if($i = 1000) then 9223372036854775807 else 1)", Err.RANGE);
+    error("for $i in 1 to 1000 return $i * $i * $i * $i * $i * $i * $i", Err.RANGE);
+    error("for $i in 1 to 1000 return 1 idiv ($i - 1000)", Err.DIVZERO);
+    error("for $i in 1 to 1000 return 1 mod ($i - 1000)", Err.DIVZERO);
+  }
+
+  /**
+   * Checks if the specified query is evaluated with primitive values.
+   * @param query query
+   * @return result of check
+   */
+  private static boolean primitive(final String query) {
+    return plan(query).contains(" primitive=\"true\"");
+  }
+
+  /**
+   * Evaluates the specified query and returns the query plan.
+   * @param query query
+   * @return plan
+   */
+  private static String plan(final String query) {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.value();
+      final ArrayOutput ao = new ArrayOutput();
+      final Serializer ser = Serializer.get(ao);
+      qp.plan().serialize(ser);
+      ser.close();
+      return ao.toString();
+    } catch(final Exception ex) {
+      fail("Query failed:\n" + query + "\nMessage: " + ex);
+      return null;
+    } finally {
+      qp.close();
+    }
+  }
+}
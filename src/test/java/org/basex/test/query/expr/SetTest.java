@@ -0,0 +1,77 @@
+package org.basex.test.query.expr;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for set operations and for functions that index items in hash sets.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class SetTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<r><a n='1'/><a n='2'/><a n='3'/><a n='4'/></r>";
+  /** Unsorted database nodes. */
+  private static final String NODES = "let $a := db:open('" + NAME + "')//a, " +
+      "$b := reverse($a[@n < 4]), $c := ($a[@n > 1], $a[@n = 3]) return ";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /** Set operations on database nodes. */
+  @Test
+  public void dbNodes() {
+    query(NODES + "($b union $c) ! @n ! string()", "1 2 3 4");
+    query(NODES + "($b intersect $c) ! @n ! string()", "2 3");
+    query(NODES + "($b except $c) ! @n ! string()", "1");
+    query(NODES + "($c except $b) ! @n ! string()", "4");
+    query(NODES + "($b union $b union $c intersect $b) ! @n ! string()", "1 2 3");
+    query(NODES + "($b except $c except $a) ! @n ! string()", "");
+  }
+
+  /** Set operations on database and fragment nodes. */
+  @Test
+  public void mixedNodes() {
+    query(NODES + "let $f := <a n='5'/> return (($c, $f) union reverse(($f, $b))) ! @n ! string()",
+        "1 2 3 4 5");
+    query(NODES + "let $f := <a n='5'/> return count(($c, $f) intersect ($f, $b))", "3");
+    query(NODES + "let $f := <a n='5'/> return count(($c, $f) except ($f, $b))", "1");
+  }
+
+  /** Distinct values of specialized and generic types. */
+  @Test
+  public void distinctValues() {
+    query("distinct-values(('a', xs:untypedAtomic('a'), 'b', 'a'))", "a b");
+    query("distinct-values((1, 2, xs:byte(1), 2, 3))", "1 2 3");
+    query("distinct-values((1e0, 0e0, -0e0, xs:double('NaN'), 0e0 div 0, 1e0))", "1 0 NaN");
+    query("distinct-values((1, 2, 1e0, 2.0, '1', xs:untypedAtomic('2')))", "1 2 1 2");
+    query("distinct-values(('1', 1, xs:untypedAtomic('1'), 1.0))", "1 1");
+    query("count(distinct-values((1 to 100000, 1 to 100000)))", "100000");
+  }
+
+  /** Positions of specialized and generic types. */
+  @Test
+  public void indexOf() {
+    query("index-of((1, '1', 1.0, xs:untypedAtomic('1'), 1e0, xs:byte(1)), 1)", "1 3 5 6");
+    query("index-of(('a', xs:untypedAtomic('a'), 1, 'b'), 'a')", "1 2");
+    query("index-of((1, 'a', 2.0), 2)", "3");
+  }
+}
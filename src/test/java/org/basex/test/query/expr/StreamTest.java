@@ -0,0 +1,202 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Test cases for paths that are evaluated while a document is parsed.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class StreamTest extends AdvancedQueryTest {
+  /** Test file. */
+  private static final String FILE = Prop.TMP + NAME + ".xml";
+  /** Pragma for enabling streaming. */
+  private static final String STREAM = "(# db:stream true #) ";
+  /** Paths (will be prefixed with the document call). */
+  private static final String[] PATHS = {
+    "/x/a", "/x/a/b", "//a", "//b", "//a//b", "//a/b/text()", "//b/@*", "//@id",
+    "//a/node()", "//node()", "//comment()", "/comment()", "//processing-instruction()",
+    "//*", "/x/*/*", "//a[@id]", "//a[@id][@n]", "//a[@id = '4']/b", "//a[@n > 1]//@c",
+    "//*:c", "//p:c", "//p:c/@p:d", "//@p:*", "//*[@xml:lang = 'en']/@id",
+    "/x/descendant::b", "//a/descendant::a/@id", "//unknown", "//a/unknown/@id",
+    "//element()", "//a/attribute()", "//text()",
+  };
+  /** Paths that cannot be streamed (will be prefixed with the document call). */
+  private static final String[] BLOCKING = {
+    "//a[1]", "//a[b]/@id", "//b/..", "//a/self::a", "/x/a[last()]", "//b/ancestor::a",
+  };
+
+  /**
+   * Creates the test document.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void init() throws IOException {
+    final StringBuilder sb = nested(new StringBuilder("<!-- c --><x xmlns:p='urn:p'>"), 100);
+    new IOFile(FILE).write(Token.token(sb.append("</x>").toString()));
+  }
+
+  /**
+   * Deletes the test document.
+   */
+  @AfterClass
+  public static void finish() {
+    new File(FILE).delete();
+  }
+
+  /**
+   * Compares the results of streamed and regular path evaluation.
+   */
+  @Test
+  public void paths() {
+    for(final String p : PATHS) compare(p, true);
+    for(final String p : BLOCKING) compare(p, false);
+  }
+
+  /**
+   * Checks that paths are only streamed if streaming is enabled.
+   */
+  @Test
+  public void enabled() {
+    final String d = "doc('" + FILE + "')";
+    assertFalse(streamed(d + "//a"));
+    assertFalse(streamed(STREAM + "{ " + d + " }"));
+    assertFalse(streamed("(# db:stream false #) { " + d + "//a }"));
+    assertFalse(streamed(STREAM + "{ <x><a/></x>//a }"));
+    assertTrue(streamed(STREAM + "{ count(" + d + "//a) }"));
+  }
+
+  /**
+   * Checks that streamed nodes are not connected to the original document.
+   */
+  @Test
+  public void fragments() {
+    final String q = "for $a in doc('" + FILE + "')/x/a return $a/..";
+    query("count(" + q + ')', 100);
+    query(STREAM + "{ count(" + q + ") }", 0);
+  }
+
+  /**
+   * Checks that the document is only parsed once if a path is evaluated repeatedly.
+   */
+  @Test
+  public void repeated() {
+    final String d = "doc('" + FILE + "')";
+    query(STREAM + "{ let $a := for $i in 1 to 2 return " + d + "/x/a " +
+        "return $a[1] is $a[count($a) div 2 + 1] }", "true");
+    query(STREAM + "{ sum(for $i in 1 to 1000 return count(" + d + "//b)) }",
+        Integer.parseInt(query("count(" + d + "//b)")) * 1000);
+    // the results of partial evaluations are not cached
+    query(STREAM + "{ for $i in 1 to 2 return (head(" + d + "//a/@id), count(" +
+        d + "//a/@id)) }", query("for $i in 1 to 2 return (head(" + d + "//a/@id), count(" +
+        d + "//a/@id))"));
+    // later changes of the file are ignored, as for fn:doc
+    final String q = "for $i in 1 to 2 return (count(" + d + "/x/a), " +
+        "file:write('" + FILE + "', <x/>))";
+    final String exp = query("count(" + d + "/x/a)");
+    try {
+      query(STREAM + "{ " + q + " }", exp + " " + exp);
+    } finally {
+      try {
+        init();
+      } catch(final IOException ex) {
+        fail(ex.toString());
+      }
+    }
+  }
+
+  /**
+   * Checks that the option is not applied to databases.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void database() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(context);
+    try {
+      query(STREAM + "{ count(for $a in doc('" + NAME + "')/x/a return $a/..) }", 100);
+    } finally {
+      new DropDB(NAME).execute(context);
+    }
+    error(STREAM + "{ doc('" + FILE + ".unknown')/x }", Err.IOERR);
+  }
+
+  /**
+   * Compares the results of streamed paths whose evaluation is stopped early.
+   */
+  @Test
+  public void early() {
+    final String d = "doc('" + FILE + "')";
+    comparePragma(STREAM, "head(" + d + "//b)", "(" + d + "//a/@id)[3]",
+        "exists(" + d + "//b)", "empty(" + d + "//unknown)", "subsequence(" + d + "//a, 5, 3)",
+        "(" + d + "//a)[position() < 4]/@id");
+  }
+
+  /**
+   * Checks the results of streamed paths on documents without matching nodes.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void empty() throws IOException {
+    final IOFile file = new IOFile(Prop.TMP + NAME + "empty.xml");
+    file.write(Token.token("<x/>"));
+    try {
+      final String d = "doc('" + file.path() + "')";
+      query(STREAM + "{ count(" + d + "//a) }", 0);
+      query(STREAM + "{ " + d + "/x/a/@id }", "");
+      query(STREAM + "{ count(" + d + "//node()) }", 1);
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Checks that errors are raised while streaming.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void errors() throws IOException {
+    final IOFile file = new IOFile(Prop.TMP + NAME + "error.xml");
+    file.write(Token.token("<x><a><b>1</b></a><a></x>"));
+    try {
+      error(STREAM + "{ count(doc('" + file.path() + "')//b) }", Err.IOERR);
+      error(STREAM + "{ (1, doc('" + FILE + "')/x)/a }", Err.NODESPATH);
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Compares the results of streamed and regular path evaluation, and checks if
+   * the path has been streamed.
+   * @param path path
+   * @param stream streaming flag
+   */
+  private static void compare(final String path, final boolean stream) {
+    final String q = "declare namespace p='urn:p'; ", d = "doc('" + FILE + "')" + path;
+    final String s = q + STREAM + "{ " + d + " }";
+    assertEquals(path, query(q + "count(" + d + ')'), query(q + STREAM + "{ count(" + d + ") }"));
+    assertEquals(path, query(q + d), query(s));
+    assertEquals(path, stream, streamed(s));
+  }
+
+  /**
+   * Checks if the specified query streams a path.
+   * @param query query
+   * @return result of check
+   */
+  private static boolean streamed(final String query) {
+    return info(query).contains(Util.info(QueryText.OPTSTREAM, ""));
+  }
+}
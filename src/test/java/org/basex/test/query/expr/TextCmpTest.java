@@ -0,0 +1,95 @@
+package org.basex.test.query.expr;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for comparisons of strings with database nodes, which are compared
+ * with the stored texts.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class TextCmpTest extends AdvancedQueryTest {
+  /** Long text, which will be stored in compressed form. */
+  private static final String LONG = "abcdefghij abcdefghij abcdefghij abcdefghij";
+  /** Test document. */
+  private static final String DOC = "<r><a n='1'>123</a><a n='x'>" + LONG + "</a>" +
+      "<a n=''>0</a><a>12<b/>3</a><a/><!--" + LONG + "--><?pi " + LONG + "?>" +
+      "<a n='0123'>Ab</a></r>";
+  /** Query prefix. */
+  private static final String A = "db:open('" + NAME + "')//a";
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares strings with nodes of a disk-based database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void disk() throws BaseXException {
+    new Set(Prop.MAINMEM, false).execute(context);
+    new Set(Prop.TEXTINDEX, false).execute(context);
+    new Set(Prop.ATTRINDEX, false).execute(context);
+    try {
+      new CreateDB(NAME, DOC).execute(context);
+      compare();
+      // check updated texts
+      query("replace value of node " + A + "[1]/text() with 'x', " +
+          "replace value of node " + A + "[1]/@n with '" + LONG + "'");
+      query("count(" + A + "[text() = 'x']), count(" + A + "[@n = '" + LONG + "'])", "1 1");
+      query("count(" + A + "[text() = '123'])", "0");
+    } finally {
+      new Set(Prop.TEXTINDEX, true).execute(context);
+      new Set(Prop.ATTRINDEX, true).execute(context);
+    }
+  }
+
+  /**
+   * Compares strings with nodes of a main-memory database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void mainmem() throws BaseXException {
+    new Set(Prop.MAINMEM, true).execute(context);
+    try {
+      new CreateDB(NAME, DOC).execute(context);
+      compare();
+    } finally {
+      new Set(Prop.MAINMEM, false).execute(context);
+    }
+  }
+
+  /**
+   * Runs the comparisons.
+   */
+  private static void compare() {
+    query("count(" + A + "[text() = '123'])", "1");
+    query("count(" + A + "[text() = '0123'])", "0");
+    query("count(" + A + "[text() = ('12', '0')])", "2");
+    query("count(" + A + "[text() = '" + LONG + "'])", "1");
+    query("count(" + A + "[text() = '" + LONG + "x'])", "0");
+    query("count(" + A + "[text() = 'ab'])", "0");
+    query("count(" + A + "[text() = xs:untypedAtomic('Ab')])", "1");
+    query("count(" + A + "[. = '123'])", "2");
+    query("count(" + A + "[. = ''])", "1");
+    query("count(" + A + "[. != '123'])", "4");
+    query("count(" + A + "[@n = ('1', '0123', '')])", "3");
+    query("count(" + A + "[@n = '123'])", "0");
+    query("count(" + A + "/@n[. eq 'x'])", "1");
+    query("count(" + A + "/text()[. ne '0'])", "5");
+    query("count(db:open('" + NAME + "')//comment()[. = '" + LONG + "'])", "1");
+    query("count(db:open('" + NAME + "')//processing-instruction()[. = '" + LONG + "'])",
+        "1");
+    query("count(" + A + "[. = " + A + "[1]])", "2");
+  }
+}
@@ -1,9 +1,17 @@
 package org.basex.test.query.func;
 
 import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
 
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.query.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.seq.*;
 import org.basex.test.query.*;
+import org.basex.util.*;
 import org.junit.*;
 
 /**
@@ -66,4 +74,92 @@ public final class FNHofTest extends AdvancedQueryTest {
     query("hof:top-k-with((), function($x,$y) {$x > $y}, 5)", "");
     query("hof:top-k-with(1 to 5, function($x,$y) {$x > $y}, 5)", "1 2 3 4 5");
   }
+
+  /** Test method. */
+  @Test
+  public void parallelMapTest() {
+    query("hof:parallel-map(function($x) { $x * 2 }, ())", "");
+    query("hof:parallel-map(function($x) { $x * 2 }, 1 to 5, 3)", "2 4 6 8 10");
+    query("hof:parallel-map(function($x) { 1 to $x }, 1 to 3, 2)", "1 1 2 1 2 3");
+    query("count(hof:parallel-map(function($x) { string($x) }, 1 to 10000, 4))", "10000");
+    query("declare function local:f($x as xs:integer) { $x + 1 }; " +
+        "hof:parallel-map(local:f#1, 1 to 3, 2)", "2 3 4");
+    // nested calls, node constructors
+    query("hof:parallel-map(function($x) { hof:parallel-map(function($y) { $x * $y }, " +
+        "1 to 2) }, 1 to 3)", "1 2 2 4 3 6");
+    query("hof:parallel-map(function($x) { <a>{ $x }</a> }, 1 to 2, 2)", "<a>1</a><a>2</a>");
+    error("hof:parallel-map(function($x) { if($x = 777) then error() else $x }, " +
+        "1 to 1000, 4)", Err.FUNERR1);
+    error("hof:parallel-map(function($x) { $x }, 1, 0)", Err.BASX_THREADS);
+    // huge sequences are evaluated sequentially
+    query("head(hof:parallel-map(function($x) { $x * 2 }, " +
+        "1 to 3000000000 + random:integer(1)))", "2");
+    query("head(hof:parallel-filter(function($x) { $x mod 7 = 0 }, " +
+        "1 to 3000000000 + random:integer(1)))", "7");
+    // namespaces of the calling thread are not affected by function calls
+    query("declare function local:f($x) { $x * 2 }; <x xmlns:z='urn:z'>{ " +
+        "count(hof:parallel-map(local:f#1, 1 to 10000, 8)), element z:e { } }</x>",
+        "<x xmlns:z=\"urn:z\">10000<z:e/></x>");
+  }
+
+  /** Test method. */
+  @Test
+  public void parallelFilterTest() {
+    query("hof:parallel-filter(function($x) { $x mod 3 = 0 }, 1 to 10, 2)", "3 6 9");
+    query("hof:parallel-filter(function($x) { true() }, ())", "");
+    error("hof:parallel-filter(function($x) { () }, 1 to 10, 2)", Err.XPTYPE);
+  }
+
+  /**
+   * Checks that interruptions are forwarded to all threads.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void parallelStopTest() throws QueryException {
+    final QueryProcessor qp = new QueryProcessor("hof:parallel-map(function($x) { " +
+        "hof:until(function($y) { false() }, function($y) { $y + 1 }, $x) }, 1 to 4, 4)",
+        context);
+    new Thread() {
+      @Override
+      public void run() {
+        Performance.sleep(200);
+        qp.ctx.stop();
+      }
+    }.start();
+    try {
+      qp.value();
+      fail("Query was not stopped.");
+    } catch(final ProgressException ex) {
+      // expected
+    } finally {
+      qp.close();
+    }
+  }
+
+  /**
+   * Checks that the number of threads is limited by the main options.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void parallelThreadsTest() throws QueryException {
+    query("count(hof:parallel-map(function($x) { $x }, 1 to 10000, 1000000))", "10000");
+
+    final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+    final QueryProcessor qp = new QueryProcessor("()", context);
+    context.mprop.set(MainProp.MAXTHREADS, 2);
+    try {
+      new Fork(100) {
+        @Override
+        protected Value eval(final QueryContext qc, final int t) {
+          threads.add(Thread.currentThread());
+          Performance.sleep(1);
+          return Empty.SEQ;
+        }
+      }.run(qp.ctx, 100);
+      assertTrue(threads.toString(), threads.size() <= 2);
+    } finally {
+      context.mprop.set(MainProp.MAXTHREADS, 0);
+      qp.close();
+    }
+  }
 }
@@ -24,6 +24,27 @@ public final class FNMapTest extends AdvancedQueryTest {
     query(_MAP_SIZE.args(_MAP_NEW.args(_MAP_NEW.args("()"))), 0);
   }
 
+  /** Test method. */
+  @Test
+  public void newBulk() {
+    // maps are built in bulk; later bindings win
+    final String m = "let $m := map:new(for $i in 1 to 10000 " +
+        "return map:entry($i mod 5000, $i)) ";
+    query(m + "return (map:size($m), $m(0), $m(1), $m(4999))", "5000 10000 5001 9999");
+    // keys with identical hash values
+    query("let $m := map:new((map:entry('Aa', 1), map:entry('BB', 2), map:entry('Aa', 3), " +
+        "map:entry(1, 'a'), map:entry(1.0, 'b'), map:entry(xs:untypedAtomic('BB'), 4))) " +
+        "return (map:size($m), $m('Aa'), $m('BB'), $m(1))", "3 3 4 b");
+    query("map { 'a' := 1, 'b' := 2, 'a' := 3 }('a')", 3);
+    // compare with maps that are built by single insertions
+    query("let $a := map:new(for $i in 1 to 1000 return map:entry($i, $i * 2)) " +
+        "let $b := fold-left(function($m, $i) { map:new(($m, map:entry($i, $i * 2))) }, " +
+        "map:new(), 1 to 1000) return deep-equal($a, $b)", true);
+    query("let $a := map:new((map:entry('x', 1), map:new(for $i in 1 to 100 " +
+        "return map:entry($i, $i)), map:entry('x', 2))) return ($a('x'), map:size($a))",
+        "2 101");
+  }
+
   /** Test method. */
   @Test
   public void entry() {
@@ -1,7 +1,11 @@
 package org.basex.test.query.func;
 
 import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
 
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
 import org.basex.test.query.*;
 import org.junit.*;
 
@@ -60,6 +64,32 @@ public final class FNProfTest extends AdvancedQueryTest {
     }
   }
 
+  /** Test method. */
+  @Test
+  public void profile() {
+    final String q = _PROF_PROFILE.args(" for $i in 1 to 10 where $i mod 2 = 0 return $i * 2");
+    query(q + "/*/(@calls, @items) ! string()", "1 5");
+    query(q + "//Arith[@op = '*']/(@calls, @items) ! string()", "5 5");
+    query(q + "//@time ! (number() >= 0) = false()", "false");
+    query("count(" + _PROF_PROFILE.args(" 1 to 3") + "//@calls)", "0");
+  }
+
+  /**
+   * Test method for the {@link Prop#PROFILE} option.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void profileOption() throws BaseXException {
+    new Set(Prop.PROFILE, true).execute(context);
+    try {
+      final XQuery cmd = new XQuery("for $i in 1 to 3 return $i + 1");
+      assertEquals("2 3 4", cmd.execute(context).replaceAll("\\s+", " "));
+      assertTrue(cmd.info().contains("calls=\"1\" items=\"3\""));
+    } finally {
+      new Set(Prop.PROFILE, false).execute(context);
+    }
+  }
+
   /** Test method. */
   @Test
   public void currentMs() {
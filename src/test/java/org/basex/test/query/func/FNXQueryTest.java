@@ -40,6 +40,19 @@ public final class FNXQueryTest extends AdvancedQueryTest {
     error(_XQUERY_INVOKE.args("src/test/resources/xxx.xq"), Err.WHICHRES);
   }
 
+  /** Test method. */
+  @Test
+  public void forkJoin() {
+    query(_XQUERY_FORK_JOIN.args("()"), "");
+    query(_XQUERY_FORK_JOIN.args("(function() { 1 to 3 }, function() { 'a' }, " +
+        "function() { () }, function() { sum(1 to 100) })"), "1 2 3 a 5050");
+    query("xquery:fork-join(for $i in 1 to 5 return function() { $i * $i }, 2)",
+        "1 4 9 16 25");
+    error(_XQUERY_FORK_JOIN.args("function($x) { $x }"), Err.XPTYPE);
+    error(_XQUERY_FORK_JOIN.args("(function() { 1 }, function() { error() })"),
+        Err.FUNERR1);
+  }
+
   /** Test method. */
   @Test
   public void type() {
@@ -0,0 +1,167 @@
+package org.basex.test.query.up;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for transform expressions, which attach updates to virtual copies of
+ * database nodes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class TransformOverlayTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<r xmlns:p='urn:p'><s a='1' c='0' p:b='2'><t>x</t>" +
+      "text<!--c--><?pi y?><u><t>z</t></u></s><s a='3'><t>4</t></s></r>";
+  /** Database node. */
+  private static final String DB = "db:open('" + NAME + "')/r";
+  /** Fragment (will be copied to main memory). */
+  private static final String FRAG = "document { " + DB + " }/r";
+  /** Modify clauses. */
+  private static final String[] MODIFY = {
+    "()",
+    "replace value of node $c/s[1]/@a with 'X'",
+    "replace value of node $c/s[1]/@a with ''",
+    "replace value of node ($c//t)[1]/text() with 'Y'",
+    "replace value of node $c//comment() with 'C'",
+    "replace value of node $c//processing-instruction() with 'P'",
+    "rename node $c/s[1] as 'q'",
+    "rename node $c/s[1]/@a as 'b'",
+    "rename node $c/s[1] as QName('urn:x', 'x:s')",
+    "rename node $c//processing-instruction() as 'p'",
+    "delete node $c/s[1]",
+    "delete node $c//@a",
+    "delete nodes ($c//t, $c//u)",
+    "(delete node $c//u, replace value of node $c//u/t/text() with 'Y')",
+    "(rename node $c/s[2] as 'q', delete node $c/s[2]/t, " +
+      "replace value of node $c/s[2]/@a with '5')",
+    // structural updates: copies will be materialized
+    "replace value of node $c/s[1] with 'E'",
+    "replace value of node ($c//t)[1]/text() with ''",
+    "insert node <n/> into $c/s[2]",
+    "(replace value of node $c/s[1]/@a with 'X', insert node <n/> into $c)",
+  };
+  /** Return clauses. */
+  private static final String[] RETURN = {
+    "$c", "string($c)", "$c/s ! string()", "count($c//node())", "$c//@* ! name()",
+    "$c/s[2] ! (t + @a)", "sum($c/s[2]/(t, @a))", "$c/*/following::t ! string()",
+    "$c//t/.. ! name()", "<x>{ $c/* }</x>", "deep-equal($c, " + DB + ")",
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of virtual and physical copies.
+   */
+  @Test
+  public void compare() {
+    for(final String m : MODIFY) {
+      for(final String r : RETURN) {
+        final String q = " modify " + m + " return " + r;
+        final String v = "copy $c := " + DB + q;
+        assertEquals(v, query("copy $c := " + FRAG + q), query(v));
+      }
+    }
+    // original database must not be changed
+    assertEquals(query(FRAG), query(DB));
+  }
+
+  /**
+   * Checks that adjacent texts are merged after deletions.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void texts() throws BaseXException {
+    final String name = NAME + "texts";
+    new CreateDB(name, "<a>x<b/>y<c k='1'/>z<d/><e/>w</a>").execute(context);
+    try {
+      final String db = "db:open('" + name + "')/a";
+      final String[] modify = {
+        "delete node $c/b", "delete node $c/*", "delete nodes ($c/d, $c/e)",
+        "delete node $c/d", "delete node $c/c/@k", "delete node $c/text()[2]",
+      };
+      final String[] ret = {
+        "$c", "count($c/text())", "$c/text()[1]/string()", "$c/node()[1]/following-sibling::node()",
+        "$c/text() ! string()",
+      };
+      for(final String m : modify) {
+        for(final String r : ret) {
+          final String q = " modify " + m + " return " + r;
+          final String v = "copy $c := " + db + q;
+          assertEquals(v, query("copy $c := document { " + db + " }/a" + q), query(v));
+        }
+      }
+      query("copy $c := " + db + " modify delete node $c/b " +
+          "return (count($c/text()), $c/text()[1]/string())", "3 xy");
+      query("copy $c := " + db + " modify delete node $c/* return $c/text() ! string()",
+          "xyzw");
+      query("copy $c := " + db + " modify delete node $c/d return count($c/text())", 4);
+    } finally {
+      new DropDB(name).execute(context);
+    }
+  }
+
+  /**
+   * Checks nested transform expressions.
+   */
+  @Test
+  public void nested() {
+    final String q = "copy $c := " + DB + " modify replace value of node $c/s[1]/@a " +
+        "with 'X' return copy $d := $c modify rename node $d/s[1] as 'q' return $d";
+    query(q + "/q/@a/string()", "X");
+    query("copy $c := " + DB + ", $d := " + DB + " modify (" +
+        "rename node $c/s[1] as 'c', rename node $d/s[1] as 'd') " +
+        "return ($c/*[1], $d/*[1]) ! name()", "c d");
+  }
+
+  /**
+   * Evaluates the copy and modify clauses only once if the copies are materialized.
+   */
+  @Test
+  public void once() {
+    final String file = new IOFile(sandbox(), "once.txt").path();
+    query("file:write-text('" + file + "', '')", "");
+    query("copy $c := (file:append-text('" + file + "', 'c'), " + DB + ") " +
+        "modify (file:append-text('" + file + "', 'm'), insert node <n/> into $c/s[2]) " +
+        "return count($c//n)", "1");
+    query("file:read-text('" + file + "')", "cm");
+  }
+
+  /**
+   * Checks errors raised by updates on virtual copies.
+   */
+  @Test
+  public void errors() {
+    error("copy $c := " + DB + " modify delete node " + DB + "/s return $c",
+        Err.UPNOTCOPIED);
+    error("copy $c := " + DB + "/s[1] modify delete node " + DB + "/s[1]/t return $c",
+        Err.UPNOTCOPIED);
+    error("copy $c := " + DB + " modify (replace value of node $c/s[1]/@a with 'X', " +
+        "replace value of node $c/s[1]/@a with 'Y') return $c", Err.UPMULTREPV);
+    error("copy $c := " + DB + " modify rename node $c/s[1]/@a as 'c' return $c",
+        Err.UPATTDUPL);
+  }
+}